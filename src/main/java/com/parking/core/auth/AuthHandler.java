@@ -1,12 +1,10 @@
 package com.parking.core.auth;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
@@ -14,17 +12,24 @@ import org.springframework.web.server.ResponseStatusException;
 
 import com.parking.core.auth.model.AuthRequest;
 import com.parking.core.auth.model.BlackListToken;
+import com.parking.core.auth.model.RefreshRequest;
 import com.parking.core.auth.services.AuthService;
+import com.parking.core.auth.services.BulkSignUpService;
 import com.parking.core.auth.services.JWTService;
+import com.parking.core.auth.services.RefreshTokenService;
+import com.parking.core.auth.services.TokenEpochService;
+
+import io.jsonwebtoken.JwtException;
 
 import jakarta.validation.Valid;
 
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 
 /**
- * REST controller for authentication endpoints (sign-up, login, logout).
+ * REST controller for authentication endpoints (sign-up, login, token refresh, logout, logout of all sessions).
  * <p>
  * Base path: {@code /api/v1/parking/auth} — all endpoints are publicly accessible.
  * </p>
@@ -37,16 +42,22 @@ import org.springframework.web.bind.annotation.RequestHeader;
 @RequestMapping("api/v1/parking/auth")
 public class AuthHandler {
 
-    private static final Logger log = LoggerFactory.getLogger(AuthHandler.class);
-
     private final AuthService authService;
     private final BlackListToken blackList;
     private final JWTService jwtService;
+    private final TokenEpochService tokenEpochService;
+    private final RefreshTokenService refreshTokenService;
+    private final BulkSignUpService bulkSignUpService;
 
-    public AuthHandler(AuthService authService, BlackListToken blacklist, JWTService jwtService) {
+    public AuthHandler(AuthService authService, BlackListToken blacklist, JWTService jwtService,
+                       TokenEpochService tokenEpochService, RefreshTokenService refreshTokenService,
+                       BulkSignUpService bulkSignUpService) {
         this.blackList = blacklist;
         this.authService = authService;
         this.jwtService = jwtService;
+        this.tokenEpochService = tokenEpochService;
+        this.refreshTokenService = refreshTokenService;
+        this.bulkSignUpService = bulkSignUpService;
     }
 
     /**
@@ -65,36 +76,18 @@ public class AuthHandler {
     /**
      * Registers multiple users in a single request.
      * <p>
-     * Processes each request individually; failures for one user do not block others.
-     * Each result includes either the user data or an error message.
+     * Failures for one user do not block others. Each result includes either the user data
+     * or the status and reason of the failure, in request order.
      * </p>
      *
      * @param requests a list of sign-up requests
+     * @param tokens   whether to return a JWT for every created user (default {@code true})
      * @return {@code 200 OK} with the count of processed items and individual results
      */
     @PostMapping("/signUp/bulk")
-    public ResponseEntity<Map<String, Object>> signUpBulk(@RequestBody List<AuthRequest> requests) {
-        List<Map<String, Object>> responses = new ArrayList<>();
-
-        for (AuthRequest req : requests) {
-            try {
-                Map<String, Object> result = authService.signUp(req);
-                result.put("message", "User created successfully");
-                responses.add(result);
-            } catch (ResponseStatusException e) {
-                log.warn("Bulk signUp failed for user {}: {}", req.getUsername(), e.getReason());
-                responses.add(Map.of(
-                        "status", e.getStatusCode().value(),
-                        "username", req.getUsername(),
-                        "message", e.getReason()));
-            } catch (Exception e) {
-                log.error("Unexpected error in bulk signUp for user {}", req.getUsername(), e);
-                responses.add(Map.of(
-                        "status", 500,
-                        "username", req.getUsername(),
-                        "message", "Unexpected error: " + e.getMessage()));
-            }
-        }
+    public ResponseEntity<Map<String, Object>> signUpBulk(@RequestBody List<AuthRequest> requests,
+                                                          @RequestParam(defaultValue = "true") boolean tokens) {
+        List<Map<String, Object>> responses = bulkSignUpService.signUp(requests, tokens);
 
         return ResponseEntity.ok(Map.of(
                 "processed", requests.size(),
@@ -114,23 +107,71 @@ public class AuthHandler {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Exchanges a refresh token for a new access token without checking the password again.
+     * <p>
+     * The refresh token is single-use: the response carries its replacement, and presenting
+     * it a second time revokes every token derived from the same login.
+     * </p>
+     *
+     * @param request the refresh token (validated)
+     * @return {@code 200 OK} with the user info, new JWT token, new refresh token and success message
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<Map<String, Object>> refresh(@Valid @RequestBody RefreshRequest request) {
+        Map<String, Object> response = authService.refresh(request.refreshToken());
+        response.put("message", "Token refreshed successfully");
+        return ResponseEntity.ok(response);
+    }
+
     /**
      * Logs out the current user by blacklisting their JWT token.
      * <p>
-     * Extracts the Bearer token from the Authorization header and adds it
-     * to the Redis-based blacklist with its remaining TTL.
+     * Extracts the Bearer token from the Authorization header and adds its
+     * {@code jti} to the Redis-based blacklist with its remaining TTL. If the body
+     * carries a refresh token, it is revoked as well.
      * </p>
      *
-     * @param header the Authorization header containing the Bearer token
+     * @param header  the Authorization header containing the Bearer token
+     * @param request optional body with the refresh token of the session
      * @return {@code 200 OK} with a logout success message
      */
     @PostMapping("/logout")
-    public ResponseEntity<Map<String, Object>> logout(@RequestHeader(HttpHeaders.AUTHORIZATION) String header) {
+    public ResponseEntity<Map<String, Object>> logout(@RequestHeader(HttpHeaders.AUTHORIZATION) String header,
+                                                      @RequestBody(required = false) RefreshRequest request) {
         if (header != null && header.startsWith("Bearer ")) {
             String token = header.substring(7);
             long expirationMs = jwtService.getExpiration(token);
-            blackList.add(token, expirationMs);
+            blackList.add(jwtService.revocationId(token), expirationMs);
+        }
+        if (request != null && request.refreshToken() != null) {
+            refreshTokenService.revoke(request.refreshToken());
         }
         return ResponseEntity.ok(Map.of("message", "Logout successfully"));
     }
+
+    /**
+     * Logs the current user out of every session by moving their token epoch forward.
+     * <p>
+     * Every token issued to the user so far, on any device, is rejected afterwards.
+     * </p>
+     *
+     * @param header the Authorization header containing the Bearer token
+     * @return {@code 200 OK} with a logout success message
+     * @throws ResponseStatusException with {@code 401 UNAUTHORIZED} if the token is missing or invalid
+     */
+    @PostMapping("/logout/all")
+    public ResponseEntity<Map<String, Object>> logoutAll(@RequestHeader(HttpHeaders.AUTHORIZATION) String header) {
+        if (header == null || !header.startsWith("Bearer ")) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Bearer token is required");
+        }
+        String username;
+        try {
+            username = jwtService.verify(header.substring(7)).getSubject();
+        } catch (JwtException e) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid or expired token");
+        }
+        tokenEpochService.revokeAll(username);
+        return ResponseEntity.ok(Map.of("message", "All sessions logged out"));
+    }
 }
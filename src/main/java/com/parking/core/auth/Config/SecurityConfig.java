@@ -4,6 +4,7 @@ import java.util.List;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
@@ -96,7 +97,9 @@ public class SecurityConfig {
      *   <li>Defines authorization rules:
      *       <ul>
      *           <li>Allows unrestricted access to endpoints under "/api/v1/parking/auth/**".</li>
+     *           <li>Restricts role changes ("/api/v1/parking/users/{username}/role") to users with the "ADMIN" role.</li>
      *           <li>Restricts access to endpoints under "/api/v1/parking/users/**" to users with the "USER" role.</li>
+     *           <li>Restricts the Stripe customer backfill ("/api/customers/backfill") to users with the "ADMIN" role.</li>
      *           <li>Requires authentication for all other requests.</li>
      *       </ul>
      *   </li>
@@ -119,7 +122,9 @@ public class SecurityConfig {
                                             .requestMatchers("/actuator/**").permitAll()
                                             .requestMatchers("/api/webhooks/**").permitAll()
                                             .requestMatchers("/api/v1/public/**").permitAll()
+                                            .requestMatchers(HttpMethod.PUT, "/api/v1/parking/users/*/role").hasRole("ADMIN")
                                             .requestMatchers("/api/v1/parking/users/**").hasRole("USER")
+                                            .requestMatchers(HttpMethod.POST, "/api/customers/backfill").hasRole("ADMIN")
                                             .requestMatchers("/api/customers/**").authenticated()
                                             .requestMatchers("/api/invoices/**").authenticated()
                                             .requestMatchers("/api/cards/**").authenticated()
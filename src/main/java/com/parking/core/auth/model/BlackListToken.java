@@ -1,48 +1,108 @@
 package com.parking.core.auth.model;
 
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.Cursor;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
 import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import jakarta.annotation.PostConstruct;
+
 /**
  * Redis-backed component for blacklisting revoked JWT tokens.
  * <p>
  * When a user logs out, their token is stored in Redis with its remaining
  * time-to-live. Subsequent requests presenting a blacklisted token are rejected
- * by {@link com.parking.core.auth.services.JWTAuthFilter}.
+ * by {@link com.parking.core.auth.services.JWTAuthFilter}. Tokens are identified by their
+ * {@code jti} claim, or by the hash of the token for tokens issued without one, and stored
+ * under {@code revoked:<id>}.
+ * </p>
+ * <p>
+ * With {@code jwt.blacklist.near-cache-enabled} every node keeps the set of revoked ids in
+ * memory and answers checks locally. The set is loaded from Redis at startup, fed by the
+ * {@code token-revocations} pub/sub channel and reloaded every
+ * {@code jwt.blacklist.resync-interval-ms} to repair missed messages, so Redis traffic grows
+ * with revocations instead of requests. While the set cannot be loaded, checks fall back to Redis.
+ * </p>
+ * <p>
+ * Tokens revoked before revocations were keyed by id were stored under the raw token. Those keys
+ * are still checked for tokens without a {@code jti} until one token lifetime
+ * ({@code jwt.expiration}) after startup, by which time every such token has expired.
  * </p>
  */
 @Component
-public class BlackListToken {
+public class BlackListToken implements MessageListener {
     private static final Logger log = LoggerFactory.getLogger(BlackListToken.class);
+
+    static final String KEY_PREFIX = "revoked:";
+    static final String CHANNEL = "token-revocations";
+
     private final RedisTemplate<String,String> redisTemplate;
     private final ValueOperations<String,String> valueOps;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final boolean nearCacheEnabled;
+    private final long legacyKeysUntil;
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+    private volatile boolean synced;
 
     /**
      * Constructs a BlackListToken instance with the specified RedisTemplate.
      *
-     * @param redisTemplate the RedisTemplate used for interacting with Redis.
-     *                       It provides operations for working with key-value pairs.
+     * @param redisTemplate     the RedisTemplate used for interacting with Redis.
+     *                          It provides operations for working with key-value pairs.
+     * @param listenerContainer the shared container used to subscribe to revocations
+     * @param nearCacheEnabled  whether revocation checks are answered from memory
+     * @param tokenTtlMs        the lifetime of access tokens, bounding how long legacy keys are checked
      */
-    public BlackListToken(RedisTemplate<String, String> redisTemplate) {
+    public BlackListToken(RedisTemplate<String, String> redisTemplate, RedisMessageListenerContainer listenerContainer,
+                          @Value("${jwt.blacklist.near-cache-enabled:true}") boolean nearCacheEnabled,
+                          @Value("${jwt.expiration:3600000}") long tokenTtlMs) {
         this.redisTemplate = redisTemplate;
         this.valueOps = redisTemplate.opsForValue();
+        this.listenerContainer = listenerContainer;
+        this.nearCacheEnabled = nearCacheEnabled;
+        this.legacyKeysUntil = System.currentTimeMillis() + tokenTtlMs;
+    }
+
+    /**
+     * Subscribes to revocations published by other nodes and loads the current blacklist.
+     */
+    @PostConstruct
+    public void start() {
+        if (nearCacheEnabled) {
+            listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+            resync();
+        }
     }
 
     /**
-     * Adds a token to the blacklist with a specified expiration time.
+     * Adds a token to the blacklist with a specified expiration time and notifies the other nodes.
      *
-     * @param token        The token to be added to the blacklist.
+     * @param tokenId      The {@code jti} or hash of the token to be added to the blacklist.
      * @param expirationMs The expiration time in milliseconds after which the token will be removed from the blacklist.
      */
-    public void add(String token, long expirationMs){
+    public void add(String tokenId, long expirationMs){
+        long expiresAt = System.currentTimeMillis() + expirationMs;
+        revoked.put(tokenId, expiresAt);
         try {
-            valueOps.set(token, "revoked", expirationMs, TimeUnit.MILLISECONDS);
+            valueOps.set(KEY_PREFIX + tokenId, Long.toString(expiresAt), expirationMs, TimeUnit.MILLISECONDS);
+            redisTemplate.convertAndSend(CHANNEL, tokenId + " " + expiresAt);
         } catch (Exception e) {
             log.warn("Redis unavailable: token blacklisting skipped. Token will expire naturally.", e);
         }
@@ -51,16 +111,94 @@ public class BlackListToken {
     /**
      * Checks if the given token is blacklisted.
      *
-     * @param token the token to check
+     * @param tokenId the {@code jti} or hash of the token to check
      * @return {@code true} if the token is blacklisted, {@code false} otherwise
      */
-    public boolean isBlackListed(String token){
+    public boolean isBlackListed(String tokenId){
+        if (nearCacheEnabled && synced) {
+            Long expiresAt = revoked.get(tokenId);
+            return expiresAt != null && expiresAt > System.currentTimeMillis();
+        }
         try {
-            return Boolean.TRUE.equals(redisTemplate.hasKey(token));
+            return Boolean.TRUE.equals(redisTemplate.hasKey(KEY_PREFIX + tokenId));
         } catch (Exception e) {
             log.warn("Redis unavailable: cannot check blacklist, treating token as valid.", e);
             return false;
         }
     }
-}
 
+    /**
+     * Checks if a token without a {@code jti} was blacklisted under the raw token, as done before
+     * revocations were keyed by id. Always {@code false} once the transition window has passed.
+     *
+     * @param token the JWT token to check
+     * @return {@code true} if the token was blacklisted under its legacy key, {@code false} otherwise
+     */
+    public boolean isLegacyBlackListed(String token){
+        if (System.currentTimeMillis() >= legacyKeysUntil) {
+            return false;
+        }
+        try {
+            return Boolean.TRUE.equals(redisTemplate.hasKey(token));
+        } catch (Exception e) {
+            log.warn("Redis unavailable: cannot check legacy blacklist, treating token as valid.", e);
+            return false;
+        }
+    }
+
+    /**
+     * Records a revocation published by any node, including this one.
+     *
+     * @param message the message body, {@code "<id> <expiresAtMillis>"}
+     * @param pattern the channel pattern, unused
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separator = body.lastIndexOf(' ');
+        try {
+            revoked.put(body.substring(0, separator), Long.parseLong(body.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            log.warn("Ignoring malformed token revocation message: {}", body);
+        }
+    }
+
+    /**
+     * Reloads the revoked ids from Redis and drops the ones that have expired.
+     */
+    @Scheduled(fixedDelayString = "${jwt.blacklist.resync-interval-ms:60000}",
+            initialDelayString = "${jwt.blacklist.resync-interval-ms:60000}")
+    public void resync() {
+        if (!nearCacheEnabled) {
+            return;
+        }
+        try {
+            List<String> keys = new ArrayList<>();
+            ScanOptions options = ScanOptions.scanOptions().match(KEY_PREFIX + "*").count(1000).build();
+            try (Cursor<String> cursor = redisTemplate.scan(options)) {
+                cursor.forEachRemaining(keys::add);
+            }
+            List<String> values = keys.isEmpty() ? List.of() : valueOps.multiGet(keys);
+            for (int i = 0; i < keys.size(); i++) {
+                String value = values.get(i);
+                if (value != null) {
+                    revoked.put(keys.get(i).substring(KEY_PREFIX.length()), Long.parseLong(value));
+                }
+            }
+            long now = System.currentTimeMillis();
+            revoked.values().removeIf(expiresAt -> expiresAt <= now);
+            synced = true;
+            log.debug("Token blacklist near-cache synced with {} revoked tokens", revoked.size());
+        } catch (Exception e) {
+            synced = false;
+            log.warn("Redis unavailable: token blacklist near-cache not synced, checking Redis per request.", e);
+        }
+    }
+
+    /**
+     * @return the number of revoked tokens held in memory
+     */
+    public int size() {
+        return revoked.size();
+    }
+}
@@ -0,0 +1,13 @@
+package com.parking.core.auth.model;
+
+import jakarta.validation.constraints.NotBlank;
+
+/**
+ * Request body carrying a refresh token, for {@code /refresh} and {@code /logout}.
+ *
+ * @param refreshToken the refresh token returned by the last login or refresh
+ */
+public record RefreshRequest(
+    @NotBlank(message = "Refresh token is required")
+    String refreshToken
+) {}
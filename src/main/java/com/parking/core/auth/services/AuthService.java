@@ -22,10 +22,11 @@ import com.parking.core.model.User;
 import com.parking.core.repository.UserRepository;
 
 /**
- * Service layer for authentication operations (sign-up and login).
+ * Service layer for authentication operations (sign-up, login and token refresh).
  * <p>
  * Handles user registration with BCrypt password encoding and JWT token generation,
- * as well as login authentication using Spring Security's {@link AuthenticationManager}.
+ * login authentication using Spring Security's {@link AuthenticationManager}, and the
+ * exchange of refresh tokens for new access tokens.
  * </p>
  *
  * @see JWTService
@@ -41,13 +42,15 @@ public class AuthService {
     private final AuthenticationManager authenticationManager;
     private final JWTService jwt;
     private final PasswordEncoder encoder;
+    private final RefreshTokenService refreshTokenService;
 
     public AuthService(UserRepository userRepository, AuthenticationManager authenticationManager, JWTService jwt,
-            PasswordEncoder encoder) {
+            PasswordEncoder encoder, RefreshTokenService refreshTokenService) {
         this.userRepository = userRepository;
         this.authenticationManager = authenticationManager;
         this.jwt = jwt;
         this.encoder = encoder;
+        this.refreshTokenService = refreshTokenService;
     }
 
     /**
@@ -58,7 +61,7 @@ public class AuthService {
      * </p>
      *
      * @param request the registration data containing name, username, email, and password
-     * @return a map with the {@link AuthResponse} and JWT token
+     * @return a map with the {@link AuthResponse}, JWT token and refresh token
      * @throws ResponseStatusException with {@code 400 BAD_REQUEST} if the username or email already exists
      */
     @Transactional
@@ -80,6 +83,7 @@ public class AuthService {
         Map<String, Object> response = new HashMap<>();
         response.put("user", new AuthResponse(user.getName(), user.getEmail(), user.getUsername(), user.getRole().name()));
         response.put("token", jwt.generateToken(user));
+        response.put("refreshToken", refreshTokenService.issue(user));
         return response;
     }
 
@@ -91,7 +95,7 @@ public class AuthService {
      * </p>
      *
      * @param request the login data containing username/email and password
-     * @return a map with the {@link AuthResponse} and JWT token
+     * @return a map with the {@link AuthResponse}, JWT token and refresh token
      * @throws ResponseStatusException with {@code 401 UNAUTHORIZED} if credentials are missing, invalid, or user not found
      */
     public Map<String, Object> login(AuthRequest request) {
@@ -114,6 +118,7 @@ public class AuthService {
             Map<String, Object> response = new HashMap<>();
             response.put("user", new AuthResponse(user.getName(), user.getEmail(), user.getUsername(), user.getRole().name()));
             response.put("token", jwt.generateToken(user));
+            response.put("refreshToken", refreshTokenService.issue(user));
             return response;
 
         } catch (UsernameNotFoundException e) {
@@ -122,4 +127,28 @@ public class AuthService {
             throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Username, email or password are incorrect");
         }
     }
+
+    /**
+     * Exchanges a refresh token for a new access token and refresh token.
+     * <p>
+     * The password is not checked again, so no BCrypt work is done; the refresh token is
+     * rotated by {@link RefreshTokenService}.
+     * </p>
+     *
+     * @param refreshToken the refresh token returned by the last login or refresh
+     * @return a map with the {@link AuthResponse}, JWT token and the new refresh token
+     * @throws ResponseStatusException with {@code 401 UNAUTHORIZED} if the refresh token is not valid
+     *                                 or the user no longer exists
+     */
+    public Map<String, Object> refresh(String refreshToken) {
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate(refreshToken);
+        User user = userRepository.findByUsername(rotation.username())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "User not found"));
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("user", new AuthResponse(user.getName(), user.getEmail(), user.getUsername(), user.getRole().name()));
+        response.put("token", jwt.generateToken(user));
+        response.put("refreshToken", rotation.refreshToken());
+        return response;
+    }
 }
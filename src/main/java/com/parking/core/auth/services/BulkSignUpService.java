@@ -0,0 +1,255 @@
+package com.parking.core.auth.services;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.parking.core.auth.model.AuthRequest;
+import com.parking.core.auth.model.Response.AuthResponse;
+import com.parking.core.enums.Roles;
+import com.parking.core.model.User;
+import com.parking.core.repository.UserRepository;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+
+/**
+ * Service layer for registering many users in one request.
+ * <p>
+ * Rows are checked up front against the bean validation constraints of {@link User}, the same
+ * ones {@link AuthService#signUp(AuthRequest)} applies when saving, and rows without a password
+ * or repeating a username or email of an earlier row are rejected as well. Users that already exist are found with one query per
+ * {@code parking.bulk-signup.batch-size} rows, passwords are hashed in parallel on a pool of
+ * {@code parking.bulk-signup.hash-threads} threads, and the remaining users are inserted with
+ * JDBC batching. A chunk that hits a concurrent duplicate is rolled back and retried row by row,
+ * so only the offending rows fail; a row is reported as already registered only when it violates
+ * a unique key.
+ * </p>
+ * <p>
+ * Every row gets its own result, in request order. Generating a JWT for every created user is optional.
+ * </p>
+ *
+ * @see AuthService#signUp(AuthRequest)
+ */
+@Service
+public class BulkSignUpService {
+
+    private static final Logger log = LoggerFactory.getLogger(BulkSignUpService.class);
+
+    private static final String INSERT_USER =
+            "INSERT INTO users (name, username, email, role, password, token_epoch) VALUES (?, ?, ?, ?, ?, 0)";
+
+    private final UserRepository userRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final PasswordEncoder encoder;
+    private final Validator validator;
+    private final JWTService jwt;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService hashers;
+    private final int batchSize;
+
+    public BulkSignUpService(UserRepository userRepository, JdbcTemplate jdbcTemplate, PasswordEncoder encoder,
+                             Validator validator, JWTService jwt, PlatformTransactionManager transactionManager,
+                             @Value("${parking.bulk-signup.hash-threads:0}") int hashThreads,
+                             @Value("${parking.bulk-signup.batch-size:500}") int batchSize) {
+        this.userRepository = userRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.encoder = encoder;
+        this.validator = validator;
+        this.jwt = jwt;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        int threads = hashThreads > 0 ? hashThreads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        this.hashers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "bulk-signup-hasher-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Registers a list of users with the {@code USER} role.
+     *
+     * @param requests    the sign-up data, one entry per user
+     * @param issueTokens whether to generate a JWT for every created user
+     * @return one result per request, in the same order: the created user (and token) with status
+     *         {@code 201}, or the status and reason of the failure
+     */
+    public List<Map<String, Object>> signUp(List<AuthRequest> requests, boolean issueTokens) {
+        List<Map<String, Object>> results = new ArrayList<>(requests.size());
+        List<Integer> accepted = new ArrayList<>();
+        Set<String> usernames = new HashSet<>();
+        Set<String> emails = new HashSet<>();
+
+        for (int i = 0; i < requests.size(); i++) {
+            AuthRequest request = requests.get(i);
+            results.add(null);
+            String invalid = validate(request);
+            if (invalid != null) {
+                results.set(i, failure(request, HttpStatus.BAD_REQUEST, invalid));
+            } else if (usernames.contains(request.getUsername()) || emails.contains(request.getEmail())) {
+                results.set(i, failure(request, HttpStatus.BAD_REQUEST, "The username or email is repeated in the request"));
+            } else {
+                usernames.add(request.getUsername());
+                emails.add(request.getEmail());
+                accepted.add(i);
+            }
+        }
+
+        for (int start = 0; start < accepted.size(); start += batchSize) {
+            List<Integer> chunk = accepted.subList(start, Math.min(start + batchSize, accepted.size()));
+            processChunk(requests, chunk, results, issueTokens);
+        }
+
+        long created = results.stream().filter(result -> result.get("user") != null).count();
+        log.info("Bulk sign-up processed {} requests, {} users created", requests.size(), created);
+        return results;
+    }
+
+    private void processChunk(List<AuthRequest> requests, List<Integer> chunk, List<Map<String, Object>> results,
+                              boolean issueTokens) {
+        Set<String> usernames = new HashSet<>();
+        Set<String> emails = new HashSet<>();
+        chunk.forEach(i -> {
+            usernames.add(requests.get(i).getUsername());
+            emails.add(requests.get(i).getEmail());
+        });
+        Set<String> takenUsernames = new HashSet<>();
+        Set<String> takenEmails = new HashSet<>();
+        for (Object[] row : userRepository.findUsernamesAndEmails(usernames, emails)) {
+            takenUsernames.add((String) row[0]);
+            takenEmails.add((String) row[1]);
+        }
+
+        List<Integer> fresh = new ArrayList<>();
+        for (int i : chunk) {
+            AuthRequest request = requests.get(i);
+            if (takenUsernames.contains(request.getUsername()) || takenEmails.contains(request.getEmail())) {
+                results.set(i, failure(request, HttpStatus.BAD_REQUEST, "The username or email is already registered"));
+            } else {
+                fresh.add(i);
+            }
+        }
+        if (fresh.isEmpty()) {
+            return;
+        }
+
+        List<CompletableFuture<String>> hashes = fresh.stream()
+                .map(i -> CompletableFuture.supplyAsync(() -> encoder.encode(requests.get(i).getPassword()), hashers))
+                .toList();
+        List<User> users = new ArrayList<>(fresh.size());
+        for (int n = 0; n < fresh.size(); n++) {
+            AuthRequest request = requests.get(fresh.get(n));
+            User user = new User(request.getName(), request.getUsername(), Roles.USER, request.getEmail(), null);
+            user.setPassword(hashes.get(n).join());
+            users.add(user);
+        }
+
+        List<String> errors = insert(users);
+        for (int n = 0; n < fresh.size(); n++) {
+            int i = fresh.get(n);
+            results.set(i, errors.get(n) == null
+                    ? success(users.get(n), issueTokens)
+                    : failure(requests.get(i), HttpStatus.BAD_REQUEST, errors.get(n)));
+        }
+    }
+
+    /**
+     * @return the reason the request cannot be registered, or {@code null} if it is valid
+     */
+    private String validate(AuthRequest request) {
+        Set<String> messages = new TreeSet<>();
+        for (ConstraintViolation<User> violation : validator.validate(
+                new User(request.getName(), request.getUsername(), Roles.USER, request.getEmail(), null))) {
+            messages.add(violation.getMessage());
+        }
+        if (isBlank(request.getPassword())) {
+            messages.add("Password is required");
+        }
+        return messages.isEmpty() ? null : String.join(", ", messages);
+    }
+
+    /**
+     * @return one entry per user: {@code null} if it was inserted, otherwise the reason it was not
+     */
+    private List<String> insert(List<User> users) {
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    jdbcTemplate.batchUpdate(INSERT_USER, users, users.size(), (ps, user) -> {
+                        ps.setString(1, user.getName());
+                        ps.setString(2, user.getUsername());
+                        ps.setString(3, user.getEmail());
+                        ps.setString(4, user.getRole().name());
+                        ps.setString(5, user.getPassword());
+                    }));
+            return users.stream().map(user -> (String) null).toList();
+        } catch (DataIntegrityViolationException e) {
+            log.warn("Bulk sign-up batch hit a constraint violation, retrying {} rows one by one", users.size());
+        }
+
+        List<String> errors = new ArrayList<>(users.size());
+        for (User user : users) {
+            try {
+                jdbcTemplate.update(INSERT_USER, user.getName(), user.getUsername(), user.getEmail(),
+                        user.getRole().name(), user.getPassword());
+                errors.add(null);
+            } catch (DuplicateKeyException e) {
+                errors.add("The username or email is already registered");
+            } catch (DataIntegrityViolationException e) {
+                log.warn("Bulk sign-up could not insert user {}: {}", user.getUsername(), e.getMessage());
+                errors.add("The user data is invalid");
+            }
+        }
+        return errors;
+    }
+
+    private Map<String, Object> success(User user, boolean issueTokens) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("status", HttpStatus.CREATED.value());
+        result.put("user", new AuthResponse(user.getName(), user.getEmail(), user.getUsername(), user.getRole().name()));
+        if (issueTokens) {
+            result.put("token", jwt.generateToken(user));
+        }
+        result.put("message", "User created successfully");
+        return result;
+    }
+
+    private static Map<String, Object> failure(AuthRequest request, HttpStatus status, String message) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("status", status.value());
+        result.put("username", request.getUsername());
+        result.put("message", message);
+        return result;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hashers.shutdown();
+    }
+}
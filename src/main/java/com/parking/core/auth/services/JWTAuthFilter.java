@@ -1,24 +1,27 @@
 package com.parking.core.auth.services;
 
 import java.io.IOException;
+import java.util.Collection;
 
 
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import com.parking.core.auth.model.BlackListToken;
 
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 
@@ -27,25 +30,42 @@ import org.springframework.stereotype.Component;
  * <p>
  * Requests to {@code /api/v1/parking/auth/**} are excluded. For other requests
  * the filter extracts the Bearer token from the {@code Authorization} header,
- * validates it via {@link JWTService}, checks the Redis-based blacklist, and
+ * validates it via {@link JWTService}, checks the Redis-backed blacklist by the token's
+ * {@code jti} and the user's token epoch ({@link TokenEpochService}), and
  * sets the {@link SecurityContextHolder} authentication context when valid.
  * </p>
+ * <p>
+ * With {@code jwt.principal-source=claims} (the default) the authentication is built from the
+ * verified {@code roles} claim, so authenticated requests do not load the user; a role change
+ * revokes the user's older tokens through their token epoch. With {@code database} the user is
+ * loaded through the {@link UserDetailsCache}, which is evicted when the role changes.
+ * </p>
  *
  * @see JWTService
  * @see BlackListToken
+ * @see TokenEpochService
  */
 @Component
 public class JWTAuthFilter extends OncePerRequestFilter{
     private final JWTService jwtService;
-    private final UserDetailsService userDetailsService;
+    private final UserDetailsCache userDetailsCache;
     private final BlackListToken blackListToken;
+    private final TokenEpochService tokenEpochService;
+    private final boolean principalFromClaims;
 
     
 
-    public JWTAuthFilter(JWTService jwtService, UserDetailsService userDetailsService, BlackListToken blackListToken) {
+    public JWTAuthFilter(JWTService jwtService, UserDetailsCache userDetailsCache, BlackListToken blackListToken,
+                         TokenEpochService tokenEpochService,
+                         @Value("${jwt.principal-source:claims}") String principalSource) {
         this.jwtService = jwtService;
-        this.userDetailsService = userDetailsService;
+        this.userDetailsCache = userDetailsCache;
         this.blackListToken = blackListToken;
+        this.tokenEpochService = tokenEpochService;
+        if (!principalSource.equalsIgnoreCase("claims") && !principalSource.equalsIgnoreCase("database")) {
+            throw new IllegalArgumentException("jwt.principal-source must be 'claims' or 'database'");
+        }
+        this.principalFromClaims = principalSource.equalsIgnoreCase("claims");
     }
 
     /**
@@ -68,8 +88,8 @@ public class JWTAuthFilter extends OncePerRequestFilter{
      * Filters incoming HTTP requests to validate JWT tokens and set the authentication context.
      *
      * <p>This method intercepts requests to check for the presence of a valid JWT token in the
-     * Authorization header. If a valid token is found, it extracts the username, validates the token,
-     * and sets the authentication context in the SecurityContextHolder. If the token is invalid or
+     * Authorization header. If a token is found, it is verified once, the username and authorities are
+     * resolved from it and the authentication context is set in the SecurityContextHolder. If the token is invalid or
      * expired, it responds with a 401 Unauthorized status and an error message in JSON format.</p>
      *
      * @param request     the HTTP request being processed
@@ -90,22 +110,22 @@ public class JWTAuthFilter extends OncePerRequestFilter{
 
                 String token = authHeader.substring(7);
 
-                if (blackListToken.isBlackListed(token)) {
-                    response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
-                    response.setContentType("application/json");
-                    response.getWriter().write("{\"error\": \"Token revoked\"}");
-                    return;
-                }
-
-                
-                String username = null;
-
                 try {
-                    username = jwtService.extractUsername(token);
+                    Claims claims = jwtService.verify(token);
+                    if (blackListToken.isBlackListed(jwtService.revocationId(claims, token))
+                            || (claims.getId() == null && blackListToken.isLegacyBlackListed(token))
+                            || !tokenEpochService.isCurrent(claims)) {
+                        response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+                        response.setContentType("application/json");
+                        response.getWriter().write("{\"error\": \"Token revoked\"}");
+                        return;
+                    }
+
+                    String username = claims.getSubject();
                     if (username != null && SecurityContextHolder.getContext().getAuthentication() == null){
-                        UserDetails user = userDetailsService.loadUserByUsername(username);
-                        if (jwtService.isValidToken(token, user)){
-                            UsernamePasswordAuthenticationToken auth = new UsernamePasswordAuthenticationToken(username, null, user.getAuthorities());
+                        Collection<? extends GrantedAuthority> authorities = resolveAuthorities(claims, username);
+                        if (authorities != null){
+                            UsernamePasswordAuthenticationToken auth = new UsernamePasswordAuthenticationToken(username, null, authorities);
                             auth.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                             SecurityContextHolder.getContext().setAuthentication(auth);
                             }
@@ -120,5 +140,24 @@ public class JWTAuthFilter extends OncePerRequestFilter{
                 }            
     }
 
+    /**
+     * Resolves the authorities of a verified token.
+     * <p>
+     * In {@code claims} mode they are read from the token's {@code roles} claim. In {@code database}
+     * mode the user is loaded through the {@link UserDetailsCache} and the token subject is checked
+     * against it.
+     * </p>
+     *
+     * @param claims   the verified claims of the token
+     * @param username the token subject
+     * @return the authorities of the user, or {@code null} if the token does not match the user
+     */
+    private Collection<? extends GrantedAuthority> resolveAuthorities(Claims claims, String username) {
+        if (principalFromClaims) {
+            return jwtService.extractAuthorities(claims);
+        }
+        UserDetails user = userDetailsCache.load(username);
+        return jwtService.isValidToken(claims, user) ? user.getAuthorities() : null;
+    }
+
 }
- 
\ No newline at end of file
@@ -3,17 +3,20 @@ package com.parking.core.auth.services;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
-import java.util.function.Function;
+import java.util.UUID;
 
 import javax.crypto.SecretKey;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
 import com.parking.core.model.User;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
@@ -25,35 +28,49 @@ import io.jsonwebtoken.security.Keys;
  * configured via the {@code secret-key} application property.  Expiration
  * is controlled by the {@code jwt.expiration} property (milliseconds).
  * </p>
+ * <p>
+ * A single {@link JwtParser} is shared by all threads and every token is verified at most
+ * once until it expires: the verified claims are kept in a {@link VerifiedClaimsCache}.
+ * </p>
  *
  * @see JWTAuthFilter
  */
 @Service
 public class JWTService {
+
+    /** Claim holding the user's token epoch at the time the token was issued. */
+    public static final String EPOCH_CLAIM = "epoch";
+
     private final SecretKey key;
     private final long expirationMs;
+    private final JwtParser parser;
+    private final VerifiedClaimsCache claimsCache;
 
     public JWTService(
         @Value("${secret-key}")
         String secretBase64,
         @Value("${jwt.expiration}")
-        long expirationMs
+        long expirationMs,
+        VerifiedClaimsCache claimsCache
     ){
         this.key = Keys.hmacShaKeyFor(Decoders.BASE64URL.decode(secretBase64));
         this.expirationMs = expirationMs;
+        this.parser = Jwts.parser().verifyWith(key).build();
+        this.claimsCache = claimsCache;
     }
 
     /**
      * Generates a JWT token for the specified user.
      *
      * @param user the user details for whom the token is to be generated
-     * @return a JWT token as a String containing the user's roles as claims
+     * @return a JWT token as a String containing the user's roles and token epoch as claims
      */
     public String generateToken(User user){
         Map<String,Object> extraClaims = Map
         .of("roles",List.of(user.getRole().name()),
             "email", user.getEmail(),
-            "username", user.getUsername()
+            "username", user.getUsername(),
+            EPOCH_CLAIM, user.getTokenEpoch()
         );
         return generateToken(extraClaims,
         org.springframework.security.core.userdetails.User
@@ -70,7 +87,7 @@ public class JWTService {
      *
      * @param extraClaims a map containing extra claims to be included in the token payload
      * @param user the user details for whom the token is generated
-     * @return a signed JWT token as a String
+     * @return a signed JWT token as a String, carrying a random {@code jti} used for revocation
      */
     public String generateToken(Map<String,Object> extraClaims, UserDetails user){
         long now = System.currentTimeMillis();
@@ -78,6 +95,7 @@ public class JWTService {
                 .builder()
                 .claims(extraClaims)
                 .subject(user.getUsername())
+                .id(UUID.randomUUID().toString())
                 .issuedAt(new Date(now))
                 .expiration(new Date(now + expirationMs))
                 .signWith(key,Jwts.SIG.HS256)
@@ -85,31 +103,34 @@ public class JWTService {
     }
 
     /**
-     * Extracts the subject (username) from the given JWT token.
+     * Verifies the signature and expiration of the given token and returns its claims.
+     * <p>
+     * Claims of tokens verified before are served from the cache until the token expires,
+     * so each token is parsed and its HMAC checked only once.
+     * </p>
      *
      * @param token the JWT token
-     * @return the username stored as the token subject
+     * @return the verified claims
+     * @throws io.jsonwebtoken.JwtException if the token is malformed, tampered with or expired
      */
-    public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
+    public Claims verify(String token) {
+        String cacheKey = VerifiedClaimsCache.keyOf(token);
+        Claims claims = claimsCache.get(cacheKey);
+        if (claims == null) {
+            claims = parser.parseSignedClaims(token).getPayload();
+            claimsCache.put(cacheKey, claims);
+        }
+        return claims;
     }
 
     /**
-     * Extracts a specific claim from a JWT token using the provided resolver function.
+     * Extracts the subject (username) from the given JWT token.
      *
-     * @param <T>      the type of the claim to be extracted
-     * @param token    the JWT token from which to extract the claim
-     * @param resolver a function that takes the parsed Claims object and returns the desired claim
-     * @return the extracted claim of type T
+     * @param token the JWT token
+     * @return the username stored as the token subject
      */
-    private <T> T extractClaim(String token, Function<Claims,T> resolver) {
-        Claims claims = Jwts
-                            .parser()
-                            .verifyWith(key)
-                            .build()
-                            .parseSignedClaims(token)
-                            .getPayload();
-        return resolver.apply(claims);
+    public String extractUsername(String token) {
+        return verify(token).getSubject();
     }
 
     /**
@@ -121,20 +142,76 @@ public class JWTService {
      * @return {@code true} if the token is valid and not expired, {@code false} otherwise
      */
     public boolean isValidToken(String token, UserDetails user){
-        String name = extractUsername(token);
-        return name.equals(user.getUsername()) && !isTokenExpired(token);
+        return isValidToken(verify(token), user);
     }
 
     /**
-     * Checks if the provided JWT token has expired.
+     * Validates already verified claims against the given user, without parsing the token again.
      *
-     * @param token the JWT token to be checked
+     * @param claims the claims returned by {@link #verify(String)}
+     * @param user the user details to compare against the token's username
+     * @return {@code true} if the subject matches and the token is not expired, {@code false} otherwise
+     */
+    public boolean isValidToken(Claims claims, UserDetails user){
+        return user.getUsername().equals(claims.getSubject()) && !isTokenExpired(claims);
+    }
+
+    /**
+     * Checks if the given claims have expired.
+     *
+     * @param claims the verified claims to be checked
      * @return {@code true} if the token has expired, {@code false} otherwise
      */
-    private boolean isTokenExpired(String token) {
-       Date exp = extractClaim(token, Claims::getExpiration);
+    private boolean isTokenExpired(Claims claims) {
+       return claims.getExpiration().before(new Date());
+    }
 
-       return exp.before(new Date());
+    /**
+     * Returns the token epoch the claims were issued with.
+     *
+     * @param claims verified claims
+     * @return the {@code epoch} claim, {@code 0} for tokens issued without one
+     */
+    public static int tokenEpoch(Claims claims){
+        Integer epoch = claims.get(EPOCH_CLAIM, Integer.class);
+        return epoch != null ? epoch : 0;
+    }
+
+    /**
+     * Returns the identifier under which the given token is revoked.
+     *
+     * @param token the JWT token
+     * @return the {@code jti} claim of the token, or the hash of the token if it has none
+     */
+    public String revocationId(String token){
+        return revocationId(verify(token), token);
+    }
+
+    /**
+     * Returns the identifier under which a token with already verified claims is revoked.
+     *
+     * @param claims the claims returned by {@link #verify(String)}
+     * @param token  the JWT token the claims belong to
+     * @return the {@code jti} claim of the token, or the hash of the token if it has none
+     */
+    public String revocationId(Claims claims, String token){
+        return claims.getId() != null ? claims.getId() : VerifiedClaimsCache.keyOf(token);
+    }
+
+    /**
+     * Builds the granted authorities of the user from the {@code roles} claim of verified claims.
+     *
+     * @param claims the claims returned by {@link #verify(String)}
+     * @return one {@code ROLE_} authority per role in the token, empty if the claim is missing
+     */
+    public List<GrantedAuthority> extractAuthorities(Claims claims){
+        List<?> roles = claims.get("roles", List.class);
+        if (roles == null) {
+            return List.of();
+        }
+        return roles.stream()
+                .<GrantedAuthority>map(role -> new SimpleGrantedAuthority("ROLE_" + role))
+                .toList();
     }
 
     /**
@@ -144,7 +221,7 @@ public class JWTService {
      * @return remaining milliseconds until expiration (may be negative if already expired)
      */
     public long getExpiration(String token){
-        return extractClaim(token, Claims::getExpiration).getTime() - System.currentTimeMillis();
+        return verify(token).getExpiration().getTime() - System.currentTimeMillis();
     }
     
 }
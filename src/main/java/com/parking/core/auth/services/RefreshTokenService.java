@@ -0,0 +1,148 @@
+package com.parking.core.auth.services;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.parking.core.model.RefreshToken;
+import com.parking.core.model.User;
+import com.parking.core.repository.RefreshTokenRepository;
+
+/**
+ * Issues and rotates the refresh tokens used to obtain new access tokens without a password.
+ * <p>
+ * Refresh tokens are 256-bit random values; only their SHA-256 hash is stored. Each token
+ * can be used once: a refresh consumes it and returns a new token of the same family. If a
+ * consumed token is presented again, the whole family is revoked, so a stolen token stops
+ * working for both the thief and the user. Tokens also stop working when the user's token
+ * epoch moves forward ({@link TokenEpochService#revokeAll(String)}).
+ * </p>
+ *
+ * @see RefreshToken
+ */
+@Service
+public class RefreshTokenService {
+
+    private static final Logger log = LoggerFactory.getLogger(RefreshTokenService.class);
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final TokenEpochService tokenEpochService;
+    private final SecureRandom random = new SecureRandom();
+    private final long expirationMs;
+
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository, TokenEpochService tokenEpochService,
+                               @Value("${jwt.refresh.expiration:2592000000}") long expirationMs) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.tokenEpochService = tokenEpochService;
+        this.expirationMs = expirationMs;
+    }
+
+    /**
+     * Issues the first refresh token of a new family, e.g. after a login.
+     *
+     * @param user the authenticated user
+     * @return the raw refresh token, to be handed to the client
+     */
+    @Transactional
+    public String issue(User user) {
+        return issue(user.getUsername(), user.getTokenEpoch(), UUID.randomUUID().toString());
+    }
+
+    /**
+     * Consumes a refresh token and issues its successor.
+     *
+     * @param rawToken the refresh token presented by the client
+     * @return the owner of the token and the new refresh token
+     * @throws ResponseStatusException with {@code 401 UNAUTHORIZED} if the token is unknown, expired,
+     *                                 revoked or being reused
+     */
+    @Transactional(noRollbackFor = ResponseStatusException.class)
+    public Rotation rotate(String rawToken) {
+        RefreshToken token = refreshTokenRepository.findByTokenHash(hash(rawToken))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid refresh token"));
+        LocalDateTime now = LocalDateTime.now();
+
+        if (token.isRevoked()) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Refresh token revoked");
+        }
+        if (token.getUsedAt() != null || refreshTokenRepository.consume(token.getId(), now) == 0) {
+            refreshTokenRepository.revokeFamily(token.getFamilyId());
+            log.warn("Refresh token reuse detected for user {}, family {} revoked", token.getUsername(), token.getFamilyId());
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Refresh token reuse detected");
+        }
+        if (token.getExpiresAt().isBefore(now)) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Refresh token expired");
+        }
+        int epoch = tokenEpochService.currentEpoch(token.getUsername());
+        if (token.getTokenEpoch() < epoch) {
+            refreshTokenRepository.revokeFamily(token.getFamilyId());
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Refresh token revoked");
+        }
+
+        return new Rotation(token.getUsername(), issue(token.getUsername(), epoch, token.getFamilyId()));
+    }
+
+    /**
+     * Revokes the family of a refresh token, e.g. on logout. Unknown tokens are ignored.
+     *
+     * @param rawToken the refresh token presented by the client
+     */
+    @Transactional
+    public void revoke(String rawToken) {
+        refreshTokenRepository.findByTokenHash(hash(rawToken))
+                .ifPresent(token -> refreshTokenRepository.revokeFamily(token.getFamilyId()));
+    }
+
+    /**
+     * Deletes refresh tokens that have expired.
+     */
+    @Scheduled(fixedDelayString = "${jwt.refresh.purge-interval-ms:3600000}")
+    @Transactional
+    public void purgeExpired() {
+        int deleted = refreshTokenRepository.deleteExpired(LocalDateTime.now());
+        if (deleted > 0) {
+            log.info("Deleted {} expired refresh tokens", deleted);
+        }
+    }
+
+    private String issue(String username, int epoch, String familyId) {
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        String rawToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        refreshTokenRepository.save(new RefreshToken(hash(rawToken), familyId, username, epoch,
+                LocalDateTime.now().plus(Duration.ofMillis(expirationMs))));
+        return rawToken;
+    }
+
+    static String hash(String rawToken) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(rawToken.getBytes(StandardCharsets.US_ASCII));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Result of a successful refresh.
+     *
+     * @param username     the owner of the refresh token
+     * @param refreshToken the new raw refresh token
+     */
+    public record Rotation(String username, String refreshToken) {}
+}
@@ -0,0 +1,181 @@
+package com.parking.core.auth.services;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.parking.core.repository.UserRepository;
+
+import io.jsonwebtoken.Claims;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Per-user token epochs used to revoke every token of a user at once.
+ * <p>
+ * Each user has a {@code token_epoch} counter that {@link JWTService} embeds in the tokens
+ * it issues. Revoking all of a user's sessions increments the counter, so tokens carrying an
+ * older epoch are rejected by {@link JWTAuthFilter} without tracking them one by one.
+ * </p>
+ * <p>
+ * Epochs are kept in memory for {@code jwt.epoch-cache.ttl-ms}, so the per-request check is a
+ * map lookup. Increments are published on the {@code token-epochs} Redis channel, so other
+ * nodes apply them right away instead of waiting for their entry to expire.
+ * </p>
+ *
+ * @see JWTService#EPOCH_CLAIM
+ */
+@Service
+public class TokenEpochService implements MessageListener {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenEpochService.class);
+
+    static final String CHANNEL = "token-epochs";
+
+    /** Returned for users that no longer exist, so their tokens are never accepted. Never cached. */
+    private static final int UNKNOWN_USER = Integer.MAX_VALUE;
+
+    private final UserRepository userRepository;
+    private final RedisTemplate<String, String> redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final Map<String, Entry> epochs = new ConcurrentHashMap<>();
+    private final long ttlMs;
+
+    public TokenEpochService(UserRepository userRepository, RedisTemplate<String, String> redisTemplate,
+                             RedisMessageListenerContainer listenerContainer,
+                             @Value("${jwt.epoch-cache.ttl-ms:600000}") long ttlMs) {
+        this.userRepository = userRepository;
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.ttlMs = ttlMs;
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+    }
+
+    /**
+     * Checks whether the verified claims carry the current epoch of their subject.
+     *
+     * @param claims the claims returned by {@link JWTService#verify(String)}
+     * @return {@code true} if the token has not been revoked by a newer epoch
+     */
+    public boolean isCurrent(Claims claims) {
+        return JWTService.tokenEpoch(claims) >= currentEpoch(claims.getSubject());
+    }
+
+    /**
+     * Returns the current token epoch of a user, loading it from the database when it is not cached.
+     *
+     * @param username the username of the user
+     * @return the user's epoch, or {@link Integer#MAX_VALUE} if the user does not exist
+     */
+    public int currentEpoch(String username) {
+        long now = System.currentTimeMillis();
+        Entry entry = epochs.get(username);
+        if (entry != null && entry.expiresAt() > now) {
+            return entry.epoch();
+        }
+        Integer loaded = userRepository.findTokenEpoch(username).orElse(null);
+        if (loaded == null) {
+            return UNKNOWN_USER;
+        }
+        // an increment applied by onMessage while the epoch was being read must not be undone
+        return epochs.merge(username, new Entry(loaded, now + ttlMs), TokenEpochService::newer).epoch();
+    }
+
+    /**
+     * Revokes every token issued to a user so far by incrementing their epoch.
+     * <p>
+     * The new epoch is cached and published once the transaction commits, so no node sees an
+     * epoch that could still be rolled back.
+     * </p>
+     *
+     * @param username the username of the user
+     * @return the new epoch of the user
+     * @throws ResponseStatusException with {@code 404 NOT_FOUND} if the user does not exist
+     */
+    @Transactional
+    public int revokeAll(String username) {
+        if (userRepository.incrementTokenEpoch(username) == 0) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found");
+        }
+        int epoch = userRepository.findTokenEpoch(username).orElseThrow();
+        afterCommit(() -> {
+            apply(username, epoch);
+            try {
+                redisTemplate.convertAndSend(CHANNEL, username + " " + epoch);
+            } catch (Exception e) {
+                log.warn("Redis unavailable: other nodes will see the new token epoch of {} within the cache TTL.",
+                        username, e);
+            }
+        });
+        log.info("Revoked all tokens of user {} (epoch {})", username, epoch);
+        return epoch;
+    }
+
+    /**
+     * Drops the cached epochs that have expired.
+     */
+    @Scheduled(fixedDelayString = "${jwt.epoch-cache.ttl-ms:600000}")
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        epochs.values().removeIf(entry -> entry.expiresAt() <= now);
+    }
+
+    /**
+     * Applies an epoch increment published by any node, including this one.
+     *
+     * @param message the message body, {@code "<username> <epoch>"}
+     * @param pattern the channel pattern, unused
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separator = body.lastIndexOf(' ');
+        try {
+            apply(body.substring(0, separator), Integer.parseInt(body.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            log.warn("Ignoring malformed token epoch message: {}", body);
+        }
+    }
+
+    private void apply(String username, int epoch) {
+        epochs.merge(username, new Entry(epoch, System.currentTimeMillis() + ttlMs), TokenEpochService::newer);
+    }
+
+    private static Entry newer(Entry current, Entry next) {
+        return current.epoch() > next.epoch() ? current : next;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private record Entry(int epoch, long expiresAt) {}
+}
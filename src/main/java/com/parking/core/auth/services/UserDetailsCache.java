@@ -0,0 +1,84 @@
+package com.parking.core.auth.services;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+
+import com.parking.core.model.UserDetailsDB;
+
+/**
+ * Small in-process cache of the {@link UserDetails} loaded for authenticated requests.
+ * <p>
+ * Used by {@link JWTAuthFilter} when {@code jwt.principal-source=database}, so a token holder
+ * does not hit the {@code users} table on every request. Entries live for
+ * {@code jwt.user-cache.ttl-ms} and are evicted explicitly when a user's role changes. When
+ * the cache holds {@code jwt.user-cache.max-size} users, new users are loaded without being
+ * cached; a size of 0 disables the cache. Login does not go through this cache.
+ * </p>
+ *
+ * @see UserDetailsDB
+ */
+@Component
+public class UserDetailsCache {
+
+    private final UserDetailsDB userDetailsDB;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final int maxSize;
+    private final long ttlMs;
+
+    public UserDetailsCache(UserDetailsDB userDetailsDB,
+                            @Value("${jwt.user-cache.max-size:1000}") int maxSize,
+                            @Value("${jwt.user-cache.ttl-ms:300000}") long ttlMs) {
+        this.userDetailsDB = userDetailsDB;
+        this.maxSize = Math.max(0, maxSize);
+        this.ttlMs = ttlMs;
+    }
+
+    /**
+     * Returns the details of a user, loading them from the database when they are not cached.
+     *
+     * @param username the username or email of the user
+     * @return the user's details
+     * @throws UsernameNotFoundException if the user does not exist
+     */
+    public UserDetails load(String username) {
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(username);
+        if (entry != null && entry.expiresAt() > now) {
+            return entry.user();
+        }
+
+        UserDetails user = userDetailsDB.loadUserByUsername(username);
+        if (maxSize > 0) {
+            if (entries.size() >= maxSize) {
+                entries.values().removeIf(cached -> cached.expiresAt() <= now);
+            }
+            if (entries.size() < maxSize || entries.containsKey(username)) {
+                entries.put(username, new Entry(user, now + ttlMs));
+            }
+        }
+        return user;
+    }
+
+    /**
+     * Evicts the cached details of a user, e.g. after their role changed.
+     *
+     * @param username the username or email the user was loaded with
+     */
+    public void invalidate(String username) {
+        entries.remove(username);
+    }
+
+    /**
+     * @return the number of cached users
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    private record Entry(UserDetails user, long expiresAt) {}
+}
@@ -0,0 +1,121 @@
+package com.parking.core.auth.services;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Bounded in-process cache of JWT claims whose signature has already been verified.
+ * <p>
+ * Entries are keyed by the SHA-256 hash of the token, so raw tokens are never kept in memory,
+ * and each entry expires together with its token. When the cache is full, expired entries are
+ * swept and, if it is still full, new tokens are verified without being cached. Lookups are
+ * published as {@code cache.gets{cache=jwt-claims, result=hit|miss}} together with a
+ * {@code cache.size} gauge.
+ * </p>
+ *
+ * @see JWTService
+ */
+@Component
+public class VerifiedClaimsCache {
+
+    private static final String CACHE_NAME = "jwt-claims";
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final int maxSize;
+    private final Counter hits;
+    private final Counter misses;
+
+    public VerifiedClaimsCache(@Value("${jwt.claims-cache.max-size:10000}") int maxSize, MeterRegistry meterRegistry) {
+        this.maxSize = Math.max(0, maxSize);
+        this.hits = Counter.builder("cache.gets").tag("cache", CACHE_NAME).tag("result", "hit")
+                .description("Verified JWT claims served from the cache").register(meterRegistry);
+        this.misses = Counter.builder("cache.gets").tag("cache", CACHE_NAME).tag("result", "miss")
+                .description("JWTs that had to be parsed and verified").register(meterRegistry);
+        Gauge.builder("cache.size", entries, Map::size).tag("cache", CACHE_NAME)
+                .description("Number of verified JWTs in the cache").register(meterRegistry);
+    }
+
+    /**
+     * Returns the cached claims of a token that has not expired yet, counting a hit or a miss.
+     *
+     * @param key the token hash, see {@link #keyOf(String)}
+     * @return the verified claims, or {@code null} if the token must be verified
+     */
+    public Claims get(String key) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.expiresAt() > System.currentTimeMillis()) {
+            hits.increment();
+            return entry.claims();
+        }
+        if (entry != null) {
+            entries.remove(key, entry);
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Caches verified claims until the token expires.
+     *
+     * @param key    the token hash, see {@link #keyOf(String)}
+     * @param claims the claims returned by signature verification
+     */
+    public void put(String key, Claims claims) {
+        if (maxSize == 0 || claims.getExpiration() == null) {
+            return;
+        }
+        if (entries.size() >= maxSize) {
+            evictExpired();
+            if (entries.size() >= maxSize) {
+                return;
+            }
+        }
+        entries.put(key, new Entry(claims, claims.getExpiration().getTime()));
+    }
+
+    /**
+     * @return the number of cached tokens
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Removes the entries of tokens that have expired.
+     */
+    @Scheduled(fixedDelayString = "${jwt.claims-cache.sweep-interval-ms:60000}")
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(entry -> entry.expiresAt() <= now);
+    }
+
+    /**
+     * Hashes a token into a compact cache key.
+     *
+     * @param token the compact JWT
+     * @return the Base64 encoded SHA-256 digest of the token
+     */
+    public static String keyOf(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private record Entry(Claims claims, long expiresAt) {}
+}
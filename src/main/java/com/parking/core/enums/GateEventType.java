@@ -0,0 +1,13 @@
+package com.parking.core.enums;
+
+/**
+ * Kind of event reported by a lane controller.
+ * <ul>
+ *   <li>{@link #ENTRY} – a vehicle entered the parking lot</li>
+ *   <li>{@link #EXIT}  – a vehicle left the parking lot</li>
+ * </ul>
+ */
+public enum GateEventType {
+    ENTRY,
+    EXIT
+}
@@ -0,0 +1,15 @@
+package com.parking.core.enums;
+
+/**
+ * Progress of one customer's invoice within a batch.
+ * <ul>
+ *   <li>{@link #PENDING}  – not invoiced yet, or interrupted before its outcome was recorded</li>
+ *   <li>{@link #INVOICED} – the invoice was created in Stripe</li>
+ *   <li>{@link #FAILED}   – the last attempt failed; retried when the batch is resumed</li>
+ * </ul>
+ */
+public enum InvoiceBatchStatus {
+    PENDING,
+    INVOICED,
+    FAILED
+}
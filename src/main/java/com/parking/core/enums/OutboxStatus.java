@@ -0,0 +1,17 @@
+package com.parking.core.enums;
+
+/**
+ * Delivery state of a notification stored in the outbox.
+ * <ul>
+ *   <li>{@link #PENDING}   – waiting to be picked up by the dispatcher</li>
+ *   <li>{@link #IN_FLIGHT} – claimed by a dispatcher worker</li>
+ *   <li>{@link #SENT}      – delivered to the messaging provider</li>
+ *   <li>{@link #FAILED}    – gave up after the maximum number of attempts</li>
+ * </ul>
+ */
+public enum OutboxStatus {
+    PENDING,
+    IN_FLIGHT,
+    SENT,
+    FAILED
+}
@@ -0,0 +1,29 @@
+package com.parking.core.enums;
+
+/**
+ * Output format of the monthly report.
+ * <ul>
+ *   <li>{@link #TXT} – fixed-width text table</li>
+ *   <li>{@link #CSV} – comma separated values with a header row</li>
+ * </ul>
+ */
+public enum ReportFormat {
+    TXT("txt", "text/plain"),
+    CSV("csv", "text/csv");
+
+    private final String extension;
+    private final String contentType;
+
+    ReportFormat(String extension, String contentType) {
+        this.extension = extension;
+        this.contentType = contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+}
@@ -0,0 +1,15 @@
+package com.parking.core.enums;
+
+/**
+ * Processing state of a Stripe webhook event stored in the inbox.
+ * <ul>
+ *   <li>{@link #PENDING}   – verified and stored, waiting to be applied</li>
+ *   <li>{@link #PROCESSED} – applied, or ignored because its type is not handled</li>
+ *   <li>{@link #FAILED}    – its payload could not be read; kept for inspection</li>
+ * </ul>
+ */
+public enum WebhookEventStatus {
+    PENDING,
+    PROCESSED,
+    FAILED
+}
@@ -4,17 +4,23 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.parking.core.model.Vehicle;
+import com.parking.core.model.dto.VehicleCharge;
+import com.parking.core.model.dto.VehicleChargeBatchRequest;
 import com.parking.core.service.ParkingService;
 
+import java.time.LocalDateTime;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 
@@ -66,21 +72,46 @@ public class ParkingHandler {
      * Calculates the parking fee for a vehicle.
      *
      * @param vehicle the vehicle to calculate payment for (validated)
-     * @return {@code 200 OK} with the calculated price and vehicle info
+     * @param from    optional inclusive lower bound of the register entry date (ISO date-time)
+     * @param to      optional exclusive upper bound of the register entry date (ISO date-time)
+     * @param period  optional billing period id; takes precedence over {@code from}/{@code to}
+     * @return {@code 200 OK} with the calculated price, the aggregated usage and vehicle info
      */
     @PostMapping("/pay")
-    public ResponseEntity<Map<String, Object>> calculatePayment(@Valid @RequestBody Vehicle vehicle) {
-        double price = parkingService.calculatePayment(vehicle);
+    public ResponseEntity<Map<String, Object>> calculatePayment(@Valid @RequestBody Vehicle vehicle,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Long period) {
+        VehicleCharge charge = period != null
+                ? parkingService.calculateChargeForPeriod(vehicle, period)
+                : parkingService.calculateCharge(vehicle, from, to);
         Map<String, Object> response = new LinkedHashMap<>();
-        response.put("price", price);
+        response.put("price", charge.price());
+        response.put("minutes", charge.minutes());
+        response.put("sessions", charge.sessions());
         response.put("vehicle", vehicle);
         return ResponseEntity.ok(response);
     }
 
     /**
-     * Triggers the monthly reset: deletes official registers and resets resident minutes.
+     * Calculates the parking fees of many vehicles at once.
      *
-     * @return {@code 200 OK} with a summary of the reset operation
+     * @param request the plates to price (validated)
+     * @return {@code 200 OK} with one charge per plate that has registers
+     */
+    @PostMapping("/pay/batch")
+    public ResponseEntity<Map<String, Object>> calculatePayments(@Valid @RequestBody VehicleChargeBatchRequest request) {
+        List<VehicleCharge> charges = parkingService.calculateCharges(request.vehicleIds());
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("count", charges.size());
+        response.put("charges", charges);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Triggers the monthly reset by starting a new billing period.
+     *
+     * @return {@code 200 OK} with the new and previous billing period ids
      */
     @PostMapping("/startsMonth")
     public ResponseEntity<Map<String, Object>> startsMonth() {
@@ -2,80 +2,102 @@ package com.parking.core.handlers;
 
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
-import org.springframework.http.HttpStatus;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
-import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import com.parking.core.model.Register;
+import com.parking.core.model.dto.PaymentDetails;
+import com.parking.core.model.dto.RegisterPaymentView;
 import com.parking.core.payment.services.PaymentService;
-import com.parking.core.payment.Requests.PaymentRequest;
-import com.parking.core.repository.RegisterRepository;
-import com.parking.core.service.ParkingService;
+import com.parking.core.payment.services.PaymentStatusNotifier;
+import com.parking.core.service.PaymentDetailsCache;
+import com.parking.core.service.PricingEngine;
 import com.stripe.exception.StripeException;
 
 @RestController
 @RequestMapping("api/v1/public/pay")
 public class PublicPaymentHandler {
 
-    private final RegisterRepository registerRepository;
-    private final ParkingService parkingService;
+    private static final String CURRENCY = "USD";
+
+    private final PaymentDetailsCache paymentDetailsCache;
     private final PaymentService paymentService;
+    private final PaymentStatusNotifier paymentStatusNotifier;
+    private final CacheControl detailsCacheControl;
 
-    public PublicPaymentHandler(RegisterRepository registerRepository, ParkingService parkingService,
-                                PaymentService paymentService) {
-        this.registerRepository = registerRepository;
-        this.parkingService = parkingService;
+    public PublicPaymentHandler(PaymentDetailsCache paymentDetailsCache, PaymentService paymentService,
+                                PaymentStatusNotifier paymentStatusNotifier,
+                                @Value("${parking.payment-details.max-age-s:86400}") long maxAgeSeconds) {
+        this.paymentDetailsCache = paymentDetailsCache;
         this.paymentService = paymentService;
+        this.paymentStatusNotifier = paymentStatusNotifier;
+        this.detailsCacheControl = CacheControl.maxAge(maxAgeSeconds, TimeUnit.SECONDS).cachePrivate().immutable();
     }
 
+    /**
+     * Returns the payment details of a closed register. They never change once the vehicle has
+     * exited, so they are sent with a strong ETag and an immutable {@code Cache-Control}; a request
+     * whose {@code If-None-Match} matches the ETag is answered {@code 304 Not Modified}.
+     */
     @GetMapping("/{registerId}")
     public ResponseEntity<Map<String, Object>> getPaymentDetails(@PathVariable long registerId) {
-        Register register = registerRepository.findById(registerId)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Register not found"));
-
-        if (register.getExitdate() == null) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Vehicle has not exited yet");
-        }
-
-        double amount = parkingService.calculatePaymentForRegister(register);
-
-        Map<String, Object> response = new LinkedHashMap<>();
-        response.put("registerId", register.getId());
-        response.put("plate", register.getVehicle().getId());
-        response.put("vehicleType", register.getVehicle().getType());
-        response.put("entryDate", register.getEntrydate());
-        response.put("exitDate", register.getExitdate());
-        response.put("minutes", register.getMinutes());
-        response.put("amount", amount);
-        return ResponseEntity.ok(response);
+        PaymentDetails details = paymentDetailsCache.get(registerId);
+        return ResponseEntity.ok()
+                .eTag(details.etag())
+                .cacheControl(detailsCacheControl)
+                .body(paymentDetails(details.register(), details.amountMinor()));
     }
 
     @PostMapping("/{registerId}/create-intent")
     public ResponseEntity<Map<String, String>> createPaymentIntent(@PathVariable long registerId)
             throws StripeException {
-        Register register = registerRepository.findById(registerId)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Register not found"));
+        PaymentDetails details = paymentDetailsCache.get(registerId);
 
-        if (register.getExitdate() == null) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Vehicle has not exited yet");
-        }
+        return ResponseEntity.ok(paymentService.createRegisterPaymentIntent(
+                registerId, details.amountMinor(), CURRENCY, details.register().plate()));
+    }
+
+    /**
+     * Returns the payment details of a register together with its payment intent, so the pay
+     * page needs a single round trip. The register's open intent is reused when possible.
+     */
+    @PostMapping("/{registerId}/checkout")
+    public ResponseEntity<Map<String, Object>> checkout(@PathVariable long registerId) throws StripeException {
+        PaymentDetails details = paymentDetailsCache.get(registerId);
 
-        double amount = parkingService.calculatePaymentForRegister(register);
-        long amountInCents = Math.round(amount * 100);
+        Map<String, Object> response = paymentDetails(details.register(), details.amountMinor());
+        response.putAll(paymentService.createRegisterPaymentIntent(
+                registerId, details.amountMinor(), CURRENCY, details.register().plate()));
+        return ResponseEntity.ok(response);
+    }
 
-        PaymentRequest paymentRequest = new PaymentRequest(
-                amountInCents,
-                "USD",
-                null,
-                register.getVehicle().getId(),
-                "Parking fee - " + register.getVehicle().getId());
+    /**
+     * Streams the status of a payment as server-sent {@code status} events, so the pay page
+     * learns that Stripe confirmed it without polling.
+     */
+    @GetMapping(value = "/intents/{paymentIntentId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamPaymentStatus(@PathVariable String paymentIntentId) {
+        return paymentStatusNotifier.stream(paymentIntentId);
+    }
 
-        return ResponseEntity.ok(paymentService.createPaymentIntent(paymentRequest));
+    private static Map<String, Object> paymentDetails(RegisterPaymentView register, long amountMinor) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("registerId", register.registerId());
+        response.put("plate", register.plate());
+        response.put("vehicleType", register.vehicleType());
+        response.put("entryDate", register.entryDate());
+        response.put("exitDate", register.exitDate());
+        response.put("minutes", register.minutes());
+        response.put("amount", PricingEngine.toMajorUnits(amountMinor));
+        return response;
     }
 }
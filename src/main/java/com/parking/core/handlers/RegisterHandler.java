@@ -3,19 +3,32 @@ package com.parking.core.handlers;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.parking.core.enums.VehicleType;
 import com.parking.core.model.Register;
 import com.parking.core.model.Vehicle;
+import com.parking.core.model.dto.DtoMapper;
+import com.parking.core.model.dto.GateEventBatchRequest;
+import com.parking.core.model.dto.GateEventResult;
 import com.parking.core.model.dto.RegisterEntryRequest;
+import com.parking.core.model.dto.RegisterFilter;
+import com.parking.core.model.dto.RegisterPage;
+import com.parking.core.service.GateEventBatchService;
 import com.parking.core.service.RegisterService;
 
+import java.time.LocalDateTime;
 import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.server.ResponseStatusException;
 
 import jakarta.validation.Valid;
 
@@ -32,19 +45,49 @@ import jakarta.validation.Valid;
 public class RegisterHandler {
 
     private final RegisterService registerService;
+    private final GateEventBatchService gateEventBatchService;
 
-    public RegisterHandler(RegisterService registerService) {
+    public RegisterHandler(RegisterService registerService, GateEventBatchService gateEventBatchService) {
         this.registerService = registerService;
+        this.gateEventBatchService = gateEventBatchService;
     }
 
     /**
-     * Retrieves all parking registers.
+     * Lists parking registers newest first, one keyset page at a time.
      *
-     * @return {@code 200 OK} with the list of all registers
+     * @param vehicleId optional license plate filter
+     * @param type      optional vehicle type filter
+     * @param open      optional filter: {@code true} for open registers, {@code false} for closed ones
+     * @param from      optional inclusive lower bound of the entry date (ISO date-time)
+     * @param to        optional exclusive upper bound of the entry date (ISO date-time)
+     * @param cursor    the {@code nextCursor} of the previous page; omit for the first page
+     * @param limit     the page size
+     * @return {@code 200 OK} with the registers of the page and the cursor of the next one
      */
     @GetMapping("/registers")
-    public ResponseEntity<Map<String, Object>> getAll() {
-        return ResponseEntity.ok(Map.of("registers", registerService.getAllRegisters()));
+    public ResponseEntity<Map<String, Object>> getAll(
+            @RequestParam(required = false) String vehicleId,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) Boolean open,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        VehicleType vehicleType = null;
+        if (type != null) {
+            try {
+                vehicleType = VehicleType.valueOf(type.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported vehicle type: " + type);
+            }
+        }
+        RegisterPage page = registerService.getRegisters(
+                new RegisterFilter(vehicleId, vehicleType, open, from, to), cursor, limit);
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("registers", page.registers());
+        response.put("count", page.registers().size());
+        response.put("nextCursor", page.nextCursor());
+        return ResponseEntity.ok(response);
     }
 
     /**
@@ -58,7 +101,7 @@ public class RegisterHandler {
         Register register = registerService.registerVehicleEntrance(request);
         Map<String, Object> response = new LinkedHashMap<>();
         response.put("message", "Register created successfully");
-        response.put("register", register);
+        response.put("register", DtoMapper.toRegisterDTO(register));
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
@@ -73,7 +116,27 @@ public class RegisterHandler {
         Register register = registerService.leaveVehicle(vehicle);
         Map<String, Object> response = new LinkedHashMap<>();
         response.put("message", "Register updated successfully");
-        response.put("register", register);
+        response.put("register", DtoMapper.toRegisterDTO(register));
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Applies an ordered batch of entry/exit events replayed by a lane controller.
+     * <p>
+     * Failures of one event do not block the others; each result carries its own status.
+     * </p>
+     *
+     * @param request the events to apply, in the order they happened
+     * @return {@code 200 OK} with the count of processed events and individual results
+     */
+    @PostMapping("/register/batch")
+    public ResponseEntity<Map<String, Object>> registerBatch(@Valid @RequestBody GateEventBatchRequest request) {
+        List<GateEventResult> results = gateEventBatchService.process(request.events());
+        long succeeded = results.stream().filter(r -> r.status() < 300).count();
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("processed", results.size());
+        response.put("succeeded", succeeded);
+        response.put("results", results);
         return ResponseEntity.ok(response);
     }
 }
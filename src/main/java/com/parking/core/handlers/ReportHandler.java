@@ -1,16 +1,27 @@
 package com.parking.core.handlers;
 
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.parking.core.enums.ReportFormat;
 import com.parking.core.service.ReportService;
+import com.parking.core.service.UsageRollupService;
 
 import java.io.File;
 import java.util.LinkedHashMap;
+import java.util.Locale;
 import java.util.Map;
 
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.server.ResponseStatusException;
 
 /**
  * REST controller for report generation endpoints.
@@ -19,14 +30,17 @@ import org.springframework.web.bind.annotation.GetMapping;
  * </p>
  *
  * @see ReportService
+ * @see UsageRollupService
  */
 @RestController
 @RequestMapping("api/v1/parking/reports")
 public class ReportHandler {
     private final ReportService reportService;
+    private final UsageRollupService usageRollupService;
 
-    public ReportHandler(ReportService reportService) {
+    public ReportHandler(ReportService reportService, UsageRollupService usageRollupService) {
         this.reportService = reportService;
+        this.usageRollupService = usageRollupService;
     }
 
     /**
@@ -45,4 +59,59 @@ public class ReportHandler {
         response.put("report_file", file.getName());
         return ResponseEntity.ok(response);
     }
+
+    /**
+     * Streams the monthly parking report for resident vehicles as a file download.
+     * <p>
+     * Rows are written to the response as they are read from the database; nothing is
+     * stored on disk.
+     * </p>
+     *
+     * @param format the output format, {@code txt} or {@code csv}
+     * @param gzip   whether to gzip-compress the download
+     * @return {@code 200 OK} with the report as an attachment
+     */
+    @GetMapping("/monthly/download")
+    public ResponseEntity<StreamingResponseBody> downloadReportMonthly(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        ReportFormat reportFormat;
+        try {
+            reportFormat = ReportFormat.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported report format: " + format);
+        }
+        reportService.requireResidents();
+
+        String filename = "informe_estacionamiento." + reportFormat.getExtension() + (gzip ? ".gz" : "");
+        MediaType contentType = gzip
+                ? MediaType.parseMediaType("application/gzip")
+                : MediaType.parseMediaType(reportFormat.getContentType() + ";charset=UTF-8");
+
+        StreamingResponseBody body = out -> reportService.writeReportMonthly(reportFormat, gzip, out);
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(filename).build().toString())
+                .body(body);
+    }
+
+    /**
+     * Rebuilds the per-vehicle usage rollup from the closed registers (backfill).
+     *
+     * @param period the billing period to rebuild; every period when omitted
+     * @return {@code 200 OK} with the number of rollup rows written
+     */
+    @PostMapping("/rollup/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildRollup(@RequestParam(required = false) Long period) {
+        if (period != null && period < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Billing period must be positive");
+        }
+        int rows = period == null ? usageRollupService.rebuildAll() : usageRollupService.rebuild(period, period);
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("message", "Usage rollup rebuilt successfully");
+        response.put("period", period != null ? period : "all");
+        response.put("rows", rows);
+        return ResponseEntity.ok(response);
+    }
 }
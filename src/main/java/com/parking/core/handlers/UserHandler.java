@@ -3,15 +3,26 @@ package com.parking.core.handlers;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.parking.core.enums.Roles;
 import com.parking.core.model.Response.PageResponse;
 import com.parking.core.model.User;
+import com.parking.core.model.dto.DtoMapper;
+import com.parking.core.model.dto.UserDTO;
+import com.parking.core.model.dto.UserSlice;
 import com.parking.core.service.UserService;
 
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.server.ResponseStatusException;
 
 /**
  * REST controller for user management endpoints.
@@ -46,6 +57,21 @@ public class UserHandler {
         return ResponseEntity.ok(Map.of("user", userService.getUser(name, username, email)));
     }
 
+    /**
+     * Searches users by a fragment of their name, username, or email, ignoring case.
+     *
+     * @param q     the text to search for; fewer than three characters only match prefixes
+     * @param limit the maximum number of users to return (default 20, at most 100)
+     * @return {@code 200 OK} with the matching users and their count
+     */
+    @GetMapping("/search")
+    public ResponseEntity<Map<String, Object>> search(
+            @RequestParam(required = false) String q,
+            @RequestParam(defaultValue = "20") int limit) {
+        List<UserDTO> users = userService.searchUsers(q, limit);
+        return ResponseEntity.ok(Map.of("users", users, "count", users.size()));
+    }
+
     /**
      * Retrieves all registered users.
      *
@@ -68,8 +94,49 @@ public class UserHandler {
             @RequestParam(defaultValue = "10") int pageSize) {
         return ResponseEntity.ok(userService.getUsersPaginated(pageNumber, pageSize));
     }
-    
-    
-    
-    
+
+    /**
+     * Lists users ordered by username, one keyset page at a time.
+     *
+     * @param cursor the {@code nextCursor} of the previous page; omit for the first page
+     * @param limit  the page size (default 20, at most 100)
+     * @return {@code 200 OK} with the users of the page, the cursor of the next one and the
+     *         periodically refreshed total
+     */
+    @GetMapping("/scroll")
+    public ResponseEntity<Map<String, Object>> scroll(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit) {
+        UserSlice slice = userService.getUsersSlice(cursor, limit);
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("users", slice.users());
+        response.put("count", slice.users().size());
+        response.put("nextCursor", slice.nextCursor());
+        response.put("total", slice.total());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Changes the role of a user. Restricted to administrators.
+     * <p>
+     * The user's cached authorities are evicted and their existing tokens revoked, so the new
+     * role applies to their next request.
+     * </p>
+     *
+     * @param username the username of the user
+     * @param body     a map containing {@code role}, either {@code ADMIN} or {@code USER}
+     * @return {@code 200 OK} with the updated user
+     * @throws ResponseStatusException with {@code 400 BAD_REQUEST} if the role is missing or unknown
+     */
+    @PutMapping("/{username}/role")
+    public ResponseEntity<Map<String, Object>> changeRole(@PathVariable String username,
+                                                          @RequestBody Map<String, String> body) {
+        Roles role;
+        try {
+            role = Roles.valueOf(String.valueOf(body.get("role")).toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Role must be ADMIN or USER");
+        }
+        return ResponseEntity.ok(Map.of("user", DtoMapper.toUserDTO(userService.changeRole(username, role))));
+    }
 }
@@ -0,0 +1,48 @@
+package com.parking.core.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * JPA entity representing a billing period (usually a calendar month).
+ * <p>
+ * Periods are numbered consecutively; the highest id is the current period. Every
+ * {@link Register} records the period in which it was opened or closed, so starting a new
+ * month is a single insert into this table instead of a rewrite of the {@code register} table.
+ * Official registers of past periods are deleted in the background, after which
+ * {@code purgedAt} is set.
+ * </p>
+ *
+ * @see com.parking.core.service.BillingPeriodService
+ */
+@Entity
+@Table(name = "billing_period")
+public class BillingPeriod {
+
+    @Id
+    private long id;
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+
+    @Column(name = "purged_at")
+    private LocalDateTime purgedAt;
+
+    public BillingPeriod() {}
+
+    public BillingPeriod(long id, LocalDateTime startedAt) {
+        this.id = id;
+        this.startedAt = startedAt;
+    }
+
+    public long getId() { return id; }
+
+    public LocalDateTime getStartedAt() { return startedAt; }
+
+    public LocalDateTime getPurgedAt() { return purgedAt; }
+    public void setPurgedAt(LocalDateTime purgedAt) { this.purgedAt = purgedAt; }
+}
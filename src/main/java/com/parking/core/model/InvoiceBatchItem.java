@@ -0,0 +1,125 @@
+package com.parking.core.model;
+
+import java.time.LocalDateTime;
+
+import com.parking.core.enums.InvoiceBatchStatus;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+
+/**
+ * JPA entity representing one customer's invoice within a batch.
+ * <p>
+ * Rows are written when the batch is submitted and updated as each invoice is created, so an
+ * interrupted batch can be resumed from the rows that are not {@link InvoiceBatchStatus#INVOICED}.
+ * The invoice id is set as soon as the draft invoice exists, before the row is invoiced.
+ * </p>
+ *
+ * @see com.parking.core.payment.services.InvoiceBatchService
+ */
+@Entity
+@Table(name = "invoice_batch_item", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_invoice_batch_item_customer", columnNames = {"batch_id", "customer"})
+})
+public class InvoiceBatchItem {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "batch_id", nullable = false, length = 36)
+    private String batchId;
+
+    @Column(nullable = false)
+    private String customer;
+
+    @Column(nullable = false, length = 3)
+    private String currency;
+
+    private int hours;
+
+    private long price;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private InvoiceBatchStatus status;
+
+    private int attempts;
+
+    @Column(name = "invoice_id")
+    private String invoiceId;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    public InvoiceBatchItem() {}
+
+    public InvoiceBatchItem(String batchId, String customer, String currency, int hours, long price) {
+        this.batchId = batchId;
+        this.customer = customer;
+        this.currency = currency;
+        this.hours = hours;
+        this.price = price;
+        this.status = InvoiceBatchStatus.PENDING;
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = createdAt;
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getBatchId() { return batchId; }
+    public void setBatchId(String batchId) { this.batchId = batchId; }
+
+    public String getCustomer() { return customer; }
+    public void setCustomer(String customer) { this.customer = customer; }
+
+    public String getCurrency() { return currency; }
+    public void setCurrency(String currency) { this.currency = currency; }
+
+    public int getHours() { return hours; }
+    public void setHours(int hours) { this.hours = hours; }
+
+    public long getPrice() { return price; }
+    public void setPrice(long price) { this.price = price; }
+
+    public InvoiceBatchStatus getStatus() { return status; }
+    public void setStatus(InvoiceBatchStatus status) { this.status = status; }
+
+    public int getAttempts() { return attempts; }
+    public void setAttempts(int attempts) { this.attempts = attempts; }
+
+    public String getInvoiceId() { return invoiceId; }
+    public void setInvoiceId(String invoiceId) { this.invoiceId = invoiceId; }
+
+    public String getLastError() { return lastError; }
+    public void setLastError(String lastError) { this.lastError = lastError; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+}
@@ -18,7 +18,8 @@ import jakarta.persistence.Table;
 
 @Entity
 @Table(name = "payment", indexes = {
-    @Index(name = "idx_payment_vehicle_id", columnList = "vehicle_id")
+    @Index(name = "idx_payment_vehicle_id", columnList = "vehicle_id"),
+    @Index(name = "idx_payment_register_id", columnList = "register_id")
 })
 public class Payment {
 
@@ -42,6 +43,9 @@ public class Payment {
     @Column(name = "vehicle_id")
     private String vehicleId;
 
+    @Column(name = "register_id")
+    private Long registerId;
+
     @Column(name = "customer_id")
     private String customerId;
 
@@ -84,6 +88,9 @@ public class Payment {
     public String getVehicleId() { return vehicleId; }
     public void setVehicleId(String vehicleId) { this.vehicleId = vehicleId; }
 
+    public Long getRegisterId() { return registerId; }
+    public void setRegisterId(Long registerId) { this.registerId = registerId; }
+
     public String getCustomerId() { return customerId; }
     public void setCustomerId(String customerId) { this.customerId = customerId; }
 
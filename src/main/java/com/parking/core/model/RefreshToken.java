@@ -0,0 +1,95 @@
+package com.parking.core.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+/**
+ * JPA entity representing an issued refresh token.
+ * <p>
+ * Only the SHA-256 hash of the token is stored. Every refresh consumes the token and issues
+ * a new one in the same {@code family}; presenting a consumed token again revokes the whole
+ * family, since it means the token was copied.
+ * </p>
+ *
+ * @see com.parking.core.auth.services.RefreshTokenService
+ */
+@Entity
+@Table(name = "refresh_token", indexes = {
+    @Index(name = "idx_refresh_token_family", columnList = "family_id"),
+    @Index(name = "idx_refresh_token_expires_at", columnList = "expires_at")
+})
+public class RefreshToken {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "token_hash", nullable = false, unique = true, length = 64)
+    private String tokenHash;
+
+    @Column(name = "family_id", nullable = false, length = 36)
+    private String familyId;
+
+    @Column(nullable = false)
+    private String username;
+
+    @Column(name = "token_epoch", nullable = false)
+    private int tokenEpoch;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Column(name = "used_at")
+    private LocalDateTime usedAt;
+
+    private boolean revoked;
+
+    public RefreshToken() {}
+
+    public RefreshToken(String tokenHash, String familyId, String username, int tokenEpoch, LocalDateTime expiresAt) {
+        this.tokenHash = tokenHash;
+        this.familyId = familyId;
+        this.username = username;
+        this.tokenEpoch = tokenEpoch;
+        this.expiresAt = expiresAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getTokenHash() {
+        return tokenHash;
+    }
+
+    public String getFamilyId() {
+        return familyId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public int getTokenEpoch() {
+        return tokenEpoch;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public LocalDateTime getUsedAt() {
+        return usedAt;
+    }
+
+    public boolean isRevoked() {
+        return revoked;
+    }
+}
@@ -6,6 +6,7 @@ import com.fasterxml.jackson.annotation.JsonFormat;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
@@ -18,20 +19,27 @@ import jakarta.persistence.Table;
  * JPA entity representing a parking session register.
  * <p>
  * Tracks when a vehicle enters and exits the parking lot, along with
- * the total parked time in minutes. Each register is linked to a single {@link Vehicle}.
+ * the total parked time in minutes. Each register is linked to a single {@link Vehicle}
+ * and stamped with the {@link BillingPeriod} in which it was opened, then closed. The vehicle is
+ * loaded lazily; read endpoints use projections or fetch it explicitly.
  * Dates are serialized using the format {@code dd-MM-YYYY HH:mm:ss}.
  * </p>
  *
  * @see Vehicle
  */
 @Entity
-@Table(name = "register", indexes = @Index(name = "idx_vehicle_exitdate", columnList = "vehicle_id, exitdate"))
+@Table(name = "register", indexes = {
+    @Index(name = "idx_vehicle_exitdate", columnList = "vehicle_id, exitdate"),
+    @Index(name = "idx_register_vehicle_entrydate", columnList = "vehicle_id, entrydate, id"),
+    @Index(name = "idx_register_entrydate_id", columnList = "entrydate, id"),
+    @Index(name = "idx_register_vehicle_period", columnList = "vehicle_id, billing_period")
+})
 public class Register {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private long id;
     
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "vehicle_id")
     Vehicle vehicle;
 
@@ -49,6 +57,9 @@ public class Register {
     @Column(name = "notification_channel")
     String notificationChannel;
 
+    @Column(name = "billing_period", nullable = false)
+    long billingPeriod;
+
     public Register(){}
 
     public Register(Vehicle vehicle) {
@@ -110,4 +121,12 @@ public class Register {
     public void setNotificationChannel(String notificationChannel) {
         this.notificationChannel = notificationChannel;
     }
+
+    public long getBillingPeriod() {
+        return billingPeriod;
+    }
+
+    public void setBillingPeriod(long billingPeriod) {
+        this.billingPeriod = billingPeriod;
+    }
 }
@@ -0,0 +1,62 @@
+package com.parking.core.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.Table;
+
+/**
+ * JPA entity mapping a {@link User} to their Stripe customer.
+ * <p>
+ * Shares the composite key {@link UserId} of the user. Rows are written when the Stripe customer
+ * is created and never change afterwards.
+ * </p>
+ *
+ * @see com.parking.core.payment.services.StripeCustomerDirectory
+ */
+@IdClass(UserId.class)
+@Entity
+@Table(name = "stripe_customer")
+public class StripeCustomer {
+
+    @Id
+    private String username;
+
+    @Id
+    @Column(unique = true)
+    private String email;
+
+    @Column(name = "customer_id", nullable = false, unique = true)
+    private String customerId;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    public StripeCustomer() {}
+
+    public StripeCustomer(String username, String email, String customerId) {
+        this.username = username;
+        this.email = email;
+        this.customerId = customerId;
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+
+    public String getUsername() { return username; }
+    public void setUsername(String username) { this.username = username; }
+
+    public String getEmail() { return email; }
+    public void setEmail(String email) { this.email = email; }
+
+    public String getCustomerId() { return customerId; }
+    public void setCustomerId(String customerId) { this.customerId = customerId; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+}
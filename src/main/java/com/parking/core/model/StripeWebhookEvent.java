@@ -0,0 +1,81 @@
+package com.parking.core.model;
+
+import java.time.LocalDateTime;
+
+import com.parking.core.enums.WebhookEventStatus;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+/**
+ * JPA entity representing a verified Stripe webhook event waiting to be applied.
+ * <p>
+ * The Stripe event id is the primary key, so a retried delivery of an event that is already
+ * stored is rejected by the database. Rows are inserted by
+ * {@link com.parking.core.payment.services.StripeWebhookInboxService#receive} and applied in
+ * batches by {@link com.parking.core.payment.services.StripeWebhookWorker}.
+ * </p>
+ *
+ * @see WebhookEventStatus
+ */
+@Entity
+@Table(name = "stripe_webhook_event", indexes = {
+    @Index(name = "idx_webhook_event_status_received", columnList = "status, received_at")
+})
+public class StripeWebhookEvent {
+
+    @Id
+    @Column(name = "event_id")
+    private String eventId;
+
+    @Column(nullable = false, length = 100)
+    private String type;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private WebhookEventStatus status;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @Column(name = "received_at", nullable = false)
+    private LocalDateTime receivedAt;
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+
+    public StripeWebhookEvent() {}
+
+    public StripeWebhookEvent(String eventId, String type, String payload) {
+        this.eventId = eventId;
+        this.type = type;
+        this.payload = payload;
+        this.status = WebhookEventStatus.PENDING;
+        this.receivedAt = LocalDateTime.now();
+    }
+
+    public String getEventId() { return eventId; }
+
+    public String getType() { return type; }
+
+    public String getPayload() { return payload; }
+
+    public WebhookEventStatus getStatus() { return status; }
+    public void setStatus(WebhookEventStatus status) { this.status = status; }
+
+    public String getLastError() { return lastError; }
+    public void setLastError(String lastError) { this.lastError = lastError; }
+
+    public LocalDateTime getReceivedAt() { return receivedAt; }
+
+    public LocalDateTime getProcessedAt() { return processedAt; }
+    public void setProcessedAt(LocalDateTime processedAt) { this.processedAt = processedAt; }
+}
@@ -11,6 +11,7 @@ import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.Id;
 import jakarta.persistence.IdClass;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
@@ -27,7 +28,10 @@ import jakarta.validation.constraints.NotBlank;
  */
 @IdClass(UserId.class)
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = {
+    @Index(name = "idx_users_name", columnList = "name"),
+    @Index(name = "idx_users_username_email", columnList = "username, email")
+})
 public class User {
 
     @NotBlank(message = "Name is required")
@@ -49,6 +53,11 @@ public class User {
     @JsonIgnore
     private String password;
 
+    // only changed by UserRepository.incrementTokenEpoch, so saving a stale entity cannot undo a revocation
+    @JsonIgnore
+    @Column(name = "token_epoch", nullable = false, updatable = false)
+    private int tokenEpoch;
+
     @Embedded
     private UserAddress address;
 
@@ -101,6 +110,14 @@ public class User {
         this.password = password;
     }
 
+    public int getTokenEpoch() {
+        return tokenEpoch;
+    }
+
+    public void setTokenEpoch(int tokenEpoch) {
+        this.tokenEpoch = tokenEpoch;
+    }
+
     public UserAddress getAddress() {
         return address;
     }
@@ -0,0 +1,57 @@
+package com.parking.core.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+/**
+ * JPA entity holding the closed-session totals of one vehicle in one {@link BillingPeriod}.
+ * <p>
+ * A row is incremented in the same transaction that closes a {@link Register}, so reports and
+ * payment calculations read one row per vehicle and period instead of aggregating every register.
+ * The amount due is priced in minor units with the vehicle type in force when each session closed.
+ * Rows can be recomputed from the {@code register} table with
+ * {@link com.parking.core.service.UsageRollupService#rebuild}.
+ * </p>
+ *
+ * @see com.parking.core.service.UsageRollupService
+ */
+@IdClass(VehicleUsageRollupId.class)
+@Entity
+@Table(name = "vehicle_usage_rollup", indexes = {
+    @Index(name = "idx_rollup_period_vehicle", columnList = "billing_period, vehicle_id")
+})
+public class VehicleUsageRollup {
+
+    @Id
+    @Column(name = "vehicle_id")
+    private String vehicleId;
+
+    @Id
+    @Column(name = "billing_period")
+    private long billingPeriod;
+
+    @Column(name = "total_minutes", nullable = false)
+    private long totalMinutes;
+
+    @Column(nullable = false)
+    private long sessions;
+
+    @Column(name = "amount_due", nullable = false)
+    private long amountDue;
+
+    public VehicleUsageRollup() {}
+
+    public String getVehicleId() { return vehicleId; }
+
+    public long getBillingPeriod() { return billingPeriod; }
+
+    public long getTotalMinutes() { return totalMinutes; }
+
+    public long getSessions() { return sessions; }
+
+    public long getAmountDue() { return amountDue; }
+}
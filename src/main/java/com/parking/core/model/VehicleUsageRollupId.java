@@ -0,0 +1,38 @@
+package com.parking.core.model;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Composite primary key class for the {@link VehicleUsageRollup} entity.
+ * <p>
+ * Combines {@code vehicleId} and {@code billingPeriod}.
+ * </p>
+ *
+ * @see VehicleUsageRollup
+ */
+public class VehicleUsageRollupId implements Serializable {
+    private String vehicleId;
+    private long billingPeriod;
+
+    public VehicleUsageRollupId() {}
+
+    public VehicleUsageRollupId(String vehicleId, long billingPeriod) {
+        this.vehicleId = vehicleId;
+        this.billingPeriod = billingPeriod;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (!(obj instanceof VehicleUsageRollupId)) return false;
+        VehicleUsageRollupId other = (VehicleUsageRollupId) obj;
+
+        return Objects.equals(vehicleId, other.vehicleId) && billingPeriod == other.billingPeriod;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(vehicleId, billingPeriod);
+    }
+}
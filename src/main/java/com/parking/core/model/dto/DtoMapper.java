@@ -40,6 +40,23 @@ public final class DtoMapper {
         );
     }
 
+    /**
+     * Converts a {@link RegisterRow} projection to a {@link RegisterDTO}.
+     *
+     * @param row the register and vehicle columns read by a projection query
+     * @return the corresponding DTO
+     */
+    public static RegisterDTO toRegisterDTO(RegisterRow row) {
+        return new RegisterDTO(
+            row.id(),
+            new VehicleDTO(row.vehicleId(), row.vehicleType()),
+            row.entrydate(),
+            row.exitdate(),
+            row.minutes(),
+            row.phoneNumber()
+        );
+    }
+
     /**
      * Converts a {@link User} entity to a {@link UserDTO},
      * excluding sensitive fields like the password.
@@ -0,0 +1,26 @@
+package com.parking.core.model.dto;
+
+import java.time.LocalDateTime;
+
+import com.parking.core.enums.GateEventType;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+
+/**
+ * A single entry or exit event replayed by a lane controller.
+ *
+ * @param type                whether the vehicle entered or left the parking lot
+ * @param vehicleId           the license plate of the vehicle
+ * @param occurredAt          when the event happened at the gate; defaults to the processing time
+ * @param phoneNumber         optional phone number stored on the register (entries only)
+ * @param notificationChannel optional notification channel stored on the register (entries only)
+ */
+public record GateEvent(
+    @NotNull GateEventType type,
+    @NotBlank String vehicleId,
+    LocalDateTime occurredAt,
+    @Pattern(regexp = "^\\+?[1-9]\\d{6,14}$") String phoneNumber,
+    String notificationChannel
+) {}
@@ -0,0 +1,16 @@
+package com.parking.core.model.dto;
+
+import java.util.List;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+/**
+ * Request body for batched gate event ingestion.
+ *
+ * @param events the gate events, in the order they happened
+ */
+public record GateEventBatchRequest(
+    @NotEmpty @Size(max = 10000) List<@Valid GateEvent> events
+) {}
@@ -0,0 +1,24 @@
+package com.parking.core.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.parking.core.enums.GateEventType;
+
+/**
+ * Outcome of a single event of a gate event batch.
+ *
+ * @param index      the position of the event in the submitted batch
+ * @param vehicleId  the license plate of the event
+ * @param type       the event type
+ * @param status     the HTTP-like status code of the event ({@code 201}, {@code 200}, {@code 400}, ...)
+ * @param registerId the register created or closed by the event, if any
+ * @param message    a human readable description of the outcome
+ */
+public record GateEventResult(
+    int index,
+    String vehicleId,
+    GateEventType type,
+    int status,
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    Long registerId,
+    String message
+) {}
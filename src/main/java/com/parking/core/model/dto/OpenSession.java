@@ -0,0 +1,16 @@
+package com.parking.core.model.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Lightweight view of a parking session that has not been closed yet.
+ *
+ * @param vehicleId  the license plate of the vehicle inside the parking lot
+ * @param registerId the identifier of the open {@link com.parking.core.model.Register}
+ * @param entrydate  the date/time the vehicle entered the parking lot
+ */
+public record OpenSession(
+    String vehicleId,
+    long registerId,
+    LocalDateTime entrydate
+) {}
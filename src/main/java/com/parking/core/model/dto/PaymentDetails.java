@@ -0,0 +1,14 @@
+package com.parking.core.model.dto;
+
+/**
+ * Payment details of a closed register, as shown on the public payment page.
+ *
+ * @param register    the register columns read from the database
+ * @param amountMinor the amount due in minor units
+ * @param etag        the strong entity tag of the details, quoted
+ */
+public record PaymentDetails(
+    RegisterPaymentView register,
+    long amountMinor,
+    String etag
+) {}
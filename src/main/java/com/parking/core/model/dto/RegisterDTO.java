@@ -2,20 +2,28 @@ package com.parking.core.model.dto;
 
 import java.time.LocalDateTime;
 
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 /**
  * Data Transfer Object for {@link com.parking.core.model.Register}.
+ * <p>
+ * Serialized with the same property names and date format as the entity, so endpoints
+ * that switched from the entity to this DTO keep their JSON shape.
+ * </p>
  *
  * @param id        the register auto-generated identifier
  * @param vehicle   the associated vehicle DTO
  * @param entryDate the date/time the vehicle entered the parking lot
  * @param exitDate  the date/time the vehicle exited (may be {@code null} if still parked)
  * @param minutes   the total minutes the vehicle has been parked
+ * @param phoneNumber the phone number used for notifications, if any
  */
 public record RegisterDTO(
     long id,
     VehicleDTO vehicle,
-    LocalDateTime entryDate,
-    LocalDateTime exitDate,
+    @JsonProperty("entrydate") @JsonFormat(pattern = "dd-MM-YYYY HH:mm:ss") LocalDateTime entryDate,
+    @JsonProperty("exitdate") @JsonFormat(pattern = "dd-MM-YYYY HH:mm:ss") LocalDateTime exitDate,
     int minutes,
     String phoneNumber
 ) {}
@@ -0,0 +1,22 @@
+package com.parking.core.model.dto;
+
+import java.time.LocalDateTime;
+
+import com.parking.core.enums.VehicleType;
+
+/**
+ * Optional filters of the register listing; {@code null} components are not applied.
+ *
+ * @param vehicleId the license plate to list registers of
+ * @param type      the vehicle type to list registers of
+ * @param open      {@code true} for registers without exit date, {@code false} for closed ones
+ * @param from      inclusive lower bound of the entry date
+ * @param to        exclusive upper bound of the entry date
+ */
+public record RegisterFilter(
+    String vehicleId,
+    VehicleType type,
+    Boolean open,
+    LocalDateTime from,
+    LocalDateTime to
+) {}
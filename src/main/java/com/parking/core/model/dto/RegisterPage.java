@@ -0,0 +1,14 @@
+package com.parking.core.model.dto;
+
+import java.util.List;
+
+/**
+ * One page of the keyset-paginated register listing.
+ *
+ * @param registers  the registers of the page, newest first
+ * @param nextCursor the cursor of the next page, or {@code null} if this is the last page
+ */
+public record RegisterPage(
+    List<RegisterDTO> registers,
+    String nextCursor
+) {}
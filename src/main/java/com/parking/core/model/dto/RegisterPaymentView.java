@@ -0,0 +1,24 @@
+package com.parking.core.model.dto;
+
+import java.time.LocalDateTime;
+
+import com.parking.core.enums.VehicleType;
+
+/**
+ * Columns of a register needed by the public payment page, read in a single query.
+ *
+ * @param registerId  the register identifier
+ * @param plate       the license plate of the vehicle
+ * @param vehicleType the type of the vehicle, used for pricing
+ * @param entryDate   the date/time the vehicle entered the parking lot
+ * @param exitDate    the date/time the vehicle exited, or {@code null} if still parked
+ * @param minutes     the parked minutes
+ */
+public record RegisterPaymentView(
+    long registerId,
+    String plate,
+    VehicleType vehicleType,
+    LocalDateTime entryDate,
+    LocalDateTime exitDate,
+    int minutes
+) {}
@@ -0,0 +1,27 @@
+package com.parking.core.model.dto;
+
+import java.time.LocalDateTime;
+
+import com.parking.core.enums.VehicleType;
+
+/**
+ * Flat projection of a register and its vehicle, read in a single query and turned into a
+ * {@link RegisterDTO} by {@link DtoMapper#toRegisterDTO(RegisterRow)}.
+ *
+ * @param id          the register identifier
+ * @param vehicleId   the license plate of the vehicle
+ * @param vehicleType the type of the vehicle
+ * @param entrydate   the date/time the vehicle entered the parking lot
+ * @param exitdate    the date/time the vehicle exited, or {@code null} if still parked
+ * @param minutes     the parked minutes
+ * @param phoneNumber the phone number used for notifications, if any
+ */
+public record RegisterRow(
+    long id,
+    String vehicleId,
+    VehicleType vehicleType,
+    LocalDateTime entrydate,
+    LocalDateTime exitdate,
+    int minutes,
+    String phoneNumber
+) {}
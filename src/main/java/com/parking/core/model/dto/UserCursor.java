@@ -0,0 +1,42 @@
+package com.parking.core.model.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Keyset position in the user listing: the {@code (username, email)} of the last user
+ * returned. The email breaks ties between users sharing a username. It is exchanged with
+ * clients as an opaque URL-safe string.
+ *
+ * @param username the username of the last user of the page
+ * @param email    the email of the last user of the page
+ */
+public record UserCursor(
+    String username,
+    String email
+) {
+
+    /**
+     * @return the cursor as an opaque URL-safe string
+     */
+    public String encode() {
+        String raw = username + "\n" + email;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Parses a cursor previously returned by {@link #encode()}.
+     *
+     * @param value the opaque cursor
+     * @return the decoded cursor
+     * @throws IllegalArgumentException if the value is not a valid cursor
+     */
+    public static UserCursor decode(String value) {
+        String raw = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+        int separator = raw.lastIndexOf('\n');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+        return new UserCursor(raw.substring(0, separator), raw.substring(separator + 1));
+    }
+}
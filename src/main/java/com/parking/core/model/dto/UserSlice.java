@@ -0,0 +1,17 @@
+package com.parking.core.model.dto;
+
+import java.util.List;
+
+/**
+ * One page of the keyset-paginated user listing.
+ *
+ * @param users      the users of the page, ordered by username
+ * @param nextCursor the cursor of the next page, or {@code null} if this is the last page
+ * @param total      the number of users as of the last count refresh, see
+ *                   {@link com.parking.core.service.UserCountService}
+ */
+public record UserSlice(
+    List<UserDTO> users,
+    String nextCursor,
+    long total
+) {}
@@ -0,0 +1,16 @@
+package com.parking.core.model.dto;
+
+/**
+ * Closed-session totals of a vehicle in one billing period, as stored in the usage rollup.
+ *
+ * @param vehicleId   the license plate of the vehicle
+ * @param minutes     the total parked minutes
+ * @param sessions    the number of closed registers
+ * @param amountMinor the amount due in minor units
+ */
+public record VehicleBill(
+    String vehicleId,
+    long minutes,
+    long sessions,
+    long amountMinor
+) {}
@@ -0,0 +1,20 @@
+package com.parking.core.model.dto;
+
+import com.parking.core.enums.VehicleType;
+
+/**
+ * Amount due by a vehicle for its accumulated parking time.
+ *
+ * @param vehicleId the license plate of the vehicle
+ * @param type      the vehicle type used for pricing
+ * @param minutes   the total parked minutes
+ * @param sessions  the number of registers counted
+ * @param price     the amount due, in major units
+ */
+public record VehicleCharge(
+    String vehicleId,
+    VehicleType type,
+    long minutes,
+    long sessions,
+    double price
+) {}
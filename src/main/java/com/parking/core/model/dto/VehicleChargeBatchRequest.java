@@ -0,0 +1,16 @@
+package com.parking.core.model.dto;
+
+import java.util.List;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+/**
+ * Request body for calculating the charges of many vehicles at once.
+ *
+ * @param vehicleIds the license plates to price
+ */
+public record VehicleChargeBatchRequest(
+    @NotEmpty @Size(max = 1000) List<@NotBlank String> vehicleIds
+) {}
@@ -0,0 +1,18 @@
+package com.parking.core.model.dto;
+
+import com.parking.core.enums.VehicleType;
+
+/**
+ * Parking usage of a vehicle aggregated by the database.
+ *
+ * @param vehicleId the license plate of the vehicle
+ * @param type      the stored type of the vehicle
+ * @param minutes   the total parked minutes
+ * @param sessions  the number of registers counted
+ */
+public record VehicleUsage(
+    String vehicleId,
+    VehicleType type,
+    long minutes,
+    long sessions
+) {}
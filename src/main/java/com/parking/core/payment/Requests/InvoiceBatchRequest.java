@@ -0,0 +1,14 @@
+package com.parking.core.payment.Requests;
+
+import java.util.List;
+
+import jakarta.validation.constraints.NotEmpty;
+
+/**
+ * Represents a request to invoice many customers at once, e.g. end-of-month resident billing.
+ *
+ * @param invoices One invoice per customer; a customer may appear only once.
+ */
+public record InvoiceBatchRequest(
+    @NotEmpty List<InvoiceRequest> invoices
+) {}
@@ -3,10 +3,22 @@ package com.parking.core.payment.Requests;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 
+/**
+ * Represents a request to create a Stripe payment intent.
+ *
+ * @param amount        The amount to charge, in the smallest unit of the currency.
+ * @param currency      The currency of the charge.
+ * @param customerId    The Stripe customer to charge (optional).
+ * @param vehicleId     The license plate the payment belongs to (optional).
+ * @param description   A description of the charge (optional).
+ * @param customerEmail The email of a user whose Stripe customer is charged when
+ *                      {@code customerId} is not given (optional).
+ */
 public record PaymentRequest(
     @Min(1) long amount,
     @NotBlank String currency,
     String customerId,
     String vehicleId,
-    String description
+    String description,
+    String customerEmail
 ) {}
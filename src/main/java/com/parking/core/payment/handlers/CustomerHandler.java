@@ -5,8 +5,10 @@ import org.springframework.web.bind.annotation.RestController;
 
 import com.parking.core.payment.Requests.CustomerRequest;
 import com.parking.core.payment.services.CustomerService;
+import com.parking.core.payment.services.StripeCustomerDirectory;
 import com.stripe.exception.StripeException;
 
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import org.springframework.http.ResponseEntity;
@@ -19,9 +21,11 @@ import jakarta.validation.Valid;
 @RequestMapping("api/customers")
 public class CustomerHandler {
     private final CustomerService customerService;
+    private final StripeCustomerDirectory customerDirectory;
 
-    public CustomerHandler(CustomerService customerService) {
+    public CustomerHandler(CustomerService customerService, StripeCustomerDirectory customerDirectory) {
         this.customerService = customerService;
+        this.customerDirectory = customerDirectory;
     }
 
     @PostMapping("/customer")
@@ -30,4 +34,19 @@ public class CustomerHandler {
                 "message", "Customer created correctly",
                 "customer", customerService.addNewCustomer(toAdd)));
     }
+
+    /**
+     * Records the Stripe customers of registered users that are not mapped yet (backfill).
+     * Restricted to administrators.
+     *
+     * @return {@code 200 OK} with the number of users mapped
+     * @throws StripeException if the customers cannot be listed
+     */
+    @PostMapping("/backfill")
+    public ResponseEntity<Map<String, Object>> backfill() throws StripeException {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("message", "Stripe customers backfilled successfully");
+        response.put("recorded", customerDirectory.backfill());
+        return ResponseEntity.ok(response);
+    }
 }
@@ -3,13 +3,19 @@ package com.parking.core.payment.handlers;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.parking.core.payment.Requests.InvoiceBatchRequest;
 import com.parking.core.payment.Requests.InvoiceRequest;
+import com.parking.core.payment.response.InvoiceBatchProgress;
+import com.parking.core.payment.services.InvoiceBatchService;
 import com.parking.core.payment.services.InvoiceService;
 import com.stripe.exception.StripeException;
 
 import java.util.Map;
 
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 
@@ -19,9 +25,11 @@ import jakarta.validation.Valid;
 @RequestMapping("api/invoices")
 public class InvoiceHandler {
     private final InvoiceService invoiceService;
+    private final InvoiceBatchService invoiceBatchService;
 
-    public InvoiceHandler(InvoiceService invoiceService) {
+    public InvoiceHandler(InvoiceService invoiceService, InvoiceBatchService invoiceBatchService) {
         this.invoiceService = invoiceService;
+        this.invoiceBatchService = invoiceBatchService;
     }
 
     @PostMapping("/invoice")
@@ -30,4 +38,42 @@ public class InvoiceHandler {
                 "message", "Invoice created correctly",
                 "invoice", invoiceService.createAnInvoceForAUser(request)));
     }
+
+    /**
+     * Starts invoicing many customers in the background.
+     *
+     * @param request one invoice per customer
+     * @return {@code 202 Accepted} with the id of the batch
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<Map<String, Object>> addInvoiceBatch(@Valid @RequestBody InvoiceBatchRequest request) {
+        String batchId = invoiceBatchService.submit(request.invoices());
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of(
+                "message", "Invoice batch accepted",
+                "batchId", batchId,
+                "total", request.invoices().size()));
+    }
+
+    /**
+     * @param batchId the id of the batch
+     * @return {@code 200 OK} with the progress of the batch
+     */
+    @GetMapping("/batch/{batchId}")
+    public ResponseEntity<InvoiceBatchProgress> getInvoiceBatch(@PathVariable String batchId) {
+        return ResponseEntity.ok(invoiceBatchService.progress(batchId));
+    }
+
+    /**
+     * Processes again the invoices of a batch that are not invoiced yet.
+     *
+     * @param batchId the id of the batch
+     * @return {@code 202 Accepted} with the number of invoices being processed
+     */
+    @PostMapping("/batch/{batchId}/resume")
+    public ResponseEntity<Map<String, Object>> resumeInvoiceBatch(@PathVariable String batchId) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of(
+                "message", "Invoice batch resumed",
+                "batchId", batchId,
+                "remaining", invoiceBatchService.resume(batchId)));
+    }
 }
@@ -8,26 +8,28 @@ import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import com.parking.core.enums.PaymentStatus;
-import com.parking.core.payment.services.PaymentService;
+import com.parking.core.payment.services.StripeWebhookInboxService;
 import com.stripe.exception.SignatureVerificationException;
 import com.stripe.model.Event;
-import com.stripe.model.PaymentIntent;
 import com.stripe.net.Webhook;
 
 @RestController
 @RequestMapping("api/webhooks")
 public class WebhookHandler {
 
-    private final PaymentService paymentService;
+    private final StripeWebhookInboxService inboxService;
 
     @Value("${stripe.webhook.secret}")
     private String webhookSecret;
 
-    public WebhookHandler(PaymentService paymentService) {
-        this.paymentService = paymentService;
+    public WebhookHandler(StripeWebhookInboxService inboxService) {
+        this.inboxService = inboxService;
     }
 
+    /**
+     * Verifies a Stripe event and stores it in the inbox, to be applied in the background.
+     * Retries of an event that is already stored are acknowledged without storing it again.
+     */
     @PostMapping("/stripe")
     public ResponseEntity<String> handleStripeWebhook(
             @RequestBody String payload,
@@ -40,20 +42,7 @@ public class WebhookHandler {
             return ResponseEntity.badRequest().body("Invalid signature");
         }
 
-        String type = event.getType();
-
-        if ("payment_intent.succeeded".equals(type) || "payment_intent.payment_failed".equals(type)) {
-            PaymentIntent intent = (PaymentIntent) event.getDataObjectDeserializer()
-                    .getObject().orElse(null);
-
-            if (intent != null) {
-                PaymentStatus status = "payment_intent.succeeded".equals(type)
-                        ? PaymentStatus.SUCCEEDED
-                        : PaymentStatus.FAILED;
-                paymentService.updatePaymentStatus(intent.getId(), status);
-            }
-        }
-
+        inboxService.receive(event.getId(), event.getType(), payload);
         return ResponseEntity.ok("received");
     }
 }
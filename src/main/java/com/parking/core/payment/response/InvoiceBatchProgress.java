@@ -0,0 +1,24 @@
+package com.parking.core.payment.response;
+
+import java.util.Map;
+
+/**
+ * Represents the progress of an invoice batch.
+ *
+ * @param batchId  The identifier of the batch.
+ * @param total    The number of invoices in the batch.
+ * @param pending  The invoices not created yet.
+ * @param invoiced The invoices created in Stripe.
+ * @param failed   The invoices whose last attempt failed.
+ * @param running  Whether the batch is being processed right now.
+ * @param failures The error of each failed invoice, by customer.
+ */
+public record InvoiceBatchProgress(
+    String batchId,
+    long total,
+    long pending,
+    long invoiced,
+    long failed,
+    boolean running,
+    Map<String, String> failures
+) {}
@@ -3,6 +3,7 @@ package com.parking.core.payment.services;
 
 import org.springframework.stereotype.Service;
 
+import com.parking.core.payment.Requests.CustomerRequest;
 import com.parking.core.payment.response.CardResponse;
 import com.parking.core.payment.utils.CardInfo;
 import com.parking.core.payment.utils.CardRequest;
@@ -14,7 +15,32 @@ import com.stripe.param.PaymentMethodCreateParams;
 @Service
 public class CardService {
 
+    private final StripeCustomerDirectory customerDirectory;
+
+    public CardService(StripeCustomerDirectory customerDirectory) {
+        this.customerDirectory = customerDirectory;
+    }
+
+    /**
+     * Creates a card and attaches it to a Stripe customer.
+     * <p>
+     * When the request carries no customer id, the customer is resolved from the email through
+     * the local {@link StripeCustomerDirectory}.
+     * </p>
+     *
+     * @param request the card details and the customer to attach it to
+     * @return the customer and the attached card
+     * @throws StripeException If an error occurs while interacting with the Stripe API.
+     * @throws org.springframework.web.server.ResponseStatusException with {@code 404 NOT_FOUND}
+     *         if the customer id is missing and the email has no Stripe customer
+     */
     public CardResponse attachCardToCustomer(CardRequest request) throws StripeException {
+        CustomerRequest customer = request.customer();
+        if (customer.id() == null || customer.id().isBlank()) {
+            customer = new CustomerRequest(customerDirectory.requireCustomerId(customer.email()),
+                    customer.name(), customer.email(), customer.address());
+        }
+
         PaymentMethodCreateParams params = PaymentMethodCreateParams.builder()
             .setType(PaymentMethodCreateParams.Type.CARD)
             .setCard(PaymentMethodCreateParams.CardDetails.builder()
@@ -29,7 +55,7 @@ public class CardService {
         PaymentMethod payment = PaymentMethod.create(params);
 
         payment.attach(PaymentMethodAttachParams.builder()
-            .setCustomer(request.customer().id())
+            .setCustomer(customer.id())
             .build());
 
         var cardInfo = new CardInfo(
@@ -43,6 +69,6 @@ public class CardService {
             payment.getCard().getChecks()
             );
 
-        return new CardResponse(request.customer(), cardInfo);
+        return new CardResponse(customer, cardInfo);
     }
 }
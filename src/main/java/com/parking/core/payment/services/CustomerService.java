@@ -1,47 +1,64 @@
 package com.parking.core.payment.services;
 
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 
 import com.parking.core.enums.Currencies;
+import com.parking.core.model.User;
 import com.parking.core.payment.Requests.CustomerRequest;
 import com.parking.core.payment.Requests.UserAddress;
 import com.parking.core.payment.response.CustomerResponse;
+import com.parking.core.repository.UserRepository;
 import com.stripe.exception.StripeException;
 import com.stripe.model.Customer;
-import com.stripe.model.CustomerCollection;
+import com.stripe.net.RequestOptions;
 import com.stripe.param.CustomerCreateParams;
-import com.stripe.param.CustomerListParams;
 
 @Service
 public class CustomerService {
 
+    private static final Logger log = LoggerFactory.getLogger(CustomerService.class);
+
+    private final StripeCustomerDirectory customerDirectory;
+    private final UserRepository userRepository;
+
+    public CustomerService(StripeCustomerDirectory customerDirectory, UserRepository userRepository) {
+        this.customerDirectory = customerDirectory;
+        this.userRepository = userRepository;
+    }
+
     /**
      * Adds a new customer to the Stripe system if they do not already exist.
+     * <p>
+     * Existing customers are found through the {@link StripeCustomerDirectory}, without calling
+     * Stripe. A user missing from it is created right away; the idempotency key of the request
+     * makes concurrent identical sign-ups share one customer.
+     * </p>
      *
      * @param user The {@link CustomerRequest} object containing the customer's details.
      * @return A {@link CustomerResponse} object containing the details of the newly created customer.
      * @throws StripeException If an error occurs while interacting with the Stripe API.
-     * @throws ResponseStatusException If the customer already exists (HTTP 409 Conflict) 
+     * @throws ResponseStatusException If the customer already exists (HTTP 409 Conflict),
+     *                                 no user is registered with the email (HTTP 404 Not Found)
      *                                 or if the customer creation request is invalid (HTTP 400 Bad Request).
      */
     public CustomerResponse addNewCustomer(CustomerRequest user) throws StripeException{
-        CustomerListParams listParams =
-            CustomerListParams
-            .builder()
-            .setEmail(user.email())
-            .setLimit(1L)
-            .build();
-
-        CustomerCollection existingCustomers = Customer.list(listParams);
-
-        if (!existingCustomers.getData().isEmpty()) {
+        if (customerDirectory.findCustomerId(user.email()).isPresent()) {
             throw new ResponseStatusException(HttpStatus.CONFLICT,
             "Stripe customer already exists");
         }
 
+        User owner = userRepository.findByEmail(user.email())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
+                        "No user registered with this email"));
+
         var address = addAdrresToUser(
             user.address().city(), 
             user.address().country(), 
@@ -52,12 +69,22 @@ public class CustomerService {
         .setEmail(user.email())
         .setName(user.name())
         .setAddress(address)
+        .putMetadata("username", owner.getUsername())
         .build();
         
         
         if (newCustomer == null) throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Customer can't be null");
         
-        var created = Customer.create(newCustomer);
+        // the key makes concurrent identical requests share one Stripe customer; it covers the
+        // params, since Stripe rejects a key reused with different ones
+        String paramsKey = String.join("|", owner.getUsername(), user.email(), user.name(),
+                user.address().city(), user.address().country(), user.address().line1());
+        var created = Customer.create(newCustomer, RequestOptions.builder()
+                .setIdempotencyKey("customer-" + owner.getEmail() + "-"
+                        + UUID.nameUUIDFromBytes(paramsKey.getBytes(StandardCharsets.UTF_8)))
+                .build());
+        customerDirectory.record(owner, created.getId());
+        log.info("Created Stripe customer {} for user {}", created.getId(), owner.getUsername());
 
 
         return new CustomerResponse(
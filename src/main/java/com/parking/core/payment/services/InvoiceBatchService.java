@@ -0,0 +1,231 @@
+package com.parking.core.payment.services;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.parking.core.enums.Currencies;
+import com.parking.core.enums.InvoiceBatchStatus;
+import com.parking.core.model.InvoiceBatchItem;
+import com.parking.core.model.Product;
+import com.parking.core.payment.Requests.InvoiceRequest;
+import com.parking.core.payment.response.InvoiceBatchProgress;
+import com.parking.core.repository.InvoiceBatchItemRepository;
+import com.stripe.exception.StripeException;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Service layer for invoicing many customers at once, e.g. end-of-month resident billing.
+ * <p>
+ * A batch is stored as one {@link InvoiceBatchItem} row per customer and processed in the
+ * background, with at most {@code stripe.invoice-batch.concurrency} Stripe invoices being created
+ * at a time. Each row records its outcome as soon as it is known, so a batch interrupted by a
+ * failure or a restart can be resumed: only rows that are not invoiced yet are processed again.
+ * </p>
+ * <p>
+ * The draft invoice is created with an idempotency key made of the row id and its number of
+ * failed attempts, and its id is stored on the row as soon as it exists. A resumed row completes
+ * that draft instead of creating another, since Stripe forgets idempotency keys after 24 hours.
+ * The parking time item is added with a key that does not change between attempts, and a resumed
+ * row first lists the items of its draft, so an item whose creation failed ambiguously, e.g. on a
+ * timeout, is not added a second time.
+ * </p>
+ *
+ * @see InvoiceService
+ */
+@Service
+public class InvoiceBatchService {
+
+    private static final Logger log = LoggerFactory.getLogger(InvoiceBatchService.class);
+
+    private final InvoiceBatchItemRepository repository;
+    private final InvoiceService invoiceService;
+    private final ExecutorService workers;
+    private final Map<String, CompletableFuture<Void>> running = new ConcurrentHashMap<>();
+
+    public InvoiceBatchService(InvoiceBatchItemRepository repository, InvoiceService invoiceService,
+                               @Value("${stripe.invoice-batch.concurrency:4}") int concurrency) {
+        this.repository = repository;
+        this.invoiceService = invoiceService;
+        AtomicInteger counter = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(Math.max(1, concurrency), runnable -> {
+            Thread thread = new Thread(runnable, "invoice-batch-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Stores a new batch and starts invoicing it in the background.
+     *
+     * @param requests one invoice per customer
+     * @return the id of the batch
+     * @throws ResponseStatusException with {@code 400 BAD_REQUEST} if an invoice is incomplete
+     *                                 or a customer appears more than once
+     */
+    public String submit(List<InvoiceRequest> requests) {
+        Set<String> customers = new HashSet<>();
+        for (int i = 0; i < requests.size(); i++) {
+            InvoiceRequest request = requests.get(i);
+            if (request == null || isBlank(request.customer()) || request.currency() == null
+                    || request.product() == null || request.product().getHours() == null
+                    || request.product().getPrice() == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Invoice " + i + " needs a customer, a currency, hours and a price");
+            }
+            if (!customers.add(request.customer())) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Customer " + request.customer() + " appears more than once");
+            }
+        }
+
+        String batchId = UUID.randomUUID().toString();
+        List<InvoiceBatchItem> items = new ArrayList<>(requests.size());
+        for (InvoiceRequest request : requests) {
+            items.add(new InvoiceBatchItem(batchId, request.customer(), request.currency().name(),
+                    request.product().getHours(), request.product().getPrice()));
+        }
+        List<InvoiceBatchItem> saved = repository.saveAll(items);
+        launch(batchId, () -> saved);
+        log.info("Invoice batch {} submitted with {} invoices", batchId, saved.size());
+        return batchId;
+    }
+
+    /**
+     * Processes again the invoices of a batch that are not invoiced yet.
+     *
+     * @param batchId the id of the batch
+     * @return the number of invoices being processed
+     * @throws ResponseStatusException with {@code 404 NOT_FOUND} if the batch does not exist
+     * @throws ResponseStatusException with {@code 409 CONFLICT} if the batch is still running
+     */
+    public int resume(String batchId) {
+        if (repository.countByStatus(batchId).isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Invoice batch not found");
+        }
+        int remaining = launch(batchId,
+                () -> repository.findByBatchIdAndStatusNot(batchId, InvoiceBatchStatus.INVOICED));
+        log.info("Invoice batch {} resumed with {} invoices", batchId, remaining);
+        return remaining;
+    }
+
+    /**
+     * Returns the progress of a batch.
+     *
+     * @param batchId the id of the batch
+     * @return the number of invoices by status and the errors of the failed ones
+     * @throws ResponseStatusException with {@code 404 NOT_FOUND} if the batch does not exist
+     */
+    public InvoiceBatchProgress progress(String batchId) {
+        Map<InvoiceBatchStatus, Long> counts = new LinkedHashMap<>();
+        for (Object[] row : repository.countByStatus(batchId)) {
+            counts.put((InvoiceBatchStatus) row[0], (Long) row[1]);
+        }
+        if (counts.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Invoice batch not found");
+        }
+
+        Map<String, String> failures = new LinkedHashMap<>();
+        long failed = counts.getOrDefault(InvoiceBatchStatus.FAILED, 0L);
+        if (failed > 0) {
+            for (InvoiceBatchItem item : repository.findByBatchIdAndStatus(batchId, InvoiceBatchStatus.FAILED)) {
+                failures.put(item.getCustomer(), item.getLastError());
+            }
+        }
+        long total = counts.values().stream().mapToLong(Long::longValue).sum();
+        return new InvoiceBatchProgress(batchId, total,
+                counts.getOrDefault(InvoiceBatchStatus.PENDING, 0L),
+                counts.getOrDefault(InvoiceBatchStatus.INVOICED, 0L),
+                failed, running.containsKey(batchId), failures);
+    }
+
+    /**
+     * @return a future completed when the current run of a batch ends, or a completed one if it is not running
+     */
+    CompletableFuture<Void> completion(String batchId) {
+        return running.getOrDefault(batchId, CompletableFuture.completedFuture(null));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    private int launch(String batchId, Supplier<List<InvoiceBatchItem>> loader) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        if (running.putIfAbsent(batchId, done) != null) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Invoice batch is already running");
+        }
+
+        List<InvoiceBatchItem> items;
+        try {
+            items = loader.get();
+        } catch (RuntimeException e) {
+            running.remove(batchId, done);
+            done.complete(null);
+            throw e;
+        }
+
+        CompletableFuture.allOf(items.stream()
+                        .map(item -> CompletableFuture.runAsync(() -> invoice(item), workers))
+                        .toArray(CompletableFuture[]::new))
+                .whenComplete((result, error) -> {
+                    if (error != null) {
+                        log.error("Invoice batch {} stopped before recording every outcome", batchId, error);
+                    } else {
+                        log.info("Invoice batch {} run finished", batchId);
+                    }
+                    running.remove(batchId, done);
+                    done.complete(null);
+                });
+        return items.size();
+    }
+
+    private void invoice(InvoiceBatchItem item) {
+        InvoiceRequest request = new InvoiceRequest(item.getCustomer(), Currencies.valueOf(item.getCurrency()),
+                new Product(item.getHours(), item.getPrice()));
+        try {
+            String idempotencyKey = "invoice-batch-" + item.getId();
+            if (item.getInvoiceId() == null) {
+                item.setInvoiceId(invoiceService.createDraftInvoice(request, idempotencyKey + "-" + item.getAttempts()));
+                // recorded before the item is added, so a failure from here on resumes this draft
+                repository.save(item);
+                invoiceService.addParkingTime(request, item.getInvoiceId(), idempotencyKey);
+            } else if (!invoiceService.hasParkingTime(item.getInvoiceId())) {
+                invoiceService.addParkingTime(request, item.getInvoiceId(), idempotencyKey);
+            }
+            item.setStatus(InvoiceBatchStatus.INVOICED);
+            item.setLastError(null);
+        } catch (StripeException | RuntimeException e) {
+            log.warn("Invoice for customer {} in batch {} failed: {}", item.getCustomer(), item.getBatchId(),
+                    e.getMessage());
+            item.setStatus(InvoiceBatchStatus.FAILED);
+            item.setAttempts(item.getAttempts() + 1);
+            String message = String.valueOf(e.getMessage());
+            item.setLastError(message.length() > 500 ? message.substring(0, 500) : message);
+        }
+        repository.save(item);
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+}
@@ -1,7 +1,6 @@
 package com.parking.core.payment.services;
 
 
-import java.math.BigDecimal;
 import java.util.Map;
 
 import org.springframework.stereotype.Service;
@@ -9,41 +8,65 @@ import org.springframework.stereotype.Service;
 import com.parking.core.enums.Currencies;
 import com.parking.core.payment.Requests.InvoiceRequest;
 import com.parking.core.payment.Requests.ProductInfo;
-import com.parking.core.payment.Requests.UserTax;
 import com.parking.core.payment.response.InvoiceResponse;
 import com.stripe.exception.StripeException;
 import com.stripe.model.Invoice;
 import com.stripe.model.InvoiceItem;
-import com.stripe.model.TaxRate;
+import com.stripe.net.RequestOptions;
 import com.stripe.param.InvoiceCreateParams;
 import com.stripe.param.InvoiceItemCreateParams;
-import com.stripe.param.TaxRateCreateParams;
+import com.stripe.param.InvoiceItemListParams;
 
 @Service
 public class InvoiceService {
 
-    
+    private static final String ITEM_DESCRIPTION = "Time in parking";
+
+    private final TaxRateRegistry taxRateRegistry;
+
+    public InvoiceService(TaxRateRegistry taxRateRegistry) {
+        this.taxRateRegistry = taxRateRegistry;
+    }
+
     /**
      * Creates an invoice for a user based on the provided invoice request.
      *
-     * @param invoiceRequest The request object containing details about the customer, 
+     * @param invoiceRequest The request object containing details about the customer,
      *                       product, and currency for the invoice.
-     * @return An {@link InvoiceResponse} object containing the details of the created invoice, 
+     * @return An {@link InvoiceResponse} object containing the details of the created invoice,
      *         including the invoice ID, currency, customer, tax information, and product details.
      * @throws StripeException If an error occurs while interacting with the Stripe API.
      */
     public InvoiceResponse createAnInvoceForAUser(InvoiceRequest invoiceRequest) throws StripeException{
-        TaxRateCreateParams taxRate = TaxRateCreateParams.builder()
-        .setActive(true)
-        .setCountry("CO")
-        .setPercentage(BigDecimal.valueOf(19.0))
-        .setState("DC")
-        .setDisplayName("IVA")
-        .setInclusive(true)
-        .build();
+        return createAnInvoceForAUser(invoiceRequest, null);
+    }
 
-        TaxRate rate = TaxRate.create(taxRate);
+    /**
+     * Creates an invoice for a user, sending the Stripe requests with idempotency keys derived
+     * from {@code idempotencyKey}, so retrying the same invoice never creates it twice.
+     *
+     * @param invoiceRequest the customer, product, and currency of the invoice
+     * @param idempotencyKey the key identifying this invoice, or {@code null} for none
+     * @return the created invoice
+     * @throws StripeException If an error occurs while interacting with the Stripe API.
+     */
+    public InvoiceResponse createAnInvoceForAUser(InvoiceRequest invoiceRequest, String idempotencyKey)
+            throws StripeException {
+        String taxRateId = taxRateRegistry.id();
+        String invoiceId = createDraftInvoice(invoiceRequest, idempotencyKey);
+        return addParkingTime(invoiceRequest, invoiceId, taxRateId, idempotencyKey);
+    }
 
+    /**
+     * Creates the empty draft invoice of a customer, the first step of
+     * {@link #createAnInvoceForAUser(InvoiceRequest, String)}.
+     *
+     * @param invoiceRequest the customer and currency of the invoice
+     * @param idempotencyKey the key identifying this invoice, or {@code null} for none
+     * @return the id of the draft invoice
+     * @throws StripeException If an error occurs while interacting with the Stripe API.
+     */
+    public String createDraftInvoice(InvoiceRequest invoiceRequest, String idempotencyKey) throws StripeException {
         InvoiceCreateParams invoiceParams = InvoiceCreateParams
         .builder()
         .setCustomer(invoiceRequest.customer())
@@ -51,35 +74,68 @@ public class InvoiceService {
         .setAutoAdvance(false)
         .build();
 
-        Invoice invoice = Invoice.create(invoiceParams);
+        return Invoice.create(invoiceParams, requestOptions(idempotencyKey, "-invoice")).getId();
+    }
+
+    /**
+     * Adds the parking time of a customer to their draft invoice, the second step of
+     * {@link #createAnInvoceForAUser(InvoiceRequest, String)}.
+     *
+     * @param invoiceRequest the customer, product, and currency of the invoice
+     * @param invoiceId      the id of the draft invoice
+     * @param idempotencyKey the key identifying this invoice, or {@code null} for none
+     * @return the completed invoice
+     * @throws StripeException If an error occurs while interacting with the Stripe API.
+     */
+    public InvoiceResponse addParkingTime(InvoiceRequest invoiceRequest, String invoiceId, String idempotencyKey)
+            throws StripeException {
+        return addParkingTime(invoiceRequest, invoiceId, taxRateRegistry.id(), idempotencyKey);
+    }
+
+    /**
+     * Checks whether the parking time was already added to a draft invoice, e.g. by a request
+     * whose response was lost.
+     *
+     * @param invoiceId the id of the draft invoice
+     * @return {@code true} if the invoice has a parking time item
+     * @throws StripeException If an error occurs while interacting with the Stripe API.
+     */
+    public boolean hasParkingTime(String invoiceId) throws StripeException {
+        InvoiceItemListParams params = InvoiceItemListParams.builder()
+                .setInvoice(invoiceId)
+                .setLimit(100L)
+                .build();
+        return InvoiceItem.list(params).getData().stream()
+                .anyMatch(item -> ITEM_DESCRIPTION.equals(item.getDescription()));
+    }
 
+    private InvoiceResponse addParkingTime(InvoiceRequest invoiceRequest, String invoiceId, String taxRateId,
+                                           String idempotencyKey) throws StripeException {
         InvoiceItemCreateParams itemParam =
         InvoiceItemCreateParams.builder()
         .setAmount(invoiceRequest.product().getHours() * invoiceRequest.product().getPrice() * 100)
         .setCustomer(invoiceRequest.customer())
         .setCurrency(invoiceRequest.currency().name())
-        .setDescription("Time in parking")
-        .addTaxRate(rate.getId())
-        .setInvoice(invoice.getId())
+        .setDescription(ITEM_DESCRIPTION)
+        .addTaxRate(taxRateId)
+        .setInvoice(invoiceId)
         .build();
 
-        var item = InvoiceItem.create(itemParam);
+        var item = InvoiceItem.create(itemParam, requestOptions(idempotencyKey, "-item"));
 
-
-        UserTax tax = new UserTax(
-            taxRate.getActive(),
-            taxRate.getCountry(),
-            taxRate.getPercentage(),
-            taxRate.getState()
-        );
-
-        var product = new ProductInfo(item.getDescription(), item.getAmount(), Currencies.valueOf(item.getCurrency().toUpperCase()), rate.getId());
+        var product = new ProductInfo(item.getDescription(), item.getAmount(), Currencies.valueOf(item.getCurrency().toUpperCase()), taxRateId);
         return new InvoiceResponse(
-            invoice.getId(),
-            Currencies.valueOf(invoice.getCurrency().toUpperCase()), 
-            invoice.getCustomer(), 
-            tax, 
+            invoiceId,
+            invoiceRequest.currency(),
+            invoiceRequest.customer(),
+            taxRateRegistry.tax(),
             Map.of("product",product));
 
     }
+
+    private static RequestOptions requestOptions(String idempotencyKey, String step) {
+        return RequestOptions.builder()
+                .setIdempotencyKey(idempotencyKey != null ? idempotencyKey + step : null)
+                .build();
+    }
 }
@@ -1,7 +1,12 @@
 package com.parking.core.payment.services;
 
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
@@ -12,25 +17,53 @@ import com.parking.core.payment.Requests.PaymentRequest;
 import com.parking.core.repository.PaymentRepository;
 import com.stripe.exception.StripeException;
 import com.stripe.model.PaymentIntent;
+import com.stripe.net.RequestOptions;
 import com.stripe.param.PaymentIntentCreateParams;
 
 @Service
 public class PaymentService {
 
+    private static final Logger log = LoggerFactory.getLogger(PaymentService.class);
+
+    /** Stripe statuses of an intent that can still be confirmed by the pay page. */
+    private static final Set<String> REUSABLE_INTENT_STATUSES =
+            Set.of("requires_payment_method", "requires_confirmation", "requires_action");
+    private static final Set<String> IN_FLIGHT_INTENT_STATUSES = Set.of("processing", "requires_capture");
+
     private final PaymentRepository paymentRepository;
+    private final StripeCustomerDirectory customerDirectory;
 
-    public PaymentService(PaymentRepository paymentRepository) {
+    public PaymentService(PaymentRepository paymentRepository, StripeCustomerDirectory customerDirectory) {
         this.paymentRepository = paymentRepository;
+        this.customerDirectory = customerDirectory;
     }
 
+    /**
+     * Creates a Stripe payment intent and records it as a {@link Payment}.
+     * <p>
+     * When the request has no customer id but a customer email, the customer is resolved
+     * through the local {@link StripeCustomerDirectory}.
+     * </p>
+     *
+     * @param request the amount, currency and optional customer of the payment
+     * @return the client secret and id of the payment intent
+     * @throws StripeException If an error occurs while interacting with the Stripe API.
+     * @throws ResponseStatusException with {@code 404 NOT_FOUND} if the customer email has no Stripe customer
+     */
     public Map<String, String> createPaymentIntent(PaymentRequest request) throws StripeException {
+        String customerId = request.customerId();
+        if ((customerId == null || customerId.isBlank())
+                && request.customerEmail() != null && !request.customerEmail().isBlank()) {
+            customerId = customerDirectory.requireCustomerId(request.customerEmail());
+        }
+
         PaymentIntentCreateParams.Builder paramsBuilder = PaymentIntentCreateParams.builder()
                 .setAmount(request.amount())
                 .setCurrency(request.currency().toLowerCase())
                 .addPaymentMethodType("card");
 
-        if (request.customerId() != null && !request.customerId().isBlank()) {
-            paramsBuilder.setCustomer(request.customerId());
+        if (customerId != null && !customerId.isBlank()) {
+            paramsBuilder.setCustomer(customerId);
         }
         if (request.description() != null && !request.description().isBlank()) {
             paramsBuilder.setDescription(request.description());
@@ -44,7 +77,7 @@ public class PaymentService {
         payment.setCurrency(request.currency().toUpperCase());
         payment.setStatus(PaymentStatus.CREATED);
         payment.setVehicleId(request.vehicleId());
-        payment.setCustomerId(request.customerId());
+        payment.setCustomerId(customerId);
         payment.setDescription(request.description());
         paymentRepository.save(payment);
 
@@ -53,11 +86,81 @@ public class PaymentService {
                 "paymentIntentId", intent.getId());
     }
 
-    public void updatePaymentStatus(String stripePaymentIntentId, PaymentStatus newStatus) {
-        Payment payment = paymentRepository.findByStripePaymentIntentId(stripePaymentIntentId)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
-                        "Payment not found for intent: " + stripePaymentIntentId));
-        payment.setStatus(newStatus);
-        paymentRepository.save(payment);
+    /**
+     * Returns a payment intent for a closed register, reusing its open one when possible.
+     * <p>
+     * A register with any succeeded payment is refused. Otherwise the Stripe intent of its latest
+     * payment is retrieved, since webhooks are applied asynchronously and the local status may lag
+     * behind: an intent that Stripe reports succeeded, processing or awaiting capture is refused
+     * too, so a refresh right after paying never charges the register twice. An intent that can
+     * still be confirmed is reused if its amount is unchanged; only its client secret is returned.
+     * Otherwise a new intent is created with an idempotency key derived from the register, the
+     * amount and the latest payment, so concurrent clicks on the pay page share one intent and
+     * one {@link Payment} row.
+     * </p>
+     *
+     * @param registerId the id of the register
+     * @param amount     the amount in minor units
+     * @param currency   the currency of the amount
+     * @param plate      the plate of the vehicle
+     * @return the client secret and id of the payment intent
+     * @throws StripeException If an error occurs while interacting with the Stripe API.
+     * @throws ResponseStatusException with {@code 409 CONFLICT} if the register is already paid
+     *                                 or its latest payment is still being processed
+     */
+    public Map<String, String> createRegisterPaymentIntent(long registerId, long amount, String currency,
+                                                           String plate) throws StripeException {
+        if (paymentRepository.existsByRegisterIdAndStatus(registerId, PaymentStatus.SUCCEEDED)) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Register is already paid");
+        }
+
+        Optional<Payment> latest = paymentRepository.findFirstByRegisterIdOrderByIdDesc(registerId);
+        if (latest.isPresent()) {
+            PaymentIntent intent = PaymentIntent.retrieve(latest.get().getStripePaymentIntentId());
+            if ("succeeded".equals(intent.getStatus())) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Register is already paid");
+            }
+            if (IN_FLIGHT_INTENT_STATUSES.contains(intent.getStatus())) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Register payment is being processed");
+            }
+            if (latest.get().getAmount() == amount && REUSABLE_INTENT_STATUSES.contains(intent.getStatus())) {
+                return Map.of(
+                        "clientSecret", intent.getClientSecret(),
+                        "paymentIntentId", intent.getId());
+            }
+        }
+
+        String description = "Parking fee - " + plate;
+        PaymentIntentCreateParams params = PaymentIntentCreateParams.builder()
+                .setAmount(amount)
+                .setCurrency(currency.toLowerCase())
+                .addPaymentMethodType("card")
+                .setDescription(description)
+                .putMetadata("register_id", String.valueOf(registerId))
+                .build();
+        String idempotencyKey = "register-" + registerId + "-" + amount + "-"
+                + latest.map(Payment::getId).orElse(0L);
+        PaymentIntent intent = PaymentIntent.create(params, RequestOptions.builder()
+                .setIdempotencyKey(idempotencyKey)
+                .build());
+
+        Payment payment = new Payment();
+        payment.setStripePaymentIntentId(intent.getId());
+        payment.setRegisterId(registerId);
+        payment.setAmount(amount);
+        payment.setCurrency(currency.toUpperCase());
+        payment.setStatus(PaymentStatus.CREATED);
+        payment.setVehicleId(plate);
+        payment.setDescription(description);
+        try {
+            paymentRepository.save(payment);
+        } catch (DataIntegrityViolationException e) {
+            // a concurrent request got the same intent from Stripe and stored it first
+            log.debug("Payment intent {} of register #{} was already stored", intent.getId(), registerId);
+        }
+
+        return Map.of(
+                "clientSecret", intent.getClientSecret(),
+                "paymentIntentId", intent.getId());
     }
 }
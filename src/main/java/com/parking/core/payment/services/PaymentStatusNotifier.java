@@ -0,0 +1,170 @@
+package com.parking.core.payment.services;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.parking.core.enums.PaymentStatus;
+import com.parking.core.repository.PaymentRepository;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Pushes payment status changes to the public pay page as server-sent events.
+ * <p>
+ * Each open page holds an {@link SseEmitter} registered in memory under its payment intent id.
+ * The current status is read once when the page subscribes; after that, a waiting page costs no
+ * database queries. Status changes applied from Stripe webhooks are published on the
+ * {@code payment-status} Redis channel, so every node delivers them to the pages it holds.
+ * </p>
+ * <p>
+ * {@link PaymentStatus#SUCCEEDED} is final and closes the stream. {@link PaymentStatus#FAILED}
+ * keeps it open, since the driver may retry the same intent with another card. Streams are closed
+ * after {@code parking.payment-events.timeout-ms}; the page reconnects if it is still open.
+ * </p>
+ *
+ * @see StripeWebhookInboxService
+ */
+@Service
+public class PaymentStatusNotifier implements MessageListener {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentStatusNotifier.class);
+
+    static final String CHANNEL = "payment-status";
+
+    private final PaymentRepository paymentRepository;
+    private final RedisTemplate<String, String> redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final Map<String, Set<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+    private final long timeoutMs;
+
+    public PaymentStatusNotifier(PaymentRepository paymentRepository, RedisTemplate<String, String> redisTemplate,
+                                 RedisMessageListenerContainer listenerContainer,
+                                 @Value("${parking.payment-events.timeout-ms:300000}") long timeoutMs) {
+        this.paymentRepository = paymentRepository;
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.timeoutMs = timeoutMs;
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+    }
+
+    /**
+     * Opens a stream of the status changes of a payment, starting with its current status.
+     *
+     * @param paymentIntentId the Stripe payment intent id of the payment
+     * @return the event stream
+     * @throws ResponseStatusException with {@code 404 NOT_FOUND} if no payment has this intent
+     */
+    public SseEmitter stream(String paymentIntentId) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        // registered before reading the status, so a change committed in between is not missed
+        subscribers.compute(paymentIntentId, (id, emitters) -> {
+            Set<SseEmitter> registered = emitters != null ? emitters : ConcurrentHashMap.newKeySet();
+            registered.add(emitter);
+            return registered;
+        });
+        emitter.onCompletion(() -> unsubscribe(paymentIntentId, emitter));
+        emitter.onTimeout(() -> unsubscribe(paymentIntentId, emitter));
+        emitter.onError(error -> unsubscribe(paymentIntentId, emitter));
+
+        PaymentStatus status = paymentRepository.findStatusByStripePaymentIntentId(paymentIntentId).orElse(null);
+        if (status == null) {
+            unsubscribe(paymentIntentId, emitter);
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Payment not found");
+        }
+        send(paymentIntentId, emitter, status);
+        return emitter;
+    }
+
+    /**
+     * Publishes status changes to every node, or only to this one if Redis is unavailable.
+     * Must be called once the changes are committed.
+     *
+     * @param statuses the new status of each payment intent
+     */
+    public void publish(Map<String, PaymentStatus> statuses) {
+        for (Map.Entry<String, PaymentStatus> entry : statuses.entrySet()) {
+            try {
+                redisTemplate.convertAndSend(CHANNEL, entry.getKey() + " " + entry.getValue());
+            } catch (Exception e) {
+                log.warn("Redis unavailable: payment {} status pushed to this node only.", entry.getKey(), e);
+                deliver(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Delivers a status change published by any node, including this one.
+     *
+     * @param message the message body, {@code "<paymentIntentId> <status>"}
+     * @param pattern the channel pattern, unused
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separator = body.lastIndexOf(' ');
+        try {
+            deliver(body.substring(0, separator), PaymentStatus.valueOf(body.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            log.warn("Ignoring malformed payment status message: {}", body);
+        }
+    }
+
+    /**
+     * @return the number of open streams on this node
+     */
+    public int size() {
+        return subscribers.values().stream().mapToInt(Set::size).sum();
+    }
+
+    void deliver(String paymentIntentId, PaymentStatus status) {
+        Set<SseEmitter> emitters = subscribers.get(paymentIntentId);
+        if (emitters == null) {
+            return;
+        }
+        for (SseEmitter emitter : emitters) {
+            send(paymentIntentId, emitter, status);
+        }
+    }
+
+    private void send(String paymentIntentId, SseEmitter emitter, PaymentStatus status) {
+        try {
+            emitter.send(SseEmitter.event()
+                    .name("status")
+                    .data(Map.of("paymentIntentId", paymentIntentId, "status", status)));
+            if (status == PaymentStatus.SUCCEEDED) {
+                unsubscribe(paymentIntentId, emitter);
+                emitter.complete();
+            }
+        } catch (IOException | IllegalStateException e) {
+            // the page went away; the emitter is already unusable
+            unsubscribe(paymentIntentId, emitter);
+        }
+    }
+
+    private void unsubscribe(String paymentIntentId, SseEmitter emitter) {
+        subscribers.computeIfPresent(paymentIntentId, (id, emitters) -> {
+            emitters.remove(emitter);
+            return emitters.isEmpty() ? null : emitters;
+        });
+    }
+}
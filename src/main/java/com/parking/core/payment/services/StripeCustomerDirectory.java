@@ -0,0 +1,166 @@
+package com.parking.core.payment.services;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.parking.core.model.StripeCustomer;
+import com.parking.core.model.User;
+import com.parking.core.repository.StripeCustomerRepository;
+import com.parking.core.repository.UserRepository;
+import com.stripe.exception.StripeException;
+import com.stripe.model.Customer;
+import com.stripe.param.CustomerListParams;
+
+/**
+ * Resolves the Stripe customer id of a user without calling Stripe.
+ * <p>
+ * Ids are read from the {@code stripe_customer} table through an in-process read-through cache
+ * keyed by email. A mapping never changes once written, so entries do not expire; when the cache
+ * holds {@code stripe.customer-cache.max-size} ids, new ids are returned without being cached.
+ * Misses are not cached.
+ * </p>
+ * <p>
+ * The table is the source of truth: a user missing from it has no Stripe customer. Customers
+ * created before the table existed are recorded once by {@link #backfill()}.
+ * </p>
+ *
+ * @see StripeCustomer
+ */
+@Service
+public class StripeCustomerDirectory {
+
+    private static final Logger log = LoggerFactory.getLogger(StripeCustomerDirectory.class);
+    private static final int PAGE_SIZE = 100;
+
+    private final StripeCustomerRepository repository;
+    private final UserRepository userRepository;
+    private final Map<String, String> customerIds = new ConcurrentHashMap<>();
+    private final int maxSize;
+
+    public StripeCustomerDirectory(StripeCustomerRepository repository, UserRepository userRepository,
+                                   @Value("${stripe.customer-cache.max-size:10000}") int maxSize) {
+        this.repository = repository;
+        this.userRepository = userRepository;
+        this.maxSize = Math.max(0, maxSize);
+    }
+
+    /**
+     * @param email the email of the user
+     * @return the Stripe customer id of the user, if they have one
+     */
+    public Optional<String> findCustomerId(String email) {
+        String cached = customerIds.get(email);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        Optional<String> customerId = repository.findCustomerIdByEmail(email);
+        customerId.ifPresent(id -> cache(email, id));
+        return customerId;
+    }
+
+    /**
+     * @param email the email of the user
+     * @return the Stripe customer id of the user
+     * @throws ResponseStatusException with {@code 404 NOT_FOUND} if the user has no Stripe customer
+     */
+    public String requireCustomerId(String email) {
+        return findCustomerId(email)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Stripe customer not found"));
+    }
+
+    /**
+     * Stores the Stripe customer of a user, unless a concurrent registration stored one first.
+     *
+     * @param user       the user
+     * @param customerId the id of their Stripe customer
+     * @return the customer id stored for the user, which is {@code customerId} unless another was stored first
+     */
+    public String record(User user, String customerId) {
+        String recorded = customerId;
+        if (repository.insertIfAbsent(user.getUsername(), user.getEmail(), customerId, LocalDateTime.now()) == 0) {
+            recorded = repository.findCustomerIdByEmail(user.getEmail()).orElse(customerId);
+            if (!recorded.equals(customerId)) {
+                log.warn("User {} is already mapped to Stripe customer {}, not {}",
+                        user.getUsername(), recorded, customerId);
+            }
+        }
+        cache(user.getEmail(), recorded);
+        return recorded;
+    }
+
+    /**
+     * Records the Stripe customers of registered users that are not mapped yet, e.g. those created
+     * before the {@code stripe_customer} table existed.
+     * <p>
+     * Every Stripe customer is listed once, {@value #PAGE_SIZE} at a time, and matched to users by
+     * email with one query per page. Users that are already mapped keep their customer, so the
+     * command can be run again safely.
+     * </p>
+     *
+     * @return the number of users mapped
+     * @throws StripeException if the customers cannot be listed
+     */
+    public int backfill() throws StripeException {
+        int recorded = 0;
+        List<Customer> page = new ArrayList<>(PAGE_SIZE);
+        for (Customer customer : Customer.list(CustomerListParams.builder()
+                .setLimit((long) PAGE_SIZE)
+                .build()).autoPagingIterable()) {
+            if (customer.getEmail() != null) {
+                page.add(customer);
+            }
+            if (page.size() == PAGE_SIZE) {
+                recorded += backfill(page);
+                page.clear();
+            }
+        }
+        recorded += backfill(page);
+        log.info("Recorded {} existing Stripe customers", recorded);
+        return recorded;
+    }
+
+    /**
+     * @return the number of cached ids
+     */
+    public int size() {
+        return customerIds.size();
+    }
+
+    private int backfill(List<Customer> customers) {
+        if (customers.isEmpty()) {
+            return 0;
+        }
+        Map<String, User> users = new HashMap<>();
+        for (User user : userRepository.findAllByEmailIn(customers.stream().map(Customer::getEmail).toList())) {
+            users.put(user.getEmail(), user);
+        }
+        int recorded = 0;
+        for (Customer customer : customers) {
+            User user = users.get(customer.getEmail());
+            if (user != null && repository.insertIfAbsent(user.getUsername(), user.getEmail(), customer.getId(),
+                    LocalDateTime.now()) == 1) {
+                cache(user.getEmail(), customer.getId());
+                recorded++;
+            }
+        }
+        return recorded;
+    }
+
+    private void cache(String email, String customerId) {
+        if (customerIds.size() < maxSize || customerIds.containsKey(email)) {
+            customerIds.put(email, customerId);
+        }
+    }
+}
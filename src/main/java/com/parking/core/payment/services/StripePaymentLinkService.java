@@ -1,49 +1,156 @@
 package com.parking.core.payment.services;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import com.stripe.exception.InvalidRequestException;
 import com.stripe.exception.StripeException;
 import com.stripe.model.PaymentLink;
 import com.stripe.model.Price;
+import com.stripe.net.RequestOptions;
 import com.stripe.param.PaymentLinkCreateParams;
 import com.stripe.param.PriceCreateParams;
+import com.stripe.param.PriceListParams;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+/**
+ * Creates the Stripe Payment Links sent to drivers when they leave.
+ * <p>
+ * Prices are reusable per amount: the first exit of a given amount looks up or creates a
+ * {@link Price} with lookup key {@code parking-cop-<amount>}, and later exits of the same amount
+ * reuse its id without calling Stripe. Concurrent exits of a new amount wait for a single lookup.
+ * At most {@code parking.payment-links.cache-size} price ids are kept, evicting the least
+ * recently used one. A price created concurrently by another node is looked up again and reused.
+ * </p>
+ * <p>
+ * Each register gets its own single-use link. The register id is stored in the metadata of the
+ * link and of the payment intent it creates, where {@link StripeWebhookInboxService} reads it to
+ * record the payment against the register.
+ * </p>
+ */
 @Service
 public class StripePaymentLinkService {
 
     private static final Logger log = LoggerFactory.getLogger(StripePaymentLinkService.class);
+    private static final String CURRENCY = "cop";
+
+    private final Map<Long, CompletableFuture<String>> prices;
+
+    public StripePaymentLinkService(@Value("${parking.payment-links.cache-size:1000}") int cacheSize) {
+        int maxSize = Math.max(0, cacheSize);
+        this.prices = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CompletableFuture<String>> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
 
     /**
-     * Creates a Stripe Payment Link for the given parking session.
+     * Returns a Stripe Payment Link for the given parking session.
      *
      * @param amount     total to charge in COP (Colombian pesos, zero-decimal currency in Stripe)
-     * @param registerId parking register ID, used as description
+     * @param registerId parking register ID, stored as the {@code register_id} metadata of the payment
      * @return the Stripe-hosted payment URL, or {@code null} if creation fails
      */
     public String createPaymentLink(double amount, long registerId) {
+        long unitAmount = (long) amount;
         try {
-            Price price = Price.create(PriceCreateParams.builder()
-                    .setCurrency("cop")
-                    .setUnitAmount((long) amount)
-                    .setProductData(PriceCreateParams.ProductData.builder()
-                            .setName("Parqueadero - Registro #" + registerId)
-                            .build())
-                    .build());
-
             PaymentLink link = PaymentLink.create(PaymentLinkCreateParams.builder()
                     .addLineItem(PaymentLinkCreateParams.LineItem.builder()
-                            .setPrice(price.getId())
+                            .setPrice(priceId(unitAmount))
                             .setQuantity(1L)
                             .build())
+                    .putMetadata("register_id", String.valueOf(registerId))
+                    .putMetadata("amount", String.valueOf(unitAmount))
+                    .setPaymentIntentData(PaymentLinkCreateParams.PaymentIntentData.builder()
+                            .putMetadata("register_id", String.valueOf(registerId))
+                            .build())
+                    .setRestrictions(PaymentLinkCreateParams.Restrictions.builder()
+                            .setCompletedSessions(PaymentLinkCreateParams.Restrictions.CompletedSessions.builder()
+                                    .setLimit(1L)
+                                    .build())
+                            .build())
+                    .build(), RequestOptions.builder()
+                    .setIdempotencyKey("payment-link-register-" + registerId + "-" + unitAmount)
                     .build());
-
-            log.info("Stripe payment link created for register #{}: {}", registerId, link.getUrl());
+            log.info("Stripe payment link created for register #{} ({} COP): {}", registerId, unitAmount, link.getUrl());
             return link.getUrl();
-        } catch (StripeException e) {
-            log.error("Failed to create Stripe payment link for register #{}: {}", registerId, e.getMessage());
+        } catch (StripeException | RuntimeException e) {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            log.error("Failed to create Stripe payment link for register #{}: {}", registerId, cause.getMessage());
             return null;
         }
     }
+
+    /**
+     * @return the number of cached price ids, including those being looked up
+     */
+    public int size() {
+        synchronized (prices) {
+            return prices.size();
+        }
+    }
+
+    private String priceId(long unitAmount) {
+        CompletableFuture<String> created = new CompletableFuture<>();
+        CompletableFuture<String> existing;
+        synchronized (prices) {
+            existing = prices.putIfAbsent(unitAmount, created);
+        }
+        if (existing != null) {
+            return existing.join();
+        }
+
+        try {
+            created.complete(findOrCreatePrice(unitAmount).getId());
+        } catch (StripeException | RuntimeException e) {
+            synchronized (prices) {
+                prices.remove(unitAmount, created);
+            }
+            created.completeExceptionally(e);
+        }
+        return created.join();
+    }
+
+    private Price findOrCreatePrice(long unitAmount) throws StripeException {
+        String lookupKey = "parking-" + CURRENCY + "-" + unitAmount;
+        Price price = findPrice(lookupKey);
+        if (price != null) {
+            return price;
+        }
+        try {
+            return Price.create(PriceCreateParams.builder()
+                    .setCurrency(CURRENCY)
+                    .setUnitAmount(unitAmount)
+                    .setLookupKey(lookupKey)
+                    .setProductData(PriceCreateParams.ProductData.builder()
+                            .setName("Parqueadero - $" + unitAmount + " COP")
+                            .build())
+                    .build());
+        } catch (InvalidRequestException e) {
+            // another node created a price with the same lookup key first
+            price = findPrice(lookupKey);
+            if (price == null) {
+                throw e;
+            }
+            log.debug("Reusing Stripe price {} created concurrently for {}", price.getId(), lookupKey);
+            return price;
+        }
+    }
+
+    private static Price findPrice(String lookupKey) throws StripeException {
+        List<Price> prices = Price.list(PriceListParams.builder()
+                .addLookupKey(lookupKey)
+                .setActive(true)
+                .build()).getData();
+        return prices.isEmpty() ? null : prices.get(0);
+    }
 }
@@ -0,0 +1,216 @@
+package com.parking.core.payment.services;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.parking.core.enums.PaymentStatus;
+import com.parking.core.enums.WebhookEventStatus;
+import com.parking.core.model.StripeWebhookEvent;
+import com.parking.core.repository.PaymentRepository;
+import com.parking.core.repository.StripeWebhookEventRepository;
+
+/**
+ * Service layer for the Stripe webhook inbox.
+ * <p>
+ * Verified events are stored in the {@code stripe_webhook_event} table and acknowledged right
+ * away; the event id is the primary key, so Stripe retries of a stored event are dropped.
+ * {@link StripeWebhookWorker} later applies pending events in batches: each batch is claimed
+ * with {@code SKIP LOCKED}, and its payment status changes are written with one {@code UPDATE}
+ * per status, in the same transaction that marks the events processed.
+ * </p>
+ * <p>
+ * Only {@code payment_intent.succeeded} and {@code payment_intent.payment_failed} change data;
+ * other event types are marked processed without effect. An intent without a payment row that
+ * carries a {@code register_id} in its metadata, such as one created by a payment link of
+ * {@link StripePaymentLinkService}, is recorded as a payment of that register; other unknown
+ * intents update nothing instead of failing. Once a batch commits, the
+ * payments whose status it changed are pushed to open pay pages through {@link PaymentStatusNotifier}.
+ * </p>
+ *
+ * @see StripeWebhookEvent
+ */
+@Service
+public class StripeWebhookInboxService {
+
+    private static final Logger log = LoggerFactory.getLogger(StripeWebhookInboxService.class);
+    private static final int MAX_ERROR_LENGTH = 500;
+    private static final Map<String, PaymentStatus> PAYMENT_EVENTS = Map.of(
+            "payment_intent.succeeded", PaymentStatus.SUCCEEDED,
+            "payment_intent.payment_failed", PaymentStatus.FAILED);
+
+    private final StripeWebhookEventRepository eventRepository;
+    private final PaymentRepository paymentRepository;
+    private final PaymentStatusNotifier statusNotifier;
+    private final ObjectMapper objectMapper;
+
+    public StripeWebhookInboxService(StripeWebhookEventRepository eventRepository,
+                                     PaymentRepository paymentRepository, PaymentStatusNotifier statusNotifier,
+                                     ObjectMapper objectMapper) {
+        this.eventRepository = eventRepository;
+        this.paymentRepository = paymentRepository;
+        this.statusNotifier = statusNotifier;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Stores a verified event for later processing.
+     *
+     * @param eventId the Stripe event id
+     * @param type    the event type
+     * @param payload the raw event body
+     * @return {@code true} if the event was stored, {@code false} if it had been received before
+     * @throws org.springframework.dao.DataAccessException if the event cannot be stored, so that
+     *                                                     Stripe retries it
+     */
+    public boolean receive(String eventId, String type, String payload) {
+        if (eventRepository.insert(eventId, type, payload, LocalDateTime.now()) == 0) {
+            log.debug("Stripe event {} was already received", eventId);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Claims up to {@code limit} pending events, oldest first, and applies them.
+     *
+     * @param limit the maximum number of events to process
+     * @return the number of events claimed
+     */
+    @Transactional
+    public int processBatch(int limit) {
+        List<StripeWebhookEvent> events = eventRepository.findPendingForUpdate(Limit.of(limit));
+        if (events.isEmpty()) {
+            return 0;
+        }
+
+        // last known status per intent; a success is final, so it is never replaced
+        Map<String, PaymentStatus> statuses = new LinkedHashMap<>();
+        Map<String, JsonNode> registerIntents = new LinkedHashMap<>();
+        List<String> processed = new ArrayList<>(events.size());
+        for (StripeWebhookEvent event : events) {
+            PaymentStatus status = PAYMENT_EVENTS.get(event.getType());
+            if (status != null) {
+                JsonNode intent = intent(event);
+                if (intent == null) {
+                    continue;
+                }
+                String intentId = intent.get("id").asText();
+                statuses.merge(intentId, status,
+                        (current, next) -> current == PaymentStatus.SUCCEEDED ? current : next);
+                if (intent.path("metadata").path("register_id").isTextual()) {
+                    registerIntents.put(intentId, intent);
+                }
+            }
+            processed.add(event.getEventId());
+        }
+
+        Map<PaymentStatus, List<String>> byStatus = new EnumMap<>(PaymentStatus.class);
+        statuses.forEach((intentId, status) -> byStatus.computeIfAbsent(status, s -> new ArrayList<>()).add(intentId));
+
+        LocalDateTime now = LocalDateTime.now();
+        // only the payments whose status actually changed are pushed to the pay pages
+        Map<String, PaymentStatus> changed = new LinkedHashMap<>();
+        for (Map.Entry<PaymentStatus, List<String>> entry : byStatus.entrySet()) {
+            for (String intentId : paymentRepository.updateStatus(entry.getValue(), entry.getKey().name(), now)) {
+                changed.put(intentId, entry.getKey());
+            }
+        }
+        for (Map.Entry<String, JsonNode> entry : registerIntents.entrySet()) {
+            if (!changed.containsKey(entry.getKey()) && record(entry.getValue(), statuses.get(entry.getKey()), now)) {
+                changed.put(entry.getKey(), statuses.get(entry.getKey()));
+            }
+        }
+        if (!processed.isEmpty()) {
+            eventRepository.markAll(processed, WebhookEventStatus.PROCESSED, now);
+        }
+        if (!changed.isEmpty()) {
+            afterCommit(() -> statusNotifier.publish(changed));
+        }
+        log.debug("Applied {} Stripe events, {} payments updated", events.size(), changed.size());
+        return events.size();
+    }
+
+    /**
+     * Deletes processed events older than the given time. Stripe retries an event for up to three
+     * days, so events must be kept at least that long to be deduplicated.
+     *
+     * @param before the processing time before which events are deleted
+     * @return the number of events deleted
+     */
+    @Transactional
+    public int purgeProcessed(LocalDateTime before) {
+        return eventRepository.deleteProcessedBefore(before);
+    }
+
+    private JsonNode intent(StripeWebhookEvent event) {
+        try {
+            JsonNode intent = objectMapper.readTree(event.getPayload()).path("data").path("object");
+            if (intent.path("id").isTextual()) {
+                return intent;
+            }
+            fail(event, "Event has no data.object.id");
+        } catch (Exception e) {
+            fail(event, e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Stores the payment of an intent that has no payment row yet, such as one paid through a link.
+     *
+     * @return {@code true} if the payment was inserted
+     */
+    private boolean record(JsonNode intent, PaymentStatus status, LocalDateTime now) {
+        String intentId = intent.get("id").asText();
+        long registerId;
+        try {
+            registerId = Long.parseLong(intent.path("metadata").path("register_id").asText());
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring payment intent {} with a malformed register_id", intentId);
+            return false;
+        }
+        String description = intent.path("description").isTextual()
+                ? intent.get("description").asText() : "Payment link - register #" + registerId;
+        boolean inserted = paymentRepository.insertIfAbsent(intentId, registerId, intent.path("amount").asLong(),
+                intent.path("currency").asText().toUpperCase(), status.name(), description, now) == 1;
+        if (inserted) {
+            log.info("Recorded payment intent {} of register #{} as {}", intentId, registerId, status);
+        }
+        return inserted;
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private void fail(StripeWebhookEvent event, String error) {
+        log.error("Stripe event {} of type {} cannot be applied: {}", event.getEventId(), event.getType(), error);
+        event.setStatus(WebhookEventStatus.FAILED);
+        event.setProcessedAt(LocalDateTime.now());
+        event.setLastError(error != null && error.length() > MAX_ERROR_LENGTH
+                ? error.substring(0, MAX_ERROR_LENGTH) : error);
+    }
+}
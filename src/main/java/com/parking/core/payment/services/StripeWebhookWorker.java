@@ -0,0 +1,119 @@
+package com.parking.core.payment.services;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Background worker pool applying the Stripe webhook inbox.
+ * <p>
+ * Every {@code stripe.webhook.poll-interval-ms}, each idle worker of the
+ * {@code stripe.webhook.pool-size} pool is started; a worker applies batches of up to
+ * {@code stripe.webhook.batch-size} events through {@link StripeWebhookInboxService} until the
+ * inbox is drained. Workers never claim the same events, so a burst is spread over the pool.
+ * </p>
+ * <p>
+ * Processed events are deleted once they are older than {@code stripe.webhook.retention-ms}.
+ * </p>
+ *
+ * @see StripeWebhookInboxService
+ */
+@Component
+public class StripeWebhookWorker {
+
+    private static final Logger log = LoggerFactory.getLogger(StripeWebhookWorker.class);
+
+    private final StripeWebhookInboxService inboxService;
+    private final int poolSize;
+    private final int batchSize;
+    private final long retentionMs;
+    private final ExecutorService workers;
+    private final Semaphore idle;
+
+    public StripeWebhookWorker(StripeWebhookInboxService inboxService,
+                               @Value("${stripe.webhook.pool-size:2}") int poolSize,
+                               @Value("${stripe.webhook.batch-size:100}") int batchSize,
+                               @Value("${stripe.webhook.retention-ms:604800000}") long retentionMs) {
+        this.inboxService = inboxService;
+        this.batchSize = Math.max(1, batchSize);
+        this.retentionMs = retentionMs;
+        this.poolSize = Math.max(1, poolSize);
+        AtomicInteger counter = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(this.poolSize, runnable -> {
+            Thread thread = new Thread(runnable, "stripe-webhook-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.idle = new Semaphore(this.poolSize);
+    }
+
+    /**
+     * Starts every idle worker.
+     *
+     * @return the number of workers started
+     */
+    @Scheduled(fixedDelayString = "${stripe.webhook.poll-interval-ms:1000}")
+    public int poll() {
+        int started = 0;
+        // bounded, since a worker finishing during the loop would otherwise be started twice
+        while (started < poolSize && idle.tryAcquire()) {
+            workers.execute(() -> {
+                try {
+                    drain();
+                } finally {
+                    idle.release();
+                }
+            });
+            started++;
+        }
+        return started;
+    }
+
+    /**
+     * Applies batches until one comes back short or fails.
+     *
+     * @return the number of events applied
+     */
+    int drain() {
+        int total = 0;
+        try {
+            int claimed;
+            do {
+                claimed = inboxService.processBatch(batchSize);
+                total += claimed;
+            } while (claimed == batchSize);
+        } catch (RuntimeException e) {
+            // the batch was rolled back and its events stay pending for the next poll
+            log.error("Failed to apply Stripe webhook events: {}", e.getMessage());
+        }
+        return total;
+    }
+
+    @Scheduled(fixedDelayString = "${stripe.webhook.purge-interval-ms:3600000}")
+    public void purge() {
+        int deleted = inboxService.purgeProcessed(LocalDateTime.now().minusNanos(retentionMs * 1_000_000));
+        if (deleted > 0) {
+            log.info("Deleted {} processed Stripe webhook events", deleted);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        workers.shutdown();
+        if (!workers.awaitTermination(10, TimeUnit.SECONDS)) {
+            // an interrupted batch is rolled back and applied again after the restart
+            workers.shutdownNow();
+        }
+    }
+}
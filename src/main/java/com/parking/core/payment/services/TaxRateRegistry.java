@@ -0,0 +1,91 @@
+package com.parking.core.payment.services;
+
+import java.math.BigDecimal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.parking.core.payment.Requests.UserTax;
+import com.stripe.exception.StripeException;
+import com.stripe.model.TaxRate;
+import com.stripe.param.TaxRateCreateParams;
+import com.stripe.param.TaxRateListParams;
+
+/**
+ * Resolves the Stripe tax rate applied to parking invoices (19% IVA, inclusive, Bogotá D.C.).
+ * <p>
+ * The rate is resolved once per process and its id reused for every invoice. When
+ * {@code stripe.tax-rate.id} is set, that id is used without calling Stripe; otherwise the first
+ * invoice looks for an active rate with the same attributes and creates one only if none exists.
+ * </p>
+ *
+ * @see InvoiceService
+ */
+@Component
+public class TaxRateRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(TaxRateRegistry.class);
+
+    private static final String DISPLAY_NAME = "IVA";
+    private static final UserTax IVA = new UserTax(true, "CO", BigDecimal.valueOf(19.0), "DC");
+
+    private volatile String id;
+
+    public TaxRateRegistry(@Value("${stripe.tax-rate.id:}") String configuredId) {
+        this.id = configuredId.isBlank() ? null : configuredId;
+    }
+
+    /**
+     * @return the tax applied to parking invoices
+     */
+    public UserTax tax() {
+        return IVA;
+    }
+
+    /**
+     * Returns the id of the Stripe tax rate, resolving it on the first call.
+     *
+     * @return the tax rate id
+     * @throws StripeException if the rate cannot be listed or created
+     */
+    public String id() throws StripeException {
+        String current = id;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (id == null) {
+                id = resolve();
+            }
+            return id;
+        }
+    }
+
+    private String resolve() throws StripeException {
+        for (TaxRate rate : TaxRate.list(TaxRateListParams.builder()
+                .setActive(true)
+                .setInclusive(true)
+                .setLimit(100L)
+                .build()).getData()) {
+            if (DISPLAY_NAME.equals(rate.getDisplayName()) && IVA.country().equals(rate.getCountry())
+                    && IVA.state().equals(rate.getState()) && rate.getPercentage() != null
+                    && IVA.percentage().compareTo(rate.getPercentage()) == 0) {
+                log.info("Reusing Stripe tax rate {}", rate.getId());
+                return rate.getId();
+            }
+        }
+
+        TaxRate rate = TaxRate.create(TaxRateCreateParams.builder()
+                .setActive(IVA.active())
+                .setCountry(IVA.country())
+                .setPercentage(IVA.percentage())
+                .setState(IVA.state())
+                .setDisplayName(DISPLAY_NAME)
+                .setInclusive(true)
+                .build());
+        log.info("Created Stripe tax rate {}", rate.getId());
+        return rate.getId();
+    }
+}
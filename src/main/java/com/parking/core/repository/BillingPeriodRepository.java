@@ -0,0 +1,36 @@
+package com.parking.core.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.parking.core.model.BillingPeriod;
+
+/**
+ * Spring Data JPA repository for {@link BillingPeriod} entities.
+ */
+@Repository
+public interface BillingPeriodRepository extends JpaRepository<BillingPeriod, Long> {
+
+    Optional<BillingPeriod> findTopByOrderByIdDesc();
+
+    List<BillingPeriod> findAllByIdLessThanAndPurgedAtIsNullOrderByIdAsc(long id);
+
+    /**
+     * Inserts a period unless one with the same id exists, e.g. because another node started it.
+     *
+     * @return {@code 1} if the period was inserted, {@code 0} if it already existed
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO billing_period (id, started_at) VALUES (:id, :startedAt) ON CONFLICT DO NOTHING",
+            nativeQuery = true)
+    int insertIfAbsent(@Param("id") long id, @Param("startedAt") LocalDateTime startedAt);
+}
@@ -0,0 +1,28 @@
+package com.parking.core.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.parking.core.enums.InvoiceBatchStatus;
+import com.parking.core.model.InvoiceBatchItem;
+
+/**
+ * Spring Data JPA repository for {@link InvoiceBatchItem} entities.
+ */
+@Repository
+public interface InvoiceBatchItemRepository extends JpaRepository<InvoiceBatchItem, Long> {
+
+    List<InvoiceBatchItem> findByBatchIdAndStatusNot(String batchId, InvoiceBatchStatus status);
+
+    List<InvoiceBatchItem> findByBatchIdAndStatus(String batchId, InvoiceBatchStatus status);
+
+    /**
+     * @return {@code [status, count]} pairs of the items of a batch
+     */
+    @Query("select i.status, count(i) from InvoiceBatchItem i where i.batchId = :batchId group by i.status")
+    List<Object[]> countByStatus(@Param("batchId") String batchId);
+}
@@ -0,0 +1,35 @@
+package com.parking.core.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.parking.core.model.NotificationOutbox;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+
+/**
+ * Spring Data JPA repository for {@link NotificationOutbox} entries.
+ * <p>
+ * Due entries are claimed with {@code SELECT ... FOR UPDATE SKIP LOCKED} so several
+ * application nodes can dispatch the outbox concurrently without double delivery.
+ * </p>
+ */
+@Repository
+public interface NotificationOutboxRepository extends JpaRepository<NotificationOutbox, Long> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("select o from NotificationOutbox o "
+            + "where o.status in (com.parking.core.enums.OutboxStatus.PENDING, com.parking.core.enums.OutboxStatus.IN_FLIGHT) "
+            + "and o.nextAttemptAt <= :now order by o.nextAttemptAt")
+    List<NotificationOutbox> findDueForUpdate(@Param("now") LocalDateTime now, Limit limit);
+}
@@ -1,13 +1,59 @@
 package com.parking.core.repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.parking.core.enums.PaymentStatus;
 import com.parking.core.model.Payment;
 
 @Repository
 public interface PaymentRepository extends JpaRepository<Payment, Long> {
     Optional<Payment> findByStripePaymentIntentId(String stripePaymentIntentId);
+
+    Optional<Payment> findFirstByRegisterIdOrderByIdDesc(long registerId);
+
+    boolean existsByRegisterIdAndStatus(long registerId, PaymentStatus status);
+
+    @Query("select p.status from Payment p where p.stripePaymentIntentId = :intentId")
+    Optional<PaymentStatus> findStatusByStripePaymentIntentId(@Param("intentId") String intentId);
+
+    /**
+     * Sets the status of the payments of the given intents. A succeeded payment is final and
+     * never changed, so a late failure event of an earlier attempt cannot undo it. Payments that
+     * already have the status, and intents without a payment row, e.g. those of payment links,
+     * are skipped.
+     *
+     * @param status the {@link PaymentStatus} name to set
+     * @return the intent ids of the payments whose status changed
+     */
+    @Query(value = "UPDATE payment SET status = :status, updated_at = :now "
+            + "WHERE stripe_payment_intent_id IN (:intentIds) AND status <> 'SUCCEEDED' AND status <> :status "
+            + "RETURNING stripe_payment_intent_id", nativeQuery = true)
+    List<String> updateStatus(@Param("intentIds") Collection<String> intentIds, @Param("status") String status,
+                              @Param("now") LocalDateTime now);
+
+    /**
+     * Records a payment that was not created by this application, e.g. one made through a payment
+     * link, unless a payment with the same intent exists.
+     *
+     * @param status the {@link PaymentStatus} name of the payment
+     * @return {@code 1} if the payment was inserted, {@code 0} if the intent was already stored
+     */
+    @Modifying
+    @Query(value = "INSERT INTO payment (stripe_payment_intent_id, amount, currency, status, register_id, "
+            + "description, created_at, updated_at) "
+            + "VALUES (:intentId, :amount, :currency, :status, :registerId, :description, :now, :now) "
+            + "ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("intentId") String intentId, @Param("registerId") long registerId,
+                       @Param("amount") long amount, @Param("currency") String currency,
+                       @Param("status") String status, @Param("description") String description,
+                       @Param("now") LocalDateTime now);
 }
@@ -1,26 +1,40 @@
 package com.parking.core.repository;
 
-
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.parking.core.enums.VehicleType;
 import com.parking.core.model.Register;
 import com.parking.core.model.Vehicle;
+import com.parking.core.model.dto.OpenSession;
+import com.parking.core.model.dto.RegisterPaymentView;
+import com.parking.core.model.dto.VehicleUsage;
+
 /**
  * Spring Data JPA repository for {@link Register} entities.
  * <p>
  * Provides queries to find active parking sessions (where {@code exitdate} is null),
- * look up registers by vehicle, and filter by vehicle type.
+ * look up registers by vehicle, and filter by vehicle type. Per-vehicle totals over a date
+ * range are aggregated by the database rather than by loading every register; per-period
+ * totals live in the {@link VehicleUsageRollupRepository}. Paginated listing is provided by
+ * {@link RegisterSearchRepository}.
  * </p>
  */
 @Repository
-public interface RegisterRepository extends JpaRepository<Register,Long>{
+public interface RegisterRepository extends JpaRepository<Register,Long>, RegisterSearchRepository {
     boolean existsByVehicleAndExitdateIsNull(Vehicle vehicle);
 
+    boolean existsByVehicleId(String vehicleId);
+
     Optional<Register> findByVehicle(Vehicle vehicle);
 
     Optional<Register> findByVehicleAndExitdateIsNull(Vehicle vehicle);
@@ -30,4 +44,41 @@ public interface RegisterRepository extends JpaRepository<Register,Long>{
     List<Register> findAllByVehicle(Vehicle vehicle);
 
     Optional<Register> findTopByVehicleOrderByExitdateDesc(Vehicle vehicle);
+
+    /**
+     * Loads a register together with its vehicle in one query.
+     */
+    @EntityGraph(attributePaths = "vehicle")
+    Optional<Register> findWithVehicleById(long id);
+
+    @Query("select new com.parking.core.model.dto.RegisterPaymentView(r.id, v.id, v.type, r.entrydate, "
+            + "r.exitdate, r.minutes) from Register r join r.vehicle v where r.id = :id")
+    Optional<RegisterPaymentView> findPaymentView(@Param("id") long id);
+
+    @Query("select new com.parking.core.model.dto.OpenSession(r.vehicle.id, r.id, r.entrydate) "
+            + "from Register r where r.exitdate is null")
+    List<OpenSession> findAllOpenSessions();
+
+    @Query("select new com.parking.core.model.dto.OpenSession(r.vehicle.id, r.id, r.entrydate) "
+            + "from Register r where r.vehicle.id = :vehicleId and r.exitdate is null")
+    Optional<OpenSession> findOpenSession(@Param("vehicleId") String vehicleId);
+
+    @Query("select new com.parking.core.model.dto.VehicleUsage(v.id, v.type, sum(r.minutes), count(r)) "
+            + "from Register r join r.vehicle v where v.id = :vehicleId "
+            + "and r.entrydate >= :from and r.entrydate < :to group by v.id, v.type")
+    Optional<VehicleUsage> summarizeByVehicleBetween(@Param("vehicleId") String vehicleId,
+                                                     @Param("from") LocalDateTime from,
+                                                     @Param("to") LocalDateTime to);
+
+    /**
+     * Deletes up to {@code limit} closed registers of one vehicle type and billing period.
+     *
+     * @return the number of registers deleted
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM register WHERE id IN (SELECT r.id FROM register r "
+            + "JOIN vehicle v ON v.id = r.vehicle_id WHERE v.type = :type AND r.billing_period = :period "
+            + "AND r.exitdate IS NOT NULL LIMIT :limit)", nativeQuery = true)
+    int purgeClosedRegisters(@Param("type") String type, @Param("period") long period, @Param("limit") int limit);
 }
@@ -0,0 +1,24 @@
+package com.parking.core.repository;
+
+import java.util.List;
+
+import com.parking.core.model.dto.RegisterCursor;
+import com.parking.core.model.dto.RegisterFilter;
+import com.parking.core.model.dto.RegisterRow;
+
+/**
+ * Keyset-paginated register listing, implemented in {@link RegisterSearchRepositoryImpl}
+ * and exposed through {@link RegisterRepository}.
+ */
+public interface RegisterSearchRepository {
+
+    /**
+     * Lists registers newest first, ordered by {@code (entrydate, id)} descending.
+     *
+     * @param filter the filters to apply
+     * @param after  the position of the last register of the previous page, or {@code null} for the first page
+     * @param limit  the maximum number of registers to return
+     * @return the register and vehicle columns of the page, read in one query
+     */
+    List<RegisterRow> findPage(RegisterFilter filter, RegisterCursor after, int limit);
+}
@@ -0,0 +1,70 @@
+package com.parking.core.repository;
+
+import java.util.List;
+
+import com.parking.core.model.dto.RegisterCursor;
+import com.parking.core.model.dto.RegisterFilter;
+import com.parking.core.model.dto.RegisterRow;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+/**
+ * JPQL implementation of {@link RegisterSearchRepository}.
+ * <p>
+ * Only the filters that are set become predicates, so every combination is planned against
+ * its matching index. The page position is a keyset predicate on {@code (entrydate, id)}
+ * rather than an offset, so deep pages cost the same as the first one. Only the columns of
+ * {@link RegisterRow} are selected, joined with the vehicle in the same query.
+ * </p>
+ */
+public class RegisterSearchRepositoryImpl implements RegisterSearchRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<RegisterRow> findPage(RegisterFilter filter, RegisterCursor after, int limit) {
+        StringBuilder jpql = new StringBuilder("select new com.parking.core.model.dto.RegisterRow(r.id, v.id, v.type, "
+                + "r.entrydate, r.exitdate, r.minutes, r.phoneNumber) from Register r join r.vehicle v where 1 = 1");
+        if (filter.vehicleId() != null) {
+            jpql.append(" and r.vehicle.id = :vehicleId");
+        }
+        if (filter.type() != null) {
+            jpql.append(" and v.type = :type");
+        }
+        if (filter.open() != null) {
+            jpql.append(filter.open() ? " and r.exitdate is null" : " and r.exitdate is not null");
+        }
+        if (filter.from() != null) {
+            jpql.append(" and r.entrydate >= :from");
+        }
+        if (filter.to() != null) {
+            jpql.append(" and r.entrydate < :to");
+        }
+        if (after != null) {
+            jpql.append(" and (r.entrydate, r.id) < (:afterDate, :afterId)");
+        }
+        jpql.append(" order by r.entrydate desc, r.id desc");
+
+        TypedQuery<RegisterRow> query = entityManager.createQuery(jpql.toString(), RegisterRow.class);
+        if (filter.vehicleId() != null) {
+            query.setParameter("vehicleId", filter.vehicleId());
+        }
+        if (filter.type() != null) {
+            query.setParameter("type", filter.type());
+        }
+        if (filter.from() != null) {
+            query.setParameter("from", filter.from());
+        }
+        if (filter.to() != null) {
+            query.setParameter("to", filter.to());
+        }
+        if (after != null) {
+            query.setParameter("afterDate", after.entrydate());
+            query.setParameter("afterId", after.id());
+        }
+        return query.setMaxResults(limit).getResultList();
+    }
+}
@@ -0,0 +1,40 @@
+package com.parking.core.repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.parking.core.model.StripeCustomer;
+import com.parking.core.model.UserId;
+
+/**
+ * Spring Data JPA repository for {@link StripeCustomer} entities.
+ */
+@Repository
+public interface StripeCustomerRepository extends JpaRepository<StripeCustomer, UserId> {
+
+    @Query("select c.customerId from StripeCustomer c where c.email = :email")
+    Optional<String> findCustomerIdByEmail(@Param("email") String email);
+
+    /**
+     * Inserts a mapping unless the user already has one.
+     * <p>
+     * A plain insert is used instead of {@code save}, which would select and merge the row and let
+     * concurrent registrations of the same user fail on the primary key.
+     * </p>
+     *
+     * @return {@code 1} if the mapping was inserted, {@code 0} if the user was already mapped
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO stripe_customer (username, email, customer_id, created_at) "
+            + "VALUES (:username, :email, :customerId, :createdAt) ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("username") String username, @Param("email") String email,
+                       @Param("customerId") String customerId, @Param("createdAt") LocalDateTime createdAt);
+}
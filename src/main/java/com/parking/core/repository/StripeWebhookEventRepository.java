@@ -0,0 +1,64 @@
+package com.parking.core.repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.parking.core.enums.WebhookEventStatus;
+import com.parking.core.model.StripeWebhookEvent;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+
+/**
+ * Spring Data JPA repository for the {@link StripeWebhookEvent} inbox.
+ * <p>
+ * Pending events are claimed with {@code SELECT ... FOR UPDATE SKIP LOCKED} so several
+ * workers, on one or more nodes, can apply the inbox concurrently without applying an event twice.
+ * </p>
+ */
+@Repository
+public interface StripeWebhookEventRepository extends JpaRepository<StripeWebhookEvent, String> {
+
+    /**
+     * Inserts an event unless its id is already stored.
+     * <p>
+     * A plain insert is used instead of {@code save}, which would merge into the existing row.
+     * Only the conflict on the event id is ignored; any other constraint violation is thrown.
+     * </p>
+     *
+     * @return {@code 1} if the event was stored, {@code 0} if it had been received before
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO stripe_webhook_event (event_id, type, payload, status, received_at) "
+            + "VALUES (:eventId, :type, :payload, 'PENDING', :receivedAt) ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insert(@Param("eventId") String eventId, @Param("type") String type, @Param("payload") String payload,
+               @Param("receivedAt") LocalDateTime receivedAt);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("select e from StripeWebhookEvent e "
+            + "where e.status = com.parking.core.enums.WebhookEventStatus.PENDING order by e.receivedAt")
+    List<StripeWebhookEvent> findPendingForUpdate(Limit limit);
+
+    @Modifying
+    @Query("update StripeWebhookEvent e set e.status = :status, e.processedAt = :now where e.eventId in :ids")
+    int markAll(@Param("ids") Collection<String> ids, @Param("status") WebhookEventStatus status,
+                @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("delete from StripeWebhookEvent e "
+            + "where e.status = com.parking.core.enums.WebhookEventStatus.PROCESSED and e.processedAt < :before")
+    int deleteProcessedBefore(@Param("before") LocalDateTime before);
+}
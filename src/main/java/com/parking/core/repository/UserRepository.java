@@ -1,21 +1,30 @@
 package com.parking.core.repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.parking.core.model.User;
 import com.parking.core.model.UserId;
+import com.parking.core.model.dto.UserDTO;
 
 
 /**
  * Spring Data JPA repository for {@link User} entities.
  * <p>
  * Uses the composite key {@link UserId} and provides look-up methods
- * by name, username, email, and a combined username-or-email query.
+ * by name, username, email, and a combined username-or-email query, plus access to the
+ * per-user token epoch.
  * </p>
  */
 @Repository
@@ -26,7 +35,87 @@ public interface UserRepository extends JpaRepository<User,UserId>{
 
     Optional<User> findByEmail(String email);
 
+    List<User> findAllByEmailIn(Collection<String> emails);
+
     Optional<User> findByUsernameOrEmail(String username, String email);
 
     Page<User> findAll(Pageable pageable);
+
+    /**
+     * Reads the first keyset page of users ordered by {@code (username, email)}.
+     * Returning a {@link Slice} reads one extra row instead of counting the table.
+     */
+    @Query("""
+            select new com.parking.core.model.dto.UserDTO(u.name, u.username, u.email, u.role) from User u
+            order by u.username, u.email
+            """)
+    Slice<UserDTO> findSlice(Pageable pageable);
+
+    /**
+     * Reads the keyset page of users that follows {@code (username, email)}, backed by the
+     * {@code (username, email)} index of migration V11.
+     */
+    @Query("""
+            select new com.parking.core.model.dto.UserDTO(u.name, u.username, u.email, u.role) from User u
+            where u.username > :username or (u.username = :username and u.email > :email)
+            order by u.username, u.email
+            """)
+    Slice<UserDTO> findSliceAfter(@Param("username") String username, @Param("email") String email,
+                                  Pageable pageable);
+
+    /**
+     * Finds users by name, username or email in one query, ignoring case.
+     * <p>
+     * Users matching by name come first, then by username, then by email. Backed by the
+     * {@code lower(...)} expression indexes of migration V10.
+     * </p>
+     */
+    @Query("""
+            select u from User u
+            where lower(u.name) = lower(:name) or lower(u.username) = lower(:username) or lower(u.email) = lower(:email)
+            order by case when lower(u.name) = lower(:name) then 0
+                          when lower(u.username) = lower(:username) then 1
+                          else 2 end, u.username
+            """)
+    List<User> lookup(@Param("name") String name, @Param("username") String username, @Param("email") String email,
+                      Limit limit);
+
+    /**
+     * Searches users whose name, username or email matches a lower-case {@code LIKE} pattern.
+     * <p>
+     * On Postgres, substring patterns use the {@code pg_trgm} GIN indexes and prefix patterns the
+     * {@code text_pattern_ops} indexes of migration V10; other databases scan the table.
+     * </p>
+     *
+     * @param pattern a lower-case pattern, with {@code \\} escaping literal {@code %} and {@code _}
+     */
+    @Query("""
+            select new com.parking.core.model.dto.UserDTO(u.name, u.username, u.email, u.role) from User u
+            where lower(u.username) like :pattern escape '\\'
+               or lower(u.email) like :pattern escape '\\'
+               or lower(u.name) like :pattern escape '\\'
+            order by u.username
+            """)
+    List<UserDTO> search(@Param("pattern") String pattern, Limit limit);
+
+    /**
+     * Finds the users that already hold one of the given usernames or emails, in one query.
+     *
+     * @return {@code [username, email]} pairs of the matching users
+     */
+    @Query("select u.username, u.email from User u where u.username in :usernames or u.email in :emails")
+    List<Object[]> findUsernamesAndEmails(@Param("usernames") Collection<String> usernames,
+                                          @Param("emails") Collection<String> emails);
+
+    @Query("select u.tokenEpoch from User u where u.username = :username")
+    Optional<Integer> findTokenEpoch(@Param("username") String username);
+
+    /**
+     * Revokes every token issued to a user by moving their token epoch forward.
+     *
+     * @return the number of rows updated, {@code 0} if the user does not exist
+     */
+    @Modifying
+    @Query("update User u set u.tokenEpoch = u.tokenEpoch + 1 where u.username = :username")
+    int incrementTokenEpoch(@Param("username") String username);
 }
@@ -0,0 +1,107 @@
+package com.parking.core.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.parking.core.enums.VehicleType;
+import com.parking.core.model.VehicleUsageRollup;
+import com.parking.core.model.VehicleUsageRollupId;
+import com.parking.core.model.dto.VehicleBill;
+import com.parking.core.model.dto.VehicleUsage;
+
+import jakarta.persistence.QueryHint;
+
+/**
+ * Spring Data JPA repository for {@link VehicleUsageRollup} entities.
+ * <p>
+ * Rows are only changed through the upsert and rebuild statements below, so concurrent
+ * closes never overwrite each other's totals.
+ * </p>
+ */
+@Repository
+public interface VehicleUsageRollupRepository extends JpaRepository<VehicleUsageRollup, VehicleUsageRollupId> {
+
+    /**
+     * Adds closed-session totals to the row of a vehicle and period, inserting it on the first
+     * close. A single {@code INSERT ... ON CONFLICT DO UPDATE} keeps concurrent first closes of the
+     * same vehicle from failing on the primary key.
+     *
+     * @return the number of rows inserted or updated
+     */
+    @Modifying
+    @Query(value = "INSERT INTO vehicle_usage_rollup (vehicle_id, billing_period, total_minutes, sessions, amount_due) "
+            + "VALUES (:vehicleId, :period, :minutes, :sessions, :amount) "
+            + "ON CONFLICT (vehicle_id, billing_period) DO UPDATE SET "
+            + "total_minutes = vehicle_usage_rollup.total_minutes + EXCLUDED.total_minutes, "
+            + "sessions = vehicle_usage_rollup.sessions + EXCLUDED.sessions, "
+            + "amount_due = vehicle_usage_rollup.amount_due + EXCLUDED.amount_due", nativeQuery = true)
+    int add(@Param("vehicleId") String vehicleId, @Param("period") long period,
+            @Param("minutes") long minutes, @Param("sessions") long sessions, @Param("amount") long amount);
+
+    @Modifying
+    @Query("delete from VehicleUsageRollup u where u.billingPeriod between :fromPeriod and :toPeriod")
+    int deleteByPeriodBetween(@Param("fromPeriod") long fromPeriod, @Param("toPeriod") long toPeriod);
+
+    /**
+     * Recomputes the rows of periods {@code [fromPeriod, toPeriod]} from the closed registers,
+     * pricing each vehicle with its current type.
+     *
+     * @return the number of rows inserted
+     */
+    @Modifying
+    @Query(value = "INSERT INTO vehicle_usage_rollup (vehicle_id, billing_period, total_minutes, sessions, amount_due) "
+            + "SELECT r.vehicle_id, r.billing_period, SUM(r.minutes), COUNT(*), SUM(r.minutes) * CASE v.type "
+            + "WHEN 'OFICIAL' THEN :oficialRate WHEN 'RESIDENT' THEN :residentRate ELSE :nonResidentRate END "
+            + "FROM register r JOIN vehicle v ON v.id = r.vehicle_id "
+            + "WHERE r.exitdate IS NOT NULL AND r.billing_period BETWEEN :fromPeriod AND :toPeriod "
+            + "GROUP BY r.vehicle_id, r.billing_period, v.type", nativeQuery = true)
+    int insertFromRegisters(@Param("fromPeriod") long fromPeriod, @Param("toPeriod") long toPeriod,
+                            @Param("oficialRate") long oficialRate, @Param("residentRate") long residentRate,
+                            @Param("nonResidentRate") long nonResidentRate);
+
+    @Query("select count(u) > 0 from VehicleUsageRollup u join Vehicle v on v.id = u.vehicleId "
+            + "where v.type = :type and u.billingPeriod = :period")
+    boolean existsByTypeAndPeriod(@Param("type") VehicleType type, @Param("period") long period);
+
+    /**
+     * Streams the rows of every vehicle of a type in one billing period, ordered by plate.
+     * The stream must be consumed inside a transaction and closed afterwards.
+     */
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select new com.parking.core.model.dto.VehicleBill(u.vehicleId, u.totalMinutes, u.sessions, u.amountDue) "
+            + "from VehicleUsageRollup u join Vehicle v on v.id = u.vehicleId "
+            + "where v.type = :type and u.billingPeriod = :period order by u.vehicleId")
+    Stream<VehicleBill> streamBillsByType(@Param("type") VehicleType type, @Param("period") long period);
+
+    /**
+     * Sums the chargeable rows of a vehicle: every period of a non-resident,
+     * or billing period {@code period} onwards for the other types.
+     */
+    @Query("select new com.parking.core.model.dto.VehicleUsage(v.id, v.type, sum(u.totalMinutes), sum(u.sessions)) "
+            + "from VehicleUsageRollup u join Vehicle v on v.id = u.vehicleId where v.id = :vehicleId "
+            + "and (v.type = com.parking.core.enums.VehicleType.NON_RESIDENT or u.billingPeriod >= :period) "
+            + "group by v.id, v.type")
+    Optional<VehicleUsage> summarizeByVehicle(@Param("vehicleId") String vehicleId, @Param("period") long period);
+
+    @Query("select new com.parking.core.model.dto.VehicleUsage(v.id, v.type, u.totalMinutes, u.sessions) "
+            + "from VehicleUsageRollup u join Vehicle v on v.id = u.vehicleId "
+            + "where v.id = :vehicleId and u.billingPeriod = :period")
+    Optional<VehicleUsage> findUsage(@Param("vehicleId") String vehicleId, @Param("period") long period);
+
+    @Query("select new com.parking.core.model.dto.VehicleUsage(v.id, v.type, sum(u.totalMinutes), sum(u.sessions)) "
+            + "from VehicleUsageRollup u join Vehicle v on v.id = u.vehicleId where v.id in :vehicleIds "
+            + "and (v.type = com.parking.core.enums.VehicleType.NON_RESIDENT or u.billingPeriod >= :period) "
+            + "group by v.id, v.type")
+    List<VehicleUsage> summarizeByVehicles(@Param("vehicleIds") Collection<String> vehicleIds,
+                                           @Param("period") long period);
+}
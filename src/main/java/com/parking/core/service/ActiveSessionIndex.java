@@ -0,0 +1,188 @@
+package com.parking.core.service;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.parking.core.model.dto.OpenSession;
+import com.parking.core.repository.RegisterRepository;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * In-process index of the parking sessions that are currently open.
+ * <p>
+ * Maps each license plate inside the parking lot to its open register id and entry time,
+ * so gate operations can answer "is this vehicle inside?" without a database round trip.
+ * The index is warmed from the {@code register} table at startup and updated after every
+ * committed entry or exit. Updates made inside a transaction are applied only once it commits,
+ * so a rolled-back gate event never leaks into the index.
+ * </p>
+ * <p>
+ * The index assumes this node is the only writer of gate events. When
+ * {@code parking.session-index.verify-enabled} is {@code true} it is periodically compared
+ * against the database and any drift is logged and repaired.
+ * </p>
+ *
+ * @see RegisterService
+ */
+@Component
+public class ActiveSessionIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ActiveSessionIndex.class);
+
+    private final RegisterRepository registerRepository;
+    private final Map<String, OpenSession> sessions = new ConcurrentHashMap<>();
+
+    @Value("${parking.session-index.verify-enabled:false}")
+    private boolean verifyEnabled;
+
+    public ActiveSessionIndex(RegisterRepository registerRepository) {
+        this.registerRepository = registerRepository;
+    }
+
+    /**
+     * Loads every open register from the database, replacing the current contents of the index.
+     */
+    @PostConstruct
+    public void warmUp() {
+        sessions.clear();
+        for (OpenSession session : registerRepository.findAllOpenSessions()) {
+            sessions.put(session.vehicleId(), session);
+        }
+        log.info("Active session index warmed with {} open registers", sessions.size());
+    }
+
+    /**
+     * Checks whether a vehicle currently has an open register.
+     *
+     * @param vehicleId the license plate to check
+     * @return {@code true} if the vehicle is inside the parking lot
+     */
+    public boolean isInside(String vehicleId) {
+        return sessions.containsKey(vehicleId);
+    }
+
+    /**
+     * Returns the open session of a vehicle, if any.
+     *
+     * @param vehicleId the license plate to look up
+     * @return the open session, or empty if the vehicle is not inside
+     */
+    public Optional<OpenSession> find(String vehicleId) {
+        return Optional.ofNullable(sessions.get(vehicleId));
+    }
+
+    /**
+     * @return the number of vehicles currently inside the parking lot
+     */
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * Records a vehicle entrance once the surrounding transaction (if any) commits.
+     *
+     * @param vehicleId  the license plate of the vehicle
+     * @param registerId the id of the newly created register
+     * @param entrydate  the entry timestamp
+     */
+    public void recordEntry(String vehicleId, long registerId, LocalDateTime entrydate) {
+        OpenSession session = new OpenSession(vehicleId, registerId, entrydate);
+        afterCommit(() -> sessions.put(vehicleId, session));
+    }
+
+    /**
+     * Records a vehicle exit once the surrounding transaction (if any) commits.
+     * <p>
+     * The entry is only removed if it still points to the closed register, so a late
+     * exit cannot evict a newer session of the same vehicle.
+     * </p>
+     *
+     * @param vehicleId  the license plate of the vehicle
+     * @param registerId the id of the register that was closed
+     */
+    public void recordExit(String vehicleId, long registerId) {
+        afterCommit(() -> sessions.computeIfPresent(vehicleId,
+                (plate, session) -> session.registerId() == registerId ? null : session));
+    }
+
+    @Scheduled(fixedDelayString = "${parking.session-index.verify-interval-ms:300000}",
+            initialDelayString = "${parking.session-index.verify-interval-ms:300000}")
+    public void scheduledVerify() {
+        if (verifyEnabled) {
+            verify();
+        }
+    }
+
+    /**
+     * Compares the index against the open registers stored in the database.
+     * <p>
+     * Plates that differ in the bulk snapshot are re-checked one by one before being repaired,
+     * so gate events committed while the snapshot was being read are not reported as drift.
+     * The database is treated as the source of truth.
+     * </p>
+     *
+     * @return the number of plates that were out of sync and have been repaired
+     */
+    public int verify() {
+        Map<String, Long> database = new HashMap<>();
+        for (OpenSession session : registerRepository.findAllOpenSessions()) {
+            database.put(session.vehicleId(), session.registerId());
+        }
+
+        Set<String> suspects = new HashSet<>();
+        database.forEach((plate, registerId) -> {
+            OpenSession indexed = sessions.get(plate);
+            if (indexed == null || indexed.registerId() != registerId) {
+                suspects.add(plate);
+            }
+        });
+        sessions.keySet().stream().filter(plate -> !database.containsKey(plate)).forEach(suspects::add);
+
+        int repaired = 0;
+        for (String plate : suspects) {
+            Optional<OpenSession> actual = registerRepository.findOpenSession(plate);
+            OpenSession indexed = sessions.get(plate);
+            Long actualId = actual.map(OpenSession::registerId).orElse(null);
+            Long indexedId = indexed != null ? indexed.registerId() : null;
+            if (!Objects.equals(actualId, indexedId)) {
+                log.warn("Active session index out of sync for vehicle {}: index={}, database={}",
+                        plate, indexedId, actualId);
+                actual.ifPresentOrElse(session -> sessions.put(plate, session), () -> sessions.remove(plate));
+                repaired++;
+            }
+        }
+
+        if (repaired == 0) {
+            log.debug("Active session index verified: {} open registers", sessions.size());
+        }
+        return repaired;
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
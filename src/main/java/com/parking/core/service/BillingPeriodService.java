@@ -0,0 +1,175 @@
+package com.parking.core.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.parking.core.enums.VehicleType;
+import com.parking.core.model.BillingPeriod;
+import com.parking.core.repository.BillingPeriodRepository;
+import com.parking.core.repository.RegisterRepository;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Service layer for billing periods.
+ * <p>
+ * Keeps the id of the current period in memory so gate operations can stamp registers
+ * without a query. Starting a new month inserts one {@link BillingPeriod} row and moves
+ * the pointer; no register is read or modified. Resident charges then only count registers
+ * of the current period, while past periods stay queryable by id.
+ * </p>
+ * <p>
+ * Closed {@link VehicleType#OFICIAL} registers of past periods are deleted in the background
+ * every {@code parking.billing.purge-interval-ms}, in batches of
+ * {@code parking.billing.purge-batch-size} rows, each in its own short transaction.
+ * </p>
+ * <p>
+ * A new period is published on the {@code billing-periods} Redis channel, so every node stamps
+ * registers with it right away. The purge job also re-reads the current period, which covers
+ * nodes that missed the message while Redis was unavailable.
+ * </p>
+ *
+ * @see BillingPeriod
+ * @see ParkingService#monthStarts()
+ */
+@Service
+public class BillingPeriodService implements MessageListener {
+
+    private static final Logger log = LoggerFactory.getLogger(BillingPeriodService.class);
+
+    static final String CHANNEL = "billing-periods";
+
+    private final BillingPeriodRepository billingPeriodRepository;
+    private final RegisterRepository registerRepository;
+    private final RedisTemplate<String, String> redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final int purgeBatchSize;
+    private final AtomicLong current = new AtomicLong();
+
+    public BillingPeriodService(BillingPeriodRepository billingPeriodRepository, RegisterRepository registerRepository,
+                                RedisTemplate<String, String> redisTemplate,
+                                RedisMessageListenerContainer listenerContainer,
+                                @Value("${parking.billing.purge-batch-size:1000}") int purgeBatchSize) {
+        this.billingPeriodRepository = billingPeriodRepository;
+        this.registerRepository = registerRepository;
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.purgeBatchSize = Math.max(1, purgeBatchSize);
+    }
+
+    /**
+     * Subscribes to new periods and loads the current one, creating the first one on an empty database.
+     */
+    @PostConstruct
+    public void init() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+        if (!refresh()) {
+            startNewPeriod();
+        }
+        log.info("Current billing period: {}", current.get());
+    }
+
+    /**
+     * @return the id of the current billing period
+     */
+    public long current() {
+        return current.get();
+    }
+
+    /**
+     * Starts a new billing period and publishes it to the other nodes.
+     * <p>
+     * If another node inserted the same period first, that period is returned instead, so
+     * concurrent rollovers start a single period.
+     * </p>
+     *
+     * @return the new period
+     */
+    public synchronized BillingPeriod startNewPeriod() {
+        long next = billingPeriodRepository.findTopByOrderByIdDesc().map(BillingPeriod::getId).orElse(0L) + 1;
+        BillingPeriod period = new BillingPeriod(next, LocalDateTime.now());
+        if (billingPeriodRepository.insertIfAbsent(period.getId(), period.getStartedAt()) == 0) {
+            period = billingPeriodRepository.findById(next).orElseThrow();
+            log.info("Billing period {} was already started by another node", next);
+        } else {
+            publish(next);
+            log.info("Started billing period {}", next);
+        }
+        current.accumulateAndGet(next, Math::max);
+        return period;
+    }
+
+    /**
+     * Re-reads the current period from the database.
+     *
+     * @return {@code false} if no period exists yet
+     */
+    public boolean refresh() {
+        return billingPeriodRepository.findTopByOrderByIdDesc()
+                .map(period -> {
+                    current.accumulateAndGet(period.getId(), Math::max);
+                    return true;
+                })
+                .orElse(false);
+    }
+
+    /**
+     * Deletes the closed official registers of every past period that has not been purged yet.
+     *
+     * @return the number of registers deleted
+     */
+    @Scheduled(fixedDelayString = "${parking.billing.purge-interval-ms:60000}",
+            initialDelayString = "${parking.billing.purge-interval-ms:60000}")
+    public int purgePastPeriods() {
+        refresh();
+        int total = 0;
+        for (BillingPeriod period : billingPeriodRepository.findAllByIdLessThanAndPurgedAtIsNullOrderByIdAsc(current.get())) {
+            int deleted;
+            do {
+                deleted = registerRepository.purgeClosedRegisters(VehicleType.OFICIAL.name(), period.getId(), purgeBatchSize);
+                total += deleted;
+            } while (deleted == purgeBatchSize);
+            period.setPurgedAt(LocalDateTime.now());
+            billingPeriodRepository.save(period);
+            log.info("Purged official registers of billing period {}", period.getId());
+        }
+        return total;
+    }
+
+    /**
+     * Applies a period started by any node, including this one.
+     *
+     * @param message the message body, the id of the new period
+     * @param pattern the channel pattern, unused
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        try {
+            current.accumulateAndGet(Long.parseLong(body), Math::max);
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring malformed billing period message: {}", body);
+        }
+    }
+
+    private void publish(long period) {
+        try {
+            redisTemplate.convertAndSend(CHANNEL, Long.toString(period));
+        } catch (Exception e) {
+            log.warn("Redis unavailable: other nodes will pick up billing period {} on their next purge run.",
+                    period, e);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.parking.core.service;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.parking.core.enums.GateEventType;
+import com.parking.core.model.Register;
+import com.parking.core.model.Vehicle;
+import com.parking.core.model.dto.GateEvent;
+import com.parking.core.model.dto.GateEventResult;
+import com.parking.core.model.dto.OpenSession;
+import com.parking.core.repository.RegisterRepository;
+import com.parking.core.repository.VehicleRepository;
+
+/**
+ * Service layer for ingesting batches of gate events replayed by lane controllers.
+ * <p>
+ * Events are applied strictly in the submitted order and split into chunks of
+ * {@code parking.batch.chunk-size} events, each processed in a single transaction.
+ * Per chunk, vehicles and already-open registers are loaded with one query each;
+ * register updates are flushed with JDBC batching on commit. A vehicle that enters
+ * and leaves within the same chunk is written as a single closed register. Closed registers are
+ * added to the usage rollup with one increment per vehicle and billing period.
+ * </p>
+ * <p>
+ * If a chunk fails, its events are reported as failed and later events of the same
+ * vehicles are skipped, so per-vehicle ordering is never violated. Replayed events do
+ * not trigger SMS or WhatsApp notifications.
+ * </p>
+ *
+ * @see RegisterService
+ * @see ActiveSessionIndex
+ */
+@Service
+public class GateEventBatchService {
+
+    private static final Logger log = LoggerFactory.getLogger(GateEventBatchService.class);
+
+    private final RegisterRepository registerRepository;
+    private final VehicleRepository vehicleRepository;
+    private final ActiveSessionIndex sessionIndex;
+    private final BillingPeriodService billingPeriodService;
+    private final UsageRollupService usageRollupService;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    public GateEventBatchService(RegisterRepository registerRepository, VehicleRepository vehicleRepository,
+                                 ActiveSessionIndex sessionIndex, BillingPeriodService billingPeriodService,
+                                 UsageRollupService usageRollupService, PlatformTransactionManager transactionManager,
+                                 @Value("${parking.batch.chunk-size:500}") int chunkSize) {
+        this.registerRepository = registerRepository;
+        this.vehicleRepository = vehicleRepository;
+        this.sessionIndex = sessionIndex;
+        this.billingPeriodService = billingPeriodService;
+        this.usageRollupService = usageRollupService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    /**
+     * Applies a list of gate events in order and reports the outcome of each one.
+     *
+     * @param events the events to apply, in the order they happened
+     * @return one result per event, in the same order
+     */
+    public List<GateEventResult> process(List<GateEvent> events) {
+        List<GateEventResult> results = new ArrayList<>(events.size());
+        Set<String> failedPlates = new HashSet<>();
+
+        for (int start = 0; start < events.size(); start += chunkSize) {
+            List<GateEvent> chunk = events.subList(start, Math.min(start + chunkSize, events.size()));
+            int offset = start;
+            try {
+                results.addAll(transactionTemplate.execute(status -> processChunk(chunk, offset, failedPlates)));
+            } catch (RuntimeException e) {
+                log.error("Gate event chunk [{}, {}) rolled back", offset, offset + chunk.size(), e);
+                for (int i = 0; i < chunk.size(); i++) {
+                    GateEvent event = chunk.get(i);
+                    failedPlates.add(event.vehicleId());
+                    results.add(new GateEventResult(offset + i, event.vehicleId(), event.type(),
+                            HttpStatus.INTERNAL_SERVER_ERROR.value(), null, "Chunk rolled back: " + e.getMessage()));
+                }
+            }
+        }
+
+        log.info("Processed {} gate events in chunks of {}", events.size(), chunkSize);
+        return results;
+    }
+
+    private List<GateEventResult> processChunk(List<GateEvent> chunk, int offset, Set<String> failedPlates) {
+        Set<String> plates = new LinkedHashSet<>();
+        chunk.forEach(event -> plates.add(event.vehicleId()));
+
+        Map<String, Vehicle> vehicles = new HashMap<>();
+        vehicleRepository.findAllById(plates).forEach(vehicle -> vehicles.put(vehicle.getId(), vehicle));
+
+        List<Long> openIds = plates.stream()
+                .map(sessionIndex::find)
+                .flatMap(Optional::stream)
+                .map(OpenSession::registerId)
+                .toList();
+        Map<String, Register> open = new HashMap<>();
+        for (Register register : registerRepository.findAllById(openIds)) {
+            if (register.getExitdate() == null) {
+                open.put(register.getVehicle().getId(), register);
+            }
+        }
+
+        long period = billingPeriodService.current();
+        List<Outcome> outcomes = new ArrayList<>(chunk.size());
+        List<Register> inserts = new ArrayList<>();
+        List<Register> closed = new ArrayList<>();
+        List<Register> exits = new ArrayList<>();
+
+        for (GateEvent event : chunk) {
+            String plate = event.vehicleId();
+            LocalDateTime at = event.occurredAt() != null ? event.occurredAt() : LocalDateTime.now();
+            Vehicle vehicle = vehicles.get(plate);
+
+            if (failedPlates.contains(plate)) {
+                outcomes.add(new Outcome(event, HttpStatus.CONFLICT, null,
+                        "Skipped: an earlier event for this vehicle failed"));
+            } else if (vehicle == null) {
+                outcomes.add(new Outcome(event, HttpStatus.NOT_FOUND, null, "Vehicle " + plate + " not found"));
+            } else if (event.type() == GateEventType.ENTRY) {
+                if (open.containsKey(plate)) {
+                    outcomes.add(new Outcome(event, HttpStatus.BAD_REQUEST, null,
+                            "Register already exists for this vehicle"));
+                    continue;
+                }
+                Register register = new Register(vehicle);
+                register.setEntrydate(at);
+                register.setBillingPeriod(period);
+                register.setPhoneNumber(event.phoneNumber());
+                register.setNotificationChannel(event.notificationChannel());
+                open.put(plate, register);
+                inserts.add(register);
+                outcomes.add(new Outcome(event, HttpStatus.CREATED, register, "Register created successfully"));
+            } else {
+                Register register = open.get(plate);
+                if (register == null) {
+                    outcomes.add(new Outcome(event, HttpStatus.BAD_REQUEST, null,
+                            "No active register found for vehicle"));
+                    continue;
+                }
+                if (at.isBefore(register.getEntrydate())) {
+                    outcomes.add(new Outcome(event, HttpStatus.BAD_REQUEST, null,
+                            "Exit date is before the entry date"));
+                    continue;
+                }
+                open.remove(plate);
+                register.setExitdate(at);
+                register.setMinutes((int) ChronoUnit.MINUTES.between(register.getEntrydate(), at));
+                register.setBillingPeriod(period);
+                exits.add(register);
+                if (register.getId() != 0) {
+                    // registers opened in this chunk are inserted already closed
+                    closed.add(register);
+                }
+                outcomes.add(new Outcome(event, HttpStatus.OK, register, "Register updated successfully"));
+            }
+        }
+
+        registerRepository.saveAll(inserts);
+        registerRepository.saveAll(closed);
+        usageRollupService.recordCloses(exits);
+
+        for (Register register : inserts) {
+            if (register.getExitdate() == null) {
+                sessionIndex.recordEntry(register.getVehicle().getId(), register.getId(), register.getEntrydate());
+            }
+        }
+        for (Register register : closed) {
+            sessionIndex.recordExit(register.getVehicle().getId(), register.getId());
+        }
+
+        List<GateEventResult> results = new ArrayList<>(outcomes.size());
+        for (int i = 0; i < outcomes.size(); i++) {
+            Outcome outcome = outcomes.get(i);
+            Long registerId = outcome.register() != null ? outcome.register().getId() : null;
+            results.add(new GateEventResult(offset + i, outcome.event().vehicleId(), outcome.event().type(),
+                    outcome.status().value(), registerId, outcome.message()));
+        }
+        return results;
+    }
+
+    private record Outcome(GateEvent event, HttpStatus status, Register register, String message) {}
+}
@@ -0,0 +1,147 @@
+package com.parking.core.service;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.parking.core.model.NotificationOutbox;
+import com.parking.core.payment.services.StripePaymentLinkService;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Background dispatcher for the exit notification outbox.
+ * <p>
+ * Every {@code parking.outbox.poll-interval-ms} it claims due entries through
+ * {@link NotificationOutboxService} and hands them to a fixed pool of
+ * {@code parking.outbox.pool-size} workers. Each worker creates the Stripe payment link,
+ * and sends the SMS or WhatsApp message (which shortens the link). At most
+ * {@code parking.outbox.max-in-flight} entries are claimed and not yet finished at any time,
+ * so a slow provider backs up in the table rather than in memory.
+ * </p>
+ * <p>
+ * If the payment link cannot be created on the last attempt, the frontend payment page
+ * ({@code parking.frontend-url}/pay/{registerId}) is sent instead.
+ * </p>
+ *
+ * @see NotificationOutboxService
+ * @see SmsNotificationService
+ */
+@Component
+public class NotificationDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificationDispatcher.class);
+
+    private final NotificationOutboxService outboxService;
+    private final StripePaymentLinkService stripePaymentLinkService;
+    private final SmsNotificationService smsNotificationService;
+    private final String frontendUrl;
+    private final ExecutorService workers;
+    private final Semaphore inFlight;
+
+    public NotificationDispatcher(NotificationOutboxService outboxService,
+                                  StripePaymentLinkService stripePaymentLinkService,
+                                  SmsNotificationService smsNotificationService,
+                                  @Value("${parking.frontend-url}") String frontendUrl,
+                                  @Value("${parking.outbox.pool-size:4}") int poolSize,
+                                  @Value("${parking.outbox.max-in-flight:100}") int maxInFlight) {
+        this.outboxService = outboxService;
+        this.stripePaymentLinkService = stripePaymentLinkService;
+        this.smsNotificationService = smsNotificationService;
+        this.frontendUrl = frontendUrl;
+        AtomicInteger threads = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(Math.max(1, poolSize), runnable -> {
+            Thread thread = new Thread(runnable, "outbox-dispatcher-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.inFlight = new Semaphore(Math.max(1, maxInFlight));
+    }
+
+    /**
+     * Claims as many due entries as there are free in-flight slots and submits them to the workers.
+     *
+     * @return the number of entries submitted
+     */
+    @Scheduled(fixedDelayString = "${parking.outbox.poll-interval-ms:1000}")
+    public int poll() {
+        int free = inFlight.availablePermits();
+        if (free == 0) {
+            return 0;
+        }
+
+        List<NotificationOutbox> claimed;
+        try {
+            claimed = outboxService.claimDue(free);
+        } catch (RuntimeException e) {
+            log.error("Failed to claim outbox entries: {}", e.getMessage());
+            return 0;
+        }
+
+        for (NotificationOutbox entry : claimed) {
+            inFlight.acquireUninterruptibly();
+            workers.execute(() -> {
+                try {
+                    deliver(entry);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        }
+        return claimed.size();
+    }
+
+    /**
+     * Delivers a single claimed entry and records the outcome.
+     *
+     * @param entry the claimed outbox entry
+     */
+    void deliver(NotificationOutbox entry) {
+        String payUrl = entry.getPayUrl();
+        try {
+            if (payUrl == null) {
+                payUrl = stripePaymentLinkService.createPaymentLink(entry.getAmount(), entry.getRegisterId());
+                if (payUrl == null) {
+                    if (!outboxService.isLastAttempt(entry)) {
+                        outboxService.markRetry(entry.getId(), null, "Stripe payment link creation failed");
+                        return;
+                    }
+                    payUrl = frontendUrl + "/pay/" + entry.getRegisterId();
+                }
+            }
+
+            boolean sent = "whatsapp".equals(entry.getChannel())
+                    ? smsNotificationService.sendExitWhatsApp(entry.getPhoneNumber(), entry.getVehicleId(),
+                            entry.getMinutes(), entry.getAmount(), payUrl)
+                    : smsNotificationService.sendExitSms(entry.getPhoneNumber(), entry.getVehicleId(),
+                            entry.getMinutes(), entry.getAmount(), payUrl);
+
+            if (sent) {
+                outboxService.markSent(entry.getId());
+            } else {
+                outboxService.markRetry(entry.getId(), payUrl, "Message provider rejected the " + entry.getChannel());
+            }
+        } catch (RuntimeException e) {
+            log.error("Exit notification #{} failed: {}", entry.getId(), e.getMessage());
+            outboxService.markRetry(entry.getId(), payUrl, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        workers.shutdown();
+        if (!workers.awaitTermination(10, TimeUnit.SECONDS)) {
+            // unfinished entries stay IN_FLIGHT and are picked up again when their lease expires
+            workers.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.parking.core.service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.parking.core.enums.OutboxStatus;
+import com.parking.core.model.NotificationOutbox;
+import com.parking.core.model.Register;
+import com.parking.core.repository.NotificationOutboxRepository;
+
+/**
+ * Service layer for the exit notification outbox.
+ * <p>
+ * Exit notifications are stored in the {@code notification_outbox} table by the same
+ * transaction that closes the register, so a notification is never lost nor sent for a
+ * rolled-back exit. {@link NotificationDispatcher} claims due entries, delivers them and
+ * reports the result back through {@link #markSent(long)} or {@link #markRetry(long, String, String)}.
+ * </p>
+ * <p>
+ * Claimed entries are leased for {@code parking.outbox.lease-ms}; an entry whose worker died
+ * before reporting back becomes due again once the lease expires. Failed deliveries are retried
+ * with exponential backoff starting at {@code parking.outbox.backoff-ms}, up to
+ * {@code parking.outbox.max-attempts} attempts.
+ * </p>
+ *
+ * @see NotificationOutbox
+ * @see NotificationDispatcher
+ */
+@Service
+public class NotificationOutboxService {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificationOutboxService.class);
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private final NotificationOutboxRepository outboxRepository;
+    private final int maxAttempts;
+    private final long leaseMs;
+    private final long backoffMs;
+
+    public NotificationOutboxService(NotificationOutboxRepository outboxRepository,
+                                     @Value("${parking.outbox.max-attempts:5}") int maxAttempts,
+                                     @Value("${parking.outbox.lease-ms:300000}") long leaseMs,
+                                     @Value("${parking.outbox.backoff-ms:5000}") long backoffMs) {
+        this.outboxRepository = outboxRepository;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.leaseMs = leaseMs;
+        this.backoffMs = backoffMs;
+    }
+
+    /**
+     * Stores an exit notification for a closed register.
+     * <p>
+     * Joins the caller's transaction, so the entry is only visible to the dispatcher once
+     * the register close commits.
+     * </p>
+     *
+     * @param register    the closed register
+     * @param phoneNumber the phone number to notify
+     * @param channel     {@code whatsapp} to send a WhatsApp message, anything else sends an SMS
+     * @param amount      the amount due for the register
+     * @return the stored outbox entry
+     */
+    @Transactional
+    public NotificationOutbox enqueueExit(Register register, String phoneNumber, String channel, double amount) {
+        NotificationOutbox entry = new NotificationOutbox(register.getId(), register.getVehicle().getId(),
+                phoneNumber, "whatsapp".equalsIgnoreCase(channel) ? "whatsapp" : "sms",
+                register.getMinutes(), amount);
+        NotificationOutbox saved = outboxRepository.save(entry);
+        log.info("Queued {} exit notification #{} for register #{}", saved.getChannel(), saved.getId(), register.getId());
+        return saved;
+    }
+
+    /**
+     * Claims up to {@code limit} due entries for delivery.
+     * <p>
+     * Entries are locked with {@code SKIP LOCKED}, marked {@link OutboxStatus#IN_FLIGHT},
+     * their attempt counter is incremented and they are leased until
+     * {@code now + parking.outbox.lease-ms}.
+     * </p>
+     *
+     * @param limit the maximum number of entries to claim
+     * @return the claimed entries, possibly empty
+     */
+    @Transactional
+    public List<NotificationOutbox> claimDue(int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        List<NotificationOutbox> due = outboxRepository.findDueForUpdate(now, Limit.of(limit));
+        for (NotificationOutbox entry : due) {
+            entry.setStatus(OutboxStatus.IN_FLIGHT);
+            entry.setAttempts(entry.getAttempts() + 1);
+            entry.setNextAttemptAt(now.plusNanos(leaseMs * 1_000_000));
+        }
+        return due;
+    }
+
+    /**
+     * Marks an entry as delivered.
+     *
+     * @param id the outbox entry id
+     */
+    @Transactional
+    public void markSent(long id) {
+        outboxRepository.findById(id).ifPresent(entry -> {
+            entry.setStatus(OutboxStatus.SENT);
+            entry.setSentAt(LocalDateTime.now());
+            entry.setLastError(null);
+        });
+    }
+
+    /**
+     * Records a failed delivery attempt.
+     * <p>
+     * The entry is rescheduled with exponential backoff, or marked {@link OutboxStatus#FAILED}
+     * once it has used all of its attempts. A payment link created before the failure is kept,
+     * so the retry does not create a second one.
+     * </p>
+     *
+     * @param id     the outbox entry id
+     * @param payUrl the payment link created during the attempt, or {@code null}
+     * @param error  a description of the failure
+     */
+    @Transactional
+    public void markRetry(long id, String payUrl, String error) {
+        outboxRepository.findById(id).ifPresent(entry -> {
+            if (payUrl != null) {
+                entry.setPayUrl(payUrl);
+            }
+            entry.setLastError(error != null && error.length() > MAX_ERROR_LENGTH
+                    ? error.substring(0, MAX_ERROR_LENGTH) : error);
+            if (isLastAttempt(entry)) {
+                entry.setStatus(OutboxStatus.FAILED);
+                log.error("Exit notification #{} for register #{} failed after {} attempts: {}",
+                        id, entry.getRegisterId(), entry.getAttempts(), error);
+                return;
+            }
+            long delay = backoffMs << Math.min(entry.getAttempts() - 1, 16);
+            entry.setStatus(OutboxStatus.PENDING);
+            entry.setNextAttemptAt(LocalDateTime.now().plusNanos(delay * 1_000_000));
+            log.warn("Exit notification #{} attempt {} failed, retrying in {}ms: {}",
+                    id, entry.getAttempts(), delay, error);
+        });
+    }
+
+    /**
+     * @param entry a claimed outbox entry
+     * @return {@code true} if a failure of the current attempt would exhaust the entry's retries
+     */
+    public boolean isLastAttempt(NotificationOutbox entry) {
+        return entry.getAttempts() >= maxAttempts;
+    }
+}
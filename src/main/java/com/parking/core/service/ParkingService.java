@@ -1,38 +1,40 @@
 package com.parking.core.service;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
 import com.parking.core.enums.VehicleType;
+import com.parking.core.model.BillingPeriod;
 import com.parking.core.model.Register;
 import com.parking.core.model.Vehicle;
+import com.parking.core.model.dto.VehicleCharge;
+import com.parking.core.model.dto.VehicleUsage;
 import com.parking.core.repository.RegisterRepository;
 import com.parking.core.repository.VehicleRepository;
+import com.parking.core.repository.VehicleUsageRollupRepository;
 
 /**
  * Service layer for vehicle management and parking payment calculations.
  * <p>
- * Manages vehicle CRUD operations and implements the pricing logic:
- * <ul>
- *   <li><strong>RESIDENT</strong>: 0.05 per minute</li>
- *   <li><strong>NON_RESIDENT</strong>: 0.50 per minute</li>
- *   <li><strong>OFICIAL</strong>: free (0.00)</li>
- * </ul>
- * Also handles the monthly reset cycle: clearing official registers and
- * resetting resident minute counters.
+ * Manages vehicle CRUD operations and parking payment calculations, which are
+ * delegated to the {@link PricingEngine} tariff table. Also starts new billing periods
+ * through the {@link BillingPeriodService}.
  * </p>
  *
  * @see Vehicle
  * @see VehicleType
+ * @see PricingEngine
  */
 @Service
 public class ParkingService {
@@ -41,10 +43,18 @@ public class ParkingService {
 
     private final VehicleRepository vehicleRepository;
     private final RegisterRepository registerRepository;
+    private final VehicleUsageRollupRepository rollupRepository;
+    private final PricingEngine pricingEngine;
+    private final BillingPeriodService billingPeriodService;
 
-    public ParkingService(VehicleRepository vehicleRepository, RegisterRepository registerRepository) {
+    public ParkingService(VehicleRepository vehicleRepository, RegisterRepository registerRepository,
+                          VehicleUsageRollupRepository rollupRepository, PricingEngine pricingEngine,
+                          BillingPeriodService billingPeriodService) {
         this.vehicleRepository = vehicleRepository;
         this.registerRepository = registerRepository;
+        this.rollupRepository = rollupRepository;
+        this.pricingEngine = pricingEngine;
+        this.billingPeriodService = billingPeriodService;
     }
 
     /**
@@ -78,37 +88,107 @@ public class ParkingService {
     /**
      * Calculates the total parking fee for a vehicle based on its type and accumulated minutes.
      * <p>
-     * Pricing rules:
-     * <ul>
-     *   <li>{@code RESIDENT}: totalMinutes × 0.05</li>
-     *   <li>{@code OFICIAL}: 0.00 (free)</li>
-     *   <li>{@code NON_RESIDENT}: totalMinutes × 0.50</li>
-     * </ul>
-     * The result is rounded to 2 decimal places using {@code HALF_UP} rounding.
+     * The total is priced in minor units by the {@link PricingEngine}, so it is exact
+     * to 2 decimal places.
      * </p>
      *
      * @param vehicle the vehicle to calculate payment for
-     * @return the total fee rounded to 2 decimal places
+     * @return the total fee in major units
      * @throws ResponseStatusException with {@code 400 BAD_REQUEST} if the vehicle has no registers
      */
     public double calculatePayment(Vehicle vehicle) {
-        List<Register> registers = registerRepository.findAllByVehicle(vehicle);
-        if (registers.isEmpty()) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No registers found for the vehicle");
+        return calculateCharge(vehicle, null, null).price();
+    }
+
+    /**
+     * Calculates the parking fee of a vehicle, optionally limited to the registers
+     * that started within {@code [from, to)}.
+     * <p>
+     * Without a range, minutes and sessions are read from the usage rollup, one row per billing
+     * period: only closed registers of the current period are counted, except for non-residents,
+     * whose charges span every period. A vehicle with registers but none counted, e.g. a resident
+     * that has not left since the month started, is charged zero. With a range, the matching registers are
+     * summed by the database in a single aggregate query. No register is loaded either way.
+     * The fee is priced with the type supplied in {@code vehicle}.
+     * </p>
+     *
+     * @param vehicle the vehicle to calculate payment for
+     * @param from    inclusive lower bound of the entry date, or {@code null}
+     * @param to      exclusive upper bound of the entry date, or {@code null}
+     * @return the aggregated usage and fee of the vehicle
+     * @throws ResponseStatusException with {@code 400 BAD_REQUEST} if only one bound is given,
+     *                                 or if the vehicle has no registers (in the range, if given)
+     */
+    public VehicleCharge calculateCharge(Vehicle vehicle, LocalDateTime from, LocalDateTime to) {
+        if ((from == null) != (to == null)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Both from and to are required for a date range");
         }
 
-        int totalMinutes = registers.stream().mapToInt(Register::getMinutes).sum();
+        VehicleUsage usage = (from == null
+                ? rollupRepository.summarizeByVehicle(vehicle.getId(), billingPeriodService.current())
+                        .or(() -> registerRepository.existsByVehicleId(vehicle.getId())
+                                ? Optional.of(new VehicleUsage(vehicle.getId(), vehicle.getType(), 0, 0))
+                                : Optional.empty())
+                : registerRepository.summarizeByVehicleBetween(vehicle.getId(), from, to))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "No registers found for the vehicle"));
+
+        return toCharge(vehicle, usage);
+    }
 
-        double price = switch (vehicle.getType()) {
-            case RESIDENT -> totalMinutes * 0.05;
-            case OFICIAL -> 0;
-            default -> totalMinutes * 0.5;
-        };
+    /**
+     * Calculates the parking fee of a vehicle for a single, possibly past, billing period,
+     * from its usage rollup row.
+     *
+     * @param vehicle the vehicle to calculate payment for
+     * @param period  the billing period id
+     * @return the aggregated usage and fee of the vehicle in that period
+     * @throws ResponseStatusException with {@code 400 BAD_REQUEST} if the vehicle has no registers in the period
+     */
+    public VehicleCharge calculateChargeForPeriod(Vehicle vehicle, long period) {
+        VehicleUsage usage = rollupRepository.findUsage(vehicle.getId(), period)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "No registers found for the vehicle in period " + period));
+        return toCharge(vehicle, usage);
+    }
 
-        double result = BigDecimal.valueOf(price).setScale(2, RoundingMode.HALF_UP).doubleValue();
-        log.info("Calculated payment for vehicle {}: {} ({}min, type={})",
-                vehicle.getId(), result, totalMinutes, vehicle.getType());
-        return result;
+    private VehicleCharge toCharge(Vehicle vehicle, VehicleUsage usage) {
+        double price = PricingEngine.toMajorUnits(pricingEngine.priceMinor(vehicle.getType(), usage.minutes()));
+        log.info("Calculated payment for vehicle {}: {} ({}min in {} sessions, type={})",
+                vehicle.getId(), price, usage.minutes(), usage.sessions(), vehicle.getType());
+        return new VehicleCharge(vehicle.getId(), vehicle.getType(), usage.minutes(), usage.sessions(), price);
+    }
+
+    /**
+     * Calculates the parking fees of many vehicles with one grouped query over the usage rollup.
+     * <p>
+     * Each vehicle is priced with its stored type. Plates without registers are not
+     * included in the result.
+     * </p>
+     *
+     * @param vehicleIds the license plates to price
+     * @return one charge per plate that has registers
+     */
+    public List<VehicleCharge> calculateCharges(Collection<String> vehicleIds) {
+        List<VehicleUsage> usages = rollupRepository.summarizeByVehicles(new HashSet<>(vehicleIds),
+                billingPeriodService.current());
+        List<VehicleCharge> charges = new ArrayList<>(usages.size());
+        for (VehicleUsage usage : usages) {
+            double price = PricingEngine.toMajorUnits(pricingEngine.priceMinor(usage.type(), usage.minutes()));
+            charges.add(new VehicleCharge(usage.vehicleId(), usage.type(), usage.minutes(), usage.sessions(), price));
+        }
+        log.info("Calculated payments for {} of {} vehicles", charges.size(), vehicleIds.size());
+        return charges;
+    }
+
+    /**
+     * Calculates the fee of a single parking session.
+     *
+     * @param register the closed register to price
+     * @return the fee in major units
+     */
+    public double calculatePaymentForRegister(Register register) {
+        return PricingEngine.toMajorUnits(pricingEngine.priceMinor(register));
     }
 
     /**
@@ -118,16 +198,6 @@ public class ParkingService {
      * @return the saved {@link Vehicle}
      * @throws ResponseStatusException with {@code 400 BAD_REQUEST} if a vehicle with the same ID already exists
      */
-    public double calculatePaymentForRegister(Register register) {
-        int minutes = register.getMinutes();
-        double price = switch (register.getVehicle().getType()) {
-            case RESIDENT -> minutes * 0.05;
-            case OFICIAL -> 0;
-            default -> minutes * 0.5;
-        };
-        return BigDecimal.valueOf(price).setScale(2, RoundingMode.HALF_UP).doubleValue();
-    }
-
     public Vehicle saveVehicle(Vehicle vehicle) {
         if (vehicleRepository.findById(vehicle.getId()).isPresent()) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Vehicle already exists");
@@ -138,34 +208,25 @@ public class ParkingService {
     }
 
     /**
-     * Performs the monthly reset cycle.
+     * Starts a new billing month.
      * <p>
-     * This operation:
-     * <ol>
-     *   <li>Resets all resident register minutes to zero</li>
-     *   <li>Deletes all official vehicle registers</li>
-     * </ol>
+     * This is a single insert into {@code billing_period}: resident charges start again from
+     * zero because they only count registers of the current period, and the official registers
+     * of the previous period are deleted later by the background purge. No register is
+     * read or locked.
      * </p>
      *
-     * @return a map containing a success message and the count of deleted official registers
+     * @return a map containing a success message and the new and previous period ids
      */
-    @Transactional
     public Map<String, Object> monthStarts() {
-        List<Register> oficials = registerRepository.findAllByVehicle_Type(VehicleType.OFICIAL);
-        List<Register> residents = registerRepository.findAllByVehicle_Type(VehicleType.RESIDENT);
-
-        for (Register register : residents) {
-            register.setMinutes(0);
-        }
-        registerRepository.saveAll(residents);
-
-        int count = oficials.size();
-        registerRepository.deleteAll(oficials);
+        long previous = billingPeriodService.current();
+        BillingPeriod period = billingPeriodService.startNewPeriod();
 
-        log.info("Month reset: deleted {} official registers, reset {} resident registers", count, residents.size());
+        log.info("Month reset: billing period {} started, period {} closed", period.getId(), previous);
         return Map.of(
-                "message", "Deleted all official registers",
-                "deletedCount", count);
+                "message", "Started billing period " + period.getId(),
+                "period", period.getId(),
+                "previousPeriod", previous);
     }
 
     /**
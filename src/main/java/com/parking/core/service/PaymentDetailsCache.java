@@ -0,0 +1,104 @@
+package com.parking.core.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.parking.core.model.dto.PaymentDetails;
+import com.parking.core.model.dto.RegisterPaymentView;
+import com.parking.core.repository.RegisterRepository;
+
+/**
+ * Bounded in-process cache of the payment details of closed registers.
+ * <p>
+ * Once a vehicle has exited, its register and price no longer change, so the details are read
+ * and priced once and then served from memory, together with a strong ETag computed from their
+ * content. At most {@code parking.payment-details.cache-size} registers are kept, evicting the
+ * least recently viewed one. Registers still open or not found are never cached.
+ * </p>
+ * <p>
+ * The public payment page, the payment intent and the checkout all read the same entry, so the
+ * amount charged is the amount shown even if the vehicle type is edited after the exit.
+ * </p>
+ *
+ * @see PricingEngine
+ */
+@Component
+public class PaymentDetailsCache {
+
+    private final RegisterRepository registerRepository;
+    private final PricingEngine pricingEngine;
+    private final Map<Long, PaymentDetails> entries;
+
+    public PaymentDetailsCache(RegisterRepository registerRepository, PricingEngine pricingEngine,
+                               @Value("${parking.payment-details.cache-size:10000}") int cacheSize) {
+        this.registerRepository = registerRepository;
+        this.pricingEngine = pricingEngine;
+        int maxSize = Math.max(0, cacheSize);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, PaymentDetails> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the payment details of a closed register, reading them only on the first call.
+     *
+     * @param registerId the id of the register
+     * @return the register, its price and its ETag
+     * @throws ResponseStatusException with {@code 404 NOT_FOUND} if the register does not exist
+     * @throws ResponseStatusException with {@code 400 BAD_REQUEST} if the vehicle has not exited yet
+     */
+    public PaymentDetails get(long registerId) {
+        synchronized (entries) {
+            PaymentDetails cached = entries.get(registerId);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        RegisterPaymentView register = registerRepository.findPaymentView(registerId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Register not found"));
+        if (register.exitDate() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Vehicle has not exited yet");
+        }
+
+        long amountMinor = pricingEngine.priceMinor(register.vehicleType(), register.minutes());
+        PaymentDetails details = new PaymentDetails(register, amountMinor, etagOf(register, amountMinor));
+        synchronized (entries) {
+            // a concurrent first view may have cached it already; keep that one so the ETag is stable
+            PaymentDetails existing = entries.putIfAbsent(registerId, details);
+            return existing != null ? existing : details;
+        }
+    }
+
+    /**
+     * @return the number of cached registers
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private static String etagOf(RegisterPaymentView register, long amountMinor) {
+        String content = register.registerId() + "|" + register.plate() + "|" + register.vehicleType() + "|"
+                + register.entryDate() + "|" + register.exitDate() + "|" + register.minutes() + "|" + amountMinor;
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8));
+            return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(digest) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
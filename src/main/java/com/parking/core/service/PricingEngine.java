@@ -0,0 +1,97 @@
+package com.parking.core.service;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.parking.core.enums.VehicleType;
+import com.parking.core.model.Register;
+
+/**
+ * Parking tariff calculator working in integer minor units (cents).
+ * <p>
+ * The per-minute rate of every {@link VehicleType} is stored in a single {@code long[]}
+ * indexed by {@link VehicleType#ordinal()}, built once at startup. Pricing a session is a
+ * single multiplication with no allocation and no rounding, so results are exact and
+ * identical wherever they are computed. Defaults:
+ * <ul>
+ *   <li><strong>OFICIAL</strong>: 0 per minute (free)</li>
+ *   <li><strong>RESIDENT</strong>: 5 per minute (0.05)</li>
+ *   <li><strong>NON_RESIDENT</strong>: 50 per minute (0.50)</li>
+ * </ul>
+ * Use {@link #toMajorUnits(long)} only at the edges (JSON responses, reports, messages).
+ * </p>
+ *
+ * @see ParkingService
+ * @see ReportService
+ */
+@Component
+public class PricingEngine {
+
+    /** Number of minor units in one major unit of the billing currency. */
+    public static final long MINOR_UNITS_PER_MAJOR = 100;
+
+    private final long[] ratePerMinute = new long[VehicleType.values().length];
+
+    public PricingEngine(@Value("${parking.pricing.oficial-rate:0}") long oficialRate,
+                         @Value("${parking.pricing.resident-rate:5}") long residentRate,
+                         @Value("${parking.pricing.non-resident-rate:50}") long nonResidentRate) {
+        ratePerMinute[VehicleType.OFICIAL.ordinal()] = oficialRate;
+        ratePerMinute[VehicleType.RESIDENT.ordinal()] = residentRate;
+        ratePerMinute[VehicleType.NON_RESIDENT.ordinal()] = nonResidentRate;
+    }
+
+    /**
+     * @param type the vehicle type
+     * @return the per-minute rate of the type, in minor units
+     */
+    public long ratePerMinute(VehicleType type) {
+        return ratePerMinute[type.ordinal()];
+    }
+
+    /**
+     * Prices a number of parked minutes for a vehicle type.
+     *
+     * @param type    the vehicle type
+     * @param minutes the parked minutes
+     * @return the amount due, in minor units
+     */
+    public long priceMinor(VehicleType type, long minutes) {
+        return minutes * ratePerMinute[type.ordinal()];
+    }
+
+    /**
+     * Prices a single closed register.
+     *
+     * @param register the register to price
+     * @return the amount due, in minor units
+     */
+    public long priceMinor(Register register) {
+        return priceMinor(register.getVehicle().getType(), register.getMinutes());
+    }
+
+    /**
+     * Prices many registers in one pass.
+     *
+     * @param registers the registers to price
+     * @return the amount due of each register, in minor units, in the same order
+     */
+    public long[] priceMinor(List<Register> registers) {
+        long[] amounts = new long[registers.size()];
+        for (int i = 0; i < amounts.length; i++) {
+            amounts[i] = priceMinor(registers.get(i));
+        }
+        return amounts;
+    }
+
+    /**
+     * Converts an amount in minor units to major units for display.
+     *
+     * @param minor the amount in minor units
+     * @return the amount in major units
+     */
+    public static double toMajorUnits(long minor) {
+        return (double) minor / MINOR_UNITS_PER_MAJOR;
+    }
+}
@@ -3,6 +3,7 @@ package com.parking.core.service;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
+import java.util.Optional;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -14,9 +15,14 @@ import org.springframework.web.server.ResponseStatusException;
 
 import com.parking.core.model.Register;
 import com.parking.core.model.Vehicle;
+import com.parking.core.model.dto.DtoMapper;
+import com.parking.core.model.dto.RegisterCursor;
+import com.parking.core.model.dto.RegisterDTO;
 import com.parking.core.model.dto.RegisterEntryRequest;
+import com.parking.core.model.dto.RegisterFilter;
+import com.parking.core.model.dto.RegisterPage;
+import com.parking.core.model.dto.RegisterRow;
 import com.parking.core.payment.Requests.SendPaymentLinkRequest;
-import com.parking.core.payment.services.StripePaymentLinkService;
 import com.parking.core.repository.RegisterRepository;
 import com.parking.core.repository.VehicleRepository;
 
@@ -26,6 +32,12 @@ import com.parking.core.repository.VehicleRepository;
  * Handles vehicle entry and exit from the parking lot, tracking timestamps
  * and calculating the duration of each parking session in minutes.
  * </p>
+ * <p>
+ * Exit notifications (payment link plus SMS/WhatsApp) are not sent from the request thread:
+ * they are written to the notification outbox in the same transaction that closes the
+ * register and delivered by the {@link NotificationDispatcher}. The same transaction adds the
+ * closed session to the per-vehicle usage rollup.
+ * </p>
  *
  * @see Register
  * @see Vehicle
@@ -35,38 +47,73 @@ public class RegisterService {
 
     private static final Logger log = LoggerFactory.getLogger(RegisterService.class);
 
-    @Value("${parking.frontend-url}")
-    private String frontendUrl;
-
     private final RegisterRepository registerRepository;
     private final VehicleRepository vehicleRepository;
     private final ParkingService parkingService;
     private final SmsNotificationService smsNotificationService;
-    private final StripePaymentLinkService stripePaymentLinkService;
+    private final NotificationOutboxService outboxService;
+    private final ActiveSessionIndex sessionIndex;
+    private final BillingPeriodService billingPeriodService;
+    private final UsageRollupService usageRollupService;
+    private final int maxPageSize;
 
     public RegisterService(RegisterRepository registerRepository, VehicleRepository vehicleRepository,
                            ParkingService parkingService, SmsNotificationService smsNotificationService,
-                           StripePaymentLinkService stripePaymentLinkService) {
+                           NotificationOutboxService outboxService, ActiveSessionIndex sessionIndex,
+                           BillingPeriodService billingPeriodService, UsageRollupService usageRollupService,
+                           @Value("${parking.registers.max-page-size:500}") int maxPageSize) {
         this.registerRepository = registerRepository;
         this.vehicleRepository = vehicleRepository;
         this.parkingService = parkingService;
         this.smsNotificationService = smsNotificationService;
-        this.stripePaymentLinkService = stripePaymentLinkService;
+        this.outboxService = outboxService;
+        this.sessionIndex = sessionIndex;
+        this.billingPeriodService = billingPeriodService;
+        this.usageRollupService = usageRollupService;
+        this.maxPageSize = Math.max(1, maxPageSize);
     }
 
     /**
-     * Retrieves all parking registers.
+     * Lists parking registers newest first, one page at a time.
+     * <p>
+     * Pages are positioned with a keyset cursor on {@code (entrydate, id)} instead of an offset,
+     * so every page costs one indexed query regardless of its depth. One extra register is read
+     * to know whether a next page exists. Only the columns of {@link RegisterDTO} are selected,
+     * joined with the vehicle in the same query.
+     * </p>
      *
-     * @return a list of all {@link Register} entries
-     * @throws ResponseStatusException with {@code 404 NOT_FOUND} if no registers exist
+     * @param filter the optional filters to apply
+     * @param cursor the {@code nextCursor} of the previous page, or {@code null} for the first page
+     * @param limit  the page size, clamped to {@code [1, parking.registers.max-page-size]}
+     * @return the registers of the page and the cursor of the next one
+     * @throws ResponseStatusException with {@code 400 BAD_REQUEST} if the cursor is malformed
+     *                                 or the date range is empty
      */
-    public List<Register> getAllRegisters() {
-        List<Register> registers = registerRepository.findAll();
-        if (registers.isEmpty()) {
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No registers found");
+    @Transactional(readOnly = true)
+    public RegisterPage getRegisters(RegisterFilter filter, String cursor, int limit) {
+        if (filter.from() != null && filter.to() != null && !filter.from().isBefore(filter.to())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from must be before to");
+        }
+        RegisterCursor after = null;
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                after = RegisterCursor.decode(cursor);
+            } catch (IllegalArgumentException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+            }
         }
-        log.info("Retrieved {} registers", registers.size());
-        return registers;
+
+        int pageSize = Math.max(1, Math.min(limit, maxPageSize));
+        List<RegisterRow> rows = registerRepository.findPage(filter, after, pageSize + 1);
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            RegisterRow last = rows.get(pageSize - 1);
+            nextCursor = new RegisterCursor(last.entrydate(), last.id()).encode();
+        }
+        List<RegisterDTO> registers = rows.stream().map(DtoMapper::toRegisterDTO).toList();
+        log.info("Retrieved {} registers (next page: {})", registers.size(), nextCursor != null);
+        return new RegisterPage(registers, nextCursor);
     }
 
     /**
@@ -74,6 +121,7 @@ public class RegisterService {
      * <p>
      * Verifies the vehicle exists in the system and does not already have an active
      * (non-exited) register. Sets the entry timestamp to the current time.
+     * The active-register check is answered by the {@link ActiveSessionIndex}.
      * </p>
      *
      * @param vehicleToRegister the vehicle entering the parking lot
@@ -83,21 +131,22 @@ public class RegisterService {
      */
     @Transactional
     public Register registerVehicleEntrance(RegisterEntryRequest request) {
+        if (sessionIndex.isInside(request.vehicleId())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Register already exists for this vehicle");
+        }
+
         Vehicle vehicle = vehicleRepository.findById(request.vehicleId())
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
                         "Vehicle " + request.vehicleId() + " not found"));
 
-        boolean existingRegister = registerRepository.existsByVehicleAndExitdateIsNull(vehicle);
-        if (existingRegister) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Register already exists for this vehicle");
-        }
-
         Register register = new Register(vehicle);
         register.setEntrydate(LocalDateTime.now());
+        register.setBillingPeriod(billingPeriodService.current());
         register.setPhoneNumber(request.phoneNumber());
         register.setNotificationChannel(request.notificationChannel());
 
         Register saved = registerRepository.save(register);
+        sessionIndex.recordEntry(vehicle.getId(), saved.getId(), saved.getEntrydate());
         log.info("Vehicle {} entered parking - Register #{}", vehicle.getId(), saved.getId());
 
         if (saved.getPhoneNumber() != null && !saved.getPhoneNumber().isBlank()) {
@@ -111,101 +160,112 @@ public class RegisterService {
      * Processes a vehicle's departure from the parking lot.
      * <p>
      * Finds the active register (no exit date) for the vehicle, sets the exit timestamp,
-     * and calculates the total parked time in minutes.
+     * and calculates the total parked time in minutes. If the register has a phone number,
+     * the exit notification is queued in the outbox within the same transaction.
      * </p>
      *
      * @param vehicle the vehicle leaving the parking lot
      * @return the updated {@link Register} with exit date and minutes calculated
      * @throws ResponseStatusException with {@code 400 BAD_REQUEST} if no active register exists for the vehicle
      */
+    @Transactional
     public Register leaveVehicle(Vehicle vehicle) {
-        Register existing = registerRepository.findByVehicleAndExitdateIsNull(vehicle)
+        Register existing = findActiveRegister(vehicle.getId())
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST,
                         "No active register found for vehicle"));
 
-        existing.setExitdate(LocalDateTime.now());
-        int minutes = (int) ChronoUnit.MINUTES.between(existing.getEntrydate(), existing.getExitdate());
-        existing.setMinutes(minutes);
-
-        Register saved = registerRepository.save(existing);
+        Register saved = closeRegister(existing);
+        int minutes = saved.getMinutes();
         log.info("Vehicle {} left parking after {} minutes - Register #{}", vehicle.getId(), minutes, saved.getId());
 
         if (saved.getPhoneNumber() != null && !saved.getPhoneNumber().isBlank()) {
             double amount = parkingService.calculatePaymentForRegister(saved);
-            String payUrl = stripePaymentLinkService.createPaymentLink(amount, saved.getId());
-            if (payUrl == null) {
-                payUrl = frontendUrl + "/pay/" + saved.getId();
-            }
-            if ("whatsapp".equals(saved.getNotificationChannel())) {
-                smsNotificationService.sendExitWhatsApp(
-                        saved.getPhoneNumber(), vehicle.getId(), minutes, amount, payUrl);
-            } else {
-                smsNotificationService.sendExitSms(
-                        saved.getPhoneNumber(), vehicle.getId(), minutes, amount, payUrl);
-            }
+            outboxService.enqueueExit(saved, saved.getPhoneNumber(), saved.getNotificationChannel(), amount);
         }
 
         return saved;
     }
 
     /**
-     * Closes the active register for a vehicle and sends a Stripe Payment Link
-     * to the provided phone number via the specified channel (sms/whatsapp).
+     * Closes the active register for a vehicle and queues a Stripe Payment Link
+     * for the provided phone number via the specified channel (sms/whatsapp).
+     * <p>
+     * If the vehicle already left, the link is queued for its most recent register.
+     * The link is created and sent asynchronously by the {@link NotificationDispatcher}.
+     * </p>
      */
+    @Transactional
     public void leaveVehicleAndSendLink(SendPaymentLinkRequest request) {
-        Vehicle vehicle = vehicleRepository.findById(request.vehicleId())
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
-                        "Vehicle " + request.vehicleId() + " not found"));
-
         Register saved;
-        java.util.Optional<Register> activeOpt = registerRepository.findByVehicleAndExitdateIsNull(vehicle);
+        Optional<Register> activeOpt = findActiveRegister(request.vehicleId());
 
         if (activeOpt.isPresent()) {
             // Vehicle still inside — close the register
-            Register active = activeOpt.get();
-            active.setExitdate(LocalDateTime.now());
-            int minutes = (int) ChronoUnit.MINUTES.between(active.getEntrydate(), active.getExitdate());
-            active.setMinutes(minutes);
-            saved = registerRepository.save(active);
+            saved = closeRegister(activeOpt.get());
         } else {
             // Vehicle already exited — use most recent completed register
-            saved = registerRepository.findTopByVehicleOrderByExitdateDesc(vehicle)
+            Vehicle registered = vehicleRepository.findById(request.vehicleId())
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
+                            "Vehicle " + request.vehicleId() + " not found"));
+            saved = registerRepository.findTopByVehicleOrderByExitdateDesc(registered)
                     .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST,
                             "No registers found for vehicle"));
         }
 
         double amount = parkingService.calculatePaymentForRegister(saved);
-        String payUrl = stripePaymentLinkService.createPaymentLink(amount, saved.getId());
-        if (payUrl == null) {
-            payUrl = frontendUrl + "/pay/" + saved.getId();
-        }
-
-        int minutes = saved.getMinutes();
-        log.info("Sending payment link for register #{} to {} via {}", saved.getId(), request.phoneNumber(), request.channel());
-        if ("whatsapp".equalsIgnoreCase(request.channel())) {
-            smsNotificationService.sendExitWhatsApp(request.phoneNumber(), vehicle.getId(), minutes, amount, payUrl);
-        } else {
-            smsNotificationService.sendExitSms(request.phoneNumber(), vehicle.getId(), minutes, amount, payUrl);
-        }
+        log.info("Queueing payment link for register #{} to {} via {}", saved.getId(), request.phoneNumber(), request.channel());
+        outboxService.enqueueExit(saved, request.phoneNumber(), request.channel(), amount);
     }
 
     /**
      * Closes the active register for a vehicle without sending any notification (cash payment).
      */
+    @Transactional
     public void leaveVehicleCash(String vehicleId) {
-        Vehicle vehicle = vehicleRepository.findById(vehicleId)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
-                        "Vehicle " + vehicleId + " not found"));
+        Register existing = findActiveRegister(vehicleId)
+                .orElseThrow(() -> vehicleRepository.existsById(vehicleId)
+                        ? new ResponseStatusException(HttpStatus.BAD_REQUEST, "No active register found for vehicle")
+                        : new ResponseStatusException(HttpStatus.NOT_FOUND, "Vehicle " + vehicleId + " not found"));
 
-        Register existing = registerRepository.findByVehicleAndExitdateIsNull(vehicle)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST,
-                        "No active register found for vehicle"));
+        Register saved = closeRegister(existing);
 
-        existing.setExitdate(LocalDateTime.now());
-        int minutes = (int) ChronoUnit.MINUTES.between(existing.getEntrydate(), existing.getExitdate());
-        existing.setMinutes(minutes);
-        registerRepository.save(existing);
+        log.info("Cash payment registered for vehicle {} - {} minutes", vehicleId, saved.getMinutes());
+    }
 
-        log.info("Cash payment registered for vehicle {} - {} minutes", vehicleId, minutes);
+    /**
+     * Resolves the open register of a vehicle through the {@link ActiveSessionIndex}.
+     * <p>
+     * A vehicle that is not in the index is not inside the parking lot, so no query is issued.
+     * Otherwise the register is loaded by primary key together with its vehicle, which is
+     * needed to price it.
+     * </p>
+     *
+     * @param vehicleId the license plate of the vehicle
+     * @return the open register, or empty if the vehicle is not inside
+     */
+    private Optional<Register> findActiveRegister(String vehicleId) {
+        return sessionIndex.find(vehicleId)
+                .flatMap(session -> registerRepository.findWithVehicleById(session.registerId()))
+                .filter(register -> register.getExitdate() == null);
+    }
+
+    /**
+     * Sets the exit timestamp and parked minutes on an open register, moves it to the
+     * current billing period, saves it, adds it to the {@link UsageRollupService} and removes the
+     * vehicle from the {@link ActiveSessionIndex}.
+     *
+     * @param register the open register to close
+     * @return the saved register
+     */
+    private Register closeRegister(Register register) {
+        register.setExitdate(LocalDateTime.now());
+        int minutes = (int) ChronoUnit.MINUTES.between(register.getEntrydate(), register.getExitdate());
+        register.setMinutes(minutes);
+        register.setBillingPeriod(billingPeriodService.current());
+
+        Register saved = registerRepository.save(register);
+        usageRollupService.recordClose(saved);
+        sessionIndex.recordExit(saved.getVehicle().getId(), saved.getId());
+        return saved;
     }
 }
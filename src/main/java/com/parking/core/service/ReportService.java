@@ -1,76 +1,223 @@
 package com.parking.core.service;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
+import com.parking.core.enums.ReportFormat;
 import com.parking.core.enums.VehicleType;
-import com.parking.core.model.Register;
-import com.parking.core.model.Vehicle;
-import com.parking.core.repository.RegisterRepository;
+import com.parking.core.model.dto.VehicleBill;
+import com.parking.core.repository.VehicleUsageRollupRepository;
 
+/**
+ * Service layer for the monthly resident report.
+ * <p>
+ * The report is produced as a stream: per-vehicle totals are read from the usage rollup,
+ * one row per vehicle and billing period, with a JDBC fetch size, and each row is encoded into a
+ * fixed-size buffer that is drained to a {@link WritableByteChannel} whenever it fills up.
+ * Memory use does not depend on the number of resident vehicles, and the time spent does not
+ * depend on the number of sessions they parked. The report can be
+ * written as text or CSV, optionally gzip-compressed, to a file or straight to an HTTP response.
+ * </p>
+ *
+ * @see ReportFormat
+ */
 @Service
 public class ReportService {
-    private final RegisterRepository registerRepository;
 
-    public ReportService(RegisterRepository registerRepository){
-        this.registerRepository = registerRepository;
+    private static final Logger log = LoggerFactory.getLogger(ReportService.class);
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String REPORT_PATH = "./reports/informe_estacionamiento.txt";
+
+    private final VehicleUsageRollupRepository rollupRepository;
+    private final BillingPeriodService billingPeriodService;
+
+    public ReportService(VehicleUsageRollupRepository rollupRepository, BillingPeriodService billingPeriodService){
+        this.rollupRepository = rollupRepository;
+        this.billingPeriodService = billingPeriodService;
     }
 
-    
-    
     /**
      * Generates a monthly report for all resident vehicles and writes it to a text file.
      * <p>
      * The report includes the license plate number, total parked time in minutes, and the amount to pay
-     * for each resident vehicle. The report is saved in the "./reports/informe_estacionamiento.txt" file.
+     * for each resident vehicle in the current billing period. The report is saved in the
+     * "./reports/informe_estacionamiento.txt" file.
      * </p>
      *
      * @return the generated report file
      * @throws ResponseStatusException if there are no resident vehicles or if an I/O error occurs
      */
+    @Transactional(readOnly = true)
     public File generateReportMonthly() {
-        List<Register> registers = registerRepository.findAllByVehicle_Type(VehicleType.RESIDENT);
-
-        if(registers.isEmpty()) throw new ResponseStatusException(HttpStatus.BAD_REQUEST,"There are not resident vehicles");
+        requireResidents();
 
-        File file = new File("./reports/informe_estacionamiento.txt");
+        File file = new File(REPORT_PATH);
         file.getParentFile().mkdirs();
 
-        try(PrintWriter writer = new PrintWriter(new FileWriter(file))){
-            writer.printf("%-12s %-25s %-20s%n","Num placa", "Tiempo estacionado (min)", "Cantidad a pagar");
-            writer.println("----------------------------------------------");
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeRows(ReportFormat.TXT, channel);
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, e.getMessage());
+        }
+        return file;
+    }
+
+    /**
+     * Checks that the current billing period has closed resident sessions to report on.
+     *
+     * @throws ResponseStatusException with {@code 400 BAD_REQUEST} if there are none
+     */
+    public void requireResidents() {
+        if (!rollupRepository.existsByTypeAndPeriod(VehicleType.RESIDENT, billingPeriodService.current())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "There are not resident vehicles");
+        }
+    }
+
+    /**
+     * Streams the monthly resident report to an output stream.
+     * <p>
+     * The stream is not closed, but a gzip trailer is written when {@code gzip} is {@code true}.
+     * </p>
+     *
+     * @param format the output format
+     * @param gzip   whether to gzip-compress the output
+     * @param out    the destination, e.g. an HTTP response body
+     * @throws IOException if writing fails
+     */
+    @Transactional(readOnly = true)
+    public void writeReportMonthly(ReportFormat format, boolean gzip, OutputStream out) throws IOException {
+        if (gzip) {
+            GZIPOutputStream compressed = new GZIPOutputStream(out, BUFFER_SIZE);
+            writeRows(format, Channels.newChannel(compressed));
+            compressed.finish();
+        } else {
+            writeRows(format, Channels.newChannel(out));
+        }
+        out.flush();
+    }
+
+    private void writeRows(ReportFormat format, WritableByteChannel channel) throws IOException {
+        ChannelWriter writer = new ChannelWriter(channel);
+        if (format == ReportFormat.CSV) {
+            writer.write("plate,minutes,sessions,amount\n");
+        } else {
+            writer.write(String.format("%-12s %-25s %-20s%n", "Num placa", "Tiempo estacionado (min)", "Cantidad a pagar"));
+            writer.write("----------------------------------------------" + System.lineSeparator());
+        }
 
-            Map<Vehicle,Integer> totalminutesByvehicle = new HashMap<>();
-            for (Register register : registers) {
-                totalminutesByvehicle.merge(register.getVehicle(), register.getMinutes(), Integer::sum);
+        long rows = 0;
+        StringBuilder line = new StringBuilder(64);
+        try (Stream<VehicleBill> bills = rollupRepository.streamBillsByType(
+                VehicleType.RESIDENT, billingPeriodService.current())) {
+            Iterator<VehicleBill> iterator = bills.iterator();
+            while (iterator.hasNext()) {
+                VehicleBill bill = iterator.next();
+                long amount = bill.amountMinor();
+                line.setLength(0);
+                if (format == ReportFormat.CSV) {
+                    appendCsvText(line, bill.vehicleId()).append(',').append(bill.minutes()).append(',')
+                            .append(bill.sessions()).append(',');
+                    appendMajorUnits(line, amount).append('\n');
+                } else {
+                    line.append(String.format("%-12s %-25d %-20.2f%n",
+                            bill.vehicleId(), bill.minutes(), PricingEngine.toMajorUnits(amount)));
+                }
+                writer.write(line);
+                rows++;
             }
-            for (Map.Entry<Vehicle,Integer> entry : totalminutesByvehicle.entrySet()) {
-                Vehicle vehicle = entry.getKey();
-                Integer minutes = entry.getValue();
-                double payment = BigDecimal.valueOf(minutes * 0.05).setScale(2, RoundingMode.HALF_UP).doubleValue();
+        }
+        writer.flush();
+        log.info("Monthly report written: {} resident vehicles ({})", rows, format);
+    }
 
-                writer.printf("%-12s %-25d %-20.2f%n",
-                    vehicle.getId(), minutes, payment);
+    /**
+     * Appends a text field quoted per RFC 4180, doubling embedded quotes. A field starting with
+     * {@code =}, {@code +}, {@code -}, {@code @}, a tab or a carriage return is prefixed with
+     * {@code '} so spreadsheets show it as text instead of evaluating it as a formula.
+     */
+    static StringBuilder appendCsvText(StringBuilder line, String value) {
+        line.append('"');
+        if (value != null) {
+            if (!value.isEmpty() && "=+-@\t\r".indexOf(value.charAt(0)) >= 0) {
+                line.append('\'');
+            }
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"') {
+                    line.append('"');
+                }
+                line.append(c);
             }
+        }
+        return line.append('"');
+    }
 
+    private static StringBuilder appendMajorUnits(StringBuilder line, long minor) {
+        long cents = Math.abs(minor % PricingEngine.MINOR_UNITS_PER_MAJOR);
+        if (minor < 0) {
+            line.append('-');
         }
-        
-        catch (IOException e) {
-            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,e.getMessage());
+        return line.append(Math.abs(minor / PricingEngine.MINOR_UNITS_PER_MAJOR))
+                .append('.').append(cents < 10 ? "0" : "").append(cents);
+    }
+
+    /**
+     * UTF-8 encodes text into a reusable buffer and drains it to a channel when full.
+     */
+    private static final class ChannelWriter {
+        private final WritableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+
+        ChannelWriter(WritableByteChannel channel) {
+            this.channel = channel;
         }
-        
 
-        return file;
+        void write(CharSequence text) throws IOException {
+            CharBuffer chars = CharBuffer.wrap(text);
+            while (true) {
+                CoderResult result = encoder.encode(chars, buffer, false);
+                if (result.isOverflow()) {
+                    drain();
+                } else if (result.isUnderflow()) {
+                    return;
+                } else {
+                    result.throwException();
+                }
+            }
+        }
+
+        void flush() throws IOException {
+            drain();
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
     }
 }
@@ -5,6 +5,7 @@ import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.time.Duration;
 import java.time.format.DateTimeFormatter;
 import java.time.LocalDateTime;
 
@@ -25,6 +26,11 @@ public class SmsNotificationService {
 
     private static final Logger log = LoggerFactory.getLogger(SmsNotificationService.class);
     private static final DateTimeFormatter TIME_FMT = DateTimeFormatter.ofPattern("HH:mm");
+    private static final Duration SHORTENER_TIMEOUT = Duration.ofSeconds(5);
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(SHORTENER_TIMEOUT)
+            .build();
 
     @Nullable
     private final TwilioInitializer twilioInitializer;
@@ -52,27 +58,37 @@ public class SmsNotificationService {
         sendSms(phoneNumber, message);
     }
 
-    public void sendExitSms(String phoneNumber, String plate, int minutes, double amount, String payUrl) {
+    /**
+     * Sends the exit SMS with the shortened payment link.
+     *
+     * @return {@code false} if the provider call failed and the message may be retried
+     */
+    public boolean sendExitSms(String phoneNumber, String plate, int minutes, double amount, String payUrl) {
         String message = String.format(
                 "%s - Vehiculo %s. Duracion: %dmin. Total: $%.0f. Pague aqui: %s",
                 parkingName, plate, minutes, amount, shortenUrl(payUrl));
-        sendSms(phoneNumber, message);
+        return sendSms(phoneNumber, message);
     }
 
-    public void sendExitWhatsApp(String phoneNumber, String plate, int minutes, double amount, String payUrl) {
+    /**
+     * Sends the exit WhatsApp message with the shortened payment link.
+     *
+     * @return {@code false} if the provider call failed and the message may be retried
+     */
+    public boolean sendExitWhatsApp(String phoneNumber, String plate, int minutes, double amount, String payUrl) {
         String message = String.format(
                 "%s - Vehiculo %s. Duracion: %dmin. Total: $%.0f. Pague aqui: %s",
                 parkingName, plate, minutes, amount, shortenUrl(payUrl));
-        sendWhatsApp(phoneNumber, message);
+        return sendWhatsApp(phoneNumber, message);
     }
 
     private String shortenUrl(String url) {
         try {
             HttpRequest req = HttpRequest.newBuilder()
                     .uri(URI.create("https://tinyurl.com/api-create.php?url=" + url))
+                    .timeout(SHORTENER_TIMEOUT)
                     .GET().build();
-            String shortened = HttpClient.newHttpClient()
-                    .send(req, HttpResponse.BodyHandlers.ofString()).body();
+            String shortened = httpClient.send(req, HttpResponse.BodyHandlers.ofString()).body();
             if (shortened != null && shortened.startsWith("https://")) {
                 log.info("URL shortened: {}", shortened);
                 return shortened;
@@ -89,11 +105,11 @@ public class SmsNotificationService {
         return digits.startsWith("+") ? digits : "+57" + digits;
     }
 
-    private void sendSms(String phoneNumber, String message) {
+    private boolean sendSms(String phoneNumber, String message) {
         phoneNumber = normalizePhone(phoneNumber);
         if (twilioInitializer == null) {
             log.warn("SMS not sent (Twilio not configured): {}", phoneNumber);
-            return;
+            return true;
         }
         try {
             MessageCreator creator = (messagingServiceSid != null && !messagingServiceSid.isBlank())
@@ -101,16 +117,18 @@ public class SmsNotificationService {
                     : Message.creator(new PhoneNumber(phoneNumber), new PhoneNumber(twilioPhoneNumber), message);
             creator.create();
             log.info("SMS sent to {}", phoneNumber);
+            return true;
         } catch (Exception e) {
             log.error("Failed to send SMS to {}: {}", phoneNumber, e.getMessage());
+            return false;
         }
     }
 
-    private void sendWhatsApp(String phoneNumber, String message) {
+    private boolean sendWhatsApp(String phoneNumber, String message) {
         phoneNumber = normalizePhone(phoneNumber);
         if (twilioInitializer == null) {
             log.warn("WhatsApp not sent (Twilio not configured): {}", phoneNumber);
-            return;
+            return true;
         }
         try {
             Message.creator(
@@ -119,8 +137,10 @@ public class SmsNotificationService {
                     message
             ).create();
             log.info("WhatsApp sent to {}", phoneNumber);
+            return true;
         } catch (Exception e) {
             log.error("Failed to send WhatsApp to {}: {}", phoneNumber, e.getMessage());
+            return false;
         }
     }
 }
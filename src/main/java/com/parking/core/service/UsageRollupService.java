@@ -0,0 +1,113 @@
+package com.parking.core.service;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.parking.core.enums.VehicleType;
+import com.parking.core.model.Register;
+import com.parking.core.model.VehicleUsageRollup;
+import com.parking.core.repository.VehicleUsageRollupRepository;
+
+/**
+ * Service layer maintaining the per-vehicle, per-billing-period {@link VehicleUsageRollup}.
+ * <p>
+ * Every closed register is added to the row of its vehicle and billing period in the
+ * transaction that closes it, with a single atomic {@code INSERT ... ON CONFLICT DO UPDATE SET
+ * x = x + ?} that also creates the row on the first close of the period. Readers therefore touch
+ * one row per vehicle and period, whatever the number of sessions.
+ * </p>
+ *
+ * @see RegisterService
+ * @see GateEventBatchService
+ */
+@Service
+public class UsageRollupService {
+
+    private static final Logger log = LoggerFactory.getLogger(UsageRollupService.class);
+
+    private final VehicleUsageRollupRepository rollupRepository;
+    private final PricingEngine pricingEngine;
+
+    public UsageRollupService(VehicleUsageRollupRepository rollupRepository, PricingEngine pricingEngine) {
+        this.rollupRepository = rollupRepository;
+        this.pricingEngine = pricingEngine;
+    }
+
+    /**
+     * Adds a closed register to the rollup row of its vehicle and billing period.
+     *
+     * @param register the register that has just been closed
+     */
+    @Transactional
+    public void recordClose(Register register) {
+        add(register.getVehicle().getId(), register.getBillingPeriod(),
+                register.getMinutes(), 1, pricingEngine.priceMinor(register));
+    }
+
+    /**
+     * Adds many closed registers, issuing one upsert per vehicle and billing period.
+     *
+     * @param registers the registers that have just been closed
+     */
+    @Transactional
+    public void recordCloses(Collection<Register> registers) {
+        Map<Key, long[]> totals = new LinkedHashMap<>();
+        for (Register register : registers) {
+            long[] total = totals.computeIfAbsent(
+                    new Key(register.getVehicle().getId(), register.getBillingPeriod()), key -> new long[3]);
+            total[0] += register.getMinutes();
+            total[1]++;
+            total[2] += pricingEngine.priceMinor(register);
+        }
+        totals.forEach((key, total) -> add(key.vehicleId(), key.period(), total[0], total[1], total[2]));
+    }
+
+    /**
+     * Recomputes the rollup rows of the given billing periods from the closed registers.
+     * <p>
+     * This is the backfill command: existing rows of the periods are deleted and re-inserted
+     * with a single {@code INSERT ... SELECT ... GROUP BY}. Amounts are priced with the current
+     * vehicle types, and official registers that were already purged are no longer counted.
+     * A close committed while the rebuild runs can make the rebuild fail on the primary key, so
+     * it is meant for quiet periods.
+     * </p>
+     *
+     * @param fromPeriod the first billing period to rebuild, inclusive
+     * @param toPeriod   the last billing period to rebuild, inclusive
+     * @return the number of rollup rows written
+     */
+    @Transactional
+    public int rebuild(long fromPeriod, long toPeriod) {
+        int deleted = rollupRepository.deleteByPeriodBetween(fromPeriod, toPeriod);
+        int inserted = rollupRepository.insertFromRegisters(fromPeriod, toPeriod,
+                pricingEngine.ratePerMinute(VehicleType.OFICIAL),
+                pricingEngine.ratePerMinute(VehicleType.RESIDENT),
+                pricingEngine.ratePerMinute(VehicleType.NON_RESIDENT));
+        log.info("Usage rollup rebuilt for periods [{}, {}]: {} rows deleted, {} rows written",
+                fromPeriod, toPeriod, deleted, inserted);
+        return inserted;
+    }
+
+    /**
+     * Recomputes every rollup row from the closed registers.
+     *
+     * @return the number of rollup rows written
+     * @see #rebuild(long, long)
+     */
+    @Transactional
+    public int rebuildAll() {
+        return rebuild(0, Long.MAX_VALUE);
+    }
+
+    private void add(String vehicleId, long period, long minutes, long sessions, long amount) {
+        rollupRepository.add(vehicleId, period, minutes, sessions, amount);
+    }
+
+    private record Key(String vehicleId, long period) {}
+}
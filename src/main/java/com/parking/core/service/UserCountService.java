@@ -0,0 +1,64 @@
+package com.parking.core.service;
+
+import java.time.Instant;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.parking.core.repository.UserRepository;
+
+/**
+ * Keeps the total number of users in memory for the paginated user listings.
+ * <p>
+ * The count is refreshed with one {@code COUNT(*)} every {@code parking.users.count-refresh-ms},
+ * so listing pages never count the table themselves. The value may lag behind sign-ups and
+ * deletions by up to one refresh interval.
+ * </p>
+ *
+ * @see UserService#getUsersSlice(String, int)
+ */
+@Service
+public class UserCountService {
+
+    private static final Logger log = LoggerFactory.getLogger(UserCountService.class);
+
+    private final UserRepository userRepository;
+    private volatile Snapshot snapshot;
+
+    public UserCountService(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * @return the number of users as of the last refresh, counting them now if never refreshed
+     */
+    public long total() {
+        Snapshot current = snapshot;
+        return current != null ? current.total() : refresh();
+    }
+
+    /**
+     * @return when the count was last refreshed, or {@code null} if it never was
+     */
+    public Instant refreshedAt() {
+        Snapshot current = snapshot;
+        return current != null ? current.refreshedAt() : null;
+    }
+
+    /**
+     * Recounts the users.
+     *
+     * @return the new count
+     */
+    @Scheduled(fixedDelayString = "${parking.users.count-refresh-ms:60000}")
+    public long refresh() {
+        long total = userRepository.count();
+        snapshot = new Snapshot(total, Instant.now());
+        log.debug("Refreshed user count: {}", total);
+        return total;
+    }
+
+    private record Snapshot(long total, Instant refreshedAt) {}
+}
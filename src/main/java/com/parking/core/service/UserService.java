@@ -1,26 +1,36 @@
 package com.parking.core.service;
 
 import java.util.List;
+import java.util.Locale;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 
+import com.parking.core.auth.services.TokenEpochService;
+import com.parking.core.auth.services.UserDetailsCache;
+import com.parking.core.enums.Roles;
 import com.parking.core.model.User;
 import com.parking.core.model.Response.PageResponse;
+import com.parking.core.model.dto.UserCursor;
+import com.parking.core.model.dto.UserDTO;
+import com.parking.core.model.dto.UserSlice;
 import com.parking.core.repository.UserRepository;
 
 /**
  * Service layer for user management operations.
  * <p>
  * Provides methods to retrieve users by different criteria (name, username, email),
- * list all users, and support paginated queries.
+ * search users by text, list all users, support offset and keyset paginated queries and
+ * change a user's role.
  * </p>
  *
  * @see User
@@ -31,20 +41,29 @@ public class UserService {
 
     private static final Logger log = LoggerFactory.getLogger(UserService.class);
 
+    private static final int MIN_SUBSTRING_LENGTH = 3;
+
     private final UserRepository userRepository;
+    private final UserDetailsCache userDetailsCache;
+    private final TokenEpochService tokenEpochService;
+    private final UserCountService userCountService;
 
-    public UserService(UserRepository userRepository) {
+    public UserService(UserRepository userRepository, UserDetailsCache userDetailsCache,
+                       TokenEpochService tokenEpochService, UserCountService userCountService) {
         this.userRepository = userRepository;
+        this.userDetailsCache = userDetailsCache;
+        this.tokenEpochService = tokenEpochService;
+        this.userCountService = userCountService;
     }
 
     /**
-     * Searches for a user by name, username, or email using a fallback chain.
+     * Searches for a user by name, username, or email in a single, case-insensitive query.
      * <p>
-     * The search is performed in the following order:
+     * When several users match, the first one is chosen in the following order:
      * <ol>
      *   <li>By name</li>
-     *   <li>By username (if not found by name)</li>
-     *   <li>By email (if not found by username)</li>
+     *   <li>By username</li>
+     *   <li>By email</li>
      * </ol>
      * </p>
      *
@@ -55,13 +74,36 @@ public class UserService {
      * @throws ResponseStatusException with {@code 404 NOT_FOUND} if no user matches any criteria
      */
     public User getUser(String name, String username, String email) {
-        return userRepository
-                .findByName(name)
-                .or(() -> userRepository.findByUsername(username))
-                .or(() -> userRepository.findByEmail(email))
+        return userRepository.lookup(name, username, email, Limit.of(1)).stream()
+                .findFirst()
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
     }
 
+    /**
+     * Searches users whose name, username or email contains the query, ignoring case.
+     * <p>
+     * Queries shorter than {@value #MIN_SUBSTRING_LENGTH} characters only match prefixes, since
+     * trigram indexes cannot serve shorter substrings.
+     * </p>
+     *
+     * @param query the text to search for
+     * @param limit the maximum number of users to return, clamped to {@code [1, 100]}
+     * @return the matching users, sorted by username
+     * @throws ResponseStatusException with {@code 400 BAD_REQUEST} if the query is blank
+     */
+    public List<UserDTO> searchUsers(String query, int limit) {
+        if (query == null || query.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Search query is required");
+        }
+        String term = query.strip().toLowerCase(Locale.ROOT)
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+        String pattern = query.strip().length() < MIN_SUBSTRING_LENGTH ? term + "%" : "%" + term + "%";
+        int clamped = Math.max(1, Math.min(limit, 100));
+        return userRepository.search(pattern, Limit.of(clamped));
+    }
+
     /**
      * Retrieves all registered users.
      *
@@ -89,4 +131,63 @@ public class UserService {
         Page<User> page = userRepository.findAll(pageable);
         return new PageResponse<>(page.getContent(), page.getNumber(), page.getTotalPages(), page.getTotalElements());
     }
+
+    /**
+     * Lists users ordered by username, one keyset page at a time.
+     * <p>
+     * Pages are positioned with a cursor on {@code (username, email)} instead of an offset, so
+     * every page costs one indexed query regardless of its depth and never counts the table.
+     * The total comes from the periodically refreshed {@link UserCountService}.
+     * </p>
+     *
+     * @param cursor the {@code nextCursor} of the previous page, or {@code null} for the first page
+     * @param limit  the page size, clamped to {@code [1, 100]}
+     * @return the users of the page, the cursor of the next one and the cached total
+     * @throws ResponseStatusException with {@code 400 BAD_REQUEST} if the cursor is malformed
+     */
+    public UserSlice getUsersSlice(String cursor, int limit) {
+        UserCursor after = null;
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                after = UserCursor.decode(cursor);
+            } catch (IllegalArgumentException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+            }
+        }
+
+        Pageable pageable = PageRequest.ofSize(Math.max(1, Math.min(limit, 100)));
+        Slice<UserDTO> slice = after == null
+                ? userRepository.findSlice(pageable)
+                : userRepository.findSliceAfter(after.username(), after.email(), pageable);
+        String nextCursor = null;
+        if (slice.hasNext()) {
+            UserDTO last = slice.getContent().get(slice.getNumberOfElements() - 1);
+            nextCursor = new UserCursor(last.username(), last.email()).encode();
+        }
+        return new UserSlice(slice.getContent(), nextCursor, userCountService.total());
+    }
+
+    /**
+     * Changes the role of a user and evicts them from the {@link UserDetailsCache}.
+     * <p>
+     * Tokens issued before the change carry the old role in their claims, so they are
+     * revoked through {@link TokenEpochService#revokeAll(String)}.
+     * </p>
+     *
+     * @param username the username of the user
+     * @param role     the new role
+     * @return the updated {@link User}
+     * @throws ResponseStatusException with {@code 404 NOT_FOUND} if the user does not exist
+     */
+    public User changeRole(String username, Roles role) {
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+        user.setRole(role);
+        User saved = userRepository.save(user);
+        userDetailsCache.invalidate(saved.getUsername());
+        userDetailsCache.invalidate(saved.getEmail());
+        tokenEpochService.revokeAll(saved.getUsername());
+        log.info("Changed role of user {} to {}", saved.getUsername(), role);
+        return saved;
+    }
 }
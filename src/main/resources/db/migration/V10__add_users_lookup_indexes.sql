@@ -0,0 +1,11 @@
+-- Case-insensitive exact lookups of GET /users/user (lower(x) = lower(:x)) and prefix
+-- searches of GET /users/search (lower(x) LIKE 'abc%')
+CREATE INDEX IF NOT EXISTS idx_users_name_lower ON users (lower(name) text_pattern_ops);
+CREATE INDEX IF NOT EXISTS idx_users_username_lower ON users (lower(username) text_pattern_ops);
+CREATE INDEX IF NOT EXISTS idx_users_email_lower ON users (lower(email) text_pattern_ops);
+
+-- Substring searches of GET /users/search (lower(x) LIKE '%abc%')
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX IF NOT EXISTS idx_users_name_trgm ON users USING gin (lower(name) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_users_username_trgm ON users USING gin (lower(username) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_users_email_trgm ON users USING gin (lower(email) gin_trgm_ops);
@@ -0,0 +1,2 @@
+-- Keyset pagination of GET /users/scroll on (username, email); the primary key is (email, username)
+CREATE INDEX IF NOT EXISTS idx_users_username_email ON users(username, email);
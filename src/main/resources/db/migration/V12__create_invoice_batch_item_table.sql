@@ -0,0 +1,15 @@
+CREATE TABLE invoice_batch_item (
+    id          BIGSERIAL PRIMARY KEY,
+    batch_id    VARCHAR(36) NOT NULL,
+    customer    VARCHAR(255) NOT NULL,
+    currency    VARCHAR(3) NOT NULL,
+    hours       INTEGER NOT NULL,
+    price       BIGINT NOT NULL,
+    status      VARCHAR(20) NOT NULL,
+    attempts    INTEGER NOT NULL DEFAULT 0,
+    invoice_id  VARCHAR(255),
+    last_error  VARCHAR(500),
+    created_at  TIMESTAMP NOT NULL,
+    updated_at  TIMESTAMP NOT NULL,
+    CONSTRAINT uk_invoice_batch_item_customer UNIQUE (batch_id, customer)
+);
@@ -0,0 +1,7 @@
+CREATE TABLE stripe_customer (
+    username    VARCHAR(255) NOT NULL,
+    email       VARCHAR(255) NOT NULL UNIQUE,
+    customer_id VARCHAR(255) NOT NULL UNIQUE,
+    created_at  TIMESTAMP NOT NULL,
+    PRIMARY KEY (username, email)
+);
@@ -0,0 +1,11 @@
+CREATE TABLE stripe_webhook_event (
+    event_id     VARCHAR(255) PRIMARY KEY,
+    type         VARCHAR(100) NOT NULL,
+    payload      TEXT NOT NULL,
+    status       VARCHAR(20) NOT NULL,
+    last_error   VARCHAR(500),
+    received_at  TIMESTAMP NOT NULL,
+    processed_at TIMESTAMP
+);
+
+CREATE INDEX idx_webhook_event_status_received ON stripe_webhook_event(status, received_at);
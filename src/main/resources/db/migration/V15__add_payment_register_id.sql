@@ -0,0 +1,3 @@
+-- Links pay-page payments to their register, so an open intent is reused instead of recreated
+ALTER TABLE payment ADD COLUMN register_id BIGINT;
+CREATE INDEX IF NOT EXISTS idx_payment_register_id ON payment(register_id);
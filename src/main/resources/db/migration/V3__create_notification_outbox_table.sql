@@ -0,0 +1,18 @@
+CREATE TABLE notification_outbox (
+    id              BIGSERIAL PRIMARY KEY,
+    register_id     BIGINT NOT NULL,
+    vehicle_id      VARCHAR(255) NOT NULL,
+    phone_number    VARCHAR(255) NOT NULL,
+    channel         VARCHAR(20) NOT NULL,
+    minutes         INTEGER NOT NULL,
+    amount          DOUBLE PRECISION NOT NULL,
+    pay_url         VARCHAR(500),
+    status          VARCHAR(20) NOT NULL,
+    attempts        INTEGER NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP NOT NULL,
+    last_error      VARCHAR(500),
+    created_at      TIMESTAMP NOT NULL,
+    sent_at         TIMESTAMP
+);
+
+CREATE INDEX idx_outbox_status_next_attempt ON notification_outbox(status, next_attempt_at);
@@ -0,0 +1,2 @@
+-- Covers the per-vehicle SUM/COUNT aggregates (optionally bounded by entry date)
+CREATE INDEX IF NOT EXISTS idx_register_vehicle_entrydate ON register(vehicle_id, entrydate) INCLUDE (minutes);
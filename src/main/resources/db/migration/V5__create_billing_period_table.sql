@@ -0,0 +1,12 @@
+CREATE TABLE billing_period (
+    id         BIGINT PRIMARY KEY,
+    started_at TIMESTAMP NOT NULL,
+    purged_at  TIMESTAMP
+);
+
+INSERT INTO billing_period (id, started_at) VALUES (1, now());
+
+-- Existing registers belong to the first period
+ALTER TABLE register ADD COLUMN IF NOT EXISTS billing_period BIGINT NOT NULL DEFAULT 1;
+
+CREATE INDEX IF NOT EXISTS idx_register_vehicle_period ON register(vehicle_id, billing_period) INCLUDE (minutes);
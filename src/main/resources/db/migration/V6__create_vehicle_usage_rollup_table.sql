@@ -0,0 +1,22 @@
+CREATE TABLE IF NOT EXISTS vehicle_usage_rollup (
+    vehicle_id     VARCHAR(255) NOT NULL,
+    billing_period BIGINT       NOT NULL,
+    total_minutes  BIGINT       NOT NULL,
+    sessions       BIGINT       NOT NULL,
+    amount_due     BIGINT       NOT NULL,
+    PRIMARY KEY (vehicle_id, billing_period)
+);
+
+-- Serves the monthly report, which reads one period ordered by plate
+CREATE INDEX IF NOT EXISTS idx_rollup_period_vehicle ON vehicle_usage_rollup(billing_period, vehicle_id);
+
+-- Backfill from the closed registers with the default per-minute rates (minor units);
+-- re-run POST /api/v1/parking/reports/rollup/rebuild if parking.pricing.* is overridden
+INSERT INTO vehicle_usage_rollup (vehicle_id, billing_period, total_minutes, sessions, amount_due)
+SELECT r.vehicle_id, r.billing_period, SUM(r.minutes), COUNT(*),
+       SUM(r.minutes) * CASE v.type WHEN 'OFICIAL' THEN 0 WHEN 'RESIDENT' THEN 5 ELSE 50 END
+FROM register r
+JOIN vehicle v ON v.id = r.vehicle_id
+WHERE r.exitdate IS NOT NULL
+GROUP BY r.vehicle_id, r.billing_period, v.type
+ON CONFLICT (vehicle_id, billing_period) DO NOTHING;
@@ -0,0 +1,9 @@
+-- Keyset pagination of GET /registers, newest first on (entrydate, id)
+CREATE INDEX IF NOT EXISTS idx_register_entrydate_id ON register(entrydate, id);
+
+-- Same order restricted to open registers (open=true)
+CREATE INDEX IF NOT EXISTS idx_register_open_entrydate_id ON register(entrydate, id) WHERE exitdate IS NULL;
+
+-- Filter by vehicle keeps the keyset order without a sort
+DROP INDEX IF EXISTS idx_register_vehicle_entrydate;
+CREATE INDEX IF NOT EXISTS idx_register_vehicle_entrydate ON register(vehicle_id, entrydate, id) INCLUDE (minutes);
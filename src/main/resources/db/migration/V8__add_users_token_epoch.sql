@@ -0,0 +1,2 @@
+-- Per-user token epoch: tokens carrying an older epoch are revoked
+ALTER TABLE users ADD COLUMN IF NOT EXISTS token_epoch INTEGER NOT NULL DEFAULT 0;
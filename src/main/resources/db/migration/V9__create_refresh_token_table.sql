@@ -0,0 +1,13 @@
+CREATE TABLE refresh_token (
+    id          BIGSERIAL PRIMARY KEY,
+    token_hash  VARCHAR(64) NOT NULL UNIQUE,
+    family_id   VARCHAR(36) NOT NULL,
+    username    VARCHAR(255) NOT NULL,
+    token_epoch INTEGER NOT NULL,
+    expires_at  TIMESTAMP NOT NULL,
+    used_at     TIMESTAMP,
+    revoked     BOOLEAN NOT NULL DEFAULT FALSE
+);
+
+CREATE INDEX idx_refresh_token_family ON refresh_token(family_id);
+CREATE INDEX idx_refresh_token_expires_at ON refresh_token(expires_at);
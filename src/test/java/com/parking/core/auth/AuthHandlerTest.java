@@ -1,13 +1,16 @@
 package com.parking.core.auth;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.junit.jupiter.api.DisplayName;
@@ -25,8 +28,14 @@ import org.springframework.web.server.ResponseStatusException;
 import com.parking.core.auth.model.BlackListToken;
 import com.parking.core.auth.model.Response.AuthResponse;
 import com.parking.core.auth.services.AuthService;
+import com.parking.core.auth.services.BulkSignUpService;
 import com.parking.core.auth.services.JWTAuthFilter;
 import com.parking.core.auth.services.JWTService;
+import com.parking.core.auth.services.RefreshTokenService;
+import com.parking.core.auth.services.TokenEpochService;
+
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
 
 @WebMvcTest(AuthHandler.class)
 @AutoConfigureMockMvc(addFilters = false)
@@ -44,6 +53,15 @@ class AuthHandlerTest {
     @MockitoBean
     private JWTService jwtService;
 
+    @MockitoBean
+    private TokenEpochService tokenEpochService;
+
+    @MockitoBean
+    private RefreshTokenService refreshTokenService;
+
+    @MockitoBean
+    private BulkSignUpService bulkSignUpService;
+
     @MockitoBean
     private JWTAuthFilter jwtAuthFilter;
 
@@ -66,42 +84,15 @@ class AuthHandlerTest {
     }
 
     @Test
-    @DisplayName("POST /signUp/bulk - all success")
+    @DisplayName("POST /signUp/bulk - returns one result per request")
     void signUpBulk_success() throws Exception {
         Map<String, Object> r1 = new HashMap<>();
+        r1.put("status", 201);
         r1.put("user", new AuthResponse("A", "a@t.com", "a", "USER"));
         r1.put("token", "t1");
-        Map<String, Object> r2 = new HashMap<>();
-        r2.put("user", new AuthResponse("B", "b@t.com", "b", "USER"));
-        r2.put("token", "t2");
+        Map<String, Object> r2 = Map.of("status", 400, "username", "b", "message", "Duplicate user");
 
-        when(authService.signUp(any()))
-                .thenReturn(r1)
-                .thenReturn(r2);
-
-        mockMvc.perform(post("/api/v1/parking/auth/signUp/bulk")
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .content("""
-                                [
-                                    {"name":"A","username":"a","email":"a@t.com","password":"Password1"},
-                                    {"name":"B","username":"b","email":"b@t.com","password":"Password2"}
-                                ]
-                                """))
-                .andExpect(status().isOk())
-                .andExpect(jsonPath("$.processed").value(2))
-                .andExpect(jsonPath("$.results.length()").value(2));
-    }
-
-    @Test
-    @DisplayName("POST /signUp/bulk - partial failure (ResponseStatusException)")
-    void signUpBulk_partialFail() throws Exception {
-        Map<String, Object> r1 = new HashMap<>();
-        r1.put("user", new AuthResponse("A", "a@t.com", "a", "USER"));
-        r1.put("token", "t1");
-
-        when(authService.signUp(any()))
-                .thenReturn(r1)
-                .thenThrow(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Duplicate user"));
+        when(bulkSignUpService.signUp(anyList(), eq(true))).thenReturn(List.of(r1, r2));
 
         mockMvc.perform(post("/api/v1/parking/auth/signUp/bulk")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -113,25 +104,24 @@ class AuthHandlerTest {
                                 """))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.processed").value(2))
+                .andExpect(jsonPath("$.results.length()").value(2))
+                .andExpect(jsonPath("$.results[0].token").value("t1"))
                 .andExpect(jsonPath("$.results[1].status").value(400));
     }
 
     @Test
-    @DisplayName("POST /signUp/bulk - runtime error")
-    void signUpBulk_runtimeError() throws Exception {
-        when(authService.signUp(any()))
-                .thenThrow(new RuntimeException("Unexpected DB error"));
+    @DisplayName("POST /signUp/bulk - tokens=false skips token generation")
+    void signUpBulk_withoutTokens() throws Exception {
+        when(bulkSignUpService.signUp(anyList(), eq(false))).thenReturn(List.of());
 
         mockMvc.perform(post("/api/v1/parking/auth/signUp/bulk")
+                        .param("tokens", "false")
                         .contentType(MediaType.APPLICATION_JSON)
-                        .content("""
-                                [
-                                    {"name":"A","username":"a","email":"a@t.com","password":"Password1"}
-                                ]
-                                """))
+                        .content("[]"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.results[0].status").value(500))
-                .andExpect(jsonPath("$.results[0].message").value("Unexpected error: Unexpected DB error"));
+                .andExpect(jsonPath("$.processed").value(0));
+
+        verify(bulkSignUpService).signUp(anyList(), eq(false));
     }
 
     @Test
@@ -156,13 +146,76 @@ class AuthHandlerTest {
     @DisplayName("POST /logout - with Bearer header")
     void logout_withHeader() throws Exception {
         when(jwtService.getExpiration(anyString())).thenReturn(60000L);
+        when(jwtService.revocationId("some_jwt_token")).thenReturn("jti-1");
 
         mockMvc.perform(post("/api/v1/parking/auth/logout")
                         .header(HttpHeaders.AUTHORIZATION, "Bearer some_jwt_token"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.message").value("Logout successfully"));
 
-        verify(blackListToken).add("some_jwt_token", 60000L);
+        verify(blackListToken).add("jti-1", 60000L);
+    }
+
+    @Test
+    @DisplayName("POST /logout - revokes the refresh token in the body")
+    void logout_revokesRefreshToken() throws Exception {
+        when(jwtService.getExpiration(anyString())).thenReturn(60000L);
+        when(jwtService.revocationId("some_jwt_token")).thenReturn("jti-1");
+
+        mockMvc.perform(post("/api/v1/parking/auth/logout")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer some_jwt_token")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"refreshToken":"refresh_1"}
+                                """))
+                .andExpect(status().isOk());
+
+        verify(refreshTokenService).revoke("refresh_1");
+    }
+
+    @Test
+    @DisplayName("POST /refresh - success")
+    void refresh_success() throws Exception {
+        Map<String, Object> response = new HashMap<>();
+        response.put("user", new AuthResponse("John", "john@test.com", "john", "USER"));
+        response.put("token", "jwt_refreshed");
+        response.put("refreshToken", "refresh_2");
+        when(authService.refresh("refresh_1")).thenReturn(response);
+
+        mockMvc.perform(post("/api/v1/parking/auth/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"refreshToken":"refresh_1"}
+                                """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("Token refreshed successfully"))
+                .andExpect(jsonPath("$.token").value("jwt_refreshed"))
+                .andExpect(jsonPath("$.refreshToken").value("refresh_2"));
+    }
+
+    @Test
+    @DisplayName("POST /refresh - reused token returns 401")
+    void refresh_reused() throws Exception {
+        when(authService.refresh("refresh_1"))
+                .thenThrow(new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Refresh token reuse detected"));
+
+        mockMvc.perform(post("/api/v1/parking/auth/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"refreshToken":"refresh_1"}
+                                """))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    @DisplayName("POST /refresh - missing token returns 400")
+    void refresh_missingToken() throws Exception {
+        mockMvc.perform(post("/api/v1/parking/auth/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{}"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(authService);
     }
 
     @Test
@@ -186,4 +239,29 @@ class AuthHandlerTest {
 
         verify(blackListToken, never()).add(anyString(), anyLong());
     }
+
+    @Test
+    @DisplayName("POST /logout/all - moves the token epoch of the caller")
+    void logoutAll_revokesUser() throws Exception {
+        when(jwtService.verify("some_jwt_token")).thenReturn(Jwts.claims().subject("john").build());
+
+        mockMvc.perform(post("/api/v1/parking/auth/logout/all")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer some_jwt_token"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("All sessions logged out"));
+
+        verify(tokenEpochService).revokeAll("john");
+    }
+
+    @Test
+    @DisplayName("POST /logout/all - invalid token returns 401")
+    void logoutAll_invalidToken() throws Exception {
+        when(jwtService.verify("bad_token")).thenThrow(new JwtException("Invalid token"));
+
+        mockMvc.perform(post("/api/v1/parking/auth/logout/all")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer bad_token"))
+                .andExpect(status().isUnauthorized());
+
+        verifyNoInteractions(tokenEpochService);
+    }
 }
@@ -1,11 +1,16 @@
 package com.parking.core.auth.model;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
 import static org.mockito.Mockito.*;
 
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -13,8 +18,13 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.Cursor;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
 import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 
 @ExtendWith(MockitoExtension.class)
 class BlackListTokenTest {
@@ -25,36 +35,47 @@ class BlackListTokenTest {
     @Mock
     private ValueOperations<String, String> valueOps;
 
+    @Mock
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Mock
+    private Cursor<String> cursor;
+
     private BlackListToken blackListToken;
 
     @BeforeEach
     void setUp() {
         when(redisTemplate.opsForValue()).thenReturn(valueOps);
-        blackListToken = new BlackListToken(redisTemplate);
+        blackListToken = new BlackListToken(redisTemplate, listenerContainer, false, 3600000L);
+    }
+
+    private BlackListToken nearCache() {
+        return new BlackListToken(redisTemplate, listenerContainer, true, 3600000L);
     }
 
     @Test
-    @DisplayName("add - stores token in Redis")
+    @DisplayName("add - stores the token id in Redis and publishes it")
     void add_storesToken() {
-        blackListToken.add("token123", 60000L);
+        blackListToken.add("jti-1", 60000L);
 
-        verify(valueOps).set("token123", "revoked", 60000L, TimeUnit.MILLISECONDS);
+        verify(valueOps).set(eq("revoked:jti-1"), anyString(), eq(60000L), eq(TimeUnit.MILLISECONDS));
+        verify(redisTemplate).convertAndSend(eq("token-revocations"), startsWith("jti-1 "));
     }
 
     @Test
     @DisplayName("isBlackListed - returns true when key exists")
     void isBlackListed_true() {
-        when(redisTemplate.hasKey("token123")).thenReturn(true);
+        when(redisTemplate.hasKey("revoked:jti-1")).thenReturn(true);
 
-        assertTrue(blackListToken.isBlackListed("token123"));
+        assertTrue(blackListToken.isBlackListed("jti-1"));
     }
 
     @Test
     @DisplayName("isBlackListed - returns false when key does not exist")
     void isBlackListed_false() {
-        when(redisTemplate.hasKey("token_missing")).thenReturn(false);
+        when(redisTemplate.hasKey("revoked:jti-missing")).thenReturn(false);
 
-        assertFalse(blackListToken.isBlackListed("token_missing"));
+        assertFalse(blackListToken.isBlackListed("jti-missing"));
     }
 
     @Test
@@ -64,7 +85,7 @@ class BlackListTokenTest {
                 .set(anyString(), anyString(), eq(60000L), eq(TimeUnit.MILLISECONDS));
 
         // Should not throw
-        assertDoesNotThrow(() -> blackListToken.add("token123", 60000L));
+        assertDoesNotThrow(() -> blackListToken.add("jti-1", 60000L));
     }
 
     @Test
@@ -72,6 +93,68 @@ class BlackListTokenTest {
     void isBlackListed_redisException() {
         when(redisTemplate.hasKey(anyString())).thenThrow(new RuntimeException("Redis down"));
 
-        assertFalse(blackListToken.isBlackListed("token123"));
+        assertFalse(blackListToken.isBlackListed("jti-1"));
+    }
+
+    @Test
+    @DisplayName("isLegacyBlackListed - checks the raw token key during the transition window")
+    void isLegacyBlackListed_withinWindow() {
+        when(redisTemplate.hasKey("legacy.token")).thenReturn(true);
+
+        assertTrue(blackListToken.isLegacyBlackListed("legacy.token"));
+    }
+
+    @Test
+    @DisplayName("isLegacyBlackListed - skips Redis once the transition window has passed")
+    void isLegacyBlackListed_afterWindow() {
+        BlackListToken expired = new BlackListToken(redisTemplate, listenerContainer, false, 0L);
+
+        assertFalse(expired.isLegacyBlackListed("legacy.token"));
+        verify(redisTemplate, never()).hasKey(anyString());
+    }
+
+    @Test
+    @DisplayName("start - near-cache loads revocations and answers checks without Redis")
+    void nearCache_answersLocally() {
+        long expiresAt = System.currentTimeMillis() + 60000;
+        when(redisTemplate.scan(any(ScanOptions.class))).thenReturn(cursor);
+        doAnswer(invocation -> {
+            invocation.<Consumer<String>>getArgument(0).accept("revoked:jti-1");
+            return null;
+        }).when(cursor).forEachRemaining(any());
+        when(valueOps.multiGet(List.of("revoked:jti-1"))).thenReturn(List.of(Long.toString(expiresAt)));
+        BlackListToken cache = nearCache();
+
+        cache.start();
+
+        verify(listenerContainer).addMessageListener(cache, new ChannelTopic("token-revocations"));
+        assertTrue(cache.isBlackListed("jti-1"));
+        assertFalse(cache.isBlackListed("jti-2"));
+        verify(redisTemplate, never()).hasKey(anyString());
+    }
+
+    @Test
+    @DisplayName("onMessage - revocations published by other nodes are applied locally")
+    void nearCache_appliesPublishedRevocations() {
+        when(redisTemplate.scan(any(ScanOptions.class))).thenReturn(cursor);
+        BlackListToken cache = nearCache();
+        cache.start();
+        long expiresAt = System.currentTimeMillis() + 60000;
+
+        cache.onMessage(new DefaultMessage("token-revocations".getBytes(StandardCharsets.UTF_8),
+                ("jti-9 " + expiresAt).getBytes(StandardCharsets.UTF_8)), null);
+
+        assertTrue(cache.isBlackListed("jti-9"));
+    }
+
+    @Test
+    @DisplayName("isBlackListed - near-cache falls back to Redis while it cannot sync")
+    void nearCache_fallsBackWhenNotSynced() {
+        when(redisTemplate.scan(any(ScanOptions.class))).thenThrow(new RuntimeException("Redis down"));
+        when(redisTemplate.hasKey("revoked:jti-1")).thenReturn(true);
+        BlackListToken cache = nearCache();
+        cache.start();
+
+        assertTrue(cache.isBlackListed("jti-1"));
     }
 }
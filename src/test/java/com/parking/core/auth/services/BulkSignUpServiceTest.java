@@ -0,0 +1,163 @@
+package com.parking.core.auth.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.parking.core.auth.model.AuthRequest;
+import com.parking.core.enums.Roles;
+import com.parking.core.model.User;
+import com.parking.core.repository.UserRepository;
+
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+
+/**
+ * Runs the bulk sign-up against H2, so the duplicate lookup and the batched insert are
+ * exercised for real. Each call commits its own transactions.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BulkSignUpServiceTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final PasswordEncoder encoder = mock(PasswordEncoder.class);
+    private final JWTService jwt = mock(JWTService.class);
+    private final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    private BulkSignUpService service;
+
+    @BeforeEach
+    void setUp() {
+        when(encoder.encode(any())).thenAnswer(invocation -> "hashed-" + invocation.getArgument(0));
+        service = new BulkSignUpService(userRepository, jdbcTemplate, encoder, validator, jwt,
+                transactionManager, 2, 2);
+        User existing = new User("Existing", "taken", Roles.USER, "taken@test.com", null);
+        existing.setPassword("encoded");
+        userRepository.save(existing);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+        userRepository.deleteAll();
+    }
+
+    private static AuthRequest request(String username, String email) {
+        AuthRequest request = new AuthRequest();
+        request.setName(username);
+        request.setUsername(username);
+        request.setEmail(email);
+        request.setPassword("Password1");
+        return request;
+    }
+
+    @Test
+    @DisplayName("signUp - inserts new users and reports duplicates per row, in order")
+    void signUp_perRowResults() {
+        when(jwt.generateToken(any(User.class))).thenReturn("jwt");
+
+        List<Map<String, Object>> results = service.signUp(List.of(
+                request("ann", "ann@test.com"),
+                request("taken", "other@test.com"),
+                request("bob", "bob@test.com"),
+                request("ann", "ann2@test.com"),
+                request("cid", "cid@test.com"),
+                request("dee", null)), true);
+
+        assertEquals(List.of(201, 400, 201, 400, 201, 400),
+                results.stream().map(result -> result.get("status")).toList());
+        assertEquals("jwt", results.get(0).get("token"));
+        assertEquals(4, userRepository.count());
+        assertEquals("hashed-Password1", userRepository.findByUsername("bob").orElseThrow().getPassword());
+        assertEquals(Roles.USER, userRepository.findByUsername("cid").orElseThrow().getRole());
+    }
+
+    @Test
+    @DisplayName("signUp - tokens can be skipped")
+    void signUp_withoutTokens() {
+        List<Map<String, Object>> results = service.signUp(List.of(request("ann", "ann@test.com")), false);
+
+        assertEquals(201, results.get(0).get("status"));
+        assertFalse(results.get(0).containsKey("token"));
+        verifyNoInteractions(jwt);
+    }
+
+    @Test
+    @DisplayName("signUp - a duplicate inserted concurrently only fails its own row")
+    void signUp_concurrentDuplicate() {
+        UserRepository staleLookup = mock(UserRepository.class);
+        when(staleLookup.findUsernamesAndEmails(any(), any())).thenReturn(List.of());
+        BulkSignUpService racing = new BulkSignUpService(staleLookup, jdbcTemplate, encoder, validator, jwt,
+                transactionManager, 2, 2);
+        try {
+            List<Map<String, Object>> results = racing.signUp(List.of(
+                    request("eve", "eve@test.com"),
+                    request("late", "taken@test.com")), false);
+
+            assertEquals(List.of(201, 400), results.stream().map(result -> result.get("status")).toList());
+            assertEquals("The username or email is already registered", results.get(1).get("message"));
+            assertTrue(userRepository.findByUsername("eve").isPresent());
+        } finally {
+            racing.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("signUp - rows are validated like a single sign-up, with a message per problem")
+    void signUp_validatesRows() {
+        AuthRequest blankName = request("fay", "fay@test.com");
+        blankName.setName(" ");
+        AuthRequest noPassword = request("gil", "gil@test.com");
+        noPassword.setPassword(null);
+
+        List<Map<String, Object>> results = service.signUp(List.of(
+                blankName,
+                request("hal", "not-an-email"),
+                noPassword,
+                request("ivy", "ivy@test.com")), false);
+
+        assertEquals(List.of(400, 400, 400, 201), results.stream().map(result -> result.get("status")).toList());
+        assertEquals("Name is required", results.get(0).get("message"));
+        assertEquals("Email must be valid", results.get(1).get("message"));
+        assertEquals("Password is required", results.get(2).get("message"));
+        assertTrue(userRepository.findByUsername("fay").isEmpty());
+        assertTrue(userRepository.findByUsername("hal").isEmpty());
+    }
+
+    @Test
+    @DisplayName("signUp - only unique-key violations are reported as already registered")
+    void signUp_otherViolationNotDuplicate() {
+        String tooLong = "x".repeat(300);
+
+        List<Map<String, Object>> results = service.signUp(List.of(
+                request(tooLong, "long@test.com"),
+                request("jon", "jon@test.com")), false);
+
+        assertEquals(List.of(400, 201), results.stream().map(result -> result.get("status")).toList());
+        assertEquals("The user data is invalid", results.get(0).get("message"));
+    }
+}
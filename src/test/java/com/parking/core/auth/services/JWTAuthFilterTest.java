@@ -5,6 +5,7 @@ import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
 import java.io.IOException;
+import java.util.List;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -14,14 +15,17 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 
 import com.parking.core.auth.model.BlackListToken;
 
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 
@@ -32,11 +36,14 @@ class JWTAuthFilterTest {
     private JWTService jwtService;
 
     @Mock
-    private UserDetailsService userDetailsService;
+    private UserDetailsCache userDetailsCache;
 
     @Mock
     private BlackListToken blackListToken;
 
+    @Mock
+    private TokenEpochService tokenEpochService;
+
     @Mock
     private FilterChain filterChain;
 
@@ -44,7 +51,7 @@ class JWTAuthFilterTest {
 
     @BeforeEach
     void setUp() {
-        jwtAuthFilter = new JWTAuthFilter(jwtService, userDetailsService, blackListToken);
+        jwtAuthFilter = new JWTAuthFilter(jwtService, userDetailsCache, blackListToken, tokenEpochService, "claims");
         SecurityContextHolder.clearContext();
     }
 
@@ -91,7 +98,29 @@ class JWTAuthFilterTest {
         request.addHeader("Authorization", "Bearer blacklisted_token");
         MockHttpServletResponse response = new MockHttpServletResponse();
 
-        when(blackListToken.isBlackListed("blacklisted_token")).thenReturn(true);
+        Claims claims = Jwts.claims().subject("john").id("jti-1").build();
+        when(jwtService.verify("blacklisted_token")).thenReturn(claims);
+        when(jwtService.revocationId(claims, "blacklisted_token")).thenReturn("jti-1");
+        when(blackListToken.isBlackListed("jti-1")).thenReturn(true);
+
+        jwtAuthFilter.doFilterInternal(request, response, filterChain);
+
+        assertEquals(401, response.getStatus());
+        verify(filterChain, never()).doFilter(request, response);
+    }
+
+    @Test
+    @DisplayName("doFilterInternal - token blacklisted under its legacy key returns 401")
+    void doFilter_legacyBlacklistedToken() throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer legacy_token");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        Claims claims = Jwts.claims().subject("john").build();
+        when(jwtService.verify("legacy_token")).thenReturn(claims);
+        when(jwtService.revocationId(claims, "legacy_token")).thenReturn("hash-1");
+        when(blackListToken.isBlackListed("hash-1")).thenReturn(false);
+        when(blackListToken.isLegacyBlackListed("legacy_token")).thenReturn(true);
 
         jwtAuthFilter.doFilterInternal(request, response, filterChain);
 
@@ -100,22 +129,50 @@ class JWTAuthFilterTest {
     }
 
     @Test
-    @DisplayName("doFilterInternal - valid token sets authentication")
+    @DisplayName("doFilterInternal - claims mode authenticates without loading the user")
+    void doFilter_claimsPrincipal() throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer valid_token");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        Claims claims = Jwts.claims().subject("john").add("roles", List.of("ADMIN")).build();
+        when(jwtService.verify("valid_token")).thenReturn(claims);
+        when(jwtService.revocationId(claims, "valid_token")).thenReturn("jti-1");
+        when(blackListToken.isBlackListed("jti-1")).thenReturn(false);
+        when(tokenEpochService.isCurrent(claims)).thenReturn(true);
+        List<GrantedAuthority> authorities = List.of(new SimpleGrantedAuthority("ROLE_ADMIN"));
+        when(jwtService.extractAuthorities(claims)).thenReturn(authorities);
+
+        jwtAuthFilter.doFilterInternal(request, response, filterChain);
+
+        verify(filterChain).doFilter(request, response);
+        verifyNoInteractions(userDetailsCache);
+        assertEquals("john", SecurityContextHolder.getContext().getAuthentication().getPrincipal());
+        assertTrue(SecurityContextHolder.getContext().getAuthentication().getAuthorities()
+                .contains(new SimpleGrantedAuthority("ROLE_ADMIN")));
+    }
+
+    @Test
+    @DisplayName("doFilterInternal - database mode loads the user through the cache")
     void doFilter_validToken() throws ServletException, IOException {
+        jwtAuthFilter = new JWTAuthFilter(jwtService, userDetailsCache, blackListToken, tokenEpochService, "database");
         MockHttpServletRequest request = new MockHttpServletRequest();
         request.addHeader("Authorization", "Bearer valid_token");
         MockHttpServletResponse response = new MockHttpServletResponse();
 
-        when(blackListToken.isBlackListed("valid_token")).thenReturn(false);
-        when(jwtService.extractUsername("valid_token")).thenReturn("john");
+        Claims claims = Jwts.claims().subject("john").build();
+        when(jwtService.verify("valid_token")).thenReturn(claims);
+        when(jwtService.revocationId(claims, "valid_token")).thenReturn("jti-1");
+        when(blackListToken.isBlackListed("jti-1")).thenReturn(false);
+        when(tokenEpochService.isCurrent(claims)).thenReturn(true);
 
         UserDetails userDetails = User.builder()
                 .username("john")
                 .password("encoded")
                 .roles("USER")
                 .build();
-        when(userDetailsService.loadUserByUsername("john")).thenReturn(userDetails);
-        when(jwtService.isValidToken("valid_token", userDetails)).thenReturn(true);
+        when(userDetailsCache.load("john")).thenReturn(userDetails);
+        when(jwtService.isValidToken(claims, userDetails)).thenReturn(true);
 
         jwtAuthFilter.doFilterInternal(request, response, filterChain);
 
@@ -131,8 +188,33 @@ class JWTAuthFilterTest {
         request.addHeader("Authorization", "Bearer bad_token");
         MockHttpServletResponse response = new MockHttpServletResponse();
 
-        when(blackListToken.isBlackListed("bad_token")).thenReturn(false);
-        when(jwtService.extractUsername("bad_token")).thenThrow(new JwtException("Invalid token"));
+        when(jwtService.verify("bad_token")).thenThrow(new JwtException("Invalid token"));
+
+        jwtAuthFilter.doFilterInternal(request, response, filterChain);
+
+        assertEquals(401, response.getStatus());
+        verify(filterChain, never()).doFilter(request, response);
+    }
+
+    @Test
+    @DisplayName("constructor - unknown principal source is rejected")
+    void constructor_unknownPrincipalSource() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new JWTAuthFilter(jwtService, userDetailsCache, blackListToken, tokenEpochService, "ldap"));
+    }
+
+    @Test
+    @DisplayName("doFilterInternal - token from an older epoch returns 401")
+    void doFilter_staleEpoch() throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer old_token");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        Claims claims = Jwts.claims().subject("john").id("jti-2").add("epoch", 0).build();
+        when(jwtService.verify("old_token")).thenReturn(claims);
+        when(jwtService.revocationId(claims, "old_token")).thenReturn("jti-2");
+        when(blackListToken.isBlackListed("jti-2")).thenReturn(false);
+        when(tokenEpochService.isCurrent(claims)).thenReturn(false);
 
         jwtAuthFilter.doFilterInternal(request, response, filterChain);
 
@@ -2,25 +2,33 @@ package com.parking.core.auth.services;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.List;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 
 import com.parking.core.enums.Roles;
 
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
 class JWTServiceTest {
 
     private JWTService jwtService;
+    private SimpleMeterRegistry meterRegistry;
 
     @BeforeEach
     void setUp() {
         // Same key as in test application.properties
         String secretBase64 = "dGVzdC1zZWNyZXQta2V5LWZvci10ZXN0aW5nLXB1cnBvc2Vz";
-        jwtService = new JWTService(secretBase64, 3600000L);
+        meterRegistry = new SimpleMeterRegistry();
+        jwtService = new JWTService(secretBase64, 3600000L, new VerifiedClaimsCache(100, meterRegistry));
     }
 
     private com.parking.core.model.User buildUser() {
@@ -80,7 +88,8 @@ class JWTServiceTest {
     void isValidToken_expired() {
         // Create service with 0ms expiration (token immediately expires)
         JWTService shortLived = new JWTService(
-                "dGVzdC1zZWNyZXQta2V5LWZvci10ZXN0aW5nLXB1cnBvc2Vz", 0L);
+                "dGVzdC1zZWNyZXQta2V5LWZvci10ZXN0aW5nLXB1cnBvc2Vz", 0L,
+                new VerifiedClaimsCache(100, new SimpleMeterRegistry()));
         String token = shortLived.generateToken(buildUser());
 
         UserDetails userDetails = User.builder()
@@ -101,4 +110,69 @@ class JWTServiceTest {
         long exp = jwtService.getExpiration(token);
         assertTrue(exp > 0);
     }
+
+    @Test
+    @DisplayName("verify - parses a token once and serves repeated calls from the cache")
+    void verify_cachesClaims() {
+        String token = jwtService.generateToken(buildUser());
+
+        Claims first = jwtService.verify(token);
+        Claims second = jwtService.verify(token);
+
+        assertSame(first, second);
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("result", "miss").counter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("result", "hit").counter().count());
+    }
+
+    @Test
+    @DisplayName("verify - tampered token is rejected and not cached")
+    void verify_tamperedToken() {
+        String token = jwtService.generateToken(buildUser());
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+
+        assertThrows(JwtException.class, () -> jwtService.verify(tampered));
+        assertEquals(0.0, meterRegistry.get("cache.size").gauge().value());
+    }
+
+    @Test
+    @DisplayName("isValidToken - validates verified claims without parsing again")
+    void isValidToken_claims() {
+        Claims claims = jwtService.verify(jwtService.generateToken(buildUser()));
+        UserDetails userDetails = User.builder()
+                .username("john")
+                .password("encoded")
+                .roles("USER")
+                .build();
+
+        assertTrue(jwtService.isValidToken(claims, userDetails));
+    }
+
+    @Test
+    @DisplayName("extractAuthorities - maps the roles claim to ROLE_ authorities")
+    void extractAuthorities_fromRoles() {
+        Claims claims = jwtService.verify(jwtService.generateToken(buildUser()));
+
+        assertEquals(List.of(new SimpleGrantedAuthority("ROLE_USER")), jwtService.extractAuthorities(claims));
+    }
+
+    @Test
+    @DisplayName("revocationId - uses the jti claim, unique per token")
+    void revocationId_usesJti() {
+        String first = jwtService.generateToken(buildUser());
+        String second = jwtService.generateToken(buildUser());
+
+        assertEquals(jwtService.verify(first).getId(), jwtService.revocationId(first));
+        assertNotEquals(jwtService.revocationId(first), jwtService.revocationId(second));
+    }
+
+    @Test
+    @DisplayName("generateToken - embeds the user's token epoch")
+    void generateToken_embedsEpoch() {
+        com.parking.core.model.User user = buildUser();
+        user.setTokenEpoch(3);
+
+        Claims claims = jwtService.verify(jwtService.generateToken(user));
+
+        assertEquals(3, JWTService.tokenEpoch(claims));
+    }
 }
@@ -0,0 +1,128 @@
+package com.parking.core.auth.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.parking.core.enums.Roles;
+import com.parking.core.model.RefreshToken;
+import com.parking.core.model.User;
+import com.parking.core.repository.RefreshTokenRepository;
+
+@ExtendWith(MockitoExtension.class)
+class RefreshTokenServiceTest {
+
+    @Mock
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Mock
+    private TokenEpochService tokenEpochService;
+
+    private RefreshTokenService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new RefreshTokenService(refreshTokenRepository, tokenEpochService, 60000L);
+    }
+
+    private RefreshToken stored(String raw, int epoch, LocalDateTime expiresAt) {
+        RefreshToken token = new RefreshToken(RefreshTokenService.hash(raw), "family-1", "johndoe", epoch, expiresAt);
+        ReflectionTestUtils.setField(token, "id", 7L);
+        when(refreshTokenRepository.findByTokenHash(RefreshTokenService.hash(raw))).thenReturn(Optional.of(token));
+        return token;
+    }
+
+    @Test
+    @DisplayName("issue - stores only the hash of the token")
+    void issue_storesHash() {
+        User user = new User("John Doe", "johndoe", Roles.USER, "john@example.com", null);
+        ArgumentCaptor<RefreshToken> saved = ArgumentCaptor.forClass(RefreshToken.class);
+
+        String raw = service.issue(user);
+
+        verify(refreshTokenRepository).save(saved.capture());
+        assertNotEquals(raw, saved.getValue().getTokenHash());
+        assertEquals(RefreshTokenService.hash(raw), saved.getValue().getTokenHash());
+        assertEquals("johndoe", saved.getValue().getUsername());
+    }
+
+    @Test
+    @DisplayName("rotate - consumes the token and issues a successor in the same family")
+    void rotate_success() {
+        stored("raw-1", 0, LocalDateTime.now().plusDays(1));
+        when(refreshTokenRepository.consume(eq(7L), any())).thenReturn(1);
+        when(tokenEpochService.currentEpoch("johndoe")).thenReturn(0);
+        ArgumentCaptor<RefreshToken> saved = ArgumentCaptor.forClass(RefreshToken.class);
+
+        RefreshTokenService.Rotation rotation = service.rotate("raw-1");
+
+        assertEquals("johndoe", rotation.username());
+        assertNotEquals("raw-1", rotation.refreshToken());
+        verify(refreshTokenRepository).save(saved.capture());
+        assertEquals("family-1", saved.getValue().getFamilyId());
+    }
+
+    @Test
+    @DisplayName("rotate - presenting a used token revokes the whole family")
+    void rotate_reuseRevokesFamily() {
+        RefreshToken token = stored("raw-1", 0, LocalDateTime.now().plusDays(1));
+        ReflectionTestUtils.setField(token, "usedAt", LocalDateTime.now());
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class, () -> service.rotate("raw-1"));
+
+        assertEquals(401, ex.getStatusCode().value());
+        verify(refreshTokenRepository).revokeFamily("family-1");
+        verify(refreshTokenRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("rotate - losing a concurrent refresh counts as reuse")
+    void rotate_concurrentUseRevokesFamily() {
+        stored("raw-1", 0, LocalDateTime.now().plusDays(1));
+        when(refreshTokenRepository.consume(anyLong(), any())).thenReturn(0);
+
+        assertThrows(ResponseStatusException.class, () -> service.rotate("raw-1"));
+
+        verify(refreshTokenRepository).revokeFamily("family-1");
+    }
+
+    @Test
+    @DisplayName("rotate - tokens from an older epoch are rejected")
+    void rotate_staleEpoch() {
+        stored("raw-1", 0, LocalDateTime.now().plusDays(1));
+        when(refreshTokenRepository.consume(eq(7L), any())).thenReturn(1);
+        when(tokenEpochService.currentEpoch("johndoe")).thenReturn(1);
+
+        assertThrows(ResponseStatusException.class, () -> service.rotate("raw-1"));
+
+        verify(refreshTokenRepository).revokeFamily("family-1");
+        verify(refreshTokenRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("rotate - expired and unknown tokens are rejected")
+    void rotate_expiredOrUnknown() {
+        stored("raw-1", 0, LocalDateTime.now().minusMinutes(1));
+        when(refreshTokenRepository.consume(eq(7L), any())).thenReturn(1);
+        when(refreshTokenRepository.findByTokenHash(RefreshTokenService.hash("unknown"))).thenReturn(Optional.empty());
+
+        assertThrows(ResponseStatusException.class, () -> service.rotate("raw-1"));
+        assertThrows(ResponseStatusException.class, () -> service.rotate("unknown"));
+        verify(refreshTokenRepository, never()).save(any());
+    }
+}
@@ -0,0 +1,138 @@
+package com.parking.core.auth.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.parking.core.repository.UserRepository;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+
+@ExtendWith(MockitoExtension.class)
+class TokenEpochServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private RedisTemplate<String, String> redisTemplate;
+
+    @Mock
+    private RedisMessageListenerContainer listenerContainer;
+
+    private TokenEpochService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new TokenEpochService(userRepository, redisTemplate, listenerContainer, 60000);
+    }
+
+    private static Claims claims(String username, int epoch) {
+        return Jwts.claims().subject(username).add("epoch", epoch).build();
+    }
+
+    @Test
+    @DisplayName("isCurrent - epochs are loaded once and then checked locally")
+    void isCurrent_cachesEpoch() {
+        when(userRepository.findTokenEpoch("john")).thenReturn(Optional.of(1));
+
+        assertTrue(service.isCurrent(claims("john", 1)));
+        assertFalse(service.isCurrent(claims("john", 0)));
+
+        verify(userRepository, times(1)).findTokenEpoch("john");
+    }
+
+    @Test
+    @DisplayName("isCurrent - tokens of users that no longer exist are rejected")
+    void isCurrent_unknownUser() {
+        when(userRepository.findTokenEpoch("ghost")).thenReturn(Optional.empty());
+
+        assertFalse(service.isCurrent(claims("ghost", 0)));
+        assertFalse(service.isCurrent(claims("ghost", 0)));
+
+        verify(userRepository, times(2)).findTokenEpoch("ghost");
+    }
+
+    @Test
+    @DisplayName("currentEpoch - a load does not undo an epoch published meanwhile")
+    void currentEpoch_keepsNewerPublishedEpoch() {
+        when(userRepository.findTokenEpoch("john")).thenAnswer(invocation -> {
+            service.onMessage(new DefaultMessage("token-epochs".getBytes(StandardCharsets.UTF_8),
+                    "john 3".getBytes(StandardCharsets.UTF_8)), null);
+            return Optional.of(2);
+        });
+
+        assertEquals(3, service.currentEpoch("john"));
+        assertFalse(service.isCurrent(claims("john", 2)));
+    }
+
+    @Test
+    @DisplayName("revokeAll - increments the epoch and publishes it")
+    void revokeAll_publishesEpoch() {
+        when(userRepository.incrementTokenEpoch("john")).thenReturn(1);
+        when(userRepository.findTokenEpoch("john")).thenReturn(Optional.of(2));
+
+        assertEquals(2, service.revokeAll("john"));
+
+        verify(redisTemplate).convertAndSend("token-epochs", "john 2");
+        assertFalse(service.isCurrent(claims("john", 1)));
+        assertTrue(service.isCurrent(claims("john", 2)));
+    }
+
+    @Test
+    @DisplayName("revokeAll - the epoch is cached and published once the transaction commits")
+    void revokeAll_deferredUntilCommit() {
+        when(userRepository.incrementTokenEpoch("john")).thenReturn(1);
+        when(userRepository.findTokenEpoch("john")).thenReturn(Optional.of(2));
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            service.revokeAll("john");
+            verifyNoInteractions(redisTemplate);
+
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(TransactionSynchronization::afterCommit);
+            verify(redisTemplate).convertAndSend("token-epochs", "john 2");
+            assertFalse(service.isCurrent(claims("john", 1)));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("revokeAll - unknown user returns 404")
+    void revokeAll_unknownUser() {
+        when(userRepository.incrementTokenEpoch("ghost")).thenReturn(0);
+
+        assertThrows(ResponseStatusException.class, () -> service.revokeAll("ghost"));
+        verifyNoInteractions(redisTemplate);
+    }
+
+    @Test
+    @DisplayName("onMessage - epochs published by other nodes replace cached ones")
+    void onMessage_appliesNewerEpoch() {
+        when(userRepository.findTokenEpoch("john")).thenReturn(Optional.of(0));
+        assertTrue(service.isCurrent(claims("john", 0)));
+
+        service.onMessage(new DefaultMessage("token-epochs".getBytes(StandardCharsets.UTF_8),
+                "john 1".getBytes(StandardCharsets.UTF_8)), null);
+
+        assertFalse(service.isCurrent(claims("john", 0)));
+        verify(userRepository, times(1)).findTokenEpoch("john");
+    }
+}
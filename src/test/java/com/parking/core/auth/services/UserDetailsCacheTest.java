@@ -0,0 +1,66 @@
+package com.parking.core.auth.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import com.parking.core.model.UserDetailsDB;
+
+@ExtendWith(MockitoExtension.class)
+class UserDetailsCacheTest {
+
+    @Mock
+    private UserDetailsDB userDetailsDB;
+
+    private static UserDetails user(String username, String role) {
+        return User.builder().username(username).password("encoded").roles(role).build();
+    }
+
+    @Test
+    @DisplayName("load - repeated loads hit the database once")
+    void load_cachesUser() {
+        UserDetailsCache cache = new UserDetailsCache(userDetailsDB, 10, 60000);
+        when(userDetailsDB.loadUserByUsername("john")).thenReturn(user("john", "USER"));
+
+        cache.load("john");
+        cache.load("john");
+
+        verify(userDetailsDB, times(1)).loadUserByUsername("john");
+    }
+
+    @Test
+    @DisplayName("invalidate - next load reads the new role from the database")
+    void invalidate_reloadsUser() {
+        UserDetailsCache cache = new UserDetailsCache(userDetailsDB, 10, 60000);
+        when(userDetailsDB.loadUserByUsername("john"))
+                .thenReturn(user("john", "USER"), user("john", "ADMIN"));
+        cache.load("john");
+
+        cache.invalidate("john");
+        UserDetails reloaded = cache.load("john");
+
+        assertTrue(reloaded.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN")));
+    }
+
+    @Test
+    @DisplayName("load - a full cache does not store new users")
+    void load_boundedSize() {
+        UserDetailsCache cache = new UserDetailsCache(userDetailsDB, 1, 60000);
+        when(userDetailsDB.loadUserByUsername("john")).thenReturn(user("john", "USER"));
+        when(userDetailsDB.loadUserByUsername("jane")).thenReturn(user("jane", "USER"));
+
+        cache.load("john");
+        cache.load("jane");
+        cache.load("jane");
+
+        assertEquals(1, cache.size());
+        verify(userDetailsDB, times(2)).loadUserByUsername("jane");
+    }
+}
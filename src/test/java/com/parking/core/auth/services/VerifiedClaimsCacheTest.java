@@ -0,0 +1,61 @@
+package com.parking.core.auth.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Date;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class VerifiedClaimsCacheTest {
+
+    private static Claims claimsExpiringIn(long millis) {
+        return Jwts.claims().subject("john").expiration(new Date(System.currentTimeMillis() + millis)).build();
+    }
+
+    @Test
+    @DisplayName("get - expired entries are reported as misses and removed")
+    void get_expiredEntry() {
+        VerifiedClaimsCache cache = new VerifiedClaimsCache(10, new SimpleMeterRegistry());
+        cache.put("expired", claimsExpiringIn(-1000));
+
+        assertNull(cache.get("expired"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    @DisplayName("put - a full cache sweeps expired entries and otherwise skips new tokens")
+    void put_boundedSize() {
+        VerifiedClaimsCache cache = new VerifiedClaimsCache(2, new SimpleMeterRegistry());
+        cache.put("a", claimsExpiringIn(60000));
+        cache.put("b", claimsExpiringIn(-1000));
+
+        cache.put("c", claimsExpiringIn(60000));
+        cache.put("d", claimsExpiringIn(60000));
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get("a"));
+        assertNotNull(cache.get("c"));
+        assertNull(cache.get("d"));
+    }
+
+    @Test
+    @DisplayName("put - a max size of zero disables the cache")
+    void put_disabled() {
+        VerifiedClaimsCache cache = new VerifiedClaimsCache(0, new SimpleMeterRegistry());
+        cache.put("a", claimsExpiringIn(60000));
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    @DisplayName("keyOf - hashes tokens into stable keys")
+    void keyOf_stable() {
+        assertEquals(VerifiedClaimsCache.keyOf("token"), VerifiedClaimsCache.keyOf("token"));
+        assertNotEquals(VerifiedClaimsCache.keyOf("token"), VerifiedClaimsCache.keyOf("other"));
+    }
+}
@@ -2,10 +2,12 @@ package com.parking.core.handlers;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
@@ -23,6 +25,7 @@ import org.springframework.web.server.ResponseStatusException;
 import com.parking.core.auth.services.JWTAuthFilter;
 import com.parking.core.enums.VehicleType;
 import com.parking.core.model.Vehicle;
+import com.parking.core.model.dto.VehicleCharge;
 import com.parking.core.service.ParkingService;
 
 @WebMvcTest(ParkingHandler.class)
@@ -97,7 +100,8 @@ class ParkingHandlerTest {
     @Test
     @DisplayName("POST /pay - should calculate payment")
     void shouldCalculatePayment() throws Exception {
-        when(parkingService.calculatePayment(any(Vehicle.class))).thenReturn(30.0);
+        when(parkingService.calculateCharge(any(Vehicle.class), isNull(), isNull()))
+                .thenReturn(new VehicleCharge("ABC123", VehicleType.NON_RESIDENT, 60, 2, 30.0));
 
         mockMvc.perform(post("/api/v1/parking/vehicles/pay")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -105,7 +109,62 @@ class ParkingHandlerTest {
                                 {"id": "ABC123", "type": "NON_RESIDENT"}
                                 """))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.price").value(30.0));
+                .andExpect(jsonPath("$.price").value(30.0))
+                .andExpect(jsonPath("$.minutes").value(60))
+                .andExpect(jsonPath("$.sessions").value(2));
+    }
+
+    @Test
+    @DisplayName("POST /pay - should pass the date range to the service")
+    void shouldCalculatePaymentInRange() throws Exception {
+        LocalDateTime from = LocalDateTime.of(2025, 1, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2025, 2, 1, 0, 0);
+        when(parkingService.calculateCharge(any(Vehicle.class), eq(from), eq(to)))
+                .thenReturn(new VehicleCharge("ABC123", VehicleType.NON_RESIDENT, 20, 1, 10.0));
+
+        mockMvc.perform(post("/api/v1/parking/vehicles/pay")
+                        .param("from", "2025-01-01T00:00:00")
+                        .param("to", "2025-02-01T00:00:00")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"id": "ABC123", "type": "NON_RESIDENT"}
+                                """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.price").value(10.0));
+    }
+
+    @Test
+    @DisplayName("POST /pay - should price a past billing period")
+    void shouldCalculatePaymentForPeriod() throws Exception {
+        when(parkingService.calculateChargeForPeriod(any(Vehicle.class), eq(2L)))
+                .thenReturn(new VehicleCharge("ABC123", VehicleType.NON_RESIDENT, 40, 2, 20.0));
+
+        mockMvc.perform(post("/api/v1/parking/vehicles/pay")
+                        .param("period", "2")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"id": "ABC123", "type": "NON_RESIDENT"}
+                                """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.price").value(20.0));
+    }
+
+    @Test
+    @DisplayName("POST /pay/batch - should return one charge per plate")
+    void shouldCalculatePaymentsBatch() throws Exception {
+        when(parkingService.calculateCharges(List.of("ABC123", "RES001"))).thenReturn(List.of(
+                new VehicleCharge("ABC123", VehicleType.NON_RESIDENT, 60, 2, 30.0),
+                new VehicleCharge("RES001", VehicleType.RESIDENT, 200, 4, 10.0)));
+
+        mockMvc.perform(post("/api/v1/parking/vehicles/pay/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"vehicleIds": ["ABC123", "RES001"]}
+                                """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(2))
+                .andExpect(jsonPath("$.charges[1].vehicleId").value("RES001"))
+                .andExpect(jsonPath("$.charges[1].price").value(10.0));
     }
 
     @Test
@@ -1,30 +1,31 @@
 package com.parking.core.handlers;
 
-import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 import java.time.LocalDateTime;
 import java.util.Map;
-import java.util.Optional;
 
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import com.parking.core.auth.services.JWTAuthFilter;
 import com.parking.core.enums.VehicleType;
-import com.parking.core.model.Register;
-import com.parking.core.model.Vehicle;
-import com.parking.core.payment.Requests.PaymentRequest;
+import com.parking.core.model.dto.PaymentDetails;
+import com.parking.core.model.dto.RegisterPaymentView;
 import com.parking.core.payment.services.PaymentService;
-import com.parking.core.repository.RegisterRepository;
-import com.parking.core.service.ParkingService;
+import com.parking.core.payment.services.PaymentStatusNotifier;
+import com.parking.core.service.PaymentDetailsCache;
 
 @WebMvcTest(PublicPaymentHandler.class)
 @AutoConfigureMockMvc(addFilters = false)
@@ -34,47 +35,65 @@ class PublicPaymentHandlerTest {
     private MockMvc mockMvc;
 
     @MockitoBean
-    private RegisterRepository registerRepository;
+    private PaymentDetailsCache paymentDetailsCache;
 
     @MockitoBean
-    private ParkingService parkingService;
+    private PaymentService paymentService;
 
     @MockitoBean
-    private PaymentService paymentService;
+    private PaymentStatusNotifier paymentStatusNotifier;
 
     @MockitoBean
     private JWTAuthFilter jwtAuthFilter;
 
-    private Register buildRegister(boolean withExit) {
-        Vehicle vehicle = new Vehicle("ABC-123", VehicleType.NON_RESIDENT);
-        Register register = new Register(vehicle);
-        register.setId(1L);
-        register.setEntrydate(LocalDateTime.of(2025, 1, 15, 10, 0));
-        if (withExit) {
-            register.setExitdate(LocalDateTime.of(2025, 1, 15, 12, 0));
-            register.setMinutes(120);
-        }
-        return register;
+    private static final String ETAG = "\"abc123\"";
+
+    private PaymentDetails buildDetails() {
+        RegisterPaymentView register = new RegisterPaymentView(1L, "ABC-123", VehicleType.NON_RESIDENT,
+                LocalDateTime.of(2025, 1, 15, 10, 0), LocalDateTime.of(2025, 1, 15, 12, 0), 120);
+        return new PaymentDetails(register, 5000L, ETAG);
     }
 
     @Test
     @DisplayName("GET /{registerId} - success")
     void getPaymentDetails_success() throws Exception {
-        Register register = buildRegister(true);
-        when(registerRepository.findById(1L)).thenReturn(Optional.of(register));
-        when(parkingService.calculatePaymentForRegister(register)).thenReturn(50.0);
+        when(paymentDetailsCache.get(1L)).thenReturn(buildDetails());
 
         mockMvc.perform(get("/api/v1/public/pay/1"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.registerId").value(1))
                 .andExpect(jsonPath("$.plate").value("ABC-123"))
-                .andExpect(jsonPath("$.amount").value(50.0));
+                .andExpect(jsonPath("$.amount").value(50.0))
+                .andExpect(header().string("ETag", ETAG))
+                .andExpect(header().string("Cache-Control", "max-age=86400, private, immutable"));
+    }
+
+    @Test
+    @DisplayName("GET /{registerId} - 304 when the ETag matches")
+    void getPaymentDetails_notModified() throws Exception {
+        when(paymentDetailsCache.get(1L)).thenReturn(buildDetails());
+
+        mockMvc.perform(get("/api/v1/public/pay/1").header("If-None-Match", ETAG))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", ETAG))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    @DisplayName("GET /{registerId} - full response when the ETag differs")
+    void getPaymentDetails_etagChanged() throws Exception {
+        when(paymentDetailsCache.get(1L)).thenReturn(buildDetails());
+
+        mockMvc.perform(get("/api/v1/public/pay/1").header("If-None-Match", "\"stale\""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.registerId").value(1));
     }
 
     @Test
     @DisplayName("GET /{registerId} - not found")
     void getPaymentDetails_notFound() throws Exception {
-        when(registerRepository.findById(999L)).thenReturn(Optional.empty());
+        when(paymentDetailsCache.get(999L))
+                .thenThrow(new ResponseStatusException(HttpStatus.NOT_FOUND, "Register not found"));
 
         mockMvc.perform(get("/api/v1/public/pay/999"))
                 .andExpect(status().isNotFound());
@@ -83,8 +102,8 @@ class PublicPaymentHandlerTest {
     @Test
     @DisplayName("GET /{registerId} - vehicle not exited")
     void getPaymentDetails_notExited() throws Exception {
-        Register register = buildRegister(false);
-        when(registerRepository.findById(1L)).thenReturn(Optional.of(register));
+        when(paymentDetailsCache.get(1L))
+                .thenThrow(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Vehicle has not exited yet"));
 
         mockMvc.perform(get("/api/v1/public/pay/1"))
                 .andExpect(status().isBadRequest());
@@ -93,21 +112,22 @@ class PublicPaymentHandlerTest {
     @Test
     @DisplayName("POST /{registerId}/create-intent - success")
     void createIntent_success() throws Exception {
-        Register register = buildRegister(true);
-        when(registerRepository.findById(1L)).thenReturn(Optional.of(register));
-        when(parkingService.calculatePaymentForRegister(register)).thenReturn(50.0);
-        when(paymentService.createPaymentIntent(any(PaymentRequest.class)))
+        when(paymentDetailsCache.get(1L)).thenReturn(buildDetails());
+        when(paymentService.createRegisterPaymentIntent(1L, 5000L, "USD", "ABC-123"))
                 .thenReturn(Map.of("clientSecret", "cs_123", "paymentIntentId", "pi_123"));
 
         mockMvc.perform(post("/api/v1/public/pay/1/create-intent"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.clientSecret").value("cs_123"));
+
+        verify(paymentService).createRegisterPaymentIntent(1L, 5000L, "USD", "ABC-123");
     }
 
     @Test
     @DisplayName("POST /{registerId}/create-intent - not found")
     void createIntent_notFound() throws Exception {
-        when(registerRepository.findById(999L)).thenReturn(Optional.empty());
+        when(paymentDetailsCache.get(999L))
+                .thenThrow(new ResponseStatusException(HttpStatus.NOT_FOUND, "Register not found"));
 
         mockMvc.perform(post("/api/v1/public/pay/999/create-intent"))
                 .andExpect(status().isNotFound());
@@ -116,10 +136,58 @@ class PublicPaymentHandlerTest {
     @Test
     @DisplayName("POST /{registerId}/create-intent - not exited")
     void createIntent_notExited() throws Exception {
-        Register register = buildRegister(false);
-        when(registerRepository.findById(1L)).thenReturn(Optional.of(register));
+        when(paymentDetailsCache.get(1L))
+                .thenThrow(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Vehicle has not exited yet"));
 
         mockMvc.perform(post("/api/v1/public/pay/1/create-intent"))
                 .andExpect(status().isBadRequest());
     }
+
+    @Test
+    @DisplayName("POST /{registerId}/checkout - details and client secret in one response")
+    void checkout_success() throws Exception {
+        when(paymentDetailsCache.get(1L)).thenReturn(buildDetails());
+        when(paymentService.createRegisterPaymentIntent(1L, 5000L, "USD", "ABC-123"))
+                .thenReturn(Map.of("clientSecret", "cs_123", "paymentIntentId", "pi_123"));
+
+        mockMvc.perform(post("/api/v1/public/pay/1/checkout"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.registerId").value(1))
+                .andExpect(jsonPath("$.plate").value("ABC-123"))
+                .andExpect(jsonPath("$.amount").value(50.0))
+                .andExpect(jsonPath("$.clientSecret").value("cs_123"))
+                .andExpect(jsonPath("$.paymentIntentId").value("pi_123"));
+    }
+
+    @Test
+    @DisplayName("POST /{registerId}/checkout - already paid")
+    void checkout_alreadyPaid() throws Exception {
+        when(paymentDetailsCache.get(1L)).thenReturn(buildDetails());
+        when(paymentService.createRegisterPaymentIntent(1L, 5000L, "USD", "ABC-123"))
+                .thenThrow(new ResponseStatusException(HttpStatus.CONFLICT, "Register is already paid"));
+
+        mockMvc.perform(post("/api/v1/public/pay/1/checkout"))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    @DisplayName("GET /intents/{id}/events - opens the status stream")
+    void streamPaymentStatus_opensStream() throws Exception {
+        when(paymentStatusNotifier.stream("pi_123")).thenReturn(new SseEmitter());
+
+        mockMvc.perform(get("/api/v1/public/pay/intents/pi_123/events"))
+                .andExpect(request().asyncStarted());
+
+        verify(paymentStatusNotifier).stream("pi_123");
+    }
+
+    @Test
+    @DisplayName("GET /intents/{id}/events - unknown intent")
+    void streamPaymentStatus_notFound() throws Exception {
+        when(paymentStatusNotifier.stream("pi_missing"))
+                .thenThrow(new ResponseStatusException(HttpStatus.NOT_FOUND, "Payment not found"));
+
+        mockMvc.perform(get("/api/v1/public/pay/intents/pi_missing/events"))
+                .andExpect(status().isNotFound());
+    }
 }
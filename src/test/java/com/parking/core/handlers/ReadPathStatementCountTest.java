@@ -0,0 +1,206 @@
+package com.parking.core.handlers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.time.LocalDateTime;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.AutoConfigureDataJpa;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.parking.core.auth.services.JWTAuthFilter;
+import com.parking.core.enums.VehicleType;
+import com.parking.core.model.Register;
+import com.parking.core.model.Vehicle;
+import com.parking.core.payment.services.PaymentService;
+import com.parking.core.payment.services.PaymentStatusNotifier;
+import com.parking.core.repository.RegisterRepository;
+import com.parking.core.repository.VehicleRepository;
+import com.parking.core.repository.VehicleUsageRollupRepository;
+import com.parking.core.service.ActiveSessionIndex;
+import com.parking.core.service.BillingPeriodService;
+import com.parking.core.service.GateEventBatchService;
+import com.parking.core.service.NotificationOutboxService;
+import com.parking.core.service.ParkingService;
+import com.parking.core.service.PaymentDetailsCache;
+import com.parking.core.service.PricingEngine;
+import com.parking.core.service.RegisterService;
+import com.parking.core.service.SmsNotificationService;
+import com.parking.core.service.UsageRollupService;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Counts the SQL statements issued by the register read endpoints against a real (H2)
+ * database, so a lazy association touched during serialization or a per-row lookup
+ * shows up as a failing count.
+ */
+@WebMvcTest({RegisterHandler.class, PublicPaymentHandler.class})
+@AutoConfigureMockMvc(addFilters = false)
+@AutoConfigureDataJpa
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({RegisterService.class, ActiveSessionIndex.class, BillingPeriodService.class,
+        PricingEngine.class, PaymentDetailsCache.class})
+@TestPropertySource(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "parking.billing.purge-interval-ms=3600000",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN"
+})
+class ReadPathStatementCountTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    @Autowired
+    private RegisterRepository registerRepository;
+
+    @Autowired
+    private VehicleUsageRollupRepository rollupRepository;
+
+    @Autowired
+    private ActiveSessionIndex sessionIndex;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockitoBean
+    private ParkingService parkingService;
+
+    @MockitoBean
+    private SmsNotificationService smsNotificationService;
+
+    @MockitoBean
+    private NotificationOutboxService outboxService;
+
+    @MockitoBean
+    private GateEventBatchService gateEventBatchService;
+
+    @MockitoBean
+    private PaymentService paymentService;
+
+    // the rollup upsert uses ON CONFLICT ... DO UPDATE, which H2 does not support
+    @MockitoBean
+    private UsageRollupService usageRollupService;
+
+    @MockitoBean
+    private PaymentStatusNotifier paymentStatusNotifier;
+
+    @MockitoBean
+    private JWTAuthFilter jwtAuthFilter;
+
+    @MockitoBean
+    private RedisTemplate<String, String> redisTemplate;
+
+    @MockitoBean
+    private RedisMessageListenerContainer listenerContainer;
+
+    private Statistics statistics;
+    private long closedRegisterId;
+
+    @BeforeEach
+    void setUp() {
+        LocalDateTime base = LocalDateTime.of(2025, 3, 1, 8, 0);
+        String[] plates = {"AAA111", "BBB222", "CCC333"};
+        for (int i = 0; i < plates.length; i++) {
+            Vehicle vehicle = vehicleRepository.save(new Vehicle(plates[i], VehicleType.values()[i]));
+            Register register = new Register(vehicle);
+            register.setEntrydate(base.plusMinutes(i));
+            register.setExitdate(base.plusMinutes(i + 30));
+            register.setMinutes(30);
+            register.setBillingPeriod(1);
+            closedRegisterId = registerRepository.save(register).getId();
+        }
+        vehicleRepository.save(new Vehicle("DDD444", VehicleType.NON_RESIDENT));
+        sessionIndex.warmUp();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        rollupRepository.deleteAllInBatch();
+        registerRepository.deleteAllInBatch();
+        vehicleRepository.deleteAllInBatch();
+        sessionIndex.warmUp();
+    }
+
+    @Test
+    @DisplayName("GET /registers - one statement for a page of registers of different vehicles")
+    void listRegisters() throws Exception {
+        mockMvc.perform(get("/api/v1/parking/registers"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(3))
+                .andExpect(jsonPath("$.registers[0].vehicle.id").value("CCC333"));
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    @DisplayName("GET /public/pay/{id} - one statement for the first view, none for repeat views")
+    void paymentDetails() throws Exception {
+        String etag = mockMvc.perform(get("/api/v1/public/pay/" + closedRegisterId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.plate").value("CCC333"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        mockMvc.perform(get("/api/v1/public/pay/" + closedRegisterId))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/v1/public/pay/" + closedRegisterId).header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    @DisplayName("POST /register then /leave - the vehicle is loaded once per request")
+    void entryAndExit() throws Exception {
+        mockMvc.perform(post("/api/v1/parking/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"vehicleId": "DDD444", "vehicleType": "NON_RESIDENT"}
+                                """))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.register.vehicle.type").value("NON_RESIDENT"));
+
+        // vehicle select + register insert
+        assertEquals(2, statistics.getPrepareStatementCount());
+        statistics.clear();
+
+        mockMvc.perform(post("/api/v1/parking/leave")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"id": "DDD444", "type": "NON_RESIDENT"}
+                                """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.register.vehicle.id").value("DDD444"));
+
+        // register + vehicle select, register update
+        assertEquals(2, statistics.getPrepareStatementCount());
+        verify(usageRollupService).recordClose(any(Register.class));
+    }
+}
@@ -23,7 +23,14 @@ import com.parking.core.auth.services.JWTAuthFilter;
 import com.parking.core.enums.VehicleType;
 import com.parking.core.model.Register;
 import com.parking.core.model.Vehicle;
+import com.parking.core.enums.GateEventType;
+import com.parking.core.model.dto.GateEventResult;
 import com.parking.core.model.dto.RegisterEntryRequest;
+import com.parking.core.model.dto.RegisterFilter;
+import com.parking.core.model.dto.RegisterDTO;
+import com.parking.core.model.dto.RegisterPage;
+import com.parking.core.model.dto.VehicleDTO;
+import com.parking.core.service.GateEventBatchService;
 import com.parking.core.service.RegisterService;
 
 @WebMvcTest(RegisterHandler.class)
@@ -36,21 +43,55 @@ class RegisterHandlerTest {
     @MockitoBean
     private RegisterService registerService;
 
+    @MockitoBean
+    private GateEventBatchService gateEventBatchService;
+
     @MockitoBean
     private JWTAuthFilter jwtAuthFilter;
 
     @Test
-    @DisplayName("GET /registers - should return all registers")
+    @DisplayName("GET /registers - should return a page of registers")
     void shouldReturnAllRegisters() throws Exception {
-        Vehicle v = new Vehicle("ABC123", VehicleType.NON_RESIDENT);
-        Register r = new Register(v);
-        r.setId(1L);
-        r.setEntrydate(LocalDateTime.now());
-        when(registerService.getAllRegisters()).thenReturn(List.of(r));
+        RegisterDTO r = new RegisterDTO(1L, new VehicleDTO("ABC123", VehicleType.NON_RESIDENT),
+                LocalDateTime.of(2025, 3, 1, 8, 30), null, 0, null);
+        when(registerService.getRegisters(new RegisterFilter(null, null, null, null, null), null, 50))
+                .thenReturn(new RegisterPage(List.of(r), "next"));
 
         mockMvc.perform(get("/api/v1/parking/registers"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.registers.length()").value(1));
+                .andExpect(jsonPath("$.registers.length()").value(1))
+                .andExpect(jsonPath("$.registers[0].vehicle.id").value("ABC123"))
+                .andExpect(jsonPath("$.registers[0].entrydate").value("01-03-2025 08:30:00"))
+                .andExpect(jsonPath("$.count").value(1))
+                .andExpect(jsonPath("$.nextCursor").value("next"));
+    }
+
+    @Test
+    @DisplayName("GET /registers - should pass the filters and cursor to the service")
+    void shouldFilterRegisters() throws Exception {
+        LocalDateTime from = LocalDateTime.of(2025, 1, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2025, 2, 1, 0, 0);
+        when(registerService.getRegisters(new RegisterFilter("ABC123", VehicleType.RESIDENT, true, from, to), "abc", 20))
+                .thenReturn(new RegisterPage(List.of(), null));
+
+        mockMvc.perform(get("/api/v1/parking/registers")
+                        .param("vehicleId", "ABC123")
+                        .param("type", "resident")
+                        .param("open", "true")
+                        .param("from", "2025-01-01T00:00:00")
+                        .param("to", "2025-02-01T00:00:00")
+                        .param("cursor", "abc")
+                        .param("limit", "20"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(0))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    @Test
+    @DisplayName("GET /registers - should return 400 for an unknown vehicle type")
+    void shouldRejectUnknownType() throws Exception {
+        mockMvc.perform(get("/api/v1/parking/registers").param("type", "truck"))
+                .andExpect(status().isBadRequest());
     }
 
     @Test
@@ -120,4 +161,36 @@ class RegisterHandlerTest {
                 .andExpect(status().isBadRequest())
                 .andExpect(jsonPath("$.message").value("No active register found for vehicle"));
     }
+
+    @Test
+    @DisplayName("POST /register/batch - should return per-event results")
+    void shouldProcessBatch() throws Exception {
+        when(gateEventBatchService.process(any())).thenReturn(List.of(
+                new GateEventResult(0, "ABC123", GateEventType.ENTRY, 201, 1L, "Register created successfully"),
+                new GateEventResult(1, "ZZZ999", GateEventType.EXIT, 400, null, "No active register found for vehicle")));
+
+        mockMvc.perform(post("/api/v1/parking/register/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"events": [
+                                  {"type": "ENTRY", "vehicleId": "ABC123"},
+                                  {"type": "EXIT", "vehicleId": "ZZZ999"}
+                                ]}
+                                """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.processed").value(2))
+                .andExpect(jsonPath("$.succeeded").value(1))
+                .andExpect(jsonPath("$.results[1].status").value(400));
+    }
+
+    @Test
+    @DisplayName("POST /register/batch - should return 400 for an empty batch")
+    void shouldReturn400ForEmptyBatch() throws Exception {
+        mockMvc.perform(post("/api/v1/parking/register/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"events": []}
+                                """))
+                .andExpect(status().isBadRequest());
+    }
 }
@@ -1,10 +1,18 @@
 package com.parking.core.handlers;
 
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 import java.io.File;
+import java.io.OutputStream;
 
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -14,10 +22,13 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.http.HttpStatus;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.web.server.ResponseStatusException;
 
 import com.parking.core.auth.services.JWTAuthFilter;
+import com.parking.core.enums.ReportFormat;
 import com.parking.core.service.ReportService;
+import com.parking.core.service.UsageRollupService;
 
 @WebMvcTest(ReportHandler.class)
 @AutoConfigureMockMvc(addFilters = false)
@@ -29,6 +40,9 @@ class ReportHandlerTest {
     @MockitoBean
     private ReportService reportService;
 
+    @MockitoBean
+    private UsageRollupService usageRollupService;
+
     @MockitoBean
     private JWTAuthFilter jwtAuthFilter;
 
@@ -55,4 +69,61 @@ class ReportHandlerTest {
                 .andExpect(status().isBadRequest())
                 .andExpect(jsonPath("$.message").value("There are not resident vehicles"));
     }
+
+    @Test
+    @DisplayName("GET /monthly/download - should stream the report as an attachment")
+    void shouldStreamReport() throws Exception {
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(2).write("plate,minutes,sessions,amount\n".getBytes());
+            return null;
+        }).when(reportService).writeReportMonthly(eq(ReportFormat.CSV), eq(false), any(OutputStream.class));
+
+        MvcResult result = mockMvc.perform(get("/api/v1/parking/reports/monthly/download").param("format", "csv"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Disposition", containsString("informe_estacionamiento.csv")))
+                .andExpect(content().string("plate,minutes,sessions,amount\n"));
+    }
+
+    @Test
+    @DisplayName("GET /monthly/download - should return 400 before streaming when no residents")
+    void shouldReturn400BeforeStreaming() throws Exception {
+        doThrow(new ResponseStatusException(HttpStatus.BAD_REQUEST, "There are not resident vehicles"))
+                .when(reportService).requireResidents();
+
+        mockMvc.perform(get("/api/v1/parking/reports/monthly/download"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("GET /monthly/download - should reject unknown formats")
+    void shouldRejectUnknownFormat() throws Exception {
+        mockMvc.perform(get("/api/v1/parking/reports/monthly/download").param("format", "pdf"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("POST /rollup/rebuild - should rebuild a single billing period")
+    void shouldRebuildPeriod() throws Exception {
+        when(usageRollupService.rebuild(3L, 3L)).thenReturn(42);
+
+        mockMvc.perform(post("/api/v1/parking/reports/rollup/rebuild").param("period", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.period").value(3))
+                .andExpect(jsonPath("$.rows").value(42));
+    }
+
+    @Test
+    @DisplayName("POST /rollup/rebuild - should rebuild every period when none is given")
+    void shouldRebuildAllPeriods() throws Exception {
+        when(usageRollupService.rebuildAll()).thenReturn(7);
+
+        mockMvc.perform(post("/api/v1/parking/reports/rollup/rebuild"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.period").value("all"))
+                .andExpect(jsonPath("$.rows").value(7));
+    }
 }
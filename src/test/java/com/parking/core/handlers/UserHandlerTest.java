@@ -1,6 +1,7 @@
 package com.parking.core.handlers;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -13,6 +14,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.web.server.ResponseStatusException;
@@ -21,6 +23,8 @@ import com.parking.core.auth.services.JWTAuthFilter;
 import com.parking.core.enums.Roles;
 import com.parking.core.model.User;
 import com.parking.core.model.Response.PageResponse;
+import com.parking.core.model.dto.UserDTO;
+import com.parking.core.model.dto.UserSlice;
 import com.parking.core.service.UserService;
 
 @WebMvcTest(UserHandler.class)
@@ -61,6 +65,44 @@ class UserHandlerTest {
                 .andExpect(jsonPath("$.status").value(404));
     }
 
+    @Test
+    @DisplayName("GET /search - should return matching users")
+    void shouldSearchUsers() throws Exception {
+        UserDTO dto = new UserDTO("John Doe", "johndoe", "john@example.com", Roles.USER);
+        when(userService.searchUsers("john", 20)).thenReturn(List.of(dto));
+
+        mockMvc.perform(get("/api/v1/parking/users/search")
+                        .param("q", "john"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(1))
+                .andExpect(jsonPath("$.users[0].username").value("johndoe"));
+    }
+
+    @Test
+    @DisplayName("GET /search - should return 400 without a query")
+    void shouldRejectSearchWithoutQuery() throws Exception {
+        when(userService.searchUsers(null, 20))
+                .thenThrow(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Search query is required"));
+
+        mockMvc.perform(get("/api/v1/parking/users/search"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("GET /scroll - should return a keyset page with the cached total")
+    void shouldReturnUserSlice() throws Exception {
+        UserDTO dto = new UserDTO("John Doe", "johndoe", "john@example.com", Roles.USER);
+        when(userService.getUsersSlice("abc", 20)).thenReturn(new UserSlice(List.of(dto), "def", 42));
+
+        mockMvc.perform(get("/api/v1/parking/users/scroll")
+                        .param("cursor", "abc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users[0].username").value("johndoe"))
+                .andExpect(jsonPath("$.count").value(1))
+                .andExpect(jsonPath("$.nextCursor").value("def"))
+                .andExpect(jsonPath("$.total").value(42));
+    }
+
     @Test
     @DisplayName("GET / - should return all users")
     void shouldReturnAllUsers() throws Exception {
@@ -87,4 +129,30 @@ class UserHandlerTest {
                 .andExpect(jsonPath("$.currentPage").value(0))
                 .andExpect(jsonPath("$.totalPages").value(1));
     }
+
+    @Test
+    @DisplayName("PUT /{username}/role - should change the role through the service")
+    void shouldChangeRole() throws Exception {
+        User user = new User("John Doe", "johndoe", Roles.ADMIN, "john@example.com", null);
+        when(userService.changeRole("johndoe", Roles.ADMIN)).thenReturn(user);
+
+        mockMvc.perform(put("/api/v1/parking/users/johndoe/role")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"role\":\"admin\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.user.username").value("johndoe"))
+                .andExpect(jsonPath("$.user.role").value("ADMIN"))
+                .andExpect(jsonPath("$.user.password").doesNotExist());
+    }
+
+    @Test
+    @DisplayName("PUT /{username}/role - should return 400 for an unknown role")
+    void shouldRejectUnknownRole() throws Exception {
+        mockMvc.perform(put("/api/v1/parking/users/johndoe/role")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"role\":\"ROOT\"}"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(userService);
+    }
 }
@@ -47,6 +47,20 @@ class DtoMapperTest {
         assertNotNull(dto.exitDate());
     }
 
+    @Test
+    @DisplayName("toRegisterDTO - maps a RegisterRow projection correctly")
+    void toRegisterDTOFromRow() {
+        RegisterRow row = new RegisterRow(2L, "GHI-789", VehicleType.RESIDENT,
+                LocalDateTime.of(2025, 1, 15, 10, 0), null, 0, null);
+
+        RegisterDTO dto = DtoMapper.toRegisterDTO(row);
+
+        assertEquals(2L, dto.id());
+        assertEquals("GHI-789", dto.vehicle().id());
+        assertEquals(VehicleType.RESIDENT, dto.vehicle().type());
+        assertNull(dto.exitDate());
+    }
+
     @Test
     @DisplayName("toUserDTO - maps User correctly (excludes password)")
     void toUserDTO() {
@@ -22,6 +22,7 @@ import com.parking.core.payment.Requests.CustomerRequest;
 import com.parking.core.payment.Requests.UserAddress;
 import com.parking.core.payment.response.CustomerResponse;
 import com.parking.core.payment.services.CustomerService;
+import com.parking.core.payment.services.StripeCustomerDirectory;
 
 @WebMvcTest(CustomerHandler.class)
 @AutoConfigureMockMvc(addFilters = false)
@@ -33,6 +34,9 @@ class CustomerHandlerTest {
     @MockitoBean
     private CustomerService customerService;
 
+    @MockitoBean
+    private StripeCustomerDirectory customerDirectory;
+
     @MockitoBean
     private JWTAuthFilter jwtAuthFilter;
 
@@ -67,4 +71,15 @@ class CustomerHandlerTest {
                                 """))
                 .andExpect(status().isInternalServerError());
     }
+
+    @Test
+    @DisplayName("POST /backfill - returns the number of users mapped")
+    void backfill_success() throws Exception {
+        when(customerDirectory.backfill()).thenReturn(42);
+
+        mockMvc.perform(post("/api/customers/backfill"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("Stripe customers backfilled successfully"))
+                .andExpect(jsonPath("$.recorded").value(42));
+    }
 }
@@ -1,7 +1,9 @@
 package com.parking.core.payment.handlers;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -12,15 +14,19 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.server.ResponseStatusException;
 
 import com.parking.core.auth.services.JWTAuthFilter;
 import com.parking.core.enums.Currencies;
 import com.parking.core.payment.Requests.InvoiceRequest;
 import com.parking.core.payment.Requests.UserTax;
+import com.parking.core.payment.response.InvoiceBatchProgress;
 import com.parking.core.payment.response.InvoiceResponse;
+import com.parking.core.payment.services.InvoiceBatchService;
 import com.parking.core.payment.services.InvoiceService;
 
 import java.math.BigDecimal;
@@ -35,6 +41,9 @@ class InvoiceHandlerTest {
     @MockitoBean
     private InvoiceService invoiceService;
 
+    @MockitoBean
+    private InvoiceBatchService invoiceBatchService;
+
     @MockitoBean
     private JWTAuthFilter jwtAuthFilter;
 
@@ -69,4 +78,66 @@ class InvoiceHandlerTest {
                                 """))
                 .andExpect(status().isInternalServerError());
     }
+
+    @Test
+    @DisplayName("POST /batch - accepts the batch")
+    void addInvoiceBatch_accepted() throws Exception {
+        when(invoiceBatchService.submit(anyList())).thenReturn("batch-1");
+
+        mockMvc.perform(post("/api/invoices/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"invoices":[
+                                    {"customer":"cus_1","currency":"COP","product":{"hours":2,"price":25000}},
+                                    {"customer":"cus_2","currency":"COP","product":{"hours":3,"price":25000}}
+                                ]}
+                                """))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.batchId").value("batch-1"))
+                .andExpect(jsonPath("$.total").value(2));
+    }
+
+    @Test
+    @DisplayName("POST /batch - empty batch returns 400")
+    void addInvoiceBatch_empty() throws Exception {
+        mockMvc.perform(post("/api/invoices/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"invoices":[]}
+                                """))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("GET /batch/{id} - returns the progress")
+    void getInvoiceBatch_progress() throws Exception {
+        when(invoiceBatchService.progress("batch-1"))
+                .thenReturn(new InvoiceBatchProgress("batch-1", 3, 1, 1, 1, true, Map.of("cus_3", "No such customer")));
+
+        mockMvc.perform(get("/api/invoices/batch/batch-1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.invoiced").value(1))
+                .andExpect(jsonPath("$.running").value(true))
+                .andExpect(jsonPath("$.failures.cus_3").value("No such customer"));
+    }
+
+    @Test
+    @DisplayName("POST /batch/{id}/resume - returns the remaining invoices")
+    void resumeInvoiceBatch_accepted() throws Exception {
+        when(invoiceBatchService.resume("batch-1")).thenReturn(4);
+
+        mockMvc.perform(post("/api/invoices/batch/batch-1/resume"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.remaining").value(4));
+    }
+
+    @Test
+    @DisplayName("POST /batch/{id}/resume - running batch returns 409")
+    void resumeInvoiceBatch_running() throws Exception {
+        when(invoiceBatchService.resume("batch-1"))
+                .thenThrow(new ResponseStatusException(HttpStatus.CONFLICT, "Invoice batch is already running"));
+
+        mockMvc.perform(post("/api/invoices/batch/batch-1/resume"))
+                .andExpect(status().isConflict());
+    }
 }
@@ -19,6 +19,7 @@ import org.springframework.test.web.servlet.MockMvc;
 import com.parking.core.auth.services.JWTAuthFilter;
 import com.parking.core.payment.Requests.PaymentRequest;
 import com.parking.core.payment.services.PaymentService;
+import com.parking.core.service.RegisterService;
 
 @WebMvcTest(PaymentHandler.class)
 @AutoConfigureMockMvc(addFilters = false)
@@ -30,6 +31,9 @@ class PaymentHandlerTest {
     @MockitoBean
     private PaymentService paymentService;
 
+    @MockitoBean
+    private RegisterService registerService;
+
     @MockitoBean
     private JWTAuthFilter jwtAuthFilter;
 
@@ -1,13 +1,10 @@
 package com.parking.core.payment.handlers;
 
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
-import java.util.Optional;
-
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.mockito.MockedStatic;
@@ -20,12 +17,9 @@ import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
 import com.parking.core.auth.services.JWTAuthFilter;
-import com.parking.core.enums.PaymentStatus;
-import com.parking.core.payment.services.PaymentService;
+import com.parking.core.payment.services.StripeWebhookInboxService;
 import com.stripe.exception.SignatureVerificationException;
 import com.stripe.model.Event;
-import com.stripe.model.EventDataObjectDeserializer;
-import com.stripe.model.PaymentIntent;
 import com.stripe.net.Webhook;
 
 @WebMvcTest(WebhookHandler.class)
@@ -36,23 +30,19 @@ class WebhookHandlerTest {
     private MockMvc mockMvc;
 
     @MockitoBean
-    private PaymentService paymentService;
+    private StripeWebhookInboxService inboxService;
 
     @MockitoBean
     private JWTAuthFilter jwtAuthFilter;
 
     @Test
-    @DisplayName("POST /stripe - payment_intent.succeeded")
+    @DisplayName("POST /stripe - stores the verified event in the inbox")
     void webhook_succeeded() throws Exception {
         try (MockedStatic<Webhook> webhookStatic = Mockito.mockStatic(Webhook.class)) {
             Event event = mock(Event.class);
+            when(event.getId()).thenReturn("evt_123");
             when(event.getType()).thenReturn("payment_intent.succeeded");
-
-            EventDataObjectDeserializer deserializer = mock(EventDataObjectDeserializer.class);
-            PaymentIntent intent = mock(PaymentIntent.class);
-            when(intent.getId()).thenReturn("pi_123");
-            when(deserializer.getObject()).thenReturn(Optional.of(intent));
-            when(event.getDataObjectDeserializer()).thenReturn(deserializer);
+            when(inboxService.receive("evt_123", "payment_intent.succeeded", "{}")).thenReturn(true);
 
             webhookStatic.when(() -> Webhook.constructEvent(any(), any(), any()))
                     .thenReturn(event);
@@ -64,22 +54,18 @@ class WebhookHandlerTest {
                     .andExpect(status().isOk())
                     .andExpect(content().string("received"));
 
-            verify(paymentService).updatePaymentStatus("pi_123", PaymentStatus.SUCCEEDED);
+            verify(inboxService).receive("evt_123", "payment_intent.succeeded", "{}");
         }
     }
 
     @Test
-    @DisplayName("POST /stripe - payment_intent.payment_failed")
-    void webhook_failed() throws Exception {
+    @DisplayName("POST /stripe - acknowledges a retried event")
+    void webhook_duplicate() throws Exception {
         try (MockedStatic<Webhook> webhookStatic = Mockito.mockStatic(Webhook.class)) {
             Event event = mock(Event.class);
+            when(event.getId()).thenReturn("evt_456");
             when(event.getType()).thenReturn("payment_intent.payment_failed");
-
-            EventDataObjectDeserializer deserializer = mock(EventDataObjectDeserializer.class);
-            PaymentIntent intent = mock(PaymentIntent.class);
-            when(intent.getId()).thenReturn("pi_456");
-            when(deserializer.getObject()).thenReturn(Optional.of(intent));
-            when(event.getDataObjectDeserializer()).thenReturn(deserializer);
+            when(inboxService.receive("evt_456", "payment_intent.payment_failed", "{}")).thenReturn(false);
 
             webhookStatic.when(() -> Webhook.constructEvent(any(), any(), any()))
                     .thenReturn(event);
@@ -91,7 +77,7 @@ class WebhookHandlerTest {
                     .andExpect(status().isOk())
                     .andExpect(content().string("received"));
 
-            verify(paymentService).updatePaymentStatus("pi_456", PaymentStatus.FAILED);
+            verify(inboxService).receive("evt_456", "payment_intent.payment_failed", "{}");
         }
     }
 
@@ -108,14 +94,17 @@ class WebhookHandlerTest {
                             .content("{}"))
                     .andExpect(status().isBadRequest())
                     .andExpect(content().string("Invalid signature"));
+
+            verifyNoInteractions(inboxService);
         }
     }
 
     @Test
-    @DisplayName("POST /stripe - unknown event type")
+    @DisplayName("POST /stripe - other event types are stored too")
     void webhook_unknownEvent() throws Exception {
         try (MockedStatic<Webhook> webhookStatic = Mockito.mockStatic(Webhook.class)) {
             Event event = mock(Event.class);
+            when(event.getId()).thenReturn("evt_789");
             when(event.getType()).thenReturn("charge.refunded");
 
             webhookStatic.when(() -> Webhook.constructEvent(any(), any(), any()))
@@ -128,7 +117,7 @@ class WebhookHandlerTest {
                     .andExpect(status().isOk())
                     .andExpect(content().string("received"));
 
-            verify(paymentService, never()).updatePaymentStatus(any(), any());
+            verify(inboxService).receive("evt_789", "charge.refunded", "{}");
         }
     }
 }
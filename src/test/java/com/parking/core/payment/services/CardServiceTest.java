@@ -24,11 +24,13 @@ import com.stripe.param.PaymentMethodCreateParams;
 class CardServiceTest {
 
     private CardService cardService;
+    private StripeCustomerDirectory customerDirectory;
     private MockedStatic<PaymentMethod> paymentMethodStatic;
 
     @BeforeEach
     void setUp() {
-        cardService = new CardService();
+        customerDirectory = mock(StripeCustomerDirectory.class);
+        cardService = new CardService(customerDirectory);
         paymentMethodStatic = Mockito.mockStatic(PaymentMethod.class);
     }
 
@@ -90,4 +92,24 @@ class CardServiceTest {
 
         assertThrows(RuntimeException.class, () -> cardService.attachCardToCustomer(buildRequest()));
     }
+
+    @Test
+    @DisplayName("attachCardToCustomer - resolves a missing customer id from the email locally")
+    void attachCardToCustomer_resolvesCustomerId() throws StripeException {
+        PaymentMethod pm = mock(PaymentMethod.class);
+        PaymentMethod.Card card = mock(PaymentMethod.Card.class);
+        when(card.getExpMonth()).thenReturn(12L);
+        when(card.getExpYear()).thenReturn(2030L);
+        when(pm.getCard()).thenReturn(card);
+        paymentMethodStatic.when(() -> PaymentMethod.create(any(PaymentMethodCreateParams.class)))
+                .thenReturn(pm);
+        when(customerDirectory.requireCustomerId("john@test.com")).thenReturn("cus_local");
+
+        var customer = new CustomerRequest(null, "John", "john@test.com", new UserAddress("CO", "Bogota", "Calle 1"));
+        CardResponse response = cardService.attachCardToCustomer(
+                new CardRequest(customer, "123", 12L, 2030L, "4242424242424242", Currencies.COP));
+
+        assertEquals("cus_local", ((CustomerRequest) response.customer()).id());
+        verify(pm).attach(argThat((PaymentMethodAttachParams params) -> "cus_local".equals(params.getCustomer())));
+    }
 }
@@ -4,9 +4,10 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Optional;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -16,23 +17,29 @@ import org.mockito.MockedStatic;
 import org.mockito.Mockito;
 import org.springframework.web.server.ResponseStatusException;
 
+import com.parking.core.enums.Roles;
+import com.parking.core.model.User;
 import com.parking.core.payment.Requests.CustomerRequest;
 import com.parking.core.payment.Requests.UserAddress;
 import com.parking.core.payment.response.CustomerResponse;
+import com.parking.core.repository.UserRepository;
 import com.stripe.model.Address;
 import com.stripe.model.Customer;
-import com.stripe.model.CustomerCollection;
+import com.stripe.net.RequestOptions;
 import com.stripe.param.CustomerCreateParams;
-import com.stripe.param.CustomerListParams;
 
 class CustomerServiceTest {
 
     private CustomerService customerService;
+    private StripeCustomerDirectory customerDirectory;
+    private UserRepository userRepository;
     private MockedStatic<Customer> customerStatic;
 
     @BeforeEach
     void setUp() {
-        customerService = new CustomerService();
+        customerDirectory = mock(StripeCustomerDirectory.class);
+        userRepository = mock(UserRepository.class);
+        customerService = new CustomerService(customerDirectory, userRepository);
         customerStatic = Mockito.mockStatic(Customer.class);
     }
 
@@ -46,13 +53,17 @@ class CustomerServiceTest {
                 new UserAddress("CO", "Bogota", "Calle 1"));
     }
 
+    private User registered(String email) {
+        User user = new User("John", "john", Roles.USER, email, null);
+        when(userRepository.findByEmail(email)).thenReturn(Optional.of(user));
+        return user;
+    }
+
     @Test
     @DisplayName("addNewCustomer - success")
     void addNewCustomer_success() throws Exception {
-        CustomerCollection emptyCollection = mock(CustomerCollection.class);
-        when(emptyCollection.getData()).thenReturn(Collections.emptyList());
-        customerStatic.when(() -> Customer.list(any(CustomerListParams.class)))
-                .thenReturn(emptyCollection);
+        when(customerDirectory.findCustomerId("john@test.com")).thenReturn(Optional.empty());
+        User owner = registered("john@test.com");
 
         Customer created = mock(Customer.class);
         when(created.getId()).thenReturn("cus_new");
@@ -67,7 +78,7 @@ class CustomerServiceTest {
         when(created.getEmail()).thenReturn("john@test.com");
         when(created.getMetadata()).thenReturn(new HashMap<>());
 
-        customerStatic.when(() -> Customer.create(any(CustomerCreateParams.class)))
+        customerStatic.when(() -> Customer.create(any(CustomerCreateParams.class), any(RequestOptions.class)))
                 .thenReturn(created);
 
         CustomerResponse response = customerService.addNewCustomer(buildRequest());
@@ -75,38 +86,74 @@ class CustomerServiceTest {
         assertNotNull(response);
         assertEquals("cus_new", response.id());
         assertEquals("john@test.com", response.email());
+        verify(customerDirectory).record(owner, "cus_new");
     }
 
     @Test
-    @DisplayName("addNewCustomer - conflict 409 when customer exists")
+    @DisplayName("addNewCustomer - conflict 409 when the customer is mapped locally")
     void addNewCustomer_conflict() throws Exception {
-        CustomerCollection existingCollection = mock(CustomerCollection.class);
-        Customer existing = mock(Customer.class);
-        when(existingCollection.getData()).thenReturn(List.of(existing));
-        customerStatic.when(() -> Customer.list(any(CustomerListParams.class)))
-                .thenReturn(existingCollection);
+        when(customerDirectory.findCustomerId("john@test.com")).thenReturn(Optional.of("cus_123"));
 
         ResponseStatusException ex = assertThrows(ResponseStatusException.class,
                 () -> customerService.addNewCustomer(buildRequest()));
         assertEquals(409, ex.getStatusCode().value());
+        customerStatic.verifyNoInteractions();
+    }
+
+    @Test
+    @DisplayName("addNewCustomer - the idempotency key changes with the params")
+    void addNewCustomer_idempotencyKeyCoversParams() throws Exception {
+        when(customerDirectory.findCustomerId("john@test.com")).thenReturn(Optional.empty());
+        registered("john@test.com");
+        Customer created = mock(Customer.class, RETURNS_DEEP_STUBS);
+        when(created.getId()).thenReturn("cus_new");
+        when(created.getMetadata()).thenReturn(new HashMap<>());
+        List<String> keys = new ArrayList<>();
+        customerStatic.when(() -> Customer.create(any(CustomerCreateParams.class), any(RequestOptions.class)))
+                .thenAnswer(invocation -> {
+                    keys.add(invocation.<RequestOptions>getArgument(1).getIdempotencyKey());
+                    return created;
+                });
+
+        customerService.addNewCustomer(buildRequest());
+        customerService.addNewCustomer(buildRequest());
+        customerService.addNewCustomer(new CustomerRequest("cus_123", "John Smith", "john@test.com",
+                new UserAddress("CO", "Bogota", "Calle 1")));
+
+        assertEquals(keys.get(0), keys.get(1));
+        assertNotEquals(keys.get(0), keys.get(2));
+        assertTrue(keys.get(0).startsWith("customer-john@test.com-"));
+    }
+
+    @Test
+    @DisplayName("addNewCustomer - 404 when no user is registered with the email")
+    void addNewCustomer_unknownUser() throws Exception {
+        when(customerDirectory.findCustomerId("john@test.com")).thenReturn(Optional.empty());
+        when(userRepository.findByEmail("john@test.com")).thenReturn(Optional.empty());
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> customerService.addNewCustomer(buildRequest()));
+        assertEquals(404, ex.getStatusCode().value());
+        customerStatic.verifyNoInteractions();
     }
 
     @Test
     @DisplayName("addNewCustomer - Stripe API error")
-    void addNewCustomer_stripeError() {
-        customerStatic.when(() -> Customer.list(any(CustomerListParams.class)))
+    void addNewCustomer_stripeError() throws Exception {
+        when(customerDirectory.findCustomerId("john@test.com")).thenReturn(Optional.empty());
+        registered("john@test.com");
+        customerStatic.when(() -> Customer.create(any(CustomerCreateParams.class), any(RequestOptions.class)))
                 .thenThrow(new RuntimeException("Stripe down"));
 
         assertThrows(RuntimeException.class, () -> customerService.addNewCustomer(buildRequest()));
+        verify(customerDirectory, never()).record(any(), any());
     }
 
     @Test
     @DisplayName("addNewCustomer - address mapping works correctly")
     void addNewCustomer_addressMapping() throws Exception {
-        CustomerCollection emptyCollection = mock(CustomerCollection.class);
-        when(emptyCollection.getData()).thenReturn(Collections.emptyList());
-        customerStatic.when(() -> Customer.list(any(CustomerListParams.class)))
-                .thenReturn(emptyCollection);
+        when(customerDirectory.findCustomerId("addr@test.com")).thenReturn(Optional.empty());
+        registered("addr@test.com");
 
         Customer created = mock(Customer.class);
         when(created.getId()).thenReturn("cus_addr");
@@ -121,7 +168,7 @@ class CustomerServiceTest {
         when(created.getEmail()).thenReturn("addr@test.com");
         when(created.getMetadata()).thenReturn(new HashMap<>());
 
-        customerStatic.when(() -> Customer.create(any(CustomerCreateParams.class)))
+        customerStatic.when(() -> Customer.create(any(CustomerCreateParams.class), any(RequestOptions.class)))
                 .thenReturn(created);
 
         var req = new CustomerRequest("cus_x", "Addr User", "addr@test.com",
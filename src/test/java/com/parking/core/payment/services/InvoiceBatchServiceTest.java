@@ -0,0 +1,260 @@
+package com.parking.core.payment.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.parking.core.enums.Currencies;
+import com.parking.core.enums.InvoiceBatchStatus;
+import com.parking.core.model.InvoiceBatchItem;
+import com.parking.core.model.Product;
+import com.parking.core.payment.Requests.InvoiceRequest;
+import com.parking.core.payment.response.InvoiceBatchProgress;
+import com.parking.core.payment.response.InvoiceResponse;
+import com.parking.core.repository.InvoiceBatchItemRepository;
+import com.stripe.exception.ApiConnectionException;
+
+@ExtendWith(MockitoExtension.class)
+class InvoiceBatchServiceTest {
+
+    @Mock
+    private InvoiceBatchItemRepository repository;
+
+    @Mock
+    private InvoiceService invoiceService;
+
+    private InvoiceBatchService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new InvoiceBatchService(repository, invoiceService, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    private static InvoiceRequest request(String customer) {
+        return new InvoiceRequest(customer, Currencies.COP, new Product(10, 5000L));
+    }
+
+    private static InvoiceResponse invoice(String id) {
+        return new InvoiceResponse(id, Currencies.COP, null, null, Map.of());
+    }
+
+    private void stubSaveAll() {
+        AtomicLong ids = new AtomicLong();
+        when(repository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<InvoiceBatchItem> items = invocation.getArgument(0);
+            items.forEach(item -> item.setId(ids.incrementAndGet()));
+            return items;
+        });
+    }
+
+    @Test
+    @DisplayName("submit - invoices every customer and records each outcome")
+    void submit_recordsOutcomes() throws Exception {
+        stubSaveAll();
+        when(invoiceService.createDraftInvoice(any(InvoiceRequest.class), eq("invoice-batch-1-0")))
+                .thenReturn("inv_1");
+        when(invoiceService.addParkingTime(any(InvoiceRequest.class), eq("inv_1"), eq("invoice-batch-1")))
+                .thenReturn(invoice("inv_1"));
+        when(invoiceService.createDraftInvoice(any(InvoiceRequest.class), eq("invoice-batch-2-0")))
+                .thenThrow(new ApiConnectionException("timeout"));
+        List<InvoiceBatchItem> saved = new ArrayList<>();
+        when(repository.save(any(InvoiceBatchItem.class))).thenAnswer(invocation -> {
+            synchronized (saved) {
+                saved.add(invocation.getArgument(0));
+            }
+            return invocation.getArgument(0);
+        });
+
+        String batchId = service.submit(List.of(request("cus_1"), request("cus_2")));
+        service.completion(batchId).join();
+
+        InvoiceBatchItem first = saved.stream().filter(item -> item.getId() == 1L).findFirst().orElseThrow();
+        InvoiceBatchItem second = saved.stream().filter(item -> item.getId() == 2L).findFirst().orElseThrow();
+        assertEquals(InvoiceBatchStatus.INVOICED, first.getStatus());
+        assertEquals("inv_1", first.getInvoiceId());
+        assertEquals(InvoiceBatchStatus.FAILED, second.getStatus());
+        assertNull(second.getInvoiceId());
+        assertEquals(1, second.getAttempts());
+        assertEquals("timeout", second.getLastError());
+    }
+
+    @Test
+    @DisplayName("submit - stores the draft invoice id before adding its item")
+    void submit_recordsDraftBeforeItem() throws Exception {
+        stubSaveAll();
+        when(invoiceService.createDraftInvoice(any(InvoiceRequest.class), eq("invoice-batch-1-0")))
+                .thenReturn("inv_1");
+        List<String> savedInvoiceIds = new ArrayList<>();
+        when(repository.save(any(InvoiceBatchItem.class))).thenAnswer(invocation -> {
+            savedInvoiceIds.add(invocation.<InvoiceBatchItem>getArgument(0).getInvoiceId());
+            return invocation.getArgument(0);
+        });
+        when(invoiceService.addParkingTime(any(InvoiceRequest.class), eq("inv_1"), eq("invoice-batch-1")))
+                .thenAnswer(invocation -> {
+                    assertEquals(List.of("inv_1"), savedInvoiceIds);
+                    throw new ApiConnectionException("timeout");
+                });
+
+        String batchId = service.submit(List.of(request("cus_1")));
+        service.completion(batchId).join();
+
+        assertEquals(List.of("inv_1", "inv_1"), savedInvoiceIds);
+    }
+
+    @Test
+    @DisplayName("submit - rejects a customer that appears twice")
+    void submit_rejectsDuplicateCustomer() {
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> service.submit(List.of(request("cus_1"), request("cus_1"))));
+
+        assertEquals(400, ex.getStatusCode().value());
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    @DisplayName("submit - rejects an incomplete invoice")
+    void submit_rejectsIncompleteInvoice() {
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> service.submit(List.of(new InvoiceRequest("cus_1", Currencies.COP, null))));
+
+        assertEquals(400, ex.getStatusCode().value());
+    }
+
+    @Test
+    @DisplayName("resume - retries only the invoices not invoiced yet, with a new key after a failure")
+    void resume_retriesRemaining() throws Exception {
+        InvoiceBatchItem failed = new InvoiceBatchItem("b1", "cus_2", "COP", 10, 5000L);
+        failed.setId(2L);
+        failed.setStatus(InvoiceBatchStatus.FAILED);
+        failed.setAttempts(1);
+        List<Object[]> counts = new ArrayList<>();
+        counts.add(new Object[] {InvoiceBatchStatus.INVOICED, 1L});
+        counts.add(new Object[] {InvoiceBatchStatus.FAILED, 1L});
+        when(repository.countByStatus("b1")).thenReturn(counts);
+        when(repository.findByBatchIdAndStatusNot("b1", InvoiceBatchStatus.INVOICED)).thenReturn(List.of(failed));
+        when(invoiceService.createDraftInvoice(any(InvoiceRequest.class), eq("invoice-batch-2-1")))
+                .thenReturn("inv_2");
+        when(invoiceService.addParkingTime(any(InvoiceRequest.class), eq("inv_2"), eq("invoice-batch-2")))
+                .thenReturn(invoice("inv_2"));
+
+        assertEquals(1, service.resume("b1"));
+        service.completion("b1").join();
+
+        assertEquals(InvoiceBatchStatus.INVOICED, failed.getStatus());
+        assertNull(failed.getLastError());
+        verify(repository, times(2)).save(failed);
+    }
+
+    @Test
+    @DisplayName("resume - completes the stored draft invoice instead of creating another")
+    void resume_reusesDraftInvoice() throws Exception {
+        InvoiceBatchItem failed = new InvoiceBatchItem("b1", "cus_2", "COP", 10, 5000L);
+        failed.setId(2L);
+        failed.setStatus(InvoiceBatchStatus.FAILED);
+        failed.setAttempts(1);
+        failed.setInvoiceId("inv_draft");
+        List<Object[]> counts = new ArrayList<>();
+        counts.add(new Object[] {InvoiceBatchStatus.FAILED, 1L});
+        when(repository.countByStatus("b1")).thenReturn(counts);
+        when(repository.findByBatchIdAndStatusNot("b1", InvoiceBatchStatus.INVOICED)).thenReturn(List.of(failed));
+        when(invoiceService.hasParkingTime("inv_draft")).thenReturn(false);
+        when(invoiceService.addParkingTime(any(InvoiceRequest.class), eq("inv_draft"), eq("invoice-batch-2")))
+                .thenReturn(invoice("inv_draft"));
+
+        service.resume("b1");
+        service.completion("b1").join();
+
+        assertEquals(InvoiceBatchStatus.INVOICED, failed.getStatus());
+        assertEquals("inv_draft", failed.getInvoiceId());
+        verify(invoiceService, never()).createDraftInvoice(any(), any());
+    }
+
+    @Test
+    @DisplayName("resume - an item added by a request that failed ambiguously is not added again")
+    void resume_afterItemFailure() throws Exception {
+        stubSaveAll();
+        AtomicReference<InvoiceBatchItem> stored = new AtomicReference<>();
+        when(repository.save(any(InvoiceBatchItem.class))).thenAnswer(invocation -> {
+            stored.set(invocation.getArgument(0));
+            return invocation.getArgument(0);
+        });
+        when(invoiceService.createDraftInvoice(any(InvoiceRequest.class), eq("invoice-batch-1-0")))
+                .thenReturn("inv_1");
+        // Stripe created the item, but the response was lost
+        when(invoiceService.addParkingTime(any(InvoiceRequest.class), eq("inv_1"), eq("invoice-batch-1")))
+                .thenThrow(new ApiConnectionException("read timeout"));
+
+        String batchId = service.submit(List.of(request("cus_1")));
+        service.completion(batchId).join();
+
+        InvoiceBatchItem item = stored.get();
+        assertEquals(InvoiceBatchStatus.FAILED, item.getStatus());
+        List<Object[]> counts = new ArrayList<>();
+        counts.add(new Object[] {InvoiceBatchStatus.FAILED, 1L});
+        when(repository.countByStatus(batchId)).thenReturn(counts);
+        when(repository.findByBatchIdAndStatusNot(batchId, InvoiceBatchStatus.INVOICED)).thenReturn(List.of(item));
+        when(invoiceService.hasParkingTime("inv_1")).thenReturn(true);
+
+        service.resume(batchId);
+        service.completion(batchId).join();
+
+        assertEquals(InvoiceBatchStatus.INVOICED, item.getStatus());
+        assertNull(item.getLastError());
+        verify(invoiceService, times(1)).addParkingTime(any(), any(), any());
+        verify(invoiceService, times(1)).createDraftInvoice(any(), any());
+    }
+
+    @Test
+    @DisplayName("resume - unknown batch returns 404")
+    void resume_unknownBatch() {
+        when(repository.countByStatus("nope")).thenReturn(List.of());
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class, () -> service.resume("nope"));
+
+        assertEquals(404, ex.getStatusCode().value());
+    }
+
+    @Test
+    @DisplayName("progress - counts invoices by status and lists failures")
+    void progress_countsByStatus() {
+        InvoiceBatchItem failed = new InvoiceBatchItem("b1", "cus_2", "COP", 10, 5000L);
+        failed.setLastError("No such customer");
+        List<Object[]> counts = new ArrayList<>();
+        counts.add(new Object[] {InvoiceBatchStatus.INVOICED, 3L});
+        counts.add(new Object[] {InvoiceBatchStatus.PENDING, 2L});
+        counts.add(new Object[] {InvoiceBatchStatus.FAILED, 1L});
+        when(repository.countByStatus("b1")).thenReturn(counts);
+        when(repository.findByBatchIdAndStatus("b1", InvoiceBatchStatus.FAILED)).thenReturn(List.of(failed));
+
+        InvoiceBatchProgress progress = service.progress("b1");
+
+        assertEquals(6, progress.total());
+        assertEquals(2, progress.pending());
+        assertEquals(3, progress.invoiced());
+        assertEquals(1, progress.failed());
+        assertFalse(progress.running());
+        assertEquals(Map.of("cus_2", "No such customer"), progress.failures());
+    }
+}
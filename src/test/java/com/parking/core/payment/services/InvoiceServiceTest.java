@@ -4,6 +4,9 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
+import java.math.BigDecimal;
+import java.util.List;
+
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -14,24 +17,29 @@ import org.mockito.Mockito;
 import com.parking.core.enums.Currencies;
 import com.parking.core.model.Product;
 import com.parking.core.payment.Requests.InvoiceRequest;
+import com.parking.core.payment.Requests.UserTax;
 import com.parking.core.payment.response.InvoiceResponse;
 import com.stripe.model.Invoice;
 import com.stripe.model.InvoiceItem;
+import com.stripe.model.InvoiceItemCollection;
 import com.stripe.model.TaxRate;
+import com.stripe.net.RequestOptions;
 import com.stripe.param.InvoiceCreateParams;
 import com.stripe.param.InvoiceItemCreateParams;
-import com.stripe.param.TaxRateCreateParams;
+import com.stripe.param.InvoiceItemListParams;
 
 class InvoiceServiceTest {
 
     private InvoiceService invoiceService;
+    private TaxRateRegistry taxRateRegistry;
     private MockedStatic<TaxRate> taxRateStatic;
     private MockedStatic<Invoice> invoiceStatic;
     private MockedStatic<InvoiceItem> invoiceItemStatic;
 
     @BeforeEach
     void setUp() {
-        invoiceService = new InvoiceService();
+        taxRateRegistry = mock(TaxRateRegistry.class);
+        invoiceService = new InvoiceService(taxRateRegistry);
         taxRateStatic = Mockito.mockStatic(TaxRate.class);
         invoiceStatic = Mockito.mockStatic(Invoice.class);
         invoiceItemStatic = Mockito.mockStatic(InvoiceItem.class);
@@ -44,24 +52,29 @@ class InvoiceServiceTest {
         invoiceItemStatic.close();
     }
 
-    @Test
-    @DisplayName("createAnInvoceForAUser - success")
-    void createInvoice_success() throws Exception {
-        TaxRate rate = mock(TaxRate.class);
-        when(rate.getId()).thenReturn("txr_123");
-        taxRateStatic.when(() -> TaxRate.create(any(TaxRateCreateParams.class))).thenReturn(rate);
+    private void stubStripe() throws Exception {
+        when(taxRateRegistry.id()).thenReturn("txr_123");
+        when(taxRateRegistry.tax()).thenReturn(new UserTax(true, "CO", BigDecimal.valueOf(19.0), "DC"));
 
         Invoice invoice = mock(Invoice.class);
         when(invoice.getId()).thenReturn("inv_123");
         when(invoice.getCurrency()).thenReturn("cop");
         when(invoice.getCustomer()).thenReturn("cus_123");
-        invoiceStatic.when(() -> Invoice.create(any(InvoiceCreateParams.class))).thenReturn(invoice);
+        invoiceStatic.when(() -> Invoice.create(any(InvoiceCreateParams.class), any(RequestOptions.class)))
+                .thenReturn(invoice);
 
         InvoiceItem item = mock(InvoiceItem.class);
         when(item.getDescription()).thenReturn("Time in parking");
         when(item.getAmount()).thenReturn(50000L);
         when(item.getCurrency()).thenReturn("cop");
-        invoiceItemStatic.when(() -> InvoiceItem.create(any(InvoiceItemCreateParams.class))).thenReturn(item);
+        invoiceItemStatic.when(() -> InvoiceItem.create(any(InvoiceItemCreateParams.class), any(RequestOptions.class)))
+                .thenReturn(item);
+    }
+
+    @Test
+    @DisplayName("createAnInvoceForAUser - success")
+    void createInvoice_success() throws Exception {
+        stubStripe();
 
         Product product = new Product(2, 25000L);
         InvoiceRequest request = new InvoiceRequest("cus_123", Currencies.COP, product);
@@ -77,25 +90,85 @@ class InvoiceServiceTest {
     }
 
     @Test
-    @DisplayName("createAnInvoceForAUser - tax rate creation fails")
-    void createInvoice_taxRateFails() {
-        taxRateStatic.when(() -> TaxRate.create(any(TaxRateCreateParams.class)))
-                .thenThrow(new RuntimeException("Tax rate error"));
+    @DisplayName("createAnInvoceForAUser - reuses the registered tax rate instead of creating one")
+    void createInvoice_reusesTaxRate() throws Exception {
+        stubStripe();
+        InvoiceRequest request = new InvoiceRequest("cus_123", Currencies.COP, new Product(1, 10000L));
+
+        invoiceService.createAnInvoceForAUser(request);
+        invoiceService.createAnInvoceForAUser(request);
+
+        taxRateStatic.verifyNoInteractions();
+        verify(taxRateRegistry, times(2)).id();
+    }
+
+    @Test
+    @DisplayName("createAnInvoceForAUser - derives idempotency keys from the given key")
+    void createInvoice_idempotencyKeys() throws Exception {
+        stubStripe();
+        InvoiceRequest request = new InvoiceRequest("cus_123", Currencies.COP, new Product(1, 10000L));
+
+        invoiceService.createAnInvoceForAUser(request, "batch-1-0");
+
+        invoiceStatic.verify(() -> Invoice.create(any(InvoiceCreateParams.class),
+                argThat((RequestOptions options) -> "batch-1-0-invoice".equals(options.getIdempotencyKey()))));
+        invoiceItemStatic.verify(() -> InvoiceItem.create(any(InvoiceItemCreateParams.class),
+                argThat((RequestOptions options) -> "batch-1-0-item".equals(options.getIdempotencyKey()))));
+    }
+
+    @Test
+    @DisplayName("addParkingTime - adds the item to an existing draft invoice")
+    void addParkingTime_existingDraft() throws Exception {
+        stubStripe();
+        InvoiceRequest request = new InvoiceRequest("cus_123", Currencies.COP, new Product(1, 10000L));
+
+        InvoiceResponse response = invoiceService.addParkingTime(request, "inv_draft", "batch-1-0");
+
+        assertEquals("inv_draft", response.id());
+        invoiceStatic.verifyNoInteractions();
+        invoiceItemStatic.verify(() -> InvoiceItem.create(
+                argThat((InvoiceItemCreateParams params) -> "inv_draft".equals(params.getInvoice())),
+                argThat((RequestOptions options) -> "batch-1-0-item".equals(options.getIdempotencyKey()))));
+    }
+
+    @Test
+    @DisplayName("hasParkingTime - looks for the parking time item among the draft's items")
+    void hasParkingTime_listsItems() throws Exception {
+        InvoiceItem other = mock(InvoiceItem.class);
+        when(other.getDescription()).thenReturn("Late fee");
+        InvoiceItem parking = mock(InvoiceItem.class);
+        when(parking.getDescription()).thenReturn("Time in parking");
+        InvoiceItemCollection withParking = mock(InvoiceItemCollection.class);
+        when(withParking.getData()).thenReturn(List.of(other, parking));
+        InvoiceItemCollection withoutParking = mock(InvoiceItemCollection.class);
+        when(withoutParking.getData()).thenReturn(List.of(other));
+        invoiceItemStatic.when(() -> InvoiceItem.list(
+                argThat((InvoiceItemListParams params) -> "inv_1".equals(params.getInvoice())))).thenReturn(withParking);
+        invoiceItemStatic.when(() -> InvoiceItem.list(
+                argThat((InvoiceItemListParams params) -> "inv_2".equals(params.getInvoice())))).thenReturn(withoutParking);
+
+        assertTrue(invoiceService.hasParkingTime("inv_1"));
+        assertFalse(invoiceService.hasParkingTime("inv_2"));
+    }
+
+    @Test
+    @DisplayName("createAnInvoceForAUser - tax rate resolution fails")
+    void createInvoice_taxRateFails() throws Exception {
+        when(taxRateRegistry.id()).thenThrow(new RuntimeException("Tax rate error"));
 
         Product product = new Product(1, 10000L);
         InvoiceRequest request = new InvoiceRequest("cus_123", Currencies.COP, product);
 
         assertThrows(RuntimeException.class, () -> invoiceService.createAnInvoceForAUser(request));
+        invoiceStatic.verifyNoInteractions();
     }
 
     @Test
     @DisplayName("createAnInvoceForAUser - invoice creation fails")
-    void createInvoice_invoiceFails() {
-        TaxRate rate = mock(TaxRate.class);
-        when(rate.getId()).thenReturn("txr_123");
-        taxRateStatic.when(() -> TaxRate.create(any(TaxRateCreateParams.class))).thenReturn(rate);
+    void createInvoice_invoiceFails() throws Exception {
+        when(taxRateRegistry.id()).thenReturn("txr_123");
 
-        invoiceStatic.when(() -> Invoice.create(any(InvoiceCreateParams.class)))
+        invoiceStatic.when(() -> Invoice.create(any(InvoiceCreateParams.class), any(RequestOptions.class)))
                 .thenThrow(new RuntimeException("Invoice error"));
 
         Product product = new Product(1, 10000L);
@@ -16,6 +16,7 @@ import org.mockito.Mock;
 import org.mockito.MockedStatic;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.web.server.ResponseStatusException;
 
 import com.parking.core.enums.PaymentStatus;
@@ -23,6 +24,7 @@ import com.parking.core.model.Payment;
 import com.parking.core.payment.Requests.PaymentRequest;
 import com.parking.core.repository.PaymentRepository;
 import com.stripe.model.PaymentIntent;
+import com.stripe.net.RequestOptions;
 import com.stripe.param.PaymentIntentCreateParams;
 
 @ExtendWith(MockitoExtension.class)
@@ -31,12 +33,15 @@ class PaymentServiceTest {
     @Mock
     private PaymentRepository paymentRepository;
 
+    @Mock
+    private StripeCustomerDirectory customerDirectory;
+
     private PaymentService paymentService;
     private MockedStatic<PaymentIntent> paymentIntentStatic;
 
     @BeforeEach
     void setUp() {
-        paymentService = new PaymentService(paymentRepository);
+        paymentService = new PaymentService(paymentRepository, customerDirectory);
         paymentIntentStatic = Mockito.mockStatic(PaymentIntent.class);
     }
 
@@ -55,7 +60,7 @@ class PaymentServiceTest {
                 .thenReturn(intent);
         when(paymentRepository.save(any(Payment.class))).thenAnswer(i -> i.getArgument(0));
 
-        PaymentRequest request = new PaymentRequest(5000L, "usd", null, "ABC-123", null);
+        PaymentRequest request = new PaymentRequest(5000L, "usd", null, "ABC-123", null, null);
         Map<String, String> result = paymentService.createPaymentIntent(request);
 
         assertEquals("secret_123", result.get("clientSecret"));
@@ -73,7 +78,7 @@ class PaymentServiceTest {
                 .thenReturn(intent);
         when(paymentRepository.save(any(Payment.class))).thenAnswer(i -> i.getArgument(0));
 
-        PaymentRequest request = new PaymentRequest(10000L, "cop", "cus_abc", "DEF-456", null);
+        PaymentRequest request = new PaymentRequest(10000L, "cop", "cus_abc", "DEF-456", null, null);
         Map<String, String> result = paymentService.createPaymentIntent(request);
 
         assertNotNull(result.get("clientSecret"));
@@ -90,7 +95,7 @@ class PaymentServiceTest {
                 .thenReturn(intent);
         when(paymentRepository.save(any(Payment.class))).thenAnswer(i -> i.getArgument(0));
 
-        PaymentRequest request = new PaymentRequest(2000L, "usd", null, "GHI-789", "Parking fee");
+        PaymentRequest request = new PaymentRequest(2000L, "usd", null, "GHI-789", "Parking fee", null);
         Map<String, String> result = paymentService.createPaymentIntent(request);
 
         assertEquals("pi_789", result.get("paymentIntentId"));
@@ -106,32 +111,153 @@ class PaymentServiceTest {
                 .thenReturn(intent);
         when(paymentRepository.save(any(Payment.class))).thenAnswer(i -> i.getArgument(0));
 
-        PaymentRequest request = new PaymentRequest(3000L, "usd", "cus_xyz", "JKL-012", "Test description");
+        PaymentRequest request = new PaymentRequest(3000L, "usd", "cus_xyz", "JKL-012", "Test description", null);
         Map<String, String> result = paymentService.createPaymentIntent(request);
 
         assertEquals("secret_all", result.get("clientSecret"));
     }
 
     @Test
-    @DisplayName("updatePaymentStatus - found")
-    void updatePaymentStatus_found() {
-        Payment payment = new Payment();
-        payment.setStatus(PaymentStatus.CREATED);
-        when(paymentRepository.findByStripePaymentIntentId("pi_123")).thenReturn(Optional.of(payment));
+    @DisplayName("createPaymentIntent - resolves the customer from the email locally")
+    void createPaymentIntent_customerEmail() throws Exception {
+        PaymentIntent intent = mock(PaymentIntent.class);
+        when(intent.getId()).thenReturn("pi_email");
+        when(intent.getClientSecret()).thenReturn("secret_email");
+        paymentIntentStatic.when(() -> PaymentIntent.create(any(PaymentIntentCreateParams.class)))
+                .thenReturn(intent);
         when(paymentRepository.save(any(Payment.class))).thenAnswer(i -> i.getArgument(0));
+        when(customerDirectory.requireCustomerId("john@test.com")).thenReturn("cus_local");
+
+        PaymentRequest request = new PaymentRequest(3000L, "usd", null, "JKL-012", null, "john@test.com");
+        paymentService.createPaymentIntent(request);
+
+        paymentIntentStatic.verify(() -> PaymentIntent.create(
+                argThat((PaymentIntentCreateParams params) -> "cus_local".equals(params.getCustomer()))));
+        verify(paymentRepository).save(argThat(payment -> "cus_local".equals(payment.getCustomerId())));
+    }
+
+    private static Payment registerPayment(long id, long amount, PaymentStatus status) {
+        Payment payment = new Payment();
+        payment.setId(id);
+        payment.setRegisterId(1L);
+        payment.setStripePaymentIntentId("pi_open");
+        payment.setAmount(amount);
+        payment.setStatus(status);
+        return payment;
+    }
+
+    private PaymentIntent stubRetrieve(String status) {
+        PaymentIntent intent = mock(PaymentIntent.class);
+        lenient().when(intent.getId()).thenReturn("pi_open");
+        lenient().when(intent.getClientSecret()).thenReturn("secret_open");
+        when(intent.getStatus()).thenReturn(status);
+        paymentIntentStatic.when(() -> PaymentIntent.retrieve("pi_open")).thenReturn(intent);
+        return intent;
+    }
+
+    private PaymentIntent stubCreate(String id) {
+        PaymentIntent intent = mock(PaymentIntent.class);
+        when(intent.getId()).thenReturn(id);
+        when(intent.getClientSecret()).thenReturn("secret_" + id);
+        paymentIntentStatic.when(() -> PaymentIntent.create(any(PaymentIntentCreateParams.class), any(RequestOptions.class)))
+                .thenReturn(intent);
+        return intent;
+    }
+
+    @Test
+    @DisplayName("createRegisterPaymentIntent - reuses the open intent of the register")
+    void createRegisterPaymentIntent_reuses() throws Exception {
+        when(paymentRepository.findFirstByRegisterIdOrderByIdDesc(1L))
+                .thenReturn(Optional.of(registerPayment(7L, 5000L, PaymentStatus.CREATED)));
+        stubRetrieve("requires_payment_method");
+
+        Map<String, String> result = paymentService.createRegisterPaymentIntent(1L, 5000L, "USD", "ABC-123");
+
+        assertEquals("pi_open", result.get("paymentIntentId"));
+        assertEquals("secret_open", result.get("clientSecret"));
+        paymentIntentStatic.verify(() -> PaymentIntent.create(any(PaymentIntentCreateParams.class),
+                any(RequestOptions.class)), never());
+        verify(paymentRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("createRegisterPaymentIntent - creates and links a new intent when none is open")
+    void createRegisterPaymentIntent_creates() throws Exception {
+        when(paymentRepository.findFirstByRegisterIdOrderByIdDesc(1L)).thenReturn(Optional.empty());
+        stubCreate("pi_new");
+
+        Map<String, String> result = paymentService.createRegisterPaymentIntent(1L, 5000L, "USD", "ABC-123");
+
+        assertEquals("pi_new", result.get("paymentIntentId"));
+        paymentIntentStatic.verify(() -> PaymentIntent.create(any(PaymentIntentCreateParams.class),
+                argThat((RequestOptions options) -> "register-1-5000-0".equals(options.getIdempotencyKey()))));
+        verify(paymentRepository).save(argThat(payment -> payment.getRegisterId() == 1L
+                && payment.getAmount() == 5000L && payment.getStatus() == PaymentStatus.CREATED));
+    }
+
+    @Test
+    @DisplayName("createRegisterPaymentIntent - a different amount gets a new intent")
+    void createRegisterPaymentIntent_amountChanged() throws Exception {
+        when(paymentRepository.findFirstByRegisterIdOrderByIdDesc(1L))
+                .thenReturn(Optional.of(registerPayment(7L, 4000L, PaymentStatus.CREATED)));
+        stubRetrieve("requires_payment_method");
+        stubCreate("pi_new");
+
+        paymentService.createRegisterPaymentIntent(1L, 5000L, "USD", "ABC-123");
+
+        paymentIntentStatic.verify(() -> PaymentIntent.create(any(PaymentIntentCreateParams.class),
+                argThat((RequestOptions options) -> "register-1-5000-7".equals(options.getIdempotencyKey()))));
+    }
+
+    @Test
+    @DisplayName("createRegisterPaymentIntent - a concurrent request already stored the intent")
+    void createRegisterPaymentIntent_concurrent() throws Exception {
+        when(paymentRepository.findFirstByRegisterIdOrderByIdDesc(1L)).thenReturn(Optional.empty());
+        stubCreate("pi_new");
+        when(paymentRepository.save(any(Payment.class))).thenThrow(new DataIntegrityViolationException("unique"));
+
+        assertEquals("pi_new", paymentService.createRegisterPaymentIntent(1L, 5000L, "USD", "ABC-123")
+                .get("paymentIntentId"));
+    }
+
+    @Test
+    @DisplayName("createRegisterPaymentIntent - 409 when any payment of the register succeeded")
+    void createRegisterPaymentIntent_paid() {
+        when(paymentRepository.existsByRegisterIdAndStatus(1L, PaymentStatus.SUCCEEDED)).thenReturn(true);
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> paymentService.createRegisterPaymentIntent(1L, 5000L, "USD", "ABC-123"));
+        assertEquals(409, ex.getStatusCode().value());
+        paymentIntentStatic.verifyNoInteractions();
+    }
+
+    @Test
+    @DisplayName("createRegisterPaymentIntent - 409 when Stripe is ahead of the pending webhook")
+    void createRegisterPaymentIntent_paidInStripe() {
+        when(paymentRepository.findFirstByRegisterIdOrderByIdDesc(1L))
+                .thenReturn(Optional.of(registerPayment(7L, 5000L, PaymentStatus.CREATED)));
 
-        paymentService.updatePaymentStatus("pi_123", PaymentStatus.SUCCEEDED);
+        for (String status : new String[] {"succeeded", "processing", "requires_capture"}) {
+            stubRetrieve(status);
 
-        assertEquals(PaymentStatus.SUCCEEDED, payment.getStatus());
-        verify(paymentRepository).save(payment);
+            ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                    () -> paymentService.createRegisterPaymentIntent(1L, 4000L, "USD", "ABC-123"));
+            assertEquals(409, ex.getStatusCode().value(), status);
+        }
+        paymentIntentStatic.verify(() -> PaymentIntent.create(any(PaymentIntentCreateParams.class),
+                any(RequestOptions.class)), never());
+        verify(paymentRepository, never()).save(any());
     }
 
     @Test
-    @DisplayName("updatePaymentStatus - not found")
-    void updatePaymentStatus_notFound() {
-        when(paymentRepository.findByStripePaymentIntentId("pi_missing")).thenReturn(Optional.empty());
+    @DisplayName("createRegisterPaymentIntent - a canceled intent is replaced")
+    void createRegisterPaymentIntent_canceled() throws Exception {
+        when(paymentRepository.findFirstByRegisterIdOrderByIdDesc(1L))
+                .thenReturn(Optional.of(registerPayment(7L, 5000L, PaymentStatus.FAILED)));
+        stubRetrieve("canceled");
+        stubCreate("pi_new");
 
-        assertThrows(ResponseStatusException.class,
-                () -> paymentService.updatePaymentStatus("pi_missing", PaymentStatus.FAILED));
+        assertEquals("pi_new", paymentService.createRegisterPaymentIntent(1L, 5000L, "USD", "ABC-123")
+                .get("paymentIntentId"));
     }
 }
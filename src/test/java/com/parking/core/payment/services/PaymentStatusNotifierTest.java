@@ -0,0 +1,121 @@
+package com.parking.core.payment.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.parking.core.enums.PaymentStatus;
+import com.parking.core.repository.PaymentRepository;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentStatusNotifierTest {
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @Mock
+    private RedisTemplate<String, String> redisTemplate;
+
+    @Mock
+    private RedisMessageListenerContainer listenerContainer;
+
+    private PaymentStatusNotifier notifier;
+
+    @BeforeEach
+    void setUp() {
+        notifier = new PaymentStatusNotifier(paymentRepository, redisTemplate, listenerContainer, 60000);
+    }
+
+    private static DefaultMessage message(String body) {
+        return new DefaultMessage("payment-status".getBytes(StandardCharsets.UTF_8),
+                body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("stream - reads the status once and keeps a pending payment open")
+    void stream_pending() {
+        when(paymentRepository.findStatusByStripePaymentIntentId("pi_1")).thenReturn(Optional.of(PaymentStatus.CREATED));
+
+        assertNotNull(notifier.stream("pi_1"));
+
+        assertEquals(1, notifier.size());
+        verify(paymentRepository, times(1)).findStatusByStripePaymentIntentId("pi_1");
+    }
+
+    @Test
+    @DisplayName("stream - a payment that already succeeded is closed right away")
+    void stream_alreadySucceeded() {
+        when(paymentRepository.findStatusByStripePaymentIntentId("pi_1")).thenReturn(Optional.of(PaymentStatus.SUCCEEDED));
+
+        notifier.stream("pi_1");
+
+        assertEquals(0, notifier.size());
+    }
+
+    @Test
+    @DisplayName("stream - 404 for an unknown intent")
+    void stream_notFound() {
+        when(paymentRepository.findStatusByStripePaymentIntentId("pi_x")).thenReturn(Optional.empty());
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class, () -> notifier.stream("pi_x"));
+        assertEquals(404, ex.getStatusCode().value());
+        assertEquals(0, notifier.size());
+    }
+
+    @Test
+    @DisplayName("onMessage - a failure keeps the stream open and a success closes it")
+    void onMessage_delivers() {
+        when(paymentRepository.findStatusByStripePaymentIntentId("pi_1")).thenReturn(Optional.of(PaymentStatus.CREATED));
+        notifier.stream("pi_1");
+        notifier.stream("pi_1");
+
+        notifier.onMessage(message("pi_1 FAILED"), null);
+        assertEquals(2, notifier.size());
+
+        notifier.onMessage(message("pi_1 SUCCEEDED"), null);
+        assertEquals(0, notifier.size());
+    }
+
+    @Test
+    @DisplayName("onMessage - malformed messages are ignored")
+    void onMessage_malformed() {
+        assertDoesNotThrow(() -> notifier.onMessage(message("garbage"), null));
+        assertDoesNotThrow(() -> notifier.onMessage(message("pi_1 PAID"), null));
+    }
+
+    @Test
+    @DisplayName("publish - sends each change on the Redis channel")
+    void publish_redis() {
+        notifier.publish(Map.of("pi_1", PaymentStatus.SUCCEEDED));
+
+        verify(redisTemplate).convertAndSend("payment-status", "pi_1 SUCCEEDED");
+    }
+
+    @Test
+    @DisplayName("publish - delivers locally when Redis is unavailable")
+    void publish_redisDown() {
+        when(paymentRepository.findStatusByStripePaymentIntentId("pi_1")).thenReturn(Optional.of(PaymentStatus.CREATED));
+        notifier.stream("pi_1");
+        when(redisTemplate.convertAndSend(anyString(), any())).thenThrow(new RuntimeException("Redis down"));
+
+        notifier.publish(Map.of("pi_1", PaymentStatus.SUCCEEDED));
+
+        assertEquals(0, notifier.size());
+    }
+}
@@ -0,0 +1,157 @@
+package com.parking.core.payment.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.MockedStatic;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.parking.core.enums.Roles;
+import com.parking.core.model.User;
+import com.parking.core.repository.StripeCustomerRepository;
+import com.parking.core.repository.UserRepository;
+import com.stripe.model.Customer;
+import com.stripe.model.CustomerCollection;
+import com.stripe.param.CustomerListParams;
+
+@ExtendWith(MockitoExtension.class)
+class StripeCustomerDirectoryTest {
+
+    @Mock
+    private StripeCustomerRepository repository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    private MockedStatic<Customer> customerStatic;
+    private StripeCustomerDirectory directory;
+
+    @BeforeEach
+    void setUp() {
+        directory = new StripeCustomerDirectory(repository, userRepository, 2);
+        customerStatic = mockStatic(Customer.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        customerStatic.close();
+    }
+
+    @Test
+    @DisplayName("findCustomerId - reads the database once per email")
+    void findCustomerId_cached() throws Exception {
+        when(repository.findCustomerIdByEmail("john@test.com")).thenReturn(Optional.of("cus_123"));
+
+        assertEquals(Optional.of("cus_123"), directory.findCustomerId("john@test.com"));
+        assertEquals(Optional.of("cus_123"), directory.findCustomerId("john@test.com"));
+
+        verify(repository, times(1)).findCustomerIdByEmail("john@test.com");
+        assertEquals(1, directory.size());
+        customerStatic.verifyNoInteractions();
+    }
+
+    @Test
+    @DisplayName("findCustomerId - misses are not cached")
+    void findCustomerId_missNotCached() throws Exception {
+        when(repository.findCustomerIdByEmail("new@test.com"))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of("cus_new"));
+
+        assertTrue(directory.findCustomerId("new@test.com").isEmpty());
+        assertEquals(Optional.of("cus_new"), directory.findCustomerId("new@test.com"));
+        assertEquals(1, directory.size());
+        customerStatic.verifyNoInteractions();
+    }
+
+    @Test
+    @DisplayName("findCustomerId - ids beyond the maximum size are returned but not cached")
+    void findCustomerId_full() throws Exception {
+        when(repository.findCustomerIdByEmail(any())).thenAnswer(i -> Optional.of("cus_" + i.getArgument(0)));
+
+        directory.findCustomerId("a");
+        directory.findCustomerId("b");
+        assertEquals(Optional.of("cus_c"), directory.findCustomerId("c"));
+
+        assertEquals(2, directory.size());
+    }
+
+    @Test
+    @DisplayName("requireCustomerId - 404 when the user has no Stripe customer")
+    void requireCustomerId_notFound() {
+        when(repository.findCustomerIdByEmail("none@test.com")).thenReturn(Optional.empty());
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> directory.requireCustomerId("none@test.com"));
+        assertEquals(404, ex.getStatusCode().value());
+    }
+
+    @Test
+    @DisplayName("record - stores the mapping and serves it from the cache")
+    void record_storesAndCaches() throws Exception {
+        User user = new User("John", "john", Roles.USER, "john@test.com", null);
+        when(repository.insertIfAbsent(eq("john"), eq("john@test.com"), eq("cus_123"), any())).thenReturn(1);
+
+        assertEquals("cus_123", directory.record(user, "cus_123"));
+
+        assertEquals("cus_123", directory.requireCustomerId("john@test.com"));
+        verify(repository, never()).findCustomerIdByEmail(any());
+    }
+
+    @Test
+    @DisplayName("record - a concurrent registration that stored first wins")
+    void record_concurrentRegistration() throws Exception {
+        User user = new User("John", "john", Roles.USER, "john@test.com", null);
+        when(repository.insertIfAbsent(eq("john"), eq("john@test.com"), eq("cus_second"), any())).thenReturn(0);
+        when(repository.findCustomerIdByEmail("john@test.com")).thenReturn(Optional.of("cus_first"));
+
+        assertEquals("cus_first", directory.record(user, "cus_second"));
+        assertEquals("cus_first", directory.requireCustomerId("john@test.com"));
+    }
+
+    @Test
+    @DisplayName("backfill - records the Stripe customers of unmapped users, one user query per page")
+    void backfill_recordsUnmapped() throws Exception {
+        List<Customer> customers = new ArrayList<>();
+        for (int i = 0; i < 101; i++) {
+            customers.add(customer("cus_" + i, "user" + i + "@test.com"));
+        }
+        customers.add(customer("cus_noemail", null));
+        CustomerCollection collection = mock(CustomerCollection.class);
+        when(collection.autoPagingIterable()).thenReturn(customers);
+        customerStatic.when(() -> Customer.list(any(CustomerListParams.class))).thenReturn(collection);
+        User mapped = new User("Mapped", "mapped", Roles.USER, "user0@test.com", null);
+        User unmapped = new User("Unmapped", "unmapped", Roles.USER, "user100@test.com", null);
+        when(userRepository.findAllByEmailIn(anyCollection()))
+                .thenReturn(List.of(mapped))
+                .thenReturn(List.of(unmapped));
+        when(repository.insertIfAbsent(eq("mapped"), eq("user0@test.com"), eq("cus_0"), any())).thenReturn(0);
+        when(repository.insertIfAbsent(eq("unmapped"), eq("user100@test.com"), eq("cus_100"), any())).thenReturn(1);
+
+        assertEquals(1, directory.backfill());
+
+        verify(userRepository, times(2)).findAllByEmailIn(anyCollection());
+        assertEquals("cus_100", directory.requireCustomerId("user100@test.com"));
+        verify(repository, never()).findCustomerIdByEmail(any());
+    }
+
+    private static Customer customer(String id, String email) {
+        Customer customer = mock(Customer.class);
+        lenient().when(customer.getId()).thenReturn(id);
+        when(customer.getEmail()).thenReturn(email);
+        return customer;
+    }
+}
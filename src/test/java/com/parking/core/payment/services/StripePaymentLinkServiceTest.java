@@ -0,0 +1,156 @@
+package com.parking.core.payment.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.exception.InvalidRequestException;
+import com.stripe.model.PaymentLink;
+import com.stripe.model.Price;
+import com.stripe.model.PriceCollection;
+import com.stripe.net.RequestOptions;
+import com.stripe.param.PaymentLinkCreateParams;
+import com.stripe.param.PriceCreateParams;
+import com.stripe.param.PriceListParams;
+
+class StripePaymentLinkServiceTest {
+
+    private MockedStatic<Price> priceStatic;
+    private MockedStatic<PaymentLink> linkStatic;
+
+    @BeforeEach
+    void setUp() {
+        priceStatic = Mockito.mockStatic(Price.class);
+        linkStatic = Mockito.mockStatic(PaymentLink.class);
+
+        PriceCollection noPrices = mock(PriceCollection.class);
+        when(noPrices.getData()).thenReturn(Collections.emptyList());
+        priceStatic.when(() -> Price.list(any(PriceListParams.class))).thenReturn(noPrices);
+        Price price = mock(Price.class);
+        when(price.getId()).thenReturn("price_1");
+        priceStatic.when(() -> Price.create(any(PriceCreateParams.class))).thenReturn(price);
+    }
+
+    @AfterEach
+    void tearDown() {
+        priceStatic.close();
+        linkStatic.close();
+    }
+
+    private void stubLink(String url) {
+        PaymentLink link = mock(PaymentLink.class);
+        when(link.getUrl()).thenReturn(url);
+        linkStatic.when(() -> PaymentLink.create(any(PaymentLinkCreateParams.class), any(RequestOptions.class))).thenReturn(link);
+    }
+
+    @Test
+    @DisplayName("createPaymentLink - one link per register, carrying its id; repeat amounts reuse the price")
+    void createPaymentLink_reusesPrice() {
+        stubLink("https://buy.stripe.com/abc");
+        StripePaymentLinkService service = new StripePaymentLinkService(10);
+
+        assertEquals("https://buy.stripe.com/abc", service.createPaymentLink(1500.0, 7L));
+        service.createPaymentLink(1500.0, 8L);
+
+        ArgumentCaptor<PaymentLinkCreateParams> params = ArgumentCaptor.forClass(PaymentLinkCreateParams.class);
+        linkStatic.verify(() -> PaymentLink.create(params.capture(), any(RequestOptions.class)), times(2));
+        assertEquals("7", params.getAllValues().get(0).getMetadata().get("register_id"));
+        assertEquals("7", params.getAllValues().get(0).getPaymentIntentData().getMetadata().get("register_id"));
+        assertEquals("8", params.getAllValues().get(1).getPaymentIntentData().getMetadata().get("register_id"));
+        assertEquals("price_1", params.getAllValues().get(1).getLineItems().get(0).getPrice());
+        priceStatic.verify(() -> Price.create(any(PriceCreateParams.class)), times(1));
+    }
+
+    @Test
+    @DisplayName("createPaymentLink - a price created concurrently by another node is looked up and reused")
+    void createPaymentLink_priceRace() {
+        Price existing = mock(Price.class);
+        when(existing.getId()).thenReturn("price_other");
+        PriceCollection noPrices = mock(PriceCollection.class);
+        when(noPrices.getData()).thenReturn(Collections.emptyList());
+        PriceCollection prices = mock(PriceCollection.class);
+        when(prices.getData()).thenReturn(List.of(existing));
+        priceStatic.when(() -> Price.list(any(PriceListParams.class))).thenReturn(noPrices, prices);
+        priceStatic.when(() -> Price.create(any(PriceCreateParams.class)))
+                .thenThrow(new InvalidRequestException("lookup_key already in use", "lookup_key", null, null, 400, null));
+        stubLink("https://buy.stripe.com/abc");
+
+        assertEquals("https://buy.stripe.com/abc", new StripePaymentLinkService(10).createPaymentLink(1500.0, 7L));
+
+        ArgumentCaptor<PaymentLinkCreateParams> params = ArgumentCaptor.forClass(PaymentLinkCreateParams.class);
+        linkStatic.verify(() -> PaymentLink.create(params.capture(), any(RequestOptions.class)));
+        assertEquals("price_other", params.getValue().getLineItems().get(0).getPrice());
+    }
+
+    @Test
+    @DisplayName("createPaymentLink - reuses an existing price with the same lookup key")
+    void createPaymentLink_reusesExistingPrice() {
+        Price existing = mock(Price.class);
+        when(existing.getId()).thenReturn("price_old");
+        PriceCollection prices = mock(PriceCollection.class);
+        when(prices.getData()).thenReturn(List.of(existing));
+        priceStatic.when(() -> Price.list(any(PriceListParams.class))).thenReturn(prices);
+        stubLink("https://buy.stripe.com/abc");
+
+        new StripePaymentLinkService(10).createPaymentLink(1500.0, 7L);
+
+        priceStatic.verify(() -> Price.create(any(PriceCreateParams.class)), never());
+    }
+
+    @Test
+    @DisplayName("createPaymentLink - a failed price lookup returns null and is retried on the next exit")
+    void createPaymentLink_failureNotCached() {
+        priceStatic.when(() -> Price.list(any(PriceListParams.class)))
+                .thenThrow(new ApiConnectionException("timeout"));
+        StripePaymentLinkService service = new StripePaymentLinkService(10);
+
+        assertNull(service.createPaymentLink(1500.0, 7L));
+        assertEquals(0, service.size());
+
+        PriceCollection noPrices = mock(PriceCollection.class);
+        when(noPrices.getData()).thenReturn(Collections.emptyList());
+        priceStatic.when(() -> Price.list(any(PriceListParams.class))).thenReturn(noPrices);
+        stubLink("https://buy.stripe.com/abc");
+        assertNotNull(service.createPaymentLink(1500.0, 8L));
+        assertEquals(1, service.size());
+    }
+
+    @Test
+    @DisplayName("createPaymentLink - a failed link creation returns null but keeps the price")
+    void createPaymentLink_linkFailure() {
+        linkStatic.when(() -> PaymentLink.create(any(PaymentLinkCreateParams.class), any(RequestOptions.class)))
+                .thenThrow(new ApiConnectionException("timeout"));
+        StripePaymentLinkService service = new StripePaymentLinkService(10);
+
+        assertNull(service.createPaymentLink(1500.0, 7L));
+        assertEquals(1, service.size());
+    }
+
+    @Test
+    @DisplayName("createPaymentLink - evicts the least recently used amount when full")
+    void createPaymentLink_evictsLeastRecentlyUsed() {
+        stubLink("https://buy.stripe.com/abc");
+        StripePaymentLinkService service = new StripePaymentLinkService(2);
+
+        service.createPaymentLink(100.0, 1L);
+        service.createPaymentLink(200.0, 2L);
+        service.createPaymentLink(100.0, 3L);
+        service.createPaymentLink(300.0, 4L);
+        service.createPaymentLink(100.0, 5L);
+
+        assertEquals(2, service.size());
+        priceStatic.verify(() -> Price.create(any(PriceCreateParams.class)), times(3));
+    }
+}
@@ -0,0 +1,182 @@
+package com.parking.core.payment.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.parking.core.enums.PaymentStatus;
+import com.parking.core.enums.WebhookEventStatus;
+import com.parking.core.model.StripeWebhookEvent;
+import com.parking.core.repository.PaymentRepository;
+import com.parking.core.repository.StripeWebhookEventRepository;
+
+@ExtendWith(MockitoExtension.class)
+class StripeWebhookInboxServiceTest {
+
+    @Mock
+    private StripeWebhookEventRepository eventRepository;
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @Mock
+    private PaymentStatusNotifier statusNotifier;
+
+    private StripeWebhookInboxService inboxService;
+
+    @BeforeEach
+    void setUp() {
+        inboxService = new StripeWebhookInboxService(eventRepository, paymentRepository, statusNotifier,
+                new ObjectMapper());
+    }
+
+    private static StripeWebhookEvent event(String id, String type, String intentId) {
+        return new StripeWebhookEvent(id, type, "{\"id\":\"" + id + "\",\"data\":{\"object\":{\"id\":\"" + intentId + "\"}}}");
+    }
+
+    @Test
+    @DisplayName("receive - stores a new event")
+    void receive_new() {
+        when(eventRepository.insert(eq("evt_1"), any(), any(), any())).thenReturn(1);
+
+        assertTrue(inboxService.receive("evt_1", "payment_intent.succeeded", "{}"));
+
+        verify(eventRepository).insert(eq("evt_1"), eq("payment_intent.succeeded"), eq("{}"), any(LocalDateTime.class));
+    }
+
+    @Test
+    @DisplayName("receive - drops an event that was already stored")
+    void receive_duplicate() {
+        when(eventRepository.insert(eq("evt_1"), any(), any(), any())).thenReturn(0);
+
+        assertFalse(inboxService.receive("evt_1", "payment_intent.succeeded", "{}"));
+    }
+
+    @Test
+    @DisplayName("receive - other insert failures are thrown so Stripe retries")
+    void receive_failure() {
+        when(eventRepository.insert(eq("evt_1"), any(), any(), any()))
+                .thenThrow(new DataIntegrityViolationException("value too long"));
+
+        assertThrows(DataIntegrityViolationException.class,
+                () -> inboxService.receive("evt_1", "payment_intent.succeeded", "{}"));
+    }
+
+    @Test
+    @DisplayName("processBatch - applies one update per status and marks the events processed")
+    void processBatch_groupsByStatus() {
+        when(eventRepository.findPendingForUpdate(Limit.of(10))).thenReturn(List.of(
+                event("evt_1", "payment_intent.succeeded", "pi_1"),
+                event("evt_2", "payment_intent.payment_failed", "pi_2"),
+                event("evt_3", "payment_intent.succeeded", "pi_3"),
+                event("evt_4", "charge.refunded", "ch_1")));
+
+        assertEquals(4, inboxService.processBatch(10));
+
+        verify(paymentRepository).updateStatus(eq(List.of("pi_1", "pi_3")), eq("SUCCEEDED"), any());
+        verify(paymentRepository).updateStatus(eq(List.of("pi_2")), eq("FAILED"), any());
+        verify(eventRepository).markAll(eq(List.of("evt_1", "evt_2", "evt_3", "evt_4")),
+                eq(WebhookEventStatus.PROCESSED), any());
+    }
+
+    @Test
+    @DisplayName("processBatch - a success is not replaced by a later failure of the same intent")
+    void processBatch_successIsFinal() {
+        when(eventRepository.findPendingForUpdate(Limit.of(10))).thenReturn(List.of(
+                event("evt_1", "payment_intent.succeeded", "pi_1"),
+                event("evt_2", "payment_intent.payment_failed", "pi_1")));
+        when(paymentRepository.updateStatus(eq(List.of("pi_1")), eq("SUCCEEDED"), any())).thenReturn(List.of("pi_1"));
+
+        inboxService.processBatch(10);
+
+        verify(paymentRepository).updateStatus(eq(List.of("pi_1")), eq("SUCCEEDED"), any());
+        verify(paymentRepository, never()).updateStatus(any(), eq("FAILED"), any());
+        verify(statusNotifier).publish(Map.of("pi_1", PaymentStatus.SUCCEEDED));
+    }
+
+    @Test
+    @DisplayName("processBatch - only payments whose status changed are published")
+    void processBatch_publishesChangedOnly() {
+        when(eventRepository.findPendingForUpdate(Limit.of(10))).thenReturn(List.of(
+                event("evt_1", "payment_intent.payment_failed", "pi_paid"),
+                event("evt_2", "payment_intent.payment_failed", "pi_open"),
+                event("evt_3", "payment_intent.succeeded", "pi_link")));
+        when(paymentRepository.updateStatus(eq(List.of("pi_paid", "pi_open")), eq("FAILED"), any()))
+                .thenReturn(List.of("pi_open"));
+        when(paymentRepository.updateStatus(eq(List.of("pi_link")), eq("SUCCEEDED"), any()))
+                .thenReturn(List.of());
+
+        inboxService.processBatch(10);
+
+        verify(statusNotifier).publish(Map.of("pi_open", PaymentStatus.FAILED));
+    }
+
+    @Test
+    @DisplayName("processBatch - a payment link intent is recorded against its register")
+    void processBatch_recordsLinkPayment() {
+        when(eventRepository.findPendingForUpdate(Limit.of(10))).thenReturn(List.of(new StripeWebhookEvent(
+                "evt_1", "payment_intent.succeeded", "{\"data\":{\"object\":{\"id\":\"pi_link\",\"amount\":1500,"
+                        + "\"currency\":\"cop\",\"metadata\":{\"register_id\":\"7\"}}}}")));
+        when(paymentRepository.insertIfAbsent(eq("pi_link"), eq(7L), eq(1500L), eq("COP"), eq("SUCCEEDED"),
+                eq("Payment link - register #7"), any())).thenReturn(1);
+
+        inboxService.processBatch(10);
+
+        verify(statusNotifier).publish(Map.of("pi_link", PaymentStatus.SUCCEEDED));
+    }
+
+    @Test
+    @DisplayName("processBatch - an intent that already has a payment row is not inserted again")
+    void processBatch_registerIntentUpdated() {
+        when(eventRepository.findPendingForUpdate(Limit.of(10))).thenReturn(List.of(new StripeWebhookEvent(
+                "evt_1", "payment_intent.succeeded",
+                "{\"data\":{\"object\":{\"id\":\"pi_1\",\"metadata\":{\"register_id\":\"7\"}}}}")));
+        when(paymentRepository.updateStatus(eq(List.of("pi_1")), eq("SUCCEEDED"), any())).thenReturn(List.of("pi_1"));
+
+        inboxService.processBatch(10);
+
+        verify(paymentRepository, never()).insertIfAbsent(any(), anyLong(), anyLong(), any(), any(), any(), any());
+        verify(statusNotifier).publish(Map.of("pi_1", PaymentStatus.SUCCEEDED));
+    }
+
+    @Test
+    @DisplayName("processBatch - an unreadable event is marked failed and the rest applied")
+    void processBatch_unreadable() {
+        StripeWebhookEvent broken = new StripeWebhookEvent("evt_bad", "payment_intent.succeeded", "not json");
+        when(eventRepository.findPendingForUpdate(Limit.of(10))).thenReturn(List.of(
+                broken, event("evt_1", "payment_intent.succeeded", "pi_1")));
+
+        inboxService.processBatch(10);
+
+        assertEquals(WebhookEventStatus.FAILED, broken.getStatus());
+        assertNotNull(broken.getLastError());
+        verify(paymentRepository).updateStatus(eq(List.of("pi_1")), eq("SUCCEEDED"), any());
+        verify(eventRepository).markAll(eq(List.of("evt_1")), eq(WebhookEventStatus.PROCESSED), any());
+    }
+
+    @Test
+    @DisplayName("processBatch - nothing pending")
+    void processBatch_empty() {
+        when(eventRepository.findPendingForUpdate(Limit.of(10))).thenReturn(List.of());
+
+        assertEquals(0, inboxService.processBatch(10));
+
+        verifyNoInteractions(paymentRepository, statusNotifier);
+    }
+}
@@ -0,0 +1,72 @@
+package com.parking.core.payment.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class StripeWebhookWorkerTest {
+
+    @Mock
+    private StripeWebhookInboxService inboxService;
+
+    private StripeWebhookWorker worker;
+
+    @BeforeEach
+    void setUp() {
+        worker = new StripeWebhookWorker(inboxService, 2, 3, 1000L);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        worker.shutdown();
+    }
+
+    @Test
+    @DisplayName("drain - processes batches until one comes back short")
+    void drain_untilShortBatch() {
+        when(inboxService.processBatch(3)).thenReturn(3, 3, 1);
+
+        assertEquals(7, worker.drain());
+
+        verify(inboxService, times(3)).processBatch(3);
+    }
+
+    @Test
+    @DisplayName("drain - stops on a failed batch")
+    void drain_stopsOnFailure() {
+        when(inboxService.processBatch(3)).thenReturn(3).thenThrow(new RuntimeException("db down"));
+
+        assertEquals(3, worker.drain());
+    }
+
+    @Test
+    @DisplayName("poll - starts every idle worker")
+    void poll_startsIdleWorkers() {
+        when(inboxService.processBatch(3)).thenReturn(0);
+
+        assertEquals(2, worker.poll());
+
+        verify(inboxService, timeout(1000).times(2)).processBatch(3);
+    }
+
+    @Test
+    @DisplayName("purge - deletes processed events older than the retention")
+    void purge() {
+        when(inboxService.purgeProcessed(any(LocalDateTime.class))).thenReturn(5);
+
+        worker.purge();
+
+        verify(inboxService).purgeProcessed(argThat(before -> before.isBefore(LocalDateTime.now())));
+    }
+}
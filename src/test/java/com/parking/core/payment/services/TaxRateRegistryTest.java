@@ -0,0 +1,83 @@
+package com.parking.core.payment.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+
+import com.stripe.model.TaxRate;
+import com.stripe.model.TaxRateCollection;
+import com.stripe.param.TaxRateCreateParams;
+import com.stripe.param.TaxRateListParams;
+
+class TaxRateRegistryTest {
+
+    private MockedStatic<TaxRate> taxRateStatic;
+
+    @BeforeEach
+    void setUp() {
+        taxRateStatic = Mockito.mockStatic(TaxRate.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        taxRateStatic.close();
+    }
+
+    private void stubList(TaxRate... rates) {
+        TaxRateCollection collection = mock(TaxRateCollection.class);
+        when(collection.getData()).thenReturn(List.of(rates));
+        taxRateStatic.when(() -> TaxRate.list(any(TaxRateListParams.class))).thenReturn(collection);
+    }
+
+    @Test
+    @DisplayName("id - configured id is used without calling Stripe")
+    void id_configured() throws Exception {
+        assertEquals("txr_cfg", new TaxRateRegistry("txr_cfg").id());
+
+        taxRateStatic.verifyNoInteractions();
+    }
+
+    @Test
+    @DisplayName("id - reuses an existing matching rate")
+    void id_reusesExistingRate() throws Exception {
+        TaxRate other = mock(TaxRate.class);
+        when(other.getDisplayName()).thenReturn("VAT");
+        TaxRate iva = mock(TaxRate.class);
+        when(iva.getId()).thenReturn("txr_iva");
+        when(iva.getDisplayName()).thenReturn("IVA");
+        when(iva.getCountry()).thenReturn("CO");
+        when(iva.getState()).thenReturn("DC");
+        when(iva.getPercentage()).thenReturn(new BigDecimal("19.0000"));
+        stubList(other, iva);
+
+        assertEquals("txr_iva", new TaxRateRegistry("").id());
+
+        taxRateStatic.verify(() -> TaxRate.create(any(TaxRateCreateParams.class)), never());
+    }
+
+    @Test
+    @DisplayName("id - creates the rate once and reuses it afterwards")
+    void id_createsOnce() throws Exception {
+        stubList();
+        TaxRate created = mock(TaxRate.class);
+        when(created.getId()).thenReturn("txr_new");
+        taxRateStatic.when(() -> TaxRate.create(any(TaxRateCreateParams.class))).thenReturn(created);
+        TaxRateRegistry registry = new TaxRateRegistry("");
+
+        assertEquals("txr_new", registry.id());
+        assertEquals("txr_new", registry.id());
+
+        taxRateStatic.verify(() -> TaxRate.list(any(TaxRateListParams.class)), times(1));
+        taxRateStatic.verify(() -> TaxRate.create(any(TaxRateCreateParams.class)), times(1));
+    }
+}
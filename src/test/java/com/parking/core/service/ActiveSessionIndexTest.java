@@ -0,0 +1,103 @@
+package com.parking.core.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.parking.core.model.dto.OpenSession;
+import com.parking.core.repository.RegisterRepository;
+
+@ExtendWith(MockitoExtension.class)
+class ActiveSessionIndexTest {
+
+    @Mock
+    private RegisterRepository registerRepository;
+
+    private ActiveSessionIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ActiveSessionIndex(registerRepository);
+    }
+
+    @Test
+    @DisplayName("warmUp - loads open registers from the database")
+    void warmUp_loadsOpenRegisters() {
+        LocalDateTime entry = LocalDateTime.now();
+        when(registerRepository.findAllOpenSessions()).thenReturn(List.of(
+                new OpenSession("ABC123", 1L, entry),
+                new OpenSession("DEF456", 2L, entry)));
+
+        index.warmUp();
+
+        assertEquals(2, index.size());
+        assertTrue(index.isInside("ABC123"));
+        assertEquals(2L, index.find("DEF456").orElseThrow().registerId());
+    }
+
+    @Test
+    @DisplayName("recordExit - ignores exits of an older register")
+    void recordExit_ignoresStaleRegister() {
+        index.recordEntry("ABC123", 5L, LocalDateTime.now());
+
+        index.recordExit("ABC123", 4L);
+
+        assertTrue(index.isInside("ABC123"));
+    }
+
+    @Test
+    @DisplayName("recordEntry - is deferred until the transaction commits")
+    void recordEntry_deferredUntilCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            index.recordEntry("ABC123", 1L, LocalDateTime.now());
+            assertFalse(index.isInside("ABC123"));
+
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(TransactionSynchronization::afterCommit);
+            assertTrue(index.isInside("ABC123"));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("verify - repairs plates that are out of sync with the database")
+    void verify_repairsDrift() {
+        LocalDateTime entry = LocalDateTime.now();
+        index.recordEntry("GONE01", 1L, entry);
+        when(registerRepository.findAllOpenSessions()).thenReturn(List.of(new OpenSession("NEW001", 2L, entry)));
+        when(registerRepository.findOpenSession("GONE01")).thenReturn(Optional.empty());
+        when(registerRepository.findOpenSession("NEW001")).thenReturn(Optional.of(new OpenSession("NEW001", 2L, entry)));
+
+        int repaired = index.verify();
+
+        assertEquals(2, repaired);
+        assertFalse(index.isInside("GONE01"));
+        assertTrue(index.isInside("NEW001"));
+    }
+
+    @Test
+    @DisplayName("verify - does not repair plates that changed while the snapshot was read")
+    void verify_ignoresConcurrentChanges() {
+        LocalDateTime entry = LocalDateTime.now();
+        index.recordEntry("ABC123", 3L, entry);
+        when(registerRepository.findAllOpenSessions()).thenReturn(List.of());
+        when(registerRepository.findOpenSession("ABC123")).thenReturn(Optional.of(new OpenSession("ABC123", 3L, entry)));
+
+        assertEquals(0, index.verify());
+        assertTrue(index.isInside("ABC123"));
+    }
+}
@@ -25,6 +25,7 @@ import com.parking.core.auth.model.AuthRequest;
 import com.parking.core.auth.model.Response.AuthResponse;
 import com.parking.core.auth.services.AuthService;
 import com.parking.core.auth.services.JWTService;
+import com.parking.core.auth.services.RefreshTokenService;
 import com.parking.core.enums.Roles;
 import com.parking.core.model.User;
 import com.parking.core.repository.UserRepository;
@@ -44,6 +45,9 @@ class AuthServiceTest {
     @Mock
     private PasswordEncoder encoder;
 
+    @Mock
+    private RefreshTokenService refreshTokenService;
+
     @InjectMocks
     private AuthService authService;
 
@@ -153,11 +157,13 @@ class AuthServiceTest {
             when(userRepository.findByUsernameOrEmail("johndoe", "johndoe"))
                     .thenReturn(Optional.of(user));
             when(jwt.generateToken(user)).thenReturn("jwt-token");
+            when(refreshTokenService.issue(user)).thenReturn("refresh-token");
 
             Map<String, Object> result = authService.login(loginRequest);
 
             assertNotNull(result.get("token"));
             assertEquals("jwt-token", result.get("token"));
+            assertEquals("refresh-token", result.get("refreshToken"));
 
             AuthResponse authResponse = (AuthResponse) result.get("user");
             assertEquals("johndoe", authResponse.username());
@@ -220,4 +226,38 @@ class AuthServiceTest {
             assertEquals(401, ex.getStatusCode().value());
         }
     }
+
+    @Nested
+    @DisplayName("refresh")
+    class RefreshTests {
+
+        @Test
+        @DisplayName("should issue new tokens without authenticating the password")
+        void shouldRefreshWithoutPassword() {
+            User user = new User("John Doe", "johndoe", Roles.USER, "john@example.com", null);
+            when(refreshTokenService.rotate("old-refresh"))
+                    .thenReturn(new RefreshTokenService.Rotation("johndoe", "new-refresh"));
+            when(userRepository.findByUsername("johndoe")).thenReturn(Optional.of(user));
+            when(jwt.generateToken(user)).thenReturn("jwt-token");
+
+            Map<String, Object> result = authService.refresh("old-refresh");
+
+            assertEquals("jwt-token", result.get("token"));
+            assertEquals("new-refresh", result.get("refreshToken"));
+            verifyNoInteractions(authenticationManager, encoder);
+        }
+
+        @Test
+        @DisplayName("should throw 401 when the user no longer exists")
+        void shouldThrow401WhenUserGone() {
+            when(refreshTokenService.rotate("old-refresh"))
+                    .thenReturn(new RefreshTokenService.Rotation("ghost", "new-refresh"));
+            when(userRepository.findByUsername("ghost")).thenReturn(Optional.empty());
+
+            ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                    () -> authService.refresh("old-refresh"));
+
+            assertEquals(401, ex.getStatusCode().value());
+        }
+    }
 }
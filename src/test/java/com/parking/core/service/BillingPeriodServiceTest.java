@@ -0,0 +1,134 @@
+package com.parking.core.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import com.parking.core.model.BillingPeriod;
+import com.parking.core.repository.BillingPeriodRepository;
+import com.parking.core.repository.RegisterRepository;
+
+@ExtendWith(MockitoExtension.class)
+class BillingPeriodServiceTest {
+
+    @Mock
+    private BillingPeriodRepository billingPeriodRepository;
+
+    @Mock
+    private RegisterRepository registerRepository;
+
+    @Mock
+    private RedisTemplate<String, String> redisTemplate;
+
+    @Mock
+    private RedisMessageListenerContainer listenerContainer;
+
+    private BillingPeriodService billingPeriodService;
+
+    @BeforeEach
+    void setUp() {
+        billingPeriodService = new BillingPeriodService(billingPeriodRepository, registerRepository, redisTemplate,
+                listenerContainer, 2);
+    }
+
+    @Test
+    @DisplayName("init - creates the first period on an empty database")
+    void init_createsFirstPeriod() {
+        when(billingPeriodRepository.findTopByOrderByIdDesc()).thenReturn(Optional.empty());
+        when(billingPeriodRepository.insertIfAbsent(eq(1L), any())).thenReturn(1);
+
+        billingPeriodService.init();
+
+        assertEquals(1L, billingPeriodService.current());
+        verify(listenerContainer).addMessageListener(billingPeriodService, new ChannelTopic("billing-periods"));
+    }
+
+    @Test
+    @DisplayName("startNewPeriod - inserts and publishes the next period without touching registers")
+    void startNewPeriod_isConstantTime() {
+        when(billingPeriodRepository.findTopByOrderByIdDesc())
+                .thenReturn(Optional.of(new BillingPeriod(3L, LocalDateTime.now())));
+        when(billingPeriodRepository.insertIfAbsent(eq(4L), any())).thenReturn(1);
+
+        BillingPeriod period = billingPeriodService.startNewPeriod();
+
+        assertEquals(4L, period.getId());
+        assertEquals(4L, billingPeriodService.current());
+        verify(redisTemplate).convertAndSend("billing-periods", "4");
+        verify(billingPeriodRepository, never()).save(any());
+        verifyNoInteractions(registerRepository);
+    }
+
+    @Test
+    @DisplayName("startNewPeriod - a period another node inserted first is reused")
+    void startNewPeriod_conflict() {
+        BillingPeriod existing = new BillingPeriod(4L, LocalDateTime.now().minusSeconds(1));
+        when(billingPeriodRepository.findTopByOrderByIdDesc())
+                .thenReturn(Optional.of(new BillingPeriod(3L, LocalDateTime.now())));
+        when(billingPeriodRepository.insertIfAbsent(eq(4L), any())).thenReturn(0);
+        when(billingPeriodRepository.findById(4L)).thenReturn(Optional.of(existing));
+
+        assertSame(existing, billingPeriodService.startNewPeriod());
+        assertEquals(4L, billingPeriodService.current());
+        verifyNoInteractions(redisTemplate);
+    }
+
+    @Test
+    @DisplayName("startNewPeriod - a Redis failure does not fail the rollover")
+    void startNewPeriod_redisDown() {
+        when(billingPeriodRepository.findTopByOrderByIdDesc()).thenReturn(Optional.empty());
+        when(billingPeriodRepository.insertIfAbsent(anyLong(), any())).thenReturn(1);
+        when(redisTemplate.convertAndSend(any(), any())).thenThrow(new IllegalStateException("down"));
+
+        assertEquals(1L, billingPeriodService.startNewPeriod().getId());
+        assertEquals(1L, billingPeriodService.current());
+    }
+
+    @Test
+    @DisplayName("onMessage - periods started by other nodes are applied, never moved backwards")
+    void onMessage_appliesNewerPeriod() {
+        billingPeriodService.onMessage(message("5"), null);
+        billingPeriodService.onMessage(message("4"), null);
+        billingPeriodService.onMessage(message("garbage"), null);
+
+        assertEquals(5L, billingPeriodService.current());
+    }
+
+    @Test
+    @DisplayName("purgePastPeriods - deletes official registers in batches and marks the period purged")
+    void purgePastPeriods_deletesInBatches() {
+        BillingPeriod past = new BillingPeriod(1L, LocalDateTime.now().minusMonths(1));
+        when(billingPeriodRepository.findTopByOrderByIdDesc())
+                .thenReturn(Optional.of(new BillingPeriod(2L, LocalDateTime.now())));
+        when(billingPeriodRepository.findAllByIdLessThanAndPurgedAtIsNullOrderByIdAsc(2L)).thenReturn(List.of(past));
+        when(registerRepository.purgeClosedRegisters("OFICIAL", 1L, 2)).thenReturn(2, 1);
+
+        int deleted = billingPeriodService.purgePastPeriods();
+
+        assertEquals(3, deleted);
+        assertNotNull(past.getPurgedAt());
+        verify(billingPeriodRepository).save(past);
+    }
+
+    private static DefaultMessage message(String body) {
+        return new DefaultMessage("billing-periods".getBytes(StandardCharsets.UTF_8),
+                body.getBytes(StandardCharsets.UTF_8));
+    }
+}
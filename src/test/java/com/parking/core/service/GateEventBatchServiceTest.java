@@ -0,0 +1,150 @@
+package com.parking.core.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.parking.core.enums.GateEventType;
+import com.parking.core.enums.VehicleType;
+import com.parking.core.model.Register;
+import com.parking.core.model.Vehicle;
+import com.parking.core.model.dto.GateEvent;
+import com.parking.core.model.dto.GateEventResult;
+import com.parking.core.repository.RegisterRepository;
+import com.parking.core.repository.VehicleRepository;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class GateEventBatchServiceTest {
+
+    @Mock
+    private RegisterRepository registerRepository;
+
+    @Mock
+    private VehicleRepository vehicleRepository;
+
+    @Mock
+    private BillingPeriodService billingPeriodService;
+
+    @Mock
+    private UsageRollupService usageRollupService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ActiveSessionIndex sessionIndex;
+    private GateEventBatchService batchService;
+
+    private final Vehicle abc = new Vehicle("ABC123", VehicleType.NON_RESIDENT);
+    private final Vehicle def = new Vehicle("DEF456", VehicleType.RESIDENT);
+    private final LocalDateTime base = LocalDateTime.of(2025, 3, 1, 8, 0);
+
+    @BeforeEach
+    void setUp() {
+        sessionIndex = new ActiveSessionIndex(registerRepository);
+        batchService = new GateEventBatchService(registerRepository, vehicleRepository, sessionIndex,
+                billingPeriodService, usageRollupService, transactionManager, 2);
+        when(vehicleRepository.findAllById(anyIterable())).thenReturn(List.of(abc, def));
+        when(registerRepository.findAllById(anyIterable())).thenReturn(List.of());
+        when(registerRepository.saveAll(anyIterable())).thenAnswer(invocation -> {
+            long id = 100;
+            for (Register register : invocation.<Iterable<Register>>getArgument(0)) {
+                if (register.getId() == 0) {
+                    register.setId(id++);
+                }
+            }
+            return List.of();
+        });
+    }
+
+    private GateEvent event(GateEventType type, String plate, int minutesAfterBase) {
+        return new GateEvent(type, plate, base.plusMinutes(minutesAfterBase), null, null);
+    }
+
+    @Test
+    @DisplayName("should open a register for an entry and index it")
+    void shouldOpenRegister() {
+        List<GateEventResult> results = batchService.process(List.of(event(GateEventType.ENTRY, "ABC123", 0)));
+
+        assertEquals(1, results.size());
+        assertEquals(201, results.get(0).status());
+        assertEquals(100L, results.get(0).registerId());
+        assertTrue(sessionIndex.isInside("ABC123"));
+    }
+
+    @Test
+    @DisplayName("should collapse entry and exit of the same chunk into one closed register")
+    void shouldCollapseEntryAndExit() {
+        List<GateEventResult> results = batchService.process(List.of(
+                event(GateEventType.ENTRY, "ABC123", 0),
+                event(GateEventType.EXIT, "ABC123", 45)));
+
+        assertEquals(201, results.get(0).status());
+        assertEquals(200, results.get(1).status());
+        assertEquals(results.get(0).registerId(), results.get(1).registerId());
+        assertFalse(sessionIndex.isInside("ABC123"));
+        verify(usageRollupService).recordCloses(argThat(closed -> closed.size() == 1));
+    }
+
+    @Test
+    @DisplayName("should close registers that were open before the batch")
+    void shouldCloseExistingRegister() {
+        Register existing = new Register(def);
+        existing.setId(7L);
+        existing.setEntrydate(base);
+        sessionIndex.recordEntry("DEF456", 7L, base);
+        when(registerRepository.findAllById(List.of(7L))).thenReturn(List.of(existing));
+
+        List<GateEventResult> results = batchService.process(List.of(event(GateEventType.EXIT, "DEF456", 90)));
+
+        assertEquals(200, results.get(0).status());
+        assertEquals(90, existing.getMinutes());
+        assertFalse(sessionIndex.isInside("DEF456"));
+        verify(usageRollupService).recordCloses(List.of(existing));
+    }
+
+    @Test
+    @DisplayName("should report per-event errors without stopping the batch")
+    void shouldReportPerEventErrors() {
+        List<GateEventResult> results = batchService.process(List.of(
+                event(GateEventType.EXIT, "ABC123", 0),
+                event(GateEventType.ENTRY, "UNKNOWN", 0),
+                event(GateEventType.ENTRY, "DEF456", 5),
+                event(GateEventType.ENTRY, "DEF456", 6)));
+
+        assertEquals(List.of(400, 404, 201, 400), results.stream().map(GateEventResult::status).toList());
+        assertEquals(List.of(0, 1, 2, 3), results.stream().map(GateEventResult::index).toList());
+    }
+
+    @Test
+    @DisplayName("should skip later events of vehicles whose chunk was rolled back")
+    void shouldSkipEventsAfterFailedChunk() {
+        when(vehicleRepository.findAllById(anyIterable()))
+                .thenThrow(new IllegalStateException("db down"))
+                .thenReturn(List.of(abc, def));
+
+        List<GateEventResult> results = batchService.process(List.of(
+                event(GateEventType.ENTRY, "ABC123", 0),
+                event(GateEventType.ENTRY, "DEF456", 0),
+                event(GateEventType.EXIT, "ABC123", 10)));
+
+        assertEquals(List.of(500, 500, 409), results.stream().map(GateEventResult::status).toList());
+        verify(registerRepository, never()).findById(any());
+        assertEquals(Optional.empty(), sessionIndex.find("ABC123"));
+    }
+}
@@ -0,0 +1,98 @@
+package com.parking.core.service;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.parking.core.model.NotificationOutbox;
+import com.parking.core.payment.services.StripePaymentLinkService;
+
+@ExtendWith(MockitoExtension.class)
+class NotificationDispatcherTest {
+
+    @Mock
+    private NotificationOutboxService outboxService;
+
+    @Mock
+    private StripePaymentLinkService stripePaymentLinkService;
+
+    @Mock
+    private SmsNotificationService smsNotificationService;
+
+    private NotificationDispatcher dispatcher;
+
+    private NotificationOutbox entry;
+
+    @BeforeEach
+    void setUp() {
+        dispatcher = new NotificationDispatcher(outboxService, stripePaymentLinkService, smsNotificationService,
+                "https://front.test", 1, 10);
+        entry = new NotificationOutbox(7L, "ABC123", "+573001234567", "whatsapp", 30, 15.0);
+        entry.setId(1L);
+        entry.setAttempts(1);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    @DisplayName("deliver - creates the link, sends the message and marks the entry sent")
+    void deliver_success() {
+        when(stripePaymentLinkService.createPaymentLink(15.0, 7L)).thenReturn("https://buy.stripe.com/abc");
+        when(smsNotificationService.sendExitWhatsApp("+573001234567", "ABC123", 30, 15.0, "https://buy.stripe.com/abc"))
+                .thenReturn(true);
+
+        dispatcher.deliver(entry);
+
+        verify(outboxService).markSent(1L);
+    }
+
+    @Test
+    @DisplayName("deliver - retries later when the payment link cannot be created")
+    void deliver_retriesWhenLinkFails() {
+        when(stripePaymentLinkService.createPaymentLink(15.0, 7L)).thenReturn(null);
+        when(outboxService.isLastAttempt(entry)).thenReturn(false);
+
+        dispatcher.deliver(entry);
+
+        verify(outboxService).markRetry(eq(1L), isNull(), anyString());
+        verifyNoInteractions(smsNotificationService);
+    }
+
+    @Test
+    @DisplayName("deliver - falls back to the frontend payment page on the last attempt")
+    void deliver_fallsBackOnLastAttempt() {
+        when(stripePaymentLinkService.createPaymentLink(15.0, 7L)).thenReturn(null);
+        when(outboxService.isLastAttempt(entry)).thenReturn(true);
+        when(smsNotificationService.sendExitWhatsApp(anyString(), anyString(), eq(30), eq(15.0), anyString()))
+                .thenReturn(true);
+
+        dispatcher.deliver(entry);
+
+        verify(smsNotificationService).sendExitWhatsApp("+573001234567", "ABC123", 30, 15.0, "https://front.test/pay/7");
+        verify(outboxService).markSent(1L);
+    }
+
+    @Test
+    @DisplayName("deliver - reuses the link of a previous attempt when the message fails")
+    void deliver_reusesLinkOnRetry() {
+        entry.setPayUrl("https://buy.stripe.com/abc");
+        when(smsNotificationService.sendExitWhatsApp(anyString(), anyString(), eq(30), eq(15.0), anyString()))
+                .thenReturn(false);
+
+        dispatcher.deliver(entry);
+
+        verifyNoInteractions(stripePaymentLinkService);
+        verify(outboxService).markRetry(eq(1L), eq("https://buy.stripe.com/abc"), anyString());
+    }
+}
@@ -0,0 +1,111 @@
+package com.parking.core.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.parking.core.enums.OutboxStatus;
+import com.parking.core.enums.VehicleType;
+import com.parking.core.model.NotificationOutbox;
+import com.parking.core.model.Register;
+import com.parking.core.model.Vehicle;
+import com.parking.core.repository.NotificationOutboxRepository;
+
+@ExtendWith(MockitoExtension.class)
+class NotificationOutboxServiceTest {
+
+    @Mock
+    private NotificationOutboxRepository outboxRepository;
+
+    private NotificationOutboxService outboxService;
+
+    @BeforeEach
+    void setUp() {
+        outboxService = new NotificationOutboxService(outboxRepository, 3, 60000, 1000);
+    }
+
+    @Test
+    @DisplayName("enqueueExit - stores a pending entry for the closed register")
+    void enqueueExit_storesPendingEntry() {
+        Register register = new Register(new Vehicle("ABC123", VehicleType.NON_RESIDENT));
+        register.setId(7L);
+        register.setMinutes(45);
+        when(outboxRepository.save(any(NotificationOutbox.class))).thenAnswer(i -> i.getArgument(0));
+
+        outboxService.enqueueExit(register, "+573001234567", "WhatsApp", 22.5);
+
+        ArgumentCaptor<NotificationOutbox> captor = ArgumentCaptor.forClass(NotificationOutbox.class);
+        verify(outboxRepository).save(captor.capture());
+        NotificationOutbox entry = captor.getValue();
+        assertEquals(7L, entry.getRegisterId());
+        assertEquals("ABC123", entry.getVehicleId());
+        assertEquals("whatsapp", entry.getChannel());
+        assertEquals(45, entry.getMinutes());
+        assertEquals(OutboxStatus.PENDING, entry.getStatus());
+    }
+
+    @Test
+    @DisplayName("claimDue - leases claimed entries and counts the attempt")
+    void claimDue_leasesEntries() {
+        NotificationOutbox entry = new NotificationOutbox(1L, "ABC123", "+573001234567", "sms", 10, 5.0);
+        when(outboxRepository.findDueForUpdate(any(LocalDateTime.class), any())).thenReturn(List.of(entry));
+
+        List<NotificationOutbox> claimed = outboxService.claimDue(10);
+
+        assertEquals(1, claimed.size());
+        assertEquals(OutboxStatus.IN_FLIGHT, entry.getStatus());
+        assertEquals(1, entry.getAttempts());
+        assertTrue(entry.getNextAttemptAt().isAfter(LocalDateTime.now()));
+    }
+
+    @Test
+    @DisplayName("markRetry - reschedules the entry and keeps the payment link")
+    void markRetry_reschedules() {
+        NotificationOutbox entry = new NotificationOutbox(1L, "ABC123", "+573001234567", "sms", 10, 5.0);
+        entry.setAttempts(1);
+        when(outboxRepository.findById(1L)).thenReturn(Optional.of(entry));
+
+        outboxService.markRetry(1L, "https://buy.stripe.com/test", "Twilio down");
+
+        assertEquals(OutboxStatus.PENDING, entry.getStatus());
+        assertEquals("https://buy.stripe.com/test", entry.getPayUrl());
+        assertEquals("Twilio down", entry.getLastError());
+        assertTrue(entry.getNextAttemptAt().isAfter(LocalDateTime.now()));
+    }
+
+    @Test
+    @DisplayName("markRetry - gives up after the maximum number of attempts")
+    void markRetry_failsAfterMaxAttempts() {
+        NotificationOutbox entry = new NotificationOutbox(1L, "ABC123", "+573001234567", "sms", 10, 5.0);
+        entry.setAttempts(3);
+        when(outboxRepository.findById(1L)).thenReturn(Optional.of(entry));
+
+        outboxService.markRetry(1L, null, "Twilio down");
+
+        assertEquals(OutboxStatus.FAILED, entry.getStatus());
+    }
+
+    @Test
+    @DisplayName("markSent - marks the entry as delivered")
+    void markSent_marksDelivered() {
+        NotificationOutbox entry = new NotificationOutbox(1L, "ABC123", "+573001234567", "sms", 10, 5.0);
+        when(outboxRepository.findById(1L)).thenReturn(Optional.of(entry));
+
+        outboxService.markSent(1L);
+
+        assertEquals(OutboxStatus.SENT, entry.getStatus());
+        assertNotNull(entry.getSentAt());
+    }
+}
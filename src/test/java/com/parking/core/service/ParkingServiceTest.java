@@ -2,8 +2,10 @@ package com.parking.core.service;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 
+import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -16,14 +18,18 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.web.server.ResponseStatusException;
 
 import com.parking.core.enums.VehicleType;
-import com.parking.core.model.Register;
+import com.parking.core.model.BillingPeriod;
 import com.parking.core.model.Vehicle;
+import com.parking.core.model.dto.VehicleCharge;
+import com.parking.core.model.dto.VehicleUsage;
 import com.parking.core.repository.RegisterRepository;
 import com.parking.core.repository.VehicleRepository;
+import com.parking.core.repository.VehicleUsageRollupRepository;
 
 @ExtendWith(MockitoExtension.class)
 class ParkingServiceTest {
@@ -34,6 +40,15 @@ class ParkingServiceTest {
     @Mock
     private RegisterRepository registerRepository;
 
+    @Mock
+    private VehicleUsageRollupRepository rollupRepository;
+
+    @Mock
+    private BillingPeriodService billingPeriodService;
+
+    @Spy
+    private PricingEngine pricingEngine = new PricingEngine(0, 5, 50);
+
     @InjectMocks
     private ParkingService parkingService;
 
@@ -103,12 +118,14 @@ class ParkingServiceTest {
     @DisplayName("calculatePayment")
     class CalculatePaymentTests {
 
+        private VehicleUsage usage(Vehicle vehicle, long minutes, long sessions) {
+            return new VehicleUsage(vehicle.getId(), vehicle.getType(), minutes, sessions);
+        }
+
         @Test
         @DisplayName("should calculate payment for NON_RESIDENT at 0.5/min")
         void shouldCalculateNonResident() {
-            Register r = new Register(testVehicle);
-            r.setMinutes(120);
-            when(registerRepository.findAllByVehicle(testVehicle)).thenReturn(List.of(r));
+            when(rollupRepository.summarizeByVehicle("ABC123", 0L)).thenReturn(Optional.of(usage(testVehicle, 120, 1)));
 
             double payment = parkingService.calculatePayment(testVehicle);
 
@@ -119,9 +136,7 @@ class ParkingServiceTest {
         @DisplayName("should calculate payment for RESIDENT at 0.05/min")
         void shouldCalculateResident() {
             Vehicle resident = new Vehicle("RES001", VehicleType.RESIDENT);
-            Register r = new Register(resident);
-            r.setMinutes(200);
-            when(registerRepository.findAllByVehicle(resident)).thenReturn(List.of(r));
+            when(rollupRepository.summarizeByVehicle("RES001", 0L)).thenReturn(Optional.of(usage(resident, 200, 1)));
 
             double payment = parkingService.calculatePayment(resident);
 
@@ -132,9 +147,7 @@ class ParkingServiceTest {
         @DisplayName("should return 0 for OFICIAL vehicles")
         void shouldReturnZeroForOficial() {
             Vehicle oficial = new Vehicle("OFC001", VehicleType.OFICIAL);
-            Register r = new Register(oficial);
-            r.setMinutes(500);
-            when(registerRepository.findAllByVehicle(oficial)).thenReturn(List.of(r));
+            when(rollupRepository.summarizeByVehicle("OFC001", 0L)).thenReturn(Optional.of(usage(oficial, 500, 1)));
 
             double payment = parkingService.calculatePayment(oficial);
 
@@ -142,29 +155,109 @@ class ParkingServiceTest {
         }
 
         @Test
-        @DisplayName("should sum minutes across multiple registers")
-        void shouldSumMinutesAcrossRegisters() {
-            Register r1 = new Register(testVehicle);
-            r1.setMinutes(60);
-            Register r2 = new Register(testVehicle);
-            r2.setMinutes(40);
-            when(registerRepository.findAllByVehicle(testVehicle)).thenReturn(List.of(r1, r2));
+        @DisplayName("should read the minutes from the usage rollup without loading registers")
+        void shouldUseAggregatedMinutes() {
+            when(rollupRepository.summarizeByVehicle("ABC123", 0L)).thenReturn(Optional.of(usage(testVehicle, 100, 2)));
 
-            double payment = parkingService.calculatePayment(testVehicle);
+            VehicleCharge charge = parkingService.calculateCharge(testVehicle, null, null);
+
+            assertEquals(50.0, charge.price(), 0.01); // (60+40) * 0.5
+            assertEquals(2, charge.sessions());
+            verify(registerRepository, never()).findAllByVehicle(any());
+        }
+
+        @Test
+        @DisplayName("should limit the aggregate to the requested date range")
+        void shouldUseDateRange() {
+            LocalDateTime from = LocalDateTime.of(2025, 1, 1, 0, 0);
+            LocalDateTime to = LocalDateTime.of(2025, 2, 1, 0, 0);
+            when(registerRepository.summarizeByVehicleBetween("ABC123", from, to))
+                    .thenReturn(Optional.of(usage(testVehicle, 20, 1)));
+
+            VehicleCharge charge = parkingService.calculateCharge(testVehicle, from, to);
 
-            assertEquals(50.0, payment, 0.01); // (60+40) * 0.5
+            assertEquals(10.0, charge.price(), 0.01);
+        }
+
+        @Test
+        @DisplayName("should only count the current billing period")
+        void shouldUseCurrentPeriod() {
+            when(billingPeriodService.current()).thenReturn(4L);
+            when(rollupRepository.summarizeByVehicle("ABC123", 4L)).thenReturn(Optional.of(usage(testVehicle, 30, 1)));
+
+            assertEquals(15.0, parkingService.calculatePayment(testVehicle), 0.01);
+        }
+
+        @Test
+        @DisplayName("should price a past billing period")
+        void shouldUsePastPeriod() {
+            when(rollupRepository.findUsage("ABC123", 2L))
+                    .thenReturn(Optional.of(usage(testVehicle, 40, 2)));
+
+            VehicleCharge charge = parkingService.calculateChargeForPeriod(testVehicle, 2L);
+
+            assertEquals(20.0, charge.price(), 0.01);
+        }
+
+        @Test
+        @DisplayName("should throw 400 when only one bound of the range is given")
+        void shouldThrow400WhenRangeIncomplete() {
+            ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                    () -> parkingService.calculateCharge(testVehicle, LocalDateTime.now(), null));
+
+            assertEquals(400, ex.getStatusCode().value());
+            verifyNoInteractions(registerRepository);
         }
 
         @Test
         @DisplayName("should throw 400 when no registers found for vehicle")
         void shouldThrow400WhenNoRegisters() {
-            when(registerRepository.findAllByVehicle(testVehicle)).thenReturn(Collections.emptyList());
+            when(rollupRepository.summarizeByVehicle("ABC123", 0L)).thenReturn(Optional.empty());
+            when(registerRepository.existsByVehicleId("ABC123")).thenReturn(false);
 
             ResponseStatusException ex = assertThrows(ResponseStatusException.class,
                     () -> parkingService.calculatePayment(testVehicle));
 
             assertEquals(400, ex.getStatusCode().value());
         }
+
+        @Test
+        @DisplayName("should charge zero to a resident with no closed session since the month started")
+        void shouldReturnZeroForEmptyPeriod() {
+            Vehicle resident = new Vehicle("RES001", VehicleType.RESIDENT);
+            when(billingPeriodService.current()).thenReturn(4L);
+            when(rollupRepository.summarizeByVehicle("RES001", 4L)).thenReturn(Optional.empty());
+            when(registerRepository.existsByVehicleId("RES001")).thenReturn(true);
+
+            VehicleCharge charge = parkingService.calculateCharge(resident, null, null);
+
+            assertEquals(0.0, charge.price());
+            assertEquals(0L, charge.minutes());
+            assertEquals(0L, charge.sessions());
+        }
+
+        @Test
+        @DisplayName("should charge zero while the only register of the vehicle is open")
+        void shouldReturnZeroWhileParked() {
+            when(rollupRepository.summarizeByVehicle("ABC123", 0L)).thenReturn(Optional.empty());
+            when(registerRepository.existsByVehicleId("ABC123")).thenReturn(true);
+
+            assertEquals(0.0, parkingService.calculatePayment(testVehicle));
+        }
+
+        @Test
+        @DisplayName("should price many vehicles with their stored types")
+        void shouldCalculateChargesBatch() {
+            Vehicle resident = new Vehicle("RES001", VehicleType.RESIDENT);
+            when(rollupRepository.summarizeByVehicles(any(), anyLong())).thenReturn(List.of(
+                    usage(testVehicle, 60, 2), usage(resident, 200, 4)));
+
+            List<VehicleCharge> charges = parkingService.calculateCharges(List.of("ABC123", "RES001", "NONE01"));
+
+            assertEquals(2, charges.size());
+            assertEquals(30.0, charges.get(0).price(), 0.01);
+            assertEquals(10.0, charges.get(1).price(), 0.01);
+        }
     }
 
     @Nested
@@ -201,37 +294,16 @@ class ParkingServiceTest {
     class MonthStartsTests {
 
         @Test
-        @DisplayName("should delete official registers and reset resident minutes")
+        @DisplayName("should start a new billing period without touching registers")
         void shouldResetMonth() {
-            Register oficialReg = new Register(new Vehicle("OFC1", VehicleType.OFICIAL));
-            oficialReg.setMinutes(100);
-            Register residentReg = new Register(new Vehicle("RES1", VehicleType.RESIDENT));
-            residentReg.setMinutes(200);
-
-            when(registerRepository.findAllByVehicle_Type(VehicleType.OFICIAL))
-                    .thenReturn(List.of(oficialReg));
-            when(registerRepository.findAllByVehicle_Type(VehicleType.RESIDENT))
-                    .thenReturn(List.of(residentReg));
-
-            Map<String, Object> result = parkingService.monthStarts();
-
-            assertEquals(1, result.get("deletedCount"));
-            assertEquals(0, residentReg.getMinutes());
-            verify(registerRepository).saveAll(List.of(residentReg));
-            verify(registerRepository).deleteAll(List.of(oficialReg));
-        }
-
-        @Test
-        @DisplayName("should handle empty lists gracefully")
-        void shouldHandleEmptyLists() {
-            when(registerRepository.findAllByVehicle_Type(VehicleType.OFICIAL))
-                    .thenReturn(Collections.emptyList());
-            when(registerRepository.findAllByVehicle_Type(VehicleType.RESIDENT))
-                    .thenReturn(Collections.emptyList());
+            when(billingPeriodService.current()).thenReturn(3L);
+            when(billingPeriodService.startNewPeriod()).thenReturn(new BillingPeriod(4L, LocalDateTime.now()));
 
             Map<String, Object> result = parkingService.monthStarts();
 
-            assertEquals(0, result.get("deletedCount"));
+            assertEquals(4L, result.get("period"));
+            assertEquals(3L, result.get("previousPeriod"));
+            verifyNoInteractions(registerRepository);
         }
     }
 
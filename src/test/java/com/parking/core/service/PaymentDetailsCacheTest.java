@@ -0,0 +1,115 @@
+package com.parking.core.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.parking.core.enums.VehicleType;
+import com.parking.core.model.dto.PaymentDetails;
+import com.parking.core.model.dto.RegisterPaymentView;
+import com.parking.core.repository.RegisterRepository;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentDetailsCacheTest {
+
+    @Mock
+    private RegisterRepository registerRepository;
+
+    private PricingEngine pricingEngine = new PricingEngine(0, 5, 50);
+    private PaymentDetailsCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new PaymentDetailsCache(registerRepository, pricingEngine, 2);
+    }
+
+    private RegisterPaymentView closed(long id, int minutes) {
+        return new RegisterPaymentView(id, "ABC-" + id, VehicleType.NON_RESIDENT,
+                LocalDateTime.of(2025, 1, 15, 10, 0), LocalDateTime.of(2025, 1, 15, 10, minutes), minutes);
+    }
+
+    @Test
+    @DisplayName("get - reads and prices a closed register once")
+    void get_cached() {
+        when(registerRepository.findPaymentView(1L)).thenReturn(Optional.of(closed(1L, 30)));
+
+        PaymentDetails first = cache.get(1L);
+        PaymentDetails second = cache.get(1L);
+
+        assertSame(first, second);
+        assertEquals(1500L, first.amountMinor());
+        assertEquals("ABC-1", first.register().plate());
+        verify(registerRepository, times(1)).findPaymentView(1L);
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    @DisplayName("get - strong ETag derived from the content")
+    void get_etag() {
+        when(registerRepository.findPaymentView(anyLong()))
+                .thenAnswer(i -> Optional.of(closed(i.getArgument(0), 30)));
+
+        String etag = cache.get(1L).etag();
+
+        assertTrue(etag.startsWith("\"") && etag.endsWith("\"") && etag.length() > 2);
+        assertFalse(etag.startsWith("W/"));
+        assertNotEquals(etag, cache.get(2L).etag());
+        assertEquals(etag, new PaymentDetailsCache(registerRepository, pricingEngine, 2).get(1L).etag());
+    }
+
+    @Test
+    @DisplayName("get - 404 when the register does not exist, not cached")
+    void get_notFound() {
+        when(registerRepository.findPaymentView(999L)).thenReturn(Optional.empty());
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class, () -> cache.get(999L));
+        assertEquals(404, ex.getStatusCode().value());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    @DisplayName("get - 400 while the vehicle is parked, read again once it exits")
+    void get_openNotCached() {
+        RegisterPaymentView open = new RegisterPaymentView(1L, "ABC-1", VehicleType.NON_RESIDENT,
+                LocalDateTime.of(2025, 1, 15, 10, 0), null, 0);
+        when(registerRepository.findPaymentView(1L))
+                .thenReturn(Optional.of(open))
+                .thenReturn(Optional.of(closed(1L, 30)));
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class, () -> cache.get(1L));
+        assertEquals(400, ex.getStatusCode().value());
+        assertEquals(0, cache.size());
+
+        assertEquals(1500L, cache.get(1L).amountMinor());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    @DisplayName("get - evicts the least recently viewed register beyond the maximum size")
+    void get_evictsLeastRecent() {
+        when(registerRepository.findPaymentView(anyLong()))
+                .thenAnswer(i -> Optional.of(closed(i.getArgument(0), 30)));
+
+        cache.get(1L);
+        cache.get(2L);
+        cache.get(1L);
+        cache.get(3L);
+        cache.get(1L);
+        cache.get(2L);
+
+        assertEquals(2, cache.size());
+        verify(registerRepository, times(1)).findPaymentView(1L);
+        verify(registerRepository, times(2)).findPaymentView(2L);
+    }
+}
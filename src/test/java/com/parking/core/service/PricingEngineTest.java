@@ -0,0 +1,49 @@
+package com.parking.core.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.parking.core.enums.VehicleType;
+import com.parking.core.model.Register;
+import com.parking.core.model.Vehicle;
+
+class PricingEngineTest {
+
+    private final PricingEngine pricingEngine = new PricingEngine(0, 5, 50);
+
+    private Register register(VehicleType type, int minutes) {
+        Register register = new Register(new Vehicle("ABC123", type));
+        register.setMinutes(minutes);
+        return register;
+    }
+
+    @Test
+    @DisplayName("priceMinor - applies the per-minute rate of each vehicle type")
+    void priceMinor_appliesTariff() {
+        assertEquals(0L, pricingEngine.priceMinor(VehicleType.OFICIAL, 500));
+        assertEquals(1000L, pricingEngine.priceMinor(VehicleType.RESIDENT, 200));
+        assertEquals(6000L, pricingEngine.priceMinor(VehicleType.NON_RESIDENT, 120));
+    }
+
+    @Test
+    @DisplayName("priceMinor - is exact where double arithmetic is not")
+    void priceMinor_isExact() {
+        assertEquals(15L, pricingEngine.priceMinor(register(VehicleType.RESIDENT, 3)));
+        assertEquals(0.15, PricingEngine.toMajorUnits(15L));
+    }
+
+    @Test
+    @DisplayName("priceMinor - prices a batch of registers in order")
+    void priceMinor_batch() {
+        long[] amounts = pricingEngine.priceMinor(List.of(
+                register(VehicleType.NON_RESIDENT, 10),
+                register(VehicleType.RESIDENT, 10),
+                register(VehicleType.OFICIAL, 10)));
+
+        assertArrayEquals(new long[] {500L, 50L, 0L}, amounts);
+    }
+}
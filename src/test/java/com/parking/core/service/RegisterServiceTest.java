@@ -5,7 +5,6 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
 import java.time.LocalDateTime;
-import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,7 +14,6 @@ import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.web.server.ResponseStatusException;
@@ -23,8 +21,11 @@ import org.springframework.web.server.ResponseStatusException;
 import com.parking.core.enums.VehicleType;
 import com.parking.core.model.Register;
 import com.parking.core.model.Vehicle;
+import com.parking.core.model.dto.RegisterCursor;
 import com.parking.core.model.dto.RegisterEntryRequest;
-import com.parking.core.payment.services.StripePaymentLinkService;
+import com.parking.core.model.dto.RegisterFilter;
+import com.parking.core.model.dto.RegisterPage;
+import com.parking.core.model.dto.RegisterRow;
 import com.parking.core.repository.RegisterRepository;
 import com.parking.core.repository.VehicleRepository;
 
@@ -44,9 +45,16 @@ class RegisterServiceTest {
     private SmsNotificationService smsNotificationService;
 
     @Mock
-    private StripePaymentLinkService stripePaymentLinkService;
+    private NotificationOutboxService outboxService;
+
+    @Mock
+    private BillingPeriodService billingPeriodService;
+
+    @Mock
+    private UsageRollupService usageRollupService;
+
+    private ActiveSessionIndex sessionIndex;
 
-    @InjectMocks
     private RegisterService registerService;
 
     private Vehicle testVehicle;
@@ -54,36 +62,68 @@ class RegisterServiceTest {
 
     @BeforeEach
     void setUp() {
+        sessionIndex = new ActiveSessionIndex(registerRepository);
+        registerService = new RegisterService(registerRepository, vehicleRepository, parkingService,
+                smsNotificationService, outboxService, sessionIndex, billingPeriodService, usageRollupService, 100);
         testVehicle = new Vehicle("ABC123", VehicleType.NON_RESIDENT);
         testRequest = new RegisterEntryRequest("ABC123", VehicleType.NON_RESIDENT, null, null);
     }
 
     @Nested
-    @DisplayName("getAllRegisters")
-    class GetAllRegistersTests {
+    @DisplayName("getRegisters")
+    class GetRegistersTests {
+
+        private final RegisterFilter noFilter = new RegisterFilter(null, null, null, null, null);
+
+        private RegisterRow register(long id, LocalDateTime entrydate) {
+            return new RegisterRow(id, "ABC123", VehicleType.NON_RESIDENT, entrydate, null, 0, null);
+        }
 
         @Test
-        @DisplayName("should return all registers")
-        void shouldReturnAll() {
-            Register r1 = new Register(testVehicle);
-            r1.setEntrydate(LocalDateTime.now());
-            when(registerRepository.findAll()).thenReturn(List.of(r1));
+        @DisplayName("should return a cursor when there is a next page")
+        void shouldReturnNextCursor() {
+            LocalDateTime now = LocalDateTime.of(2025, 3, 1, 8, 0);
+            when(registerRepository.findPage(noFilter, null, 3)).thenReturn(
+                    List.of(register(9, now), register(8, now), register(5, now.minusHours(1))));
 
-            List<Register> result = registerService.getAllRegisters();
+            RegisterPage page = registerService.getRegisters(noFilter, null, 2);
 
-            assertEquals(1, result.size());
-            assertEquals(testVehicle, result.get(0).getVehicle());
+            assertEquals(2, page.registers().size());
+            assertEquals("ABC123", page.registers().get(0).vehicle().id());
+            assertEquals(new RegisterCursor(now, 8), RegisterCursor.decode(page.nextCursor()));
         }
 
         @Test
-        @DisplayName("should throw 404 when no registers")
-        void shouldThrow404WhenEmpty() {
-            when(registerRepository.findAll()).thenReturn(Collections.emptyList());
+        @DisplayName("should continue after the decoded cursor and end on the last page")
+        void shouldContinueAfterCursor() {
+            RegisterCursor after = new RegisterCursor(LocalDateTime.of(2025, 3, 1, 8, 0), 8);
+            when(registerRepository.findPage(noFilter, after, 3))
+                    .thenReturn(List.of(register(5, LocalDateTime.of(2025, 3, 1, 7, 0))));
 
+            RegisterPage page = registerService.getRegisters(noFilter, after.encode(), 2);
+
+            assertEquals(1, page.registers().size());
+            assertNull(page.nextCursor());
+        }
+
+        @Test
+        @DisplayName("should clamp the page size")
+        void shouldClampPageSize() {
+            when(registerRepository.findPage(noFilter, null, 101)).thenReturn(List.of());
+
+            RegisterPage page = registerService.getRegisters(noFilter, null, 10_000);
+
+            assertTrue(page.registers().isEmpty());
+        }
+
+        @Test
+        @DisplayName("should throw 400 for a malformed cursor")
+        void shouldThrow400ForBadCursor() {
             ResponseStatusException ex = assertThrows(ResponseStatusException.class,
-                    () -> registerService.getAllRegisters());
+                    () -> registerService.getRegisters(noFilter, "not-a-cursor", 10));
 
-            assertEquals(404, ex.getStatusCode().value());
+            assertEquals(400, ex.getStatusCode().value());
+            verifyNoInteractions(registerRepository);
         }
     }
 
@@ -95,7 +135,6 @@ class RegisterServiceTest {
         @DisplayName("should register vehicle entrance successfully")
         void shouldRegisterEntrance() {
             when(vehicleRepository.findById("ABC123")).thenReturn(Optional.of(testVehicle));
-            when(registerRepository.existsByVehicleAndExitdateIsNull(testVehicle)).thenReturn(false);
             when(registerRepository.save(any(Register.class))).thenAnswer(invocation -> {
                 Register r = invocation.getArgument(0);
                 r.setId(1L);
@@ -108,6 +147,7 @@ class RegisterServiceTest {
             assertEquals(testVehicle, result.getVehicle());
             assertNotNull(result.getEntrydate());
             verify(registerRepository).save(any(Register.class));
+            assertTrue(sessionIndex.isInside("ABC123"));
         }
 
         @Test
@@ -126,21 +166,20 @@ class RegisterServiceTest {
         @Test
         @DisplayName("should throw 400 when vehicle already has active register")
         void shouldThrow400WhenAlreadyRegistered() {
-            when(vehicleRepository.findById("ABC123")).thenReturn(Optional.of(testVehicle));
-            when(registerRepository.existsByVehicleAndExitdateIsNull(testVehicle)).thenReturn(true);
+            sessionIndex.recordEntry("ABC123", 1L, LocalDateTime.now());
 
             ResponseStatusException ex = assertThrows(ResponseStatusException.class,
                     () -> registerService.registerVehicleEntrance(testRequest));
 
             assertEquals(400, ex.getStatusCode().value());
             verify(registerRepository, never()).save(any());
+            verifyNoInteractions(vehicleRepository);
         }
 
         @Test
         @DisplayName("should set entry date on register")
         void shouldSetEntryDate() {
             when(vehicleRepository.findById("ABC123")).thenReturn(Optional.of(testVehicle));
-            when(registerRepository.existsByVehicleAndExitdateIsNull(testVehicle)).thenReturn(false);
             when(registerRepository.save(any(Register.class))).thenAnswer(i -> i.getArgument(0));
 
             ArgumentCaptor<Register> captor = ArgumentCaptor.forClass(Register.class);
@@ -163,9 +202,9 @@ class RegisterServiceTest {
             Register activeRegister = new Register(testVehicle);
             activeRegister.setId(1L);
             activeRegister.setEntrydate(LocalDateTime.now().minusMinutes(30));
+            sessionIndex.recordEntry("ABC123", 1L, activeRegister.getEntrydate());
 
-            when(registerRepository.findByVehicleAndExitdateIsNull(testVehicle))
-                    .thenReturn(Optional.of(activeRegister));
+            when(registerRepository.findWithVehicleById(1L)).thenReturn(Optional.of(activeRegister));
             when(registerRepository.save(any(Register.class))).thenAnswer(i -> i.getArgument(0));
 
             Register result = registerService.leaveVehicle(testVehicle);
@@ -173,18 +212,85 @@ class RegisterServiceTest {
             assertNotNull(result.getExitdate());
             assertTrue(result.getMinutes() >= 29); // allow small timing differences
             verify(registerRepository).save(activeRegister);
+            verify(usageRollupService).recordClose(activeRegister);
+            assertFalse(sessionIndex.isInside("ABC123"));
+            verifyNoInteractions(outboxService);
+        }
+
+        @Test
+        @DisplayName("should queue the exit notification instead of sending it")
+        void shouldQueueExitNotification() {
+            Register activeRegister = new Register(testVehicle);
+            activeRegister.setId(1L);
+            activeRegister.setEntrydate(LocalDateTime.now().minusMinutes(30));
+            activeRegister.setPhoneNumber("+573001234567");
+            activeRegister.setNotificationChannel("whatsapp");
+            sessionIndex.recordEntry("ABC123", 1L, activeRegister.getEntrydate());
+
+            when(registerRepository.findWithVehicleById(1L)).thenReturn(Optional.of(activeRegister));
+            when(registerRepository.save(any(Register.class))).thenAnswer(i -> i.getArgument(0));
+            when(parkingService.calculatePaymentForRegister(activeRegister)).thenReturn(15.0);
+
+            registerService.leaveVehicle(testVehicle);
+
+            verify(outboxService).enqueueExit(activeRegister, "+573001234567", "whatsapp", 15.0);
+            verifyNoInteractions(smsNotificationService);
         }
 
         @Test
         @DisplayName("should throw 400 when no active register for vehicle")
         void shouldThrow400WhenNoActiveRegister() {
-            when(registerRepository.findByVehicleAndExitdateIsNull(testVehicle))
-                    .thenReturn(Optional.empty());
-
             ResponseStatusException ex = assertThrows(ResponseStatusException.class,
                     () -> registerService.leaveVehicle(testVehicle));
 
             assertEquals(400, ex.getStatusCode().value());
+            verifyNoInteractions(registerRepository, usageRollupService);
+        }
+    }
+
+    @Nested
+    @DisplayName("leaveVehicleCash")
+    class LeaveVehicleCashTests {
+
+        @Test
+        @DisplayName("should close the active register without notifications")
+        void shouldCloseRegister() {
+            Register activeRegister = new Register(testVehicle);
+            activeRegister.setId(1L);
+            activeRegister.setEntrydate(LocalDateTime.now().minusMinutes(10));
+            sessionIndex.recordEntry("ABC123", 1L, activeRegister.getEntrydate());
+
+            when(registerRepository.findWithVehicleById(1L)).thenReturn(Optional.of(activeRegister));
+            when(registerRepository.save(any(Register.class))).thenAnswer(i -> i.getArgument(0));
+
+            registerService.leaveVehicleCash("ABC123");
+
+            assertNotNull(activeRegister.getExitdate());
+            assertFalse(sessionIndex.isInside("ABC123"));
+            verify(usageRollupService).recordClose(activeRegister);
+            verifyNoInteractions(smsNotificationService, outboxService);
+        }
+
+        @Test
+        @DisplayName("should throw 404 when vehicle is unknown")
+        void shouldThrow404WhenVehicleUnknown() {
+            when(vehicleRepository.existsById("UNKNOWN")).thenReturn(false);
+
+            ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                    () -> registerService.leaveVehicleCash("UNKNOWN"));
+
+            assertEquals(404, ex.getStatusCode().value());
+        }
+
+        @Test
+        @DisplayName("should throw 400 when vehicle is not inside")
+        void shouldThrow400WhenNotInside() {
+            when(vehicleRepository.existsById("ABC123")).thenReturn(true);
+
+            ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                    () -> registerService.leaveVehicleCash("ABC123"));
+
+            assertEquals(400, ex.getStatusCode().value());
         }
     }
 }
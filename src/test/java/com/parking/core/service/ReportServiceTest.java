@@ -3,10 +3,13 @@ package com.parking.core.service;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
-import java.util.Collections;
-import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.DisplayName;
@@ -17,16 +20,19 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.web.server.ResponseStatusException;
 
+import com.parking.core.enums.ReportFormat;
 import com.parking.core.enums.VehicleType;
-import com.parking.core.model.Register;
-import com.parking.core.model.Vehicle;
-import com.parking.core.repository.RegisterRepository;
+import com.parking.core.model.dto.VehicleBill;
+import com.parking.core.repository.VehicleUsageRollupRepository;
 
 @ExtendWith(MockitoExtension.class)
 class ReportServiceTest {
 
     @Mock
-    private RegisterRepository registerRepository;
+    private VehicleUsageRollupRepository rollupRepository;
+
+    @Mock
+    private BillingPeriodService billingPeriodService;
 
     @InjectMocks
     private ReportService reportService;
@@ -39,14 +45,15 @@ class ReportServiceTest {
         }
     }
 
+    private void givenResidents(VehicleBill... bills) {
+        when(rollupRepository.streamBillsByType(VehicleType.RESIDENT, 0L)).thenReturn(Stream.of(bills));
+    }
+
     @Test
     @DisplayName("should generate monthly report file")
     void shouldGenerateReport() throws Exception {
-        Vehicle resident = new Vehicle("RES001", VehicleType.RESIDENT);
-        Register r = new Register(resident);
-        r.setMinutes(120);
-
-        when(registerRepository.findAllByVehicle_Type(VehicleType.RESIDENT)).thenReturn(List.of(r));
+        when(rollupRepository.existsByTypeAndPeriod(VehicleType.RESIDENT, 0L)).thenReturn(true);
+        givenResidents(new VehicleBill("RES001", 120, 1, 600));
 
         File result = reportService.generateReportMonthly();
 
@@ -59,8 +66,7 @@ class ReportServiceTest {
     @Test
     @DisplayName("should throw 400 when no resident vehicles exist")
     void shouldThrow400WhenNoResidents() {
-        when(registerRepository.findAllByVehicle_Type(VehicleType.RESIDENT))
-                .thenReturn(Collections.emptyList());
+        when(rollupRepository.existsByTypeAndPeriod(VehicleType.RESIDENT, 0L)).thenReturn(false);
 
         ResponseStatusException ex = assertThrows(ResponseStatusException.class,
                 () -> reportService.generateReportMonthly());
@@ -70,22 +76,66 @@ class ReportServiceTest {
     }
 
     @Test
-    @DisplayName("should aggregate minutes per vehicle in report")
-    void shouldAggregateMinutesPerVehicle() throws Exception {
-        Vehicle resident = new Vehicle("RES001", VehicleType.RESIDENT);
-        Register r1 = new Register(resident);
-        r1.setMinutes(60);
-        Register r2 = new Register(resident);
-        r2.setMinutes(90);
-
-        when(registerRepository.findAllByVehicle_Type(VehicleType.RESIDENT)).thenReturn(List.of(r1, r2));
+    @DisplayName("should write the totals read from the usage rollup")
+    void shouldWriteAggregatedMinutes() throws Exception {
+        when(rollupRepository.existsByTypeAndPeriod(VehicleType.RESIDENT, 0L)).thenReturn(true);
+        givenResidents(new VehicleBill("RES001", 150, 2, 750));
 
         File result = reportService.generateReportMonthly();
 
-        assertTrue(result.exists());
         String content = Files.readString(result.toPath());
         assertTrue(content.contains("RES001"));
-        // Total minutes should be 150 (60+90)
         assertTrue(content.contains("150"));
     }
+
+    @Test
+    @DisplayName("should stream the report as CSV")
+    void shouldWriteCsv() throws Exception {
+        givenResidents(
+                new VehicleBill("RES001", 150, 2, 750),
+                new VehicleBill("RES002", 3, 1, 15));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        reportService.writeReportMonthly(ReportFormat.CSV, false, out);
+
+        assertEquals("""
+                plate,minutes,sessions,amount
+                "RES001",150,2,7.50
+                "RES002",3,1,0.15
+                """, out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("should quote CSV plates and neutralise formulas")
+    void shouldEscapeCsvText() throws Exception {
+        givenResidents(
+                new VehicleBill("A\"B,1", 1, 1, 5),
+                new VehicleBill("=HYPERLINK(\"x\")", 1, 1, 5));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        reportService.writeReportMonthly(ReportFormat.CSV, false, out);
+
+        assertEquals("""
+                plate,minutes,sessions,amount
+                "A""B,1",1,1,0.05
+                "'=HYPERLINK(""x"")",1,1,0.05
+                """, out.toString(StandardCharsets.UTF_8));
+        for (String prefix : new String[] {"+", "-", "@"}) {
+            assertEquals("\"'" + prefix + "1\"", ReportService.appendCsvText(new StringBuilder(), prefix + "1").toString());
+        }
+    }
+
+    @Test
+    @DisplayName("should gzip the streamed report")
+    void shouldWriteGzip() throws Exception {
+        givenResidents(new VehicleBill("RES001", 150, 2, 750));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        reportService.writeReportMonthly(ReportFormat.CSV, true, out);
+
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            String content = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            assertTrue(content.contains("\"RES001\",150,2,7.50"));
+        }
+    }
 }
@@ -137,4 +137,18 @@ class SmsNotificationServiceTest {
                     service.sendEntrySms("+573001234567", "ABC-123", LocalDateTime.now()));
         }
     }
+
+    @Test
+    @DisplayName("sendExitSms - reports Twilio errors so the outbox can retry")
+    void sendExitSms_errorReturnsFalse() {
+        try (MockedStatic<Message> messageMock = Mockito.mockStatic(Message.class)) {
+            MessageCreator creator = mock(MessageCreator.class);
+            when(creator.create()).thenThrow(new RuntimeException("Twilio down"));
+            messageMock.when(() -> Message.creator(
+                    any(PhoneNumber.class), any(PhoneNumber.class), anyString()
+            )).thenReturn(creator);
+
+            assertFalse(service.sendExitSms("+573001234567", "ABC-123", 120, 50.00, "https://buy.stripe.com/test42"));
+        }
+    }
 }
@@ -0,0 +1,72 @@
+package com.parking.core.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.parking.core.enums.VehicleType;
+import com.parking.core.model.Register;
+import com.parking.core.model.Vehicle;
+import com.parking.core.repository.VehicleUsageRollupRepository;
+
+@ExtendWith(MockitoExtension.class)
+class UsageRollupServiceTest {
+
+    @Mock
+    private VehicleUsageRollupRepository rollupRepository;
+
+    @Spy
+    private PricingEngine pricingEngine = new PricingEngine(0, 5, 50);
+
+    @InjectMocks
+    private UsageRollupService usageRollupService;
+
+    private final Vehicle resident = new Vehicle("RES001", VehicleType.RESIDENT);
+    private final Vehicle visitor = new Vehicle("ABC123", VehicleType.NON_RESIDENT);
+
+    private Register closed(Vehicle vehicle, int minutes, long period) {
+        Register register = new Register(vehicle);
+        register.setMinutes(minutes);
+        register.setBillingPeriod(period);
+        return register;
+    }
+
+    @Test
+    @DisplayName("recordClose - adds the session to the row of the vehicle and period")
+    void recordClose_upsertsRow() {
+        usageRollupService.recordClose(closed(visitor, 10, 1L));
+
+        verify(rollupRepository).add("ABC123", 1L, 10L, 1L, 500L);
+        verifyNoMoreInteractions(rollupRepository);
+    }
+
+    @Test
+    @DisplayName("recordCloses - issues one upsert per vehicle and period")
+    void recordCloses_groupsByVehicleAndPeriod() {
+        usageRollupService.recordCloses(List.of(
+                closed(resident, 10, 2L), closed(visitor, 5, 2L), closed(resident, 30, 2L)));
+
+        verify(rollupRepository).add("RES001", 2L, 40L, 2L, 200L);
+        verify(rollupRepository).add("ABC123", 2L, 5L, 1L, 250L);
+        verifyNoMoreInteractions(rollupRepository);
+    }
+
+    @Test
+    @DisplayName("rebuild - replaces the rows of the periods with the configured rates")
+    void rebuild_replacesRows() {
+        when(rollupRepository.insertFromRegisters(4L, 4L, 0L, 5L, 50L)).thenReturn(12);
+
+        assertEquals(12, usageRollupService.rebuild(4L, 4L));
+
+        verify(rollupRepository).deleteByPeriodBetween(4L, 4L);
+    }
+}
@@ -0,0 +1,40 @@
+package com.parking.core.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.parking.core.repository.UserRepository;
+
+@ExtendWith(MockitoExtension.class)
+class UserCountServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @InjectMocks
+    private UserCountService userCountService;
+
+    @Test
+    @DisplayName("should count once and serve the cached total until the next refresh")
+    void shouldCacheTotal() {
+        when(userRepository.count()).thenReturn(10L, 11L);
+
+        assertNull(userCountService.refreshedAt());
+        assertEquals(10L, userCountService.total());
+        assertEquals(10L, userCountService.total());
+        assertNotNull(userCountService.refreshedAt());
+        verify(userRepository, times(1)).count();
+
+        userCountService.refresh();
+
+        assertEquals(11L, userCountService.total());
+        verify(userRepository, times(2)).count();
+    }
+}
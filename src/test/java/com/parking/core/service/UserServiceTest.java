@@ -15,16 +15,23 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Sort;
 import org.springframework.web.server.ResponseStatusException;
 
+import com.parking.core.auth.services.TokenEpochService;
+import com.parking.core.auth.services.UserDetailsCache;
 import com.parking.core.enums.Roles;
 import com.parking.core.model.User;
 import com.parking.core.model.Response.PageResponse;
+import com.parking.core.model.dto.UserCursor;
+import com.parking.core.model.dto.UserDTO;
+import com.parking.core.model.dto.UserSlice;
 import com.parking.core.repository.UserRepository;
 
 @ExtendWith(MockitoExtension.class)
@@ -33,6 +40,15 @@ class UserServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private UserDetailsCache userDetailsCache;
+
+    @Mock
+    private TokenEpochService tokenEpochService;
+
+    @Mock
+    private UserCountService userCountService;
+
     @InjectMocks
     private UserService userService;
 
@@ -48,45 +64,34 @@ class UserServiceTest {
     class GetUserTests {
 
         @Test
-        @DisplayName("should return user found by name")
-        void shouldFindByName() {
-            when(userRepository.findByName("John Doe")).thenReturn(Optional.of(testUser));
+        @DisplayName("should look the user up with a single query")
+        void shouldUseSingleQuery() {
+            when(userRepository.lookup("John Doe", null, null, Limit.of(1))).thenReturn(List.of(testUser));
 
             User result = userService.getUser("John Doe", null, null);
 
             assertEquals("johndoe", result.getUsername());
-            verify(userRepository).findByName("John Doe");
+            verify(userRepository).lookup("John Doe", null, null, Limit.of(1));
+            verify(userRepository, never()).findByName(any());
+            verify(userRepository, never()).findByUsername(any());
+            verify(userRepository, never()).findByEmail(any());
         }
 
         @Test
-        @DisplayName("should return user found by username when name not found")
-        void shouldFindByUsername() {
-            when(userRepository.findByName("Unknown")).thenReturn(Optional.empty());
-            when(userRepository.findByUsername("johndoe")).thenReturn(Optional.of(testUser));
+        @DisplayName("should return the first match of the lookup")
+        void shouldReturnFirstMatch() {
+            User other = new User("Unknown", "other", Roles.USER, "other@example.com", null);
+            when(userRepository.lookup("Unknown", "johndoe", null, Limit.of(1))).thenReturn(List.of(other, testUser));
 
             User result = userService.getUser("Unknown", "johndoe", null);
 
-            assertEquals("john@example.com", result.getEmail());
-        }
-
-        @Test
-        @DisplayName("should return user found by email when name and username not found")
-        void shouldFindByEmail() {
-            when(userRepository.findByName(any())).thenReturn(Optional.empty());
-            when(userRepository.findByUsername(any())).thenReturn(Optional.empty());
-            when(userRepository.findByEmail("john@example.com")).thenReturn(Optional.of(testUser));
-
-            User result = userService.getUser("x", "y", "john@example.com");
-
-            assertEquals("John Doe", result.getName());
+            assertEquals("other", result.getUsername());
         }
 
         @Test
         @DisplayName("should throw 404 when user not found by any field")
         void shouldThrow404WhenNotFound() {
-            when(userRepository.findByName(any())).thenReturn(Optional.empty());
-            when(userRepository.findByUsername(any())).thenReturn(Optional.empty());
-            when(userRepository.findByEmail(any())).thenReturn(Optional.empty());
+            when(userRepository.lookup("x", "y", "z", Limit.of(1))).thenReturn(List.of());
 
             ResponseStatusException ex = assertThrows(ResponseStatusException.class,
                     () -> userService.getUser("x", "y", "z"));
@@ -96,6 +101,52 @@ class UserServiceTest {
         }
     }
 
+    @Nested
+    @DisplayName("searchUsers")
+    class SearchUsersTests {
+
+        @Test
+        @DisplayName("should match substrings of queries with three or more characters")
+        void shouldSearchSubstring() {
+            UserDTO dto = new UserDTO("John Doe", "johndoe", "john@example.com", Roles.USER);
+            when(userRepository.search("%ohn%", Limit.of(20))).thenReturn(List.of(dto));
+
+            List<UserDTO> result = userService.searchUsers(" OHN ", 20);
+
+            assertEquals(List.of(dto), result);
+        }
+
+        @Test
+        @DisplayName("should only match prefixes of short queries")
+        void shouldSearchPrefix() {
+            when(userRepository.search("jo%", Limit.of(20))).thenReturn(List.of());
+
+            userService.searchUsers("Jo", 20);
+
+            verify(userRepository).search("jo%", Limit.of(20));
+        }
+
+        @Test
+        @DisplayName("should escape LIKE wildcards and clamp the limit")
+        void shouldEscapeWildcards() {
+            when(userRepository.search("%a\\_b\\%%", Limit.of(100))).thenReturn(List.of());
+
+            userService.searchUsers("a_b%", 5000);
+
+            verify(userRepository).search("%a\\_b\\%%", Limit.of(100));
+        }
+
+        @Test
+        @DisplayName("should throw 400 when the query is blank")
+        void shouldRejectBlankQuery() {
+            ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                    () -> userService.searchUsers("  ", 20));
+
+            assertEquals(400, ex.getStatusCode().value());
+            verifyNoInteractions(userRepository);
+        }
+    }
+
     @Nested
     @DisplayName("getAllUsers")
     class GetAllUsersTests {
@@ -156,4 +207,76 @@ class UserServiceTest {
             assertEquals(0, response.total());
         }
     }
+
+    @Nested
+    @DisplayName("getUsersSlice")
+    class GetUsersSliceTests {
+
+        private final UserDTO john = new UserDTO("John Doe", "johndoe", "john@example.com", Roles.USER);
+
+        @Test
+        @DisplayName("should return the first page with a cursor after its last user")
+        void shouldReturnFirstPage() {
+            when(userRepository.findSlice(PageRequest.ofSize(1)))
+                    .thenReturn(new SliceImpl<>(List.of(john), PageRequest.ofSize(1), true));
+            when(userCountService.total()).thenReturn(42L);
+
+            UserSlice slice = userService.getUsersSlice(null, 1);
+
+            assertEquals(List.of(john), slice.users());
+            assertEquals(new UserCursor("johndoe", "john@example.com"), UserCursor.decode(slice.nextCursor()));
+            assertEquals(42L, slice.total());
+            verify(userRepository, never()).count();
+        }
+
+        @Test
+        @DisplayName("should continue after the cursor and end without a next cursor")
+        void shouldContinueAfterCursor() {
+            String cursor = new UserCursor("johndoe", "john@example.com").encode();
+            when(userRepository.findSliceAfter("johndoe", "john@example.com", PageRequest.ofSize(100)))
+                    .thenReturn(new SliceImpl<>(List.of(), PageRequest.ofSize(100), false));
+
+            UserSlice slice = userService.getUsersSlice(cursor, 1000);
+
+            assertTrue(slice.users().isEmpty());
+            assertNull(slice.nextCursor());
+        }
+
+        @Test
+        @DisplayName("should throw 400 for a malformed cursor")
+        void shouldRejectMalformedCursor() {
+            ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                    () -> userService.getUsersSlice("not a cursor!", 20));
+
+            assertEquals(400, ex.getStatusCode().value());
+        }
+    }
+
+    @Nested
+    @DisplayName("changeRole")
+    class ChangeRoleTests {
+
+        @Test
+        @DisplayName("Should update the role, evict the cached user details and revoke older tokens")
+        void changeRole_evictsCache() {
+            when(userRepository.findByUsername("johndoe")).thenReturn(Optional.of(testUser));
+            when(userRepository.save(testUser)).thenReturn(testUser);
+
+            User result = userService.changeRole("johndoe", Roles.ADMIN);
+
+            assertEquals(Roles.ADMIN, result.getRole());
+            verify(userDetailsCache).invalidate("johndoe");
+            verify(userDetailsCache).invalidate("john@example.com");
+            verify(tokenEpochService).revokeAll("johndoe");
+        }
+
+        @Test
+        @DisplayName("Should throw 404 when the user does not exist")
+        void changeRole_notFound() {
+            when(userRepository.findByUsername("ghost")).thenReturn(Optional.empty());
+
+            assertThrows(ResponseStatusException.class, () -> userService.changeRole("ghost", Roles.ADMIN));
+            verifyNoInteractions(userDetailsCache, tokenEpochService);
+        }
+    }
 }